@@ -0,0 +1,376 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.model.GcEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented, read-only view of parsed GC events.
+ *
+ * <p>Every field of {@link GcEvent} is stored in its own contiguous column, so that the analyzer
+ * can scan only the columns it needs (mostly log type, timestamp and pause time) without
+ * materializing the protobuf messages. Strings (type details and date times) are stored once
+ * in a dictionary and referenced by index.
+ *
+ * <p>The same binary layout is used in memory and on disk. A column file written with
+ * {@link #writeTo(Path)} can be memory-mapped back with {@link #map(Path)}, which makes
+ * re-analysis of a ticket independent from the size of the original text log.
+ *
+ * <p>Layout (little endian):
+ * <pre>
+ * Header  <- MAGIC VERSION count dictionarySize (length utf8Bytes)* padding
+ * Columns <- timestamp[count] pauseTime[count] userTime[count] sysTime[count] realTime[count]
+ *            refTime[count] cmsCpuTime[count] cmsWallTime[count]
+ *            youngUsageBefore[count] youngUsageAfter[count] youngCapacity[count]
+ *            heapUsageBefore[count] heapUsageAfter[count] heapCapacity[count]
+ *            thread[count] typeDetail[count] datetime[count] logType[count]
+ * </pre>
+ */
+public final class GcEventColumns extends AbstractList<GcEvent> implements RandomAccess {
+  private static final int MAGIC = 0x47434556; // "GCEV"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 16;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final List<String> dictionary;
+
+  private final int timestampOffset;
+  private final int pauseTimeOffset;
+  private final int userTimeOffset;
+  private final int sysTimeOffset;
+  private final int realTimeOffset;
+  private final int refTimeOffset;
+  private final int cmsCpuTimeOffset;
+  private final int cmsWallTimeOffset;
+  private final int youngUsageBeforeOffset;
+  private final int youngUsageAfterOffset;
+  private final int youngCapacityOffset;
+  private final int heapUsageBeforeOffset;
+  private final int heapUsageAfterOffset;
+  private final int heapCapacityOffset;
+  private final int threadOffset;
+  private final int typeDetailOffset;
+  private final int datetimeOffset;
+  private final int logTypeOffset;
+
+  private GcEventColumns(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a GC event column file.");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported GC event column file version : " + buffer.getInt(4));
+    }
+    size = buffer.getInt(8);
+
+    final int dictionarySize = buffer.getInt(12);
+    dictionary = new ArrayList<>(dictionarySize);
+    int position = HEADER_SIZE;
+    for (int i = 0; i < dictionarySize; i++) {
+      final byte[] bytes = new byte[buffer.getInt(position)];
+      position += Integer.BYTES;
+      for (int j = 0; j < bytes.length; j++) {
+        bytes[j] = buffer.get(position + j);
+      }
+      position += bytes.length;
+      dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    timestampOffset = align(position);
+    pauseTimeOffset = timestampOffset + size * Long.BYTES;
+    userTimeOffset = pauseTimeOffset + size * Double.BYTES;
+    sysTimeOffset = userTimeOffset + size * Double.BYTES;
+    realTimeOffset = sysTimeOffset + size * Double.BYTES;
+    refTimeOffset = realTimeOffset + size * Double.BYTES;
+    cmsCpuTimeOffset = refTimeOffset + size * Double.BYTES;
+    cmsWallTimeOffset = cmsCpuTimeOffset + size * Double.BYTES;
+    youngUsageBeforeOffset = cmsWallTimeOffset + size * Double.BYTES;
+    youngUsageAfterOffset = youngUsageBeforeOffset + size * Long.BYTES;
+    youngCapacityOffset = youngUsageAfterOffset + size * Long.BYTES;
+    heapUsageBeforeOffset = youngCapacityOffset + size * Long.BYTES;
+    heapUsageAfterOffset = heapUsageBeforeOffset + size * Long.BYTES;
+    heapCapacityOffset = heapUsageAfterOffset + size * Long.BYTES;
+    threadOffset = heapCapacityOffset + size * Long.BYTES;
+    typeDetailOffset = threadOffset + size * Integer.BYTES;
+    datetimeOffset = typeDetailOffset + size * Integer.BYTES;
+    logTypeOffset = datetimeOffset + size * Integer.BYTES;
+
+    if (buffer.limit() < logTypeOffset + size) {
+      throw new IOException("GC event column file is truncated.");
+    }
+  }
+
+  /**
+   * Builds the columns from the given events in memory.
+   *
+   * @param events list of gc events
+   * @return column view of the events
+   */
+  public static GcEventColumns of(List<GcEvent> events) {
+    final Map<String, Integer> dictionaryIndex = new HashMap<>();
+    final List<byte[]> dictionary = new ArrayList<>();
+    final int[] typeDetails = new int[events.size()];
+    final int[] datetimes = new int[events.size()];
+    int dictionaryBytes = 0;
+    for (int i = 0; i < events.size(); i++) {
+      final GcEvent event = events.get(i);
+      for (String value : new String[] { event.getTypeDetail(), event.getDatetime() }) {
+        if (!dictionaryIndex.containsKey(value)) {
+          final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+          dictionaryIndex.put(value, dictionary.size());
+          dictionary.add(bytes);
+          dictionaryBytes += Integer.BYTES + bytes.length;
+        }
+      }
+      typeDetails[i] = dictionaryIndex.get(event.getTypeDetail());
+      datetimes[i] = dictionaryIndex.get(event.getDatetime());
+    }
+
+    final int size = events.size();
+    final long columnsOffset = align(HEADER_SIZE + (long) dictionaryBytes);
+    final long totalSize = columnsOffset
+        + (long) size * (7 * Long.BYTES + 7 * Double.BYTES + 3 * Integer.BYTES + 1);
+    if (totalSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many events to store in one column file.");
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate((int) totalSize).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(dictionary.size());
+    for (byte[] bytes : dictionary) {
+      buffer.putInt(bytes.length).put(bytes);
+    }
+    buffer.position((int) columnsOffset);
+    for (GcEvent event : events) {
+      buffer.putLong(event.getTimestamp());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getPauseTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getUserTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getSysTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getRealTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getRefTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getCmsCpuTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putDouble(event.getCmsWallTime());
+    }
+    for (GcEvent event : events) {
+      buffer.putLong(event.getYoungUsageBefore());
+    }
+    for (GcEvent event : events) {
+      buffer.putLong(event.getYoungUsageAfter());
+    }
+    for (GcEvent event : events) {
+      buffer.putLong(event.getYoungCapacity());
+    }
+    for (GcEvent event : events) {
+      buffer.putLong(event.getHeapUsageBefore());
+    }
+    for (GcEvent event : events) {
+      buffer.putLong(event.getHeapUsageAfter());
+    }
+    for (GcEvent event : events) {
+      buffer.putLong(event.getHeapCapacity());
+    }
+    for (GcEvent event : events) {
+      buffer.putInt(event.getThread());
+    }
+    for (int typeDetail : typeDetails) {
+      buffer.putInt(typeDetail);
+    }
+    for (int datetime : datetimes) {
+      buffer.putInt(datetime);
+    }
+    for (GcEvent event : events) {
+      buffer.put((byte) event.getLogTypeValue());
+    }
+    buffer.flip();
+
+    try {
+      return new GcEventColumns(buffer);
+    } catch (IOException ioe) {
+      throw new IllegalStateException("Failed to build the columns.", ioe);
+    }
+  }
+
+  /**
+   * Memory-maps a column file written by {@link #writeTo(Path)}.
+   *
+   * @param path path of the column file
+   * @return column view backed by the mapped file
+   * @throws IOException if the file cannot be read or is not a column file
+   */
+  public static GcEventColumns map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new GcEventColumns(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes the columns to the given file, replacing the file if it exists.
+   *
+   * @param path path of the column file
+   * @throws IOException if the file cannot be written
+   */
+  public void writeTo(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer source = buffer.duplicate();
+      source.rewind();
+      while (source.hasRemaining()) {
+        channel.write(source);
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Materializes the event at the given index.
+   *
+   * @param index index of the event
+   * @return the event
+   */
+  @Override
+  public GcEvent get(int index) {
+    checkIndex(index);
+    return GcEvent.newBuilder()
+        .setThread(thread(index))
+        .setTimestamp(timestamp(index))
+        .setDatetime(dictionary.get(buffer.getInt(datetimeOffset + index * Integer.BYTES)))
+        .setLogTypeValue(buffer.get(logTypeOffset + index))
+        .setPauseTime(pauseTime(index))
+        .setUserTime(buffer.getDouble(userTimeOffset + index * Double.BYTES))
+        .setSysTime(buffer.getDouble(sysTimeOffset + index * Double.BYTES))
+        .setRealTime(buffer.getDouble(realTimeOffset + index * Double.BYTES))
+        .setRefTime(buffer.getDouble(refTimeOffset + index * Double.BYTES))
+        .setCmsCpuTime(buffer.getDouble(cmsCpuTimeOffset + index * Double.BYTES))
+        .setCmsWallTime(buffer.getDouble(cmsWallTimeOffset + index * Double.BYTES))
+        .setTypeDetail(typeDetail(index))
+        .setYoungUsageBefore(youngUsageBefore(index))
+        .setYoungUsageAfter(youngUsageAfter(index))
+        .setYoungCapacity(youngCapacity(index))
+        .setHeapUsageBefore(heapUsageBefore(index))
+        .setHeapUsageAfter(heapUsageAfter(index))
+        .setHeapCapacity(heapCapacity(index))
+        .build();
+  }
+
+  public GcEvent.LogType logType(int index) {
+    final GcEvent.LogType logType = GcEvent.LogType.valueOf(buffer.get(logTypeOffset + index));
+    return logType == null ? GcEvent.LogType.UNRECOGNIZED : logType;
+  }
+
+  public long timestamp(int index) {
+    return buffer.getLong(timestampOffset + index * Long.BYTES);
+  }
+
+  public double pauseTime(int index) {
+    return buffer.getDouble(pauseTimeOffset + index * Double.BYTES);
+  }
+
+  public long youngUsageBefore(int index) {
+    return buffer.getLong(youngUsageBeforeOffset + index * Long.BYTES);
+  }
+
+  public long youngUsageAfter(int index) {
+    return buffer.getLong(youngUsageAfterOffset + index * Long.BYTES);
+  }
+
+  public long youngCapacity(int index) {
+    return buffer.getLong(youngCapacityOffset + index * Long.BYTES);
+  }
+
+  public long heapUsageBefore(int index) {
+    return buffer.getLong(heapUsageBeforeOffset + index * Long.BYTES);
+  }
+
+  public long heapUsageAfter(int index) {
+    return buffer.getLong(heapUsageAfterOffset + index * Long.BYTES);
+  }
+
+  public long heapCapacity(int index) {
+    return buffer.getLong(heapCapacityOffset + index * Long.BYTES);
+  }
+
+  public int thread(int index) {
+    return buffer.getInt(threadOffset + index * Integer.BYTES);
+  }
+
+  /**
+   * Returns the dictionary index of the type detail, which is cheaper to group by than
+   * the string itself.
+   *
+   * @param index index of the event
+   * @return dictionary index of the type detail
+   */
+  public int typeDetailId(int index) {
+    return buffer.getInt(typeDetailOffset + index * Integer.BYTES);
+  }
+
+  public String typeDetail(int index) {
+    return dictionary.get(typeDetailId(index));
+  }
+
+  /**
+   * Returns the string stored in the dictionary.
+   *
+   * @param id dictionary index
+   * @return the string
+   */
+  public String dictionaryString(int id) {
+    return dictionary.get(id);
+  }
+
+  public int dictionarySize() {
+    return dictionary.size();
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private static int align(int position) {
+    return (position + Long.BYTES - 1) & -Long.BYTES;
+  }
+
+  private static long align(long position) {
+    return (position + Long.BYTES - 1) & -Long.BYTES;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.analysis.GcHeapUsage;
+import edu.kaist.algo.analysis.GcHeapUsageState;
+
+/**
+ * Derives allocation rate, promotion rate and old gen occupancy from the usage of collections
+ * while the events are streamed.
+ *
+ * <ul>
+ *   <li>allocated = young gen usage before this collection - young gen usage after the previous
+ *   collection</li>
+ *   <li>promoted = old gen usage after - old gen usage before a minor collection</li>
+ *   <li>old gen usage = heap usage - young gen usage</li>
+ * </ul>
+ */
+class HeapUsageAggregator {
+  private final TimeSeriesBuffer allocationRates = new TimeSeriesBuffer();
+  private final TimeSeriesBuffer promotionRates = new TimeSeriesBuffer();
+  private final TimeSeriesBuffer oldOccupancies = new TimeSeriesBuffer();
+
+  private boolean hasPrevious;
+  private long previousTimestamp;
+  private long previousYoungUsage;
+
+  private double totalAllocated;
+  private double totalAllocationTime;
+  private double totalPromoted;
+  private double totalPromotionTime;
+
+  HeapUsageAggregator() {
+  }
+
+  /**
+   * Creates the aggregator resuming from the state of another aggregator.
+   *
+   * @param state the state to resume from
+   */
+  HeapUsageAggregator(GcHeapUsageState state) {
+    allocationRates.addAll(state.getAllocationRates());
+    promotionRates.addAll(state.getPromotionRates());
+    oldOccupancies.addAll(state.getOldOccupancies());
+    hasPrevious = state.getHasPrevious();
+    previousTimestamp = state.getPreviousTimestamp();
+    previousYoungUsage = state.getPreviousYoungUsage();
+    totalAllocated = state.getTotalAllocated();
+    totalAllocationTime = state.getTotalAllocationTime();
+    totalPromoted = state.getTotalPromoted();
+    totalPromotionTime = state.getTotalPromotionTime();
+  }
+
+  /**
+   * Adds a collection. Events without usage are ignored.
+   *
+   * @param events gc events
+   * @param index index of the collection event
+   * @param minor whether the collection is a minor collection
+   */
+  void add(GcEventColumns events, int index, boolean minor) {
+    if (events.youngCapacity(index) == 0 || events.heapCapacity(index) == 0) {
+      return;
+    }
+    final long timestamp = events.timestamp(index);
+    final long youngBefore = events.youngUsageBefore(index);
+    final long youngAfter = events.youngUsageAfter(index);
+    final long oldBefore = events.heapUsageBefore(index) - youngBefore;
+    final long oldAfter = events.heapUsageAfter(index) - youngAfter;
+
+    oldOccupancies.add(timestamp, oldAfter);
+
+    if (hasPrevious && timestamp > previousTimestamp) {
+      final double interval = (timestamp - previousTimestamp) / 1000.0;
+      final long allocated = Math.max(youngBefore - previousYoungUsage, 0);
+      allocationRates.add(timestamp, allocated / interval);
+      totalAllocated += allocated;
+      totalAllocationTime += interval;
+
+      if (minor) {
+        final long promoted = oldAfter - oldBefore;
+        promotionRates.add(timestamp, promoted / interval);
+        totalPromoted += promoted;
+        totalPromotionTime += interval;
+      }
+    }
+
+    hasPrevious = true;
+    previousTimestamp = timestamp;
+    previousYoungUsage = youngAfter;
+  }
+
+  /**
+   * Builds the heap usage.
+   *
+   * @param maxPoints maximum number of points of each series, 0 to keep every point
+   * @return the heap usage
+   */
+  GcHeapUsage build(int maxPoints) {
+    return GcHeapUsage.newBuilder()
+        .setMeanAllocationRate(totalAllocationTime > 0 ? totalAllocated / totalAllocationTime : 0)
+        .setMeanPromotionRate(totalPromotionTime > 0 ? totalPromoted / totalPromotionTime : 0)
+        .setAllocationRates(allocationRates.build(maxPoints))
+        .setPromotionRates(promotionRates.build(maxPoints))
+        .setOldOccupancies(oldOccupancies.build(maxPoints))
+        .build();
+  }
+
+  /**
+   * Returns the state of the aggregator to resume from.
+   *
+   * @param maxPoints maximum number of points of each series, 0 to keep every point
+   * @return the state
+   */
+  GcHeapUsageState state(int maxPoints) {
+    return GcHeapUsageState.newBuilder()
+        .setTotalAllocated(totalAllocated)
+        .setTotalAllocationTime(totalAllocationTime)
+        .setTotalPromoted(totalPromoted)
+        .setTotalPromotionTime(totalPromotionTime)
+        .setHasPrevious(hasPrevious)
+        .setPreviousTimestamp(previousTimestamp)
+        .setPreviousYoungUsage(previousYoungUsage)
+        .setAllocationRates(allocationRates.build(maxPoints))
+        .setPromotionRates(promotionRates.build(maxPoints))
+        .setOldOccupancies(oldOccupancies.build(maxPoints))
+        .build();
+  }
+}
@@ -9,22 +9,58 @@
 package edu.kaist.algo.analyzer;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
 import edu.kaist.algo.analysis.GcConcurrentStat;
 import edu.kaist.algo.analysis.GcEstimatedPauseTime;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.analysis.GcMmuCurve;
 import edu.kaist.algo.analysis.GcPauseOutliers;
 import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.analysis.GcPauseSummary;
+import edu.kaist.algo.analysis.GcTimeSeries;
+import edu.kaist.algo.jfr.AnalysisPhaseEvent;
+import edu.kaist.algo.jfr.FlightRecorder;
 import edu.kaist.algo.model.GcEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Class for Analyze the log.
  */
 public class LogAnalyzer {
+  public static final List<Double> DEFAULT_MEAN_LEVELS = ImmutableList.of(0.01, 0.05, 0.1);
+  public static final List<Double> DEFAULT_OUTLIER_LEVELS = ImmutableList.of(0.01, 0.1, 0.25);
+  public static final List<Double> DEFAULT_QUANTILE_LEVELS =
+      ImmutableList.of(0.5, 0.9, 0.99, 0.999);
+  // 1 minute and 1 hour, in milliseconds
+  public static final List<Long> DEFAULT_WINDOW_SIZES = ImmutableList.of(60_000L, 3_600_000L);
+  // 10 milliseconds to 1 minute
+  public static final List<Long> DEFAULT_MMU_WINDOW_SIZES =
+      ImmutableList.of(10L, 100L, 1_000L, 10_000L, 60_000L);
+  // enough to draw a chart, small enough to keep the result far below the gRPC message limit
+  public static final int DEFAULT_MAX_POINTS = 2_000;
+
+  // maximum number of points of each time series kept in a summary
+  private static final int SUMMARY_MAX_POINTS = 10_000;
+
+  private static final Set<GcEvent.LogType> STOP_THE_WORLD = Sets.immutableEnumSet(
+      GcEvent.LogType.FULL_GC,
+      GcEvent.LogType.MINOR_GC,
+      GcEvent.LogType.CMS_INIT_MARK,
+      GcEvent.LogType.CMS_FINAL_REMARK
+  );
+
   private static final List<String> concurrentOrder = ImmutableList.of(
       "CMS-concurrent-mark-start",
       "CMS-concurrent-mark-start",
@@ -39,7 +75,14 @@ public class LogAnalyzer {
       "CMS-concurrent-reset"
   );
 
-  private List<GcEvent> gcEvents;
+  // the events in order, in segments read without copying, e.g. the appended parts of a log
+  private final List<GcEventColumns> segments = new ArrayList<>();
+  // index of the first event of each segment
+  private final int[] segmentStarts;
+  private final int eventCount;
+  private long[] windowSizes = Longs.toArray(DEFAULT_WINDOW_SIZES);
+  private long[] mmuWindowSizes = Longs.toArray(DEFAULT_MMU_WINDOW_SIZES);
+  private int maxPoints = DEFAULT_MAX_POINTS;
 
   /**
    * Constructor of LogAnalyzer.
@@ -47,7 +90,105 @@ public class LogAnalyzer {
    * @param events list of gc events to analyze
    */
   public LogAnalyzer(List<GcEvent> events) {
-    gcEvents = events;
+    this(Collections.singletonList(events instanceof GcEventColumns
+        ? (GcEventColumns) events : GcEventColumns.of(events)));
+  }
+
+  private LogAnalyzer(Iterable<GcEventColumns> columns) {
+    long count = 0;
+    for (GcEventColumns segment : columns) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+        count += segment.size();
+      }
+    }
+    if (count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many events to analyze at once.");
+    }
+    eventCount = (int) count;
+    segmentStarts = new int[segments.size()];
+    for (int s = 1; s < segments.size(); s++) {
+      segmentStarts[s] = segmentStarts[s - 1] + segments.get(s - 1).size();
+    }
+  }
+
+  /**
+   * Creates the analyzer of the events of the segments in order, e.g. the event column files of
+   * the appended parts of a log. The segments are read as they are, without being copied.
+   *
+   * @param segments the columns of the events, in order
+   * @return the analyzer of the events of every segment
+   */
+  public static LogAnalyzer ofSegments(List<GcEventColumns> segments) {
+    return new LogAnalyzer(segments);
+  }
+
+  /**
+   * Sets the sizes of the time windows for the windowed pause statistics.
+   *
+   * @param windowSizes window sizes in milliseconds <font color=orange>(should be positive)</font>
+   * @return this analyzer
+   */
+  public LogAnalyzer setWindowSizes(long... windowSizes) {
+    for (long windowSize : windowSizes) {
+      if (windowSize <= 0) {
+        throw new IllegalArgumentException("Window size should be positive.");
+      }
+    }
+    this.windowSizes = windowSizes.clone();
+    return this;
+  }
+
+  /**
+   * Returns the time span of the events, from the earliest to the latest timestamp.
+   *
+   * @return the span in milliseconds, 0 without events
+   */
+  public long getSpan() {
+    if (eventCount == 0) {
+      return 0;
+    }
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (GcEventColumns segment : segments) {
+      for (int i = 0; i < segment.size(); i++) {
+        min = Math.min(min, segment.timestamp(i));
+        max = Math.max(max, segment.timestamp(i));
+      }
+    }
+    return max - min;
+  }
+
+  /**
+   * Sets the window sizes of the minimum mutator utilization curve.
+   *
+   * @param mmuWindowSizes window sizes in milliseconds
+   *                       <font color=orange>(should be positive)</font>
+   * @return this analyzer
+   */
+  public LogAnalyzer setMmuWindowSizes(long... mmuWindowSizes) {
+    for (long windowSize : mmuWindowSizes) {
+      if (windowSize <= 0) {
+        throw new IllegalArgumentException("Window size should be positive.");
+      }
+    }
+    this.mmuWindowSizes = mmuWindowSizes.clone();
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of points of each time series. Longer series are downsampled.
+   *
+   * @param maxPoints maximum number of points, 0 to keep every point
+   *                  <font color=orange>(should be 0 or larger than 2)</font>
+   * @return this analyzer
+   */
+  public LogAnalyzer setMaxPoints(int maxPoints) {
+    if (maxPoints != 0 && maxPoints < 3) {
+      throw new IllegalArgumentException("Max points should be 0 or larger than 2.");
+    }
+    this.maxPoints = maxPoints;
+    return this;
   }
 
   /**
@@ -57,61 +198,162 @@ public class LogAnalyzer {
    * @return analyzed data
    */
   public GcAnalyzedData analyzeData() {
-    return analyzeData(new Double[] { 0.01, 0.05, 0.1 }, new Double[] { 0.01, 0.1, 0.25 });
+    return analyzeData(DEFAULT_MEAN_LEVELS.toArray(new Double[0]),
+        DEFAULT_OUTLIER_LEVELS.toArray(new Double[0]));
   }
 
   /**
-   * Analyze GcEvents with given levels.
+   * Analyze GcEvents with given levels. The statistics of a pause type with less than two pauses
+   * have only the count and the total pause time, and those with less than three pauses have no
+   * outliers.
    *
    * @param meanLevels levels to estimating mean.
    * @param outlierLevels levels to detect outliers.
    * @return analyzed data
    */
   public GcAnalyzedData analyzeData(Double[] meanLevels, Double[] outlierLevels) {
-    return GcAnalyzedData.newBuilder()
-        .addPauses(analyzePauseTime(GcEvent.LogType.FULL_GC, meanLevels, outlierLevels))
-        .addPauses(analyzePauseTime(GcEvent.LogType.MINOR_GC, meanLevels, outlierLevels))
-        .addPauses(analyzePauseTime(GcEvent.LogType.CMS_INIT_MARK, meanLevels, outlierLevels))
-        .addPauses(analyzePauseTime(GcEvent.LogType.CMS_FINAL_REMARK, meanLevels, outlierLevels))
-        .addAllConcurrences(analyzedConcurrentEvents())
-        .build();
+    final PauseWindowAggregator[] windows = new PauseWindowAggregator[windowSizes.length];
+    for (int i = 0; i < windowSizes.length; i++) {
+      windows[i] = new PauseWindowAggregator(windowSizes[i]);
+    }
+    final MmuCurveCalculator mmu = new MmuCurveCalculator();
+    final HeapUsageAggregator heapUsage = new HeapUsageAggregator();
+    final TimeSeriesBuffer pauseTimes = new TimeSeriesBuffer();
+    AnalysisPhaseEvent phase = FlightRecorder.beginAnalysisPhase();
+    final int[][] indicesByType = scanEvents(windows, mmu, heapUsage, pauseTimes);
+    FlightRecorder.commitAnalysisPhase(phase, "scan", eventCount);
+
+    phase = FlightRecorder.beginAnalysisPhase();
+    final GcAnalyzedData.Builder builder = GcAnalyzedData.newBuilder()
+        .addPauses(analyzePauseTime(GcEvent.LogType.FULL_GC,
+            indicesByType, meanLevels, outlierLevels))
+        .addPauses(analyzePauseTime(GcEvent.LogType.MINOR_GC,
+            indicesByType, meanLevels, outlierLevels))
+        .addPauses(analyzePauseTime(GcEvent.LogType.CMS_INIT_MARK,
+            indicesByType, meanLevels, outlierLevels))
+        .addPauses(analyzePauseTime(GcEvent.LogType.CMS_FINAL_REMARK,
+            indicesByType, meanLevels, outlierLevels))
+        .addAllConcurrences(analyzedConcurrentEvents(
+            indicesByType[GcEvent.LogType.CMS_CONCURRENT.ordinal()]));
+    FlightRecorder.commitAnalysisPhase(phase, "statistics", eventCount);
+
+    phase = FlightRecorder.beginAnalysisPhase();
+    builder.setMmu(mmu.build(mmuWindowSizes))
+        .setHeapUsage(heapUsage.build(maxPoints))
+        .setPauseTimes(pauseTimes.build(maxPoints));
+    for (PauseWindowAggregator window : windows) {
+      builder.addWindows(window.build());
+    }
+    final GcAnalyzedData data = builder.build();
+    FlightRecorder.commitAnalysisPhase(phase, "curves", eventCount);
+    return data;
   }
 
-  private GcPauseStat analyzePauseTime(GcEvent.LogType type,
+  // Returns the indices of events for each log type, in the order of the log.
+  // The STW pauses are fed to the window aggregators, the MMU calculator and the pause time
+  // series, and the collections to the heap usage aggregator during the same pass.
+  private int[][] scanEvents(PauseWindowAggregator[] windows, MmuCurveCalculator mmu,
+                             HeapUsageAggregator heapUsage, TimeSeriesBuffer pauseTimes) {
+    final int typeCount = GcEvent.LogType.values().length;
+    final int[] counts = new int[typeCount];
+    for (GcEventColumns segment : segments) {
+      for (int i = 0; i < segment.size(); i++) {
+        counts[segment.logType(i).ordinal()]++;
+      }
+    }
+
+    final int[][] indices = new int[typeCount][];
+    for (int type = 0; type < typeCount; type++) {
+      indices[type] = new int[counts[type]];
+      counts[type] = 0;
+    }
+    for (int s = 0; s < segments.size(); s++) {
+      final GcEventColumns segment = segments.get(s);
+      for (int i = 0; i < segment.size(); i++) {
+        final GcEvent.LogType logType = segment.logType(i);
+        indices[logType.ordinal()][counts[logType.ordinal()]++] = segmentStarts[s] + i;
+        final long timestamp = segment.timestamp(i);
+        if (STOP_THE_WORLD.contains(logType)) {
+          final double pauseTime = segment.pauseTime(i);
+          for (PauseWindowAggregator window : windows) {
+            window.add(timestamp, pauseTime);
+          }
+          mmu.add(timestamp, pauseTime);
+          pauseTimes.add(timestamp, pauseTime);
+          if (logType == GcEvent.LogType.MINOR_GC || logType == GcEvent.LogType.FULL_GC) {
+            heapUsage.add(segment, i, logType == GcEvent.LogType.MINOR_GC);
+          }
+        } else {
+          mmu.observe(timestamp);
+        }
+      }
+    }
+    return indices;
+  }
+
+  // index of the segment of the event
+  private int segmentOf(int index) {
+    final int found = Arrays.binarySearch(segmentStarts, index);
+    return found >= 0 ? found : -found - 2;
+  }
+
+  private double pauseTime(int index) {
+    final int s = segmentOf(index);
+    return segments.get(s).pauseTime(index - segmentStarts[s]);
+  }
+
+  private GcEvent event(int index) {
+    final int s = segmentOf(index);
+    return segments.get(s).get(index - segmentStarts[s]);
+  }
+
+  private GcPauseStat analyzePauseTime(GcEvent.LogType type, int[][] indicesByType,
                                        Double[] meanLevels, Double[] outlierLevels) {
-    List<GcEvent> data = gcEvents.stream()
-        .filter(e -> e.getLogType() == type)
-        .collect(Collectors.toList());
-    List<Double> pauseTimeList = data.stream()
-        .mapToDouble(GcEvent::getPauseTime)
-        .boxed().collect(Collectors.toList());
-
-    final double totalTime = Statistics.getTotalSum(pauseTimeList);
-    final double sampleMean = Statistics.getSampleMean(pauseTimeList);
-    final double sampleStdDev = Statistics.getSampleStdDev(pauseTimeList, sampleMean);
-    final double sampleMedian = Statistics.getSampleMedian(pauseTimeList);
-    final GcEvent min = Statistics.getMin(data, GcEvent::getPauseTime);
-    final GcEvent max = Statistics.getMax(data, GcEvent::getPauseTime);
+    final int[] indices = indicesByType[type.ordinal()];
+    final double[] pauseTimes = new double[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      pauseTimes[i] = pauseTime(indices[i]);
+    }
+
+    final double totalTime = Statistics.getTotalSum(pauseTimes);
+    // the same statistics as Summaries.analyze for the types with few pauses
+    if (indices.length < 2) {
+      return GcPauseStat.newBuilder()
+          .setType(type)
+          .setCount(indices.length)
+          .setTotalPauseTime(totalTime)
+          .build();
+    }
+    final double sampleMean = Statistics.getSampleMean(pauseTimes);
+    final double sampleStdDev = Statistics.getSampleStdDev(pauseTimes, sampleMean);
+    final double sampleMedian = Statistics.getSampleMedian(pauseTimes);
+    final GcEvent min = event(indices[Statistics.getMinIndex(pauseTimes)]);
+    final GcEvent max = event(indices[Statistics.getMaxIndex(pauseTimes)]);
 
     ArrayList<GcEstimatedPauseTime> means = new ArrayList<>();
     for (Double meanLevel : meanLevels) {
       means.add(GcEstimatedPauseTime.newBuilder()
           .setLevel(meanLevel)
-          .setMean(Statistics.estimateMean(sampleMean, sampleStdDev, data.size(), meanLevel))
+          .setMean(Statistics.estimateMean(sampleMean, sampleStdDev, indices.length, meanLevel))
           .build());
     }
 
     ArrayList<GcPauseOutliers> outliers = new ArrayList<>();
     for (Double outlierLevel : outlierLevels) {
-      outliers.add(GcPauseOutliers.newBuilder()
-          .setLevel(outlierLevel).addAllEvents(Statistics.getOutliers(data, sampleMean,
-              sampleStdDev, data.size(), outlierLevel, GcEvent::getPauseTime))
-          .build());
+      final GcPauseOutliers.Builder builder = GcPauseOutliers.newBuilder().setLevel(outlierLevel);
+      // Grubbs' test needs three pauses
+      if (indices.length > 2) {
+        for (int outlier : Statistics.getOutlierIndices(pauseTimes, sampleMean, sampleStdDev,
+            outlierLevel)) {
+          builder.addEvents(event(indices[outlier]));
+        }
+      }
+      outliers.add(builder.build());
     }
 
     return GcPauseStat.newBuilder()
         .setType(type)
-        .setCount(data.size())
+        .setCount(indices.length)
         .setTotalPauseTime(totalTime)
         .setSampleMean(sampleMean)
         .setSampleStdDev(sampleStdDev)
@@ -123,11 +365,31 @@ public class LogAnalyzer {
         .build();
   }
 
-  private List<GcConcurrentStat> analyzedConcurrentEvents() {
-    return gcEvents.stream()
-        .filter(e -> e.getLogType() == GcEvent.LogType.CMS_CONCURRENT)
-        .collect(Collectors.groupingBy(GcEvent::getTypeDetail, Collectors.counting()))
-        .entrySet().stream()
+  private List<GcConcurrentStat> analyzedConcurrentEvents(int[] indices) {
+    // each segment has its own dictionary
+    final long[][] counts = new long[segments.size()][];
+    for (int s = 0; s < segments.size(); s++) {
+      counts[s] = new long[segments.get(s).dictionarySize()];
+    }
+    for (int index : indices) {
+      final int s = segmentOf(index);
+      counts[s][segments.get(s).typeDetailId(index - segmentStarts[s])]++;
+    }
+
+    final Map<String, Long> countByTypeDetail = new HashMap<>();
+    for (int s = 0; s < segments.size(); s++) {
+      for (int id = 0; id < counts[s].length; id++) {
+        if (counts[s][id] > 0) {
+          countByTypeDetail.merge(segments.get(s).dictionaryString(id), counts[s][id], Long::sum);
+        }
+      }
+    }
+
+    return toConcurrentStats(countByTypeDetail);
+  }
+
+  static List<GcConcurrentStat> toConcurrentStats(Map<String, ? extends Number> counts) {
+    return counts.entrySet().stream()
         .sorted((c1, c2) -> Integer.compare(
             concurrentOrder.indexOf(c1.getKey()), concurrentOrder.indexOf(c2.getKey())))
         .map(e -> GcConcurrentStat.newBuilder()
@@ -135,4 +397,141 @@ public class LogAnalyzer {
             .setCount(e.getValue().intValue())
             .build()).collect(Collectors.toList());
   }
+
+  /**
+   * Summarizes GcEvents into a mergeable summary.
+   *
+   * @return the summary of the events
+   */
+  public GcLogSummary summarize() {
+    return summarize(GcLogSummary.getDefaultInstance());
+  }
+
+  /**
+   * Merges GcEvents into the summary of the preceding events of the same log, in one scan of
+   * the events. The cost does not depend on the number of the preceding events.
+   *
+   * <p>The MMU curve takes the windows across the boundary into account with the pauses at the
+   * end of the previous summary, which cover the largest MMU window.
+   *
+   * @param previous the summary of the preceding events
+   * @return the summary of the preceding events and the events of this analyzer
+   */
+  public GcLogSummary summarize(GcLogSummary previous) {
+    final boolean resumed = previous.getEventCount() > 0;
+    final long maxMmuWindowSize = Arrays.stream(mmuWindowSizes).max().orElse(0);
+
+    final PauseWindowAggregator[] windows = new PauseWindowAggregator[windowSizes.length];
+    for (int i = 0; i < windowSizes.length; i++) {
+      windows[i] = resumed && previous.getWindowsCount() == windowSizes.length
+          && previous.getWindows(i).getWindowSize() == windowSizes[i]
+          ? new PauseWindowAggregator(previous.getWindows(i))
+          : new PauseWindowAggregator(windowSizes[i]);
+    }
+
+    final MmuCurveCalculator mmu = new MmuCurveCalculator();
+    double tailPauseTime = 0;
+    if (resumed) {
+      mmu.observe(Math.max(previous.getSpanStart(), previous.getSpanEnd() - maxMmuWindowSize));
+      final GcTimeSeries tailPauses = previous.getTailPauses();
+      for (int i = 0; i < tailPauses.getTimestampsCount(); i++) {
+        mmu.add(tailPauses.getTimestamps(i), tailPauses.getValues(i));
+        tailPauseTime += tailPauses.getValues(i) * 1000;
+      }
+    }
+
+    final HeapUsageAggregator heapUsage = new HeapUsageAggregator(previous.getHeapUsage());
+    final TimeSeriesBuffer pauseTimes = new TimeSeriesBuffer();
+    pauseTimes.addAll(previous.getPauseTimes());
+
+    final Map<GcEvent.LogType, PauseSummarizer> pauses = new EnumMap<>(GcEvent.LogType.class);
+    for (GcEvent.LogType type : STOP_THE_WORLD) {
+      pauses.put(type, new PauseSummarizer(type, previous.getPausesList().stream()
+          .filter(pause -> pause.getType() == type)
+          .findFirst().orElse(GcPauseSummary.getDefaultInstance())));
+    }
+    final Map<String, Integer> concurrences = new HashMap<>(previous.getConcurrences());
+
+    AnalysisPhaseEvent phase = FlightRecorder.beginAnalysisPhase();
+    for (GcEventColumns segment : segments) {
+      for (int i = 0; i < segment.size(); i++) {
+        final GcEvent.LogType logType = segment.logType(i);
+        final long timestamp = segment.timestamp(i);
+        if (STOP_THE_WORLD.contains(logType)) {
+          final double pauseTime = segment.pauseTime(i);
+          for (PauseWindowAggregator window : windows) {
+            window.add(timestamp, pauseTime);
+          }
+          mmu.add(timestamp, pauseTime);
+          pauseTimes.add(timestamp, pauseTime);
+          if (logType == GcEvent.LogType.MINOR_GC || logType == GcEvent.LogType.FULL_GC) {
+            heapUsage.add(segment, i, logType == GcEvent.LogType.MINOR_GC);
+          }
+          pauses.get(logType).add(segment, i);
+        } else {
+          mmu.observe(timestamp);
+          if (logType == GcEvent.LogType.CMS_CONCURRENT) {
+            concurrences.merge(segment.typeDetail(i), 1, Integer::sum);
+          }
+        }
+      }
+    }
+    FlightRecorder.commitAnalysisPhase(phase, "summary_scan", eventCount);
+
+    phase = FlightRecorder.beginAnalysisPhase();
+    final GcMmuCurve curve = mmu.build(mmuWindowSizes);
+    final double spanStart = resumed ? previous.getSpanStart() : mmu.spanStart();
+    final double spanEnd = resumed ? Math.max(previous.getSpanEnd(), mmu.spanEnd()) : mmu.spanEnd();
+    final double totalPauseTime = previous.getTotalPauseTime() - tailPauseTime
+        + mmu.totalPauseTime();
+
+    final GcLogSummary.Builder builder = GcLogSummary.newBuilder()
+        .setEventCount(previous.getEventCount() + eventCount)
+        .setSpanStart(spanStart)
+        .setSpanEnd(spanEnd)
+        .setTotalPauseTime(totalPauseTime)
+        .putAllConcurrences(concurrences)
+        .setMmu(resumed ? mergeMmuCurves(previous, curve, mmu.spanEnd() - mmu.spanStart(),
+            spanEnd - spanStart, totalPauseTime) : curve)
+        .setTailPauses(mmu.pausesAfter(spanEnd - maxMmuWindowSize))
+        .setHeapUsage(heapUsage.state(SUMMARY_MAX_POINTS))
+        .setPauseTimes(pauseTimes.build(SUMMARY_MAX_POINTS));
+    for (PauseSummarizer pause : pauses.values()) {
+      builder.addPauses(pause.build());
+    }
+    for (PauseWindowAggregator window : windows) {
+      builder.addWindows(window.build());
+    }
+    final GcLogSummary summary = builder.build();
+    FlightRecorder.commitAnalysisPhase(phase, "summary_curves", eventCount);
+    return summary;
+  }
+
+  // The minimum of the windows of the previous summary and the windows seen by the calculator,
+  // which starts from the tail pauses of the previous summary. A curve only counts for the window
+  // sizes within its span, since larger windows were clamped to the span.
+  private GcMmuCurve mergeMmuCurves(GcLogSummary previous, GcMmuCurve curve, double curveSpan,
+                                    double span, double totalPauseTime) {
+    final double previousSpan = previous.getSpanEnd() - previous.getSpanStart();
+    final boolean comparable = previous.getMmu().getWindowSizesList()
+        .equals(curve.getWindowSizesList());
+
+    final GcMmuCurve.Builder builder = GcMmuCurve.newBuilder();
+    for (int i = 0; i < curve.getWindowSizesCount(); i++) {
+      final long windowSize = curve.getWindowSizes(i);
+      double utilization;
+      if (curveSpan >= span) {
+        utilization = curve.getUtilizations(i);
+      } else if (windowSize >= span) {
+        utilization = 1.0 - totalPauseTime / span;
+      } else {
+        utilization = curveSpan >= windowSize ? curve.getUtilizations(i) : 1.0;
+        if (comparable && previousSpan >= windowSize) {
+          utilization = Math.min(utilization, previous.getMmu().getUtilizations(i));
+        }
+      }
+      builder.addWindowSizes(windowSize).addUtilizations(utilization);
+    }
+    return builder.build();
+  }
 }
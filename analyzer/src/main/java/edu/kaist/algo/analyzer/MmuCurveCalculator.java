@@ -0,0 +1,206 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.analysis.GcMmuCurve;
+import edu.kaist.algo.analysis.GcTimeSeries;
+
+import java.util.Arrays;
+
+/**
+ * Computes the minimum mutator utilization (MMU) curve of the STW pauses.
+ *
+ * <p>The pause time inside a sliding window is piecewise linear in the window position, so its
+ * maximum is reached by a window starting at the start of a pause, or ending at the end of a
+ * pause. The pauses are merged into disjoint intervals once, then each window size is evaluated
+ * with two monotone cursors over the prefix sums of the intervals, in O(n) per window size.
+ */
+class MmuCurveCalculator {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int pauseCount;
+  private double[] starts = new double[INITIAL_CAPACITY];
+  private double[] ends = new double[INITIAL_CAPACITY];
+  private double firstTimestamp = Double.POSITIVE_INFINITY;
+  private double lastTimestamp = Double.NEGATIVE_INFINITY;
+
+  // disjoint pause intervals in milliseconds, and the sum of the lengths before each interval
+  private int intervalCount;
+  private double[] prefixSums;
+
+  /**
+   * Extends the span of the log to the given time.
+   *
+   * @param timestamp time in milliseconds
+   */
+  void observe(double timestamp) {
+    firstTimestamp = Math.min(firstTimestamp, timestamp);
+    lastTimestamp = Math.max(lastTimestamp, timestamp);
+  }
+
+  /**
+   * Adds a pause. The span of the log is extended to the end of the pause.
+   *
+   * @param timestamp timestamp of the pause in milliseconds
+   * @param pauseTime pause time in seconds
+   */
+  void add(long timestamp, double pauseTime) {
+    observe(timestamp);
+    if (pauseTime <= 0) {
+      return;
+    }
+    if (pauseCount == starts.length) {
+      starts = Arrays.copyOf(starts, pauseCount * 2);
+      ends = Arrays.copyOf(ends, pauseCount * 2);
+    }
+    starts[pauseCount] = timestamp;
+    ends[pauseCount] = timestamp + pauseTime * 1000;
+    lastTimestamp = Math.max(lastTimestamp, ends[pauseCount]);
+    pauseCount++;
+  }
+
+  /**
+   * Builds the MMU curve.
+   *
+   * @param windowSizes window sizes in milliseconds <font color=orange>(should be positive)</font>
+   * @return the MMU curve
+   */
+  GcMmuCurve build(long[] windowSizes) {
+    mergeIntervals();
+    final double span = lastTimestamp - firstTimestamp;
+    final double totalPauseTime = prefixSums[intervalCount];
+
+    final GcMmuCurve.Builder builder = GcMmuCurve.newBuilder();
+    for (long windowSize : windowSizes) {
+      final double utilization;
+      if (intervalCount == 0) {
+        utilization = 1.0;
+      } else if (windowSize >= span) {
+        utilization = 1.0 - totalPauseTime / span;
+      } else {
+        utilization = 1.0 - maxPauseTime(windowSize) / windowSize;
+      }
+      builder.addWindowSizes(windowSize).addUtilizations(utilization);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the start of the span of the log, or 0 if nothing was observed.
+   *
+   * @return start of the span in milliseconds
+   */
+  double spanStart() {
+    return firstTimestamp <= lastTimestamp ? firstTimestamp : 0;
+  }
+
+  /**
+   * Returns the end of the span of the log, or 0 if nothing was observed.
+   *
+   * @return end of the span in milliseconds
+   */
+  double spanEnd() {
+    return firstTimestamp <= lastTimestamp ? lastTimestamp : 0;
+  }
+
+  /**
+   * Returns the total pause time. Overlapping pauses are counted once.
+   * Available after {@link #build(long[])}.
+   *
+   * @return total pause time in milliseconds
+   */
+  double totalPauseTime() {
+    return prefixSums[intervalCount];
+  }
+
+  /**
+   * Returns the merged pauses ending after the given time, as pause times in seconds by start
+   * timestamp. Available after {@link #build(long[])}.
+   *
+   * @param from time in milliseconds
+   * @return the merged pauses
+   */
+  GcTimeSeries pausesAfter(double from) {
+    final GcTimeSeries.Builder builder = GcTimeSeries.newBuilder();
+    for (int i = 0; i < intervalCount; i++) {
+      if (ends[i] > from) {
+        builder.addTimestamps((long) starts[i]).addValues((ends[i] - starts[i]) / 1000);
+      }
+    }
+    return builder.build();
+  }
+
+  // Merges overlapping pauses in place. Starts and ends can be sorted independently, since the
+  // union of intervals only depends on how many intervals are open at each point.
+  private void mergeIntervals() {
+    Arrays.sort(starts, 0, pauseCount);
+    Arrays.sort(ends, 0, pauseCount);
+
+    intervalCount = 0;
+    int open = 0;
+    for (int s = 0, e = 0; e < pauseCount; ) {
+      if (s < pauseCount && starts[s] <= ends[e]) {
+        if (open++ == 0) {
+          starts[intervalCount] = starts[s];
+        }
+        s++;
+      } else {
+        if (--open == 0) {
+          ends[intervalCount++] = ends[e];
+        }
+        e++;
+      }
+    }
+
+    prefixSums = new double[intervalCount + 1];
+    for (int i = 0; i < intervalCount; i++) {
+      prefixSums[i + 1] = prefixSums[i] + (ends[i] - starts[i]);
+    }
+  }
+
+  // window size should be less than the span of the log
+  private double maxPauseTime(long windowSize) {
+    final double latestStart = lastTimestamp - windowSize;
+    double maxPauseTime = 0;
+
+    // windows starting at the start of a pause
+    Cursor from = new Cursor();
+    Cursor to = new Cursor();
+    for (int i = 0; i < intervalCount; i++) {
+      final double start = Math.min(starts[i], latestStart);
+      maxPauseTime = Math.max(maxPauseTime,
+          to.pauseTimeBefore(start + windowSize) - from.pauseTimeBefore(start));
+    }
+
+    // windows ending at the end of a pause
+    from = new Cursor();
+    to = new Cursor();
+    for (int i = 0; i < intervalCount; i++) {
+      final double start = Math.max(ends[i] - windowSize, firstTimestamp);
+      maxPauseTime = Math.max(maxPauseTime,
+          to.pauseTimeBefore(start + windowSize) - from.pauseTimeBefore(start));
+    }
+    return maxPauseTime;
+  }
+
+  // Sum of the pause time before a point. Points must be queried in non-decreasing order.
+  private class Cursor {
+    private int next;
+
+    double pauseTimeBefore(double point) {
+      while (next < intervalCount && ends[next] <= point) {
+        next++;
+      }
+      if (next < intervalCount && starts[next] < point) {
+        return prefixSums[next] + point - starts[next];
+      }
+      return prefixSums[next];
+    }
+  }
+}
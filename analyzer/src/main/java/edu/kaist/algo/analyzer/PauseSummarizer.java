@@ -0,0 +1,292 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.analysis.GcPauseSummary;
+import edu.kaist.algo.model.GcEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Accumulates the mergeable pause statistics of one log type.
+ *
+ * <p>Besides the moments, the pause times are counted in log-scaled buckets, each bucket being 2%
+ * wider than the previous one, from which the median and the other quantiles are estimated within
+ * 1%. The events with the longest pauses are kept for the outlier detection; outliers are always
+ * among them unless there are more than {@link #LARGEST_EVENTS} outliers.
+ */
+class PauseSummarizer {
+  static final int LARGEST_EVENTS = 64;
+
+  private static final double MIN_PAUSE_TIME = 1e-6;
+  private static final double BUCKET_RATIO = 1.02;
+  private static final double LOG_BUCKET_RATIO = Math.log(BUCKET_RATIO);
+
+  // the root is the event evicted first: the shortest pause, then the latest event
+  private static final Comparator<GcEvent> EVICTION_ORDER =
+      Comparator.comparingDouble(GcEvent::getPauseTime)
+          .thenComparing(Comparator.comparingLong(GcEvent::getTimestamp).reversed());
+
+  private final GcEvent.LogType type;
+  private long count;
+  private double sum;
+  private double sumSquares;
+  private GcEvent minEvent;
+  private GcEvent maxEvent;
+  private final PriorityQueue<GcEvent> largestEvents =
+      new PriorityQueue<>(LARGEST_EVENTS + 1, EVICTION_ORDER);
+  private int histogramOffset;
+  private long[] histogram = new long[0];
+
+  /**
+   * Creates the summarizer resuming from the given summary.
+   *
+   * @param type log type of the pauses
+   * @param previous the summary to resume from, or the default instance
+   */
+  PauseSummarizer(GcEvent.LogType type, GcPauseSummary previous) {
+    this.type = type;
+    count = previous.getCount();
+    sum = previous.getSum();
+    sumSquares = previous.getSumSquares();
+    if (previous.hasMinEvent()) {
+      minEvent = previous.getMinEvent();
+    }
+    if (previous.hasMaxEvent()) {
+      maxEvent = previous.getMaxEvent();
+    }
+    largestEvents.addAll(previous.getLargestEventsList());
+    histogramOffset = previous.getHistogramOffset();
+    histogram = new long[previous.getHistogramCount()];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = previous.getHistogram(i);
+    }
+  }
+
+  /**
+   * Adds the pause of the event. Events are materialized only if they are kept.
+   *
+   * @param events gc events
+   * @param index index of the event
+   */
+  void add(GcEventColumns events, int index) {
+    final double pauseTime = events.pauseTime(index);
+    count++;
+    sum += pauseTime;
+    sumSquares += pauseTime * pauseTime;
+    addToHistogram(bucketOf(pauseTime), 1);
+
+    // ties are resolved to the earlier event, as the events are added in the order of the log
+    if (minEvent == null || pauseTime < minEvent.getPauseTime()) {
+      minEvent = events.get(index);
+    }
+    if (maxEvent == null || pauseTime > maxEvent.getPauseTime()) {
+      maxEvent = events.get(index);
+    }
+    if (isLargest(pauseTime)) {
+      addLargest(events.get(index));
+    }
+  }
+
+  /**
+   * Merges the pauses of another summary of the same log type, e.g. of another JVM.
+   *
+   * @param other the pause summary to merge
+   */
+  void merge(GcPauseSummary other) {
+    if (other.getCount() == 0) {
+      return;
+    }
+    count += other.getCount();
+    sum += other.getSum();
+    sumSquares += other.getSumSquares();
+    for (int i = 0; i < other.getHistogramCount(); i++) {
+      if (other.getHistogram(i) > 0) {
+        addToHistogram(other.getHistogramOffset() + i, other.getHistogram(i));
+      }
+    }
+
+    if (minEvent == null || other.getMinEvent().getPauseTime() < minEvent.getPauseTime()) {
+      minEvent = other.getMinEvent();
+    }
+    if (maxEvent == null || other.getMaxEvent().getPauseTime() > maxEvent.getPauseTime()) {
+      maxEvent = other.getMaxEvent();
+    }
+    for (GcEvent event : other.getLargestEventsList()) {
+      if (isLargest(event.getPauseTime())) {
+        addLargest(event);
+      }
+    }
+  }
+
+  private boolean isLargest(double pauseTime) {
+    return largestEvents.size() < LARGEST_EVENTS || pauseTime > largestEvents.peek().getPauseTime();
+  }
+
+  private void addLargest(GcEvent event) {
+    largestEvents.add(event);
+    if (largestEvents.size() > LARGEST_EVENTS) {
+      largestEvents.poll();
+    }
+  }
+
+  private void addToHistogram(int bucket, long bucketCount) {
+    if (histogram.length == 0) {
+      histogramOffset = bucket;
+      histogram = new long[1];
+    } else if (bucket < histogramOffset) {
+      final long[] grown = new long[histogram.length + histogramOffset - bucket];
+      System.arraycopy(histogram, 0, grown, histogramOffset - bucket, histogram.length);
+      histogram = grown;
+      histogramOffset = bucket;
+    } else if (bucket >= histogramOffset + histogram.length) {
+      histogram = Arrays.copyOf(histogram, bucket - histogramOffset + 1);
+    }
+    histogram[bucket - histogramOffset] += bucketCount;
+  }
+
+  /**
+   * Builds the summary.
+   *
+   * @return the pause summary
+   */
+  GcPauseSummary build() {
+    final List<GcEvent> largest = new ArrayList<>(largestEvents);
+    largest.sort(Comparator.comparingLong(GcEvent::getTimestamp));
+
+    final GcPauseSummary.Builder builder = GcPauseSummary.newBuilder()
+        .setType(type)
+        .setCount(count)
+        .setSum(sum)
+        .setSumSquares(sumSquares)
+        .addAllLargestEvents(largest)
+        .setHistogramOffset(histogramOffset);
+    if (minEvent != null) {
+      builder.setMinEvent(minEvent).setMaxEvent(maxEvent);
+    }
+    for (long bucketCount : histogram) {
+      builder.addHistogram(bucketCount);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the histogram bucket of the pause time.
+   *
+   * @param pauseTime pause time in seconds
+   * @return index of the bucket
+   */
+  static int bucketOf(double pauseTime) {
+    if (pauseTime < MIN_PAUSE_TIME) {
+      return 0;
+    }
+    return 1 + (int) Math.floor(Math.log(pauseTime / MIN_PAUSE_TIME) / LOG_BUCKET_RATIO);
+  }
+
+  /**
+   * Returns the representative pause time of the bucket, the geometric mean of its bounds.
+   *
+   * @param bucket index of the bucket
+   * @return pause time in seconds
+   */
+  static double bucketValue(int bucket) {
+    if (bucket == 0) {
+      return 0;
+    }
+    return MIN_PAUSE_TIME * Math.pow(BUCKET_RATIO, bucket - 0.5);
+  }
+
+  /**
+   * Estimates the median from the histogram of the summary.
+   *
+   * @param summary the pause summary <font color=orange>(should have pauses)</font>
+   * @return estimated median in seconds
+   */
+  static double estimateMedian(GcPauseSummary summary) {
+    if (summary.getCount() < 1) {
+      throw new IllegalArgumentException("No data to compute");
+    }
+    // average of the two middle values for an even count, as Statistics#getSampleMedian
+    final long lower = (summary.getCount() - 1) / 2;
+    final long upper = summary.getCount() / 2;
+    final double median = (valueAtRank(summary, lower) + valueAtRank(summary, upper)) / 2;
+    return clamp(summary, median);
+  }
+
+  /**
+   * Estimates the quantile from the histogram of the summary, by the nearest rank.
+   *
+   * @param summary the pause summary <font color=orange>(should have pauses)</font>
+   * @param level level of the quantile <font color=orange>(Range: [0, 1])</font>
+   * @return estimated quantile in seconds
+   */
+  static double estimateQuantile(GcPauseSummary summary, double level) {
+    if (summary.getCount() < 1) {
+      throw new IllegalArgumentException("No data to compute");
+    }
+    if (level < 0 || level > 1) {
+      throw new IllegalArgumentException("Level is out of range.");
+    }
+    final long rank = Math.max(0, (long) Math.ceil(level * summary.getCount()) - 1);
+    return clamp(summary, valueAtRank(summary, rank));
+  }
+
+  /**
+   * Returns the Kolmogorov-Smirnov statistic of the pause times of two summaries: the largest
+   * distance between their distributions. The distributions are compared at the bucket bounds,
+   * so that the pauses within 2% of each other are not told apart.
+   *
+   * @param first the pause summary <font color=orange>(should have pauses)</font>
+   * @param second the other pause summary <font color=orange>(should have pauses)</font>
+   * @return the statistic in [0, 1]
+   */
+  static double ksStatistic(GcPauseSummary first, GcPauseSummary second) {
+    if (first.getCount() < 1 || second.getCount() < 1) {
+      throw new IllegalArgumentException("No data to compute");
+    }
+    final int from = Math.min(first.getHistogramOffset(), second.getHistogramOffset());
+    final int to = Math.max(first.getHistogramOffset() + first.getHistogramCount(),
+        second.getHistogramOffset() + second.getHistogramCount());
+    long firstSeen = 0;
+    long secondSeen = 0;
+    double statistic = 0;
+    for (int bucket = from; bucket < to; bucket++) {
+      firstSeen += bucketCount(first, bucket);
+      secondSeen += bucketCount(second, bucket);
+      statistic = Math.max(statistic, Math.abs(
+          (double) firstSeen / first.getCount() - (double) secondSeen / second.getCount()));
+    }
+    return statistic;
+  }
+
+  private static long bucketCount(GcPauseSummary summary, int bucket) {
+    final int index = bucket - summary.getHistogramOffset();
+    return index >= 0 && index < summary.getHistogramCount() ? summary.getHistogram(index) : 0;
+  }
+
+  private static double clamp(GcPauseSummary summary, double pauseTime) {
+    return Math.min(Math.max(pauseTime, summary.getMinEvent().getPauseTime()),
+        summary.getMaxEvent().getPauseTime());
+  }
+
+  private static double valueAtRank(GcPauseSummary summary, long rank) {
+    long seen = 0;
+    for (int i = 0; i < summary.getHistogramCount(); i++) {
+      seen += summary.getHistogram(i);
+      if (rank < seen) {
+        return bucketValue(summary.getHistogramOffset() + i);
+      }
+    }
+    throw new IllegalArgumentException("Rank is out of range.");
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.analysis.GcPauseWindows;
+
+/**
+ * Accumulates pauses into fixed-size time windows while the events are streamed.
+ *
+ * <p>Windows are aligned to multiples of the window size, and only the range between the first
+ * and the last pause is kept. Memory is proportional to the number of windows, not to the number
+ * of pauses. Pauses may arrive slightly out of order (e.g. from different writer threads).
+ */
+class PauseWindowAggregator {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final long windowSize;
+
+  // index of the first window, i.e. the first window starts at firstWindow * windowSize
+  private long firstWindow;
+  private int windowCount;
+  private int[] counts = new int[0];
+  private double[] totalPauseTimes = new double[0];
+  private double[] maxPauseTimes = new double[0];
+
+  /**
+   * Constructor of PauseWindowAggregator.
+   *
+   * @param windowSize window size in milliseconds <font color=orange>(should be positive)</font>
+   */
+  PauseWindowAggregator(long windowSize) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Window size should be positive.");
+    }
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Creates the aggregator resuming from the windows built by another aggregator.
+   *
+   * @param windows the windows to resume from
+   */
+  PauseWindowAggregator(GcPauseWindows windows) {
+    this(windows.getWindowSize());
+    windowCount = windows.getCountsCount();
+    if (windowCount > 0) {
+      firstWindow = Math.floorDiv(windows.getStartTimestamp(), windowSize);
+      counts = new int[windowCount];
+      totalPauseTimes = new double[windowCount];
+      maxPauseTimes = new double[windowCount];
+      for (int i = 0; i < windowCount; i++) {
+        counts[i] = windows.getCounts(i);
+        totalPauseTimes[i] = windows.getTotalPauseTimes(i);
+        maxPauseTimes[i] = windows.getMaxPauseTimes(i);
+      }
+    }
+  }
+
+  /**
+   * Adds a pause.
+   *
+   * @param timestamp timestamp of the pause in milliseconds
+   * @param pauseTime pause time in seconds
+   */
+  void add(long timestamp, double pauseTime) {
+    final int index = ensureWindow(Math.floorDiv(timestamp, windowSize));
+    counts[index]++;
+    totalPauseTimes[index] += pauseTime;
+    maxPauseTimes[index] = Math.max(maxPauseTimes[index], pauseTime);
+  }
+
+  // returns the array index of the window, growing the arrays on either side if needed
+  private int ensureWindow(long window) {
+    if (windowCount == 0) {
+      firstWindow = window;
+      resize(INITIAL_CAPACITY, 0);
+      windowCount = 1;
+      return 0;
+    }
+    if (window < firstWindow) {
+      final int shift = Math.toIntExact(firstWindow - window);
+      resize(Math.max(counts.length, windowCount + shift), shift);
+      firstWindow = window;
+      windowCount += shift;
+      return 0;
+    }
+    final int index = Math.toIntExact(window - firstWindow);
+    if (index >= windowCount) {
+      if (index >= counts.length) {
+        resize(Math.max(counts.length * 2, index + 1), 0);
+      }
+      windowCount = index + 1;
+    }
+    return index;
+  }
+
+  private void resize(int capacity, int shift) {
+    counts = copy(counts, capacity, shift);
+    totalPauseTimes = copy(totalPauseTimes, capacity, shift);
+    maxPauseTimes = copy(maxPauseTimes, capacity, shift);
+  }
+
+  private int[] copy(int[] source, int capacity, int shift) {
+    final int[] target = new int[capacity];
+    System.arraycopy(source, 0, target, shift, windowCount);
+    return target;
+  }
+
+  private double[] copy(double[] source, int capacity, int shift) {
+    final double[] target = new double[capacity];
+    System.arraycopy(source, 0, target, shift, windowCount);
+    return target;
+  }
+
+  /**
+   * Builds the pause windows. The overhead of the last window is computed against the whole
+   * window size, even if the log ends in the middle of it.
+   *
+   * @return the pause windows
+   */
+  GcPauseWindows build() {
+    final GcPauseWindows.Builder builder = GcPauseWindows.newBuilder()
+        .setWindowSize(windowSize)
+        .setStartTimestamp(firstWindow * windowSize);
+    for (int i = 0; i < windowCount; i++) {
+      builder.addCounts(counts[i])
+          .addTotalPauseTimes(totalPauseTimes[i])
+          .addMaxPauseTimes(maxPauseTimes[i])
+          .addOverheads(totalPauseTimes[i] * 1000 / windowSize * 100);
+    }
+    return builder.build();
+  }
+}
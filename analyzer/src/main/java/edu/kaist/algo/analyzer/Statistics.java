@@ -14,6 +14,7 @@ import org.apache.commons.math3.distribution.TDistribution;
 
 import java.lang.Math;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -30,6 +31,7 @@ import java.util.stream.Collectors;
  *   <li>Calculate Sample Standard Variance</li>
  *   <li>Estimate Mean</li>
  *   <li>Detect Outliers</li>
+ *   <li>Test Distributions</li>
  * </ul>
  */
 public class Statistics {
@@ -78,6 +80,46 @@ public class Statistics {
         .get();
   }
 
+  /**
+   * Get index of the first element which has min value.
+   *
+   * @param data sample data set <font color=orange>(empty array is not allowed)</font>
+   * @return index of minimum value
+   */
+  public static int getMinIndex(double[] data) {
+    if (data.length < 1) {
+      throw new IllegalArgumentException(NO_DATA);
+    }
+
+    int minIndex = 0;
+    for (int i = 1; i < data.length; i++) {
+      if (data[i] < data[minIndex]) {
+        minIndex = i;
+      }
+    }
+    return minIndex;
+  }
+
+  /**
+   * Get index of the first element which has max value.
+   *
+   * @param data sample data set <font color=orange>(empty array is not allowed)</font>
+   * @return index of maximum value
+   */
+  public static int getMaxIndex(double[] data) {
+    if (data.length < 1) {
+      throw new IllegalArgumentException(NO_DATA);
+    }
+
+    int maxIndex = 0;
+    for (int i = 1; i < data.length; i++) {
+      if (data[i] > data[maxIndex]) {
+        maxIndex = i;
+      }
+    }
+    return maxIndex;
+  }
+
   /**
    * Calculate Total Sum of data.
    *
@@ -88,6 +130,20 @@ public class Statistics {
     return data.stream().reduce(0.0, Double::sum);
   }
 
+  /**
+   * Calculate Total Sum of data.
+   *
+   * @param data sample data set
+   * @return Total Sum.
+   */
+  public static double getTotalSum(double[] data) {
+    double sum = 0.0;
+    for (double value : data) {
+      sum += value;
+    }
+    return sum;
+  }
+
   /**
    * Calculate Sample Mean of data.
    *
@@ -102,6 +158,20 @@ public class Statistics {
     return data.stream().reduce(0.0, Double::sum) / data.size();
   }
 
+  /**
+   * Calculate Sample Mean of data.
+   *
+   * @param data sample data set
+   * @return Sample Mean.
+   */
+  public static double getSampleMean(double[] data) {
+    if (data.length < 1) {
+      return 0;
+    }
+
+    return getTotalSum(data) / data.length;
+  }
+
   /**
    * Calculate Sample Median of data.
    *
@@ -125,6 +195,28 @@ public class Statistics {
     return sortedData.get(midPos);
   }
 
+  /**
+   * Calculate Sample Median of data.
+   *
+   * @param data sample data set <font color=orange>(empty array is not allowed)</font>
+   * @return Sample Median.
+   */
+  public static double getSampleMedian(double[] data) {
+    if (data.length < 1) {
+      throw new IllegalArgumentException(NO_DATA);
+    }
+
+    final int midPos = data.length / 2;
+
+    final double[] sortedData = data.clone();
+    Arrays.sort(sortedData);
+
+    if (data.length % 2 == 0) {
+      return (sortedData[midPos - 1] + sortedData[midPos]) / 2;
+    }
+    return sortedData[midPos];
+  }
+
   /**
    * Calculate Sample Variance of data.
    *
@@ -142,6 +234,24 @@ public class Statistics {
     return sum / (data.size() - 1);
   }
 
+  /**
+   * Calculate Sample Variance of data.
+   *
+   * @param data sample data set <font color=orange>(size should larger than 2)</font>
+   * @param sampleMean sample Mean of data
+   * @return Sample Variance.
+   */
+  public static double getSampleVariance(double[] data, double sampleMean) {
+    if (data.length < 2) {
+      throw new IllegalArgumentException(NO_DATA);
+    }
+    double sum = 0.0;
+    for (double value : data) {
+      sum += Math.pow(value - sampleMean, 2);
+    }
+    return sum / (data.length - 1);
+  }
+
   /**
    * Calculate Sample Standard Deviation of data.
    *
@@ -153,6 +263,17 @@ public class Statistics {
     return Math.sqrt(getSampleVariance(data, sampleMean));
   }
 
+  /**
+   * Calculate Sample Standard Deviation of data.
+   *
+   * @param data sample data set
+   * @param sampleMean sample Mean of data
+   * @return Sample Standard Deviation.
+   */
+  public static double getSampleStdDev(double[] data, double sampleMean) {
+    return Math.sqrt(getSampleVariance(data, sampleMean));
+  }
+
   /**
    * Estimate mean by student-t Distribution.
    *
@@ -202,6 +323,51 @@ public class Statistics {
    */
   public static <T> ArrayList<T> getOutliers(List<T> data, double sampleMean, double sampleStdDev,
                                              int dataSize, double level, Extractor<T> extractor) {
+    final double grubValue = getGrubbsCriticalValue(dataSize, level);
+
+    return data.stream()
+        .filter(e -> (extractor.getValue(e) - sampleMean) / sampleStdDev > grubValue)
+        .collect(Collectors.toCollection(ArrayList<T>::new));
+  }
+
+  /**
+   * Calculate indices of the values which are out-ranged from median(detects only upper
+   * outliers). Same as {@link #getOutliers(List, double, double, int, double, Extractor)},
+   * but works on the primitive values.
+   *
+   * @param data sample data <font color=orange>(size should larger than 2)</font>
+   * @param sampleMean sample Mean of data
+   * @param sampleStdDev sample Standard Deviation of data
+   * @param level Confidential Level
+   *              (<font color=orange>Range: [0, 1]</font>,
+   *              Recommended: 0.01(99%), 0.1(90%), 0.25(75%))
+   * @return indices of outliers in ascending order
+   */
+  public static int[] getOutlierIndices(double[] data, double sampleMean, double sampleStdDev,
+                                        double level) {
+    final double grubValue = getGrubbsCriticalValue(data.length, level);
+
+    int count = 0;
+    final int[] indices = new int[data.length];
+    for (int i = 0; i < data.length; i++) {
+      if ((data[i] - sampleMean) / sampleStdDev > grubValue) {
+        indices[count++] = i;
+      }
+    }
+    return Arrays.copyOf(indices, count);
+  }
+
+  /**
+   * Calculate the critical value of Grubbs' test. A value is an (upper) outlier if
+   * (value - sampleMean) / sampleStdDev is larger than the critical value.
+   *
+   * @param dataSize size of data <font color=orange>(should larger than 2)</font>
+   * @param level Confidential Level
+   *              (<font color=orange>Range: [0, 1]</font>,
+   *              Recommended: 0.01(99%), 0.1(90%), 0.25(75%))
+   * @return critical value
+   */
+  public static double getGrubbsCriticalValue(long dataSize, double level) {
     if (dataSize <= 2) {
       throw new IllegalArgumentException(NOT_ENOUGH_DATA_2);
     }
@@ -211,11 +377,44 @@ public class Statistics {
 
     TDistribution dist = new TDistribution(dataSize - 2);
     final double scoreT = dist.inverseCumulativeProbability((1 - (1 - level)) / dataSize);
-    double grubValue = ((dataSize - 1) / Math.sqrt(dataSize))
+    return ((dataSize - 1) / Math.sqrt(dataSize))
         * Math.sqrt(Math.pow(scoreT, 2) / (dataSize - 2 + Math.pow(scoreT, 2)));
+  }
 
-    return data.stream()
-        .filter(e -> (extractor.getValue(e) - sampleMean) / sampleStdDev > grubValue)
-        .collect(Collectors.toCollection(ArrayList<T>::new));
+  /**
+   * Calculate the p-value of the two-sample Kolmogorov-Smirnov test, i.e. the probability of a
+   * statistic at least as large when both samples are from the same distribution. The asymptotic
+   * Kolmogorov distribution is used, with the small sample correction of Stephens.
+   *
+   * @param statistic largest distance between the empirical distributions of the samples
+   * @param dataSize1 size of the first sample <font color=orange>(should be positive)</font>
+   * @param dataSize2 size of the second sample <font color=orange>(should be positive)</font>
+   * @return p-value in [0, 1]
+   */
+  public static double getKolmogorovSmirnovPValue(double statistic, long dataSize1,
+                                                  long dataSize2) {
+    if (dataSize1 < 1 || dataSize2 < 1) {
+      throw new IllegalArgumentException(NO_DATA);
+    }
+
+    final double effectiveSize =
+        Math.sqrt((double) dataSize1 * dataSize2 / (dataSize1 + dataSize2));
+    final double lambda = (effectiveSize + 0.12 + 0.11 / effectiveSize) * statistic;
+    // the series converges too slowly for a small lambda, where the p-value is 1 anyway
+    if (lambda < 0.2) {
+      return 1;
+    }
+
+    double sum = 0;
+    double sign = 1;
+    for (int j = 1; j <= 100; j++) {
+      final double term = sign * Math.exp(-2 * j * j * lambda * lambda);
+      sum += term;
+      if (Math.abs(term) <= 1e-10 * Math.abs(sum)) {
+        break;
+      }
+      sign = -sign;
+    }
+    return Math.min(Math.max(2 * sum, 0), 1);
   }
 }
@@ -0,0 +1,260 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcComparison;
+import edu.kaist.algo.analysis.GcEstimatedPauseTime;
+import edu.kaist.algo.analysis.GcHeapUsageState;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.analysis.GcMmuCurve;
+import edu.kaist.algo.analysis.GcPauseComparison;
+import edu.kaist.algo.analysis.GcPauseOutliers;
+import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.analysis.GcPauseSummary;
+import edu.kaist.algo.analysis.GcQuantileChange;
+import edu.kaist.algo.analysis.GcValueChange;
+import edu.kaist.algo.model.GcEvent;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Summaries class can analyze, merge and compare the summaries made by
+ * {@link LogAnalyzer#summarize()}.
+ *
+ * <p>The result has the same form as {@link LogAnalyzer#analyzeData(Double[], Double[])}, except
+ * that the median is estimated from the histogram, and that the outliers are searched only among
+ * the longest pauses kept in the summary.
+ */
+public class Summaries {
+  private static final ImmutableList<GcEvent.LogType> PAUSE_ORDER = ImmutableList.of(
+      GcEvent.LogType.FULL_GC,
+      GcEvent.LogType.MINOR_GC,
+      GcEvent.LogType.CMS_INIT_MARK,
+      GcEvent.LogType.CMS_FINAL_REMARK
+  );
+
+  /**
+   * Analyzes the summary. The statistics of a pause type with less than two pauses have only the
+   * count and the total pause time, and those with less than three pauses have no outliers.
+   *
+   * @param summary summary of the log
+   * @param meanLevels Confidential Levels for estimating means
+   * @param outlierLevels Confidential Levels for detecting outliers
+   * @param maxPoints maximum number of points of each time series, 0 to keep every point
+   * @return analyzed data
+   */
+  public static GcAnalyzedData analyze(GcLogSummary summary, Double[] meanLevels,
+                                       Double[] outlierLevels, int maxPoints) {
+    final GcAnalyzedData.Builder builder = GcAnalyzedData.newBuilder();
+    for (GcEvent.LogType type : PAUSE_ORDER) {
+      builder.addPauses(analyzePauseTime(findPauses(summary, type), meanLevels, outlierLevels));
+    }
+
+    final TimeSeriesBuffer pauseTimes = new TimeSeriesBuffer();
+    pauseTimes.addAll(summary.getPauseTimes());
+    return builder
+        .addAllConcurrences(LogAnalyzer.toConcurrentStats(summary.getConcurrences()))
+        .addAllWindows(summary.getWindowsList())
+        .setMmu(summary.getMmu())
+        .setHeapUsage(new HeapUsageAggregator(summary.getHeapUsage()).build(maxPoints))
+        .setPauseTimes(pauseTimes.build(maxPoints))
+        .build();
+  }
+
+  /**
+   * Merges the summaries of different logs, e.g. of the JVMs of a fleet, into one summary. The
+   * merge is symmetric: the order of the summaries does not change the statistics.
+   *
+   * <p>Pause statistics, concurrent event counts and the heap usage totals are merged exactly.
+   * The MMU curve is the lowest utilization of the logs for each window size, i.e. the worst JVM,
+   * if every curve has the same window sizes. The time-based data (pause windows, time series and
+   * span) is left out, since the timestamps of different JVMs are not comparable.
+   *
+   * @param summaries summaries to merge
+   * @return the merged summary
+   */
+  public static GcLogSummary merge(Iterable<GcLogSummary> summaries) {
+    final Map<GcEvent.LogType, PauseSummarizer> pauses = new EnumMap<>(GcEvent.LogType.class);
+    for (GcEvent.LogType type : PAUSE_ORDER) {
+      pauses.put(type, new PauseSummarizer(type, GcPauseSummary.getDefaultInstance()));
+    }
+    final Map<String, Integer> concurrences = new HashMap<>();
+    final GcHeapUsageState.Builder heapUsage = GcHeapUsageState.newBuilder();
+    long eventCount = 0;
+    double totalPauseTime = 0;
+    GcMmuCurve mmu = null;
+    boolean comparableMmu = true;
+
+    for (GcLogSummary summary : summaries) {
+      eventCount += summary.getEventCount();
+      totalPauseTime += summary.getTotalPauseTime();
+      for (GcPauseSummary pause : summary.getPausesList()) {
+        pauses.get(pause.getType()).merge(pause);
+      }
+      summary.getConcurrences().forEach((typeDetail, count) ->
+          concurrences.merge(typeDetail, count, Integer::sum));
+
+      final GcHeapUsageState state = summary.getHeapUsage();
+      heapUsage.setTotalAllocated(heapUsage.getTotalAllocated() + state.getTotalAllocated())
+          .setTotalAllocationTime(
+              heapUsage.getTotalAllocationTime() + state.getTotalAllocationTime())
+          .setTotalPromoted(heapUsage.getTotalPromoted() + state.getTotalPromoted())
+          .setTotalPromotionTime(heapUsage.getTotalPromotionTime() + state.getTotalPromotionTime());
+
+      if (mmu == null) {
+        mmu = summary.getMmu();
+      } else if (mmu.getWindowSizesList().equals(summary.getMmu().getWindowSizesList())) {
+        final GcMmuCurve.Builder lowest = GcMmuCurve.newBuilder();
+        for (int i = 0; i < mmu.getWindowSizesCount(); i++) {
+          lowest.addWindowSizes(mmu.getWindowSizes(i)).addUtilizations(
+              Math.min(mmu.getUtilizations(i), summary.getMmu().getUtilizations(i)));
+        }
+        mmu = lowest.build();
+      } else {
+        comparableMmu = false;
+      }
+    }
+
+    final GcLogSummary.Builder builder = GcLogSummary.newBuilder()
+        .setEventCount(eventCount)
+        .setTotalPauseTime(totalPauseTime)
+        .putAllConcurrences(concurrences)
+        .setHeapUsage(heapUsage);
+    for (PauseSummarizer pause : pauses.values()) {
+      builder.addPauses(pause.build());
+    }
+    if (mmu != null && comparableMmu) {
+      builder.setMmu(mmu);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Compares the summaries of two logs, e.g. before and after tuning the JVM. For each pause type,
+   * the quantiles are estimated from the histograms, and the Kolmogorov-Smirnov test tells whether
+   * the pause time distribution has changed.
+   *
+   * @param base summary of the base log
+   * @param target summary of the log to compare with the base
+   * @param quantileLevels levels of the quantiles to compare, e.g. 0.99
+   * @return comparison of the logs
+   */
+  public static GcComparison compare(GcLogSummary base, GcLogSummary target,
+                                     Double[] quantileLevels) {
+    final GcComparison.Builder builder = GcComparison.newBuilder()
+        .setOverhead(change(overhead(base), overhead(target)));
+    for (GcEvent.LogType type : PAUSE_ORDER) {
+      builder.addPauses(comparePauseTime(findPauses(base, type), findPauses(target, type),
+          quantileLevels));
+    }
+    return builder.build();
+  }
+
+  private static GcPauseComparison comparePauseTime(GcPauseSummary base, GcPauseSummary target,
+                                                    Double[] quantileLevels) {
+    final GcPauseComparison.Builder builder = GcPauseComparison.newBuilder()
+        .setType(base.getType())
+        .setCount(change(base.getCount(), target.getCount()))
+        .setKsStatistic(0)
+        .setPValue(1);
+    if (base.getCount() == 0 || target.getCount() == 0) {
+      return builder.build();
+    }
+
+    builder.setMean(change(base.getSum() / base.getCount(), target.getSum() / target.getCount()));
+    for (Double level : quantileLevels) {
+      builder.addQuantiles(GcQuantileChange.newBuilder()
+          .setLevel(level)
+          .setPauseTime(change(PauseSummarizer.estimateQuantile(base, level),
+              PauseSummarizer.estimateQuantile(target, level)))
+          .build());
+    }
+    final double statistic = PauseSummarizer.ksStatistic(base, target);
+    return builder.setKsStatistic(statistic)
+        .setPValue(Statistics.getKolmogorovSmirnovPValue(statistic, base.getCount(),
+            target.getCount()))
+        .build();
+  }
+
+  private static GcPauseSummary findPauses(GcLogSummary summary, GcEvent.LogType type) {
+    return summary.getPausesList().stream()
+        .filter(pause -> pause.getType() == type)
+        .findFirst().orElse(GcPauseSummary.newBuilder().setType(type).build());
+  }
+
+  // percentage of the span of the log spent in STW pauses
+  private static double overhead(GcLogSummary summary) {
+    final double span = summary.getSpanEnd() - summary.getSpanStart();
+    return span > 0 ? summary.getTotalPauseTime() / span * 100 : 0;
+  }
+
+  private static GcValueChange change(double base, double target) {
+    return GcValueChange.newBuilder()
+        .setBase(base)
+        .setTarget(target)
+        .setRelativeChange(base != 0 ? (target - base) / base : 0)
+        .build();
+  }
+
+  private static GcPauseStat analyzePauseTime(GcPauseSummary summary, Double[] meanLevels,
+                                              Double[] outlierLevels) {
+    final long count = summary.getCount();
+    // the sample statistics need two pauses, e.g. no full GC of a healthy JVM
+    if (count < 2) {
+      return GcPauseStat.newBuilder()
+          .setType(summary.getType())
+          .setCount((int) count)
+          .setTotalPauseTime(summary.getSum())
+          .build();
+    }
+    final double sampleMean = summary.getSum() / count;
+    final double sampleVariance = Math.max(0,
+        (summary.getSumSquares() - summary.getSum() * sampleMean) / (count - 1));
+    final double sampleStdDev = Math.sqrt(sampleVariance);
+
+    final GcPauseStat.Builder builder = GcPauseStat.newBuilder()
+        .setType(summary.getType())
+        .setCount((int) count)
+        .setTotalPauseTime(summary.getSum())
+        .setSampleMean(sampleMean)
+        .setSampleStdDev(sampleStdDev)
+        .setSampleMedian(PauseSummarizer.estimateMedian(summary))
+        .setMinEvent(summary.getMinEvent())
+        .setMaxEvent(summary.getMaxEvent());
+
+    for (Double meanLevel : meanLevels) {
+      builder.addMeans(GcEstimatedPauseTime.newBuilder()
+          .setLevel(meanLevel)
+          .setMean(Statistics.estimateMean(sampleMean, sampleStdDev, (int) count, meanLevel))
+          .build());
+    }
+
+    for (Double outlierLevel : outlierLevels) {
+      final GcPauseOutliers.Builder outliers = GcPauseOutliers.newBuilder().setLevel(outlierLevel);
+      // Grubbs' test needs three pauses
+      if (count < 3) {
+        builder.addOutliers(outliers.build());
+        continue;
+      }
+      final double grubValue = Statistics.getGrubbsCriticalValue(count, outlierLevel);
+      for (GcEvent event : summary.getLargestEventsList()) {
+        if ((event.getPauseTime() - sampleMean) / sampleStdDev > grubValue) {
+          outliers.addEvents(event);
+        }
+      }
+      builder.addOutliers(outliers.build());
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.analysis.GcTimeSeries;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of time series points, downsampled when built.
+ *
+ * <p>Downsampling uses Largest-Triangle-Three-Buckets (LTTB): the first and the last points are
+ * kept, and the points in between are split into buckets, from each of which the point forming
+ * the largest triangle with the previously selected point and the average of the next bucket is
+ * selected. Peaks survive, and the cost is linear in the number of points.
+ */
+class TimeSeriesBuffer {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int size;
+  private long[] timestamps = new long[INITIAL_CAPACITY];
+  private double[] values = new double[INITIAL_CAPACITY];
+
+  /**
+   * Adds a point.
+   *
+   * @param timestamp timestamp in milliseconds
+   * @param value value of the point
+   */
+  void add(long timestamp, double value) {
+    if (size == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    timestamps[size] = timestamp;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * Adds every point of the series.
+   *
+   * @param series the time series
+   */
+  void addAll(GcTimeSeries series) {
+    for (int i = 0; i < series.getTimestampsCount(); i++) {
+      add(series.getTimestamps(i), series.getValues(i));
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Builds the time series with at most the given number of points.
+   *
+   * @param maxPoints maximum number of points, 0 to keep every point
+   *                  <font color=orange>(should be 0 or larger than 2)</font>
+   * @return the time series
+   */
+  GcTimeSeries build(int maxPoints) {
+    if (maxPoints != 0 && maxPoints < 3) {
+      throw new IllegalArgumentException("Max points should be 0 or larger than 2.");
+    }
+    final GcTimeSeries.Builder builder = GcTimeSeries.newBuilder();
+    if (maxPoints == 0 || size <= maxPoints) {
+      for (int i = 0; i < size; i++) {
+        builder.addTimestamps(timestamps[i]).addValues(values[i]);
+      }
+      return builder.build();
+    }
+
+    // the points between the first and the last points are split into (maxPoints - 2) buckets
+    final double bucketSize = (double) (size - 2) / (maxPoints - 2);
+    int selected = 0;
+    builder.addTimestamps(timestamps[0]).addValues(values[0]);
+    for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+      final int start = (int) (bucket * bucketSize) + 1;
+      final int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+      // average of the next bucket, or the last point for the last bucket
+      final int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+      double averageTimestamp = 0;
+      double averageValue = 0;
+      for (int i = end; i < nextEnd; i++) {
+        averageTimestamp += timestamps[i];
+        averageValue += values[i];
+      }
+      averageTimestamp /= nextEnd - end;
+      averageValue /= nextEnd - end;
+
+      double maxArea = -1;
+      int maxIndex = start;
+      for (int i = start; i < end; i++) {
+        // twice the area of the triangle
+        final double area = Math.abs(
+            (timestamps[selected] - averageTimestamp) * (values[i] - values[selected])
+                - (timestamps[selected] - timestamps[i]) * (averageValue - values[selected]));
+        if (area > maxArea) {
+          maxArea = area;
+          maxIndex = i;
+        }
+      }
+      selected = maxIndex;
+      builder.addTimestamps(timestamps[selected]).addValues(values[selected]);
+    }
+    builder.addTimestamps(timestamps[size - 1]).addValues(values[size - 1]);
+    return builder.build();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import static org.junit.Assert.assertEquals;
+
+import edu.kaist.algo.model.GcEvent;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class GcEventColumnsTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private List<GcEvent> eventList = new ArrayList<>();
+
+  /**
+   * Setting up test events covering every field.
+   */
+  @Before public void setUp() {
+    for (int i = 0; i < 30; i++) {
+      eventList.add(GcEvent.newBuilder()
+          .setThread(11779 + i % 2)
+          .setTimestamp(55780 + i * 100)
+          .setLogType(GcEvent.LogType.valueOf(1 + i % 5))
+          .setPauseTime(0.01 * i)
+          .setUserTime(0.02 * i)
+          .setSysTime(0.001 * i)
+          .setRealTime(0.01 * i)
+          .setRefTime(i % 5 == 3 ? 0.0015528 : 0.0)
+          .setCmsCpuTime(i % 5 == 4 ? 0.113 : 0.0)
+          .setCmsWallTime(i % 5 == 4 ? 0.158 : 0.0)
+          .setTypeDetail(i % 5 == 4 ? "CMS-concurrent-mark" : "GC (Allocation Failure); ParNew")
+          .setYoungUsageBefore(30720)
+          .setYoungUsageAfter(3392 + i)
+          .setYoungCapacity(30720)
+          .setHeapUsageBefore(83156 + i * 10)
+          .setHeapUsageAfter(58798 + i * 10)
+          .setHeapCapacity(99008)
+          .build());
+    }
+  }
+
+  @Test
+  public void testOf_ReturnSameEvents() {
+    final GcEventColumns columns = GcEventColumns.of(eventList);
+    assertEquals(eventList, columns);
+    assertEquals(GcEvent.LogType.MINOR_GC, columns.logType(1));
+    assertEquals(55880, columns.timestamp(1));
+    assertEquals(0.01, columns.pauseTime(1), 0.0);
+    assertEquals(2, columns.dictionarySize() - 1); // two type details and one empty datetime
+  }
+
+  @Test
+  public void testWriteAndMap_ReturnSameEvents() throws IOException {
+    final Path path = folder.newFile("columns.events").toPath();
+    GcEventColumns.of(eventList).writeTo(path);
+
+    assertEquals(eventList, GcEventColumns.map(path));
+    assertEquals(GcEventColumns.of(new ArrayList<>()), new ArrayList<GcEvent>());
+  }
+
+  @Test
+  public void testMappedAnalysis_ReturnSameAnalyzedData() throws IOException {
+    final Path path = folder.newFile("columns.events").toPath();
+    GcEventColumns.of(eventList).writeTo(path);
+
+    assertEquals(new LogAnalyzer(eventList).analyzeData(),
+        new LogAnalyzer(GcEventColumns.map(path)).analyzeData());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMap_IllegalFile() throws IOException {
+    final Path path = folder.newFile("illegal.events").toPath();
+    Files.write(path, "55.780: [Full GC (Allocation Failure)".getBytes());
+    GcEventColumns.map(path);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import static org.junit.Assert.assertEquals;
+
+import edu.kaist.algo.analysis.GcHeapUsage;
+import edu.kaist.algo.model.GcEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class HeapUsageAggregatorTest {
+  private static GcEvent collection(long timestamp, long youngBefore, long youngAfter,
+                                    long heapBefore, long heapAfter) {
+    return GcEvent.newBuilder()
+        .setTimestamp(timestamp)
+        .setYoungUsageBefore(youngBefore)
+        .setYoungUsageAfter(youngAfter)
+        .setYoungCapacity(30720)
+        .setHeapUsageBefore(heapBefore)
+        .setHeapUsageAfter(heapAfter)
+        .setHeapCapacity(99008)
+        .build();
+  }
+
+  @Test
+  public void testBuild_ReturnHeapUsage() {
+    /* 126.426: [ParNew: 30720K->3392K(30720K)] 83156K->58798K(99008K)  // old 52436 -> 55406
+     * 126.487: [ParNew: 30720K->3392K(30720K)] 86126K->61977K(99008K)  // old 55406 -> 58585
+     * 126.500: (no usage)
+     * 126.554: [ParNew: 30720K->3392K(30720K)] 89305K->65368K(99008K)  // old 58585 -> 61976
+     * 127.554: [CMS: ...] 65053K->38462K(99008K), young 15216K->0K      // old 49837 -> 38462
+     */
+    final GcEventColumns events = GcEventColumns.of(Arrays.asList(
+        collection(126426, 30720, 3392, 83156, 58798),
+        collection(126487, 30720, 3392, 86126, 61977),
+        GcEvent.newBuilder().setTimestamp(126500).build(),
+        collection(126554, 30720, 3392, 89305, 65368),
+        collection(127554, 15216, 0, 65053, 38462)));
+
+    final HeapUsageAggregator aggregator = new HeapUsageAggregator();
+    aggregator.add(events, 0, true);
+    aggregator.add(events, 1, true);
+    aggregator.add(events, 2, true);
+    aggregator.add(events, 3, true);
+    aggregator.add(events, 4, false);
+    final GcHeapUsage heapUsage = aggregator.build(0);
+
+    assertEquals(Arrays.asList(126487L, 126554L, 127554L),
+        heapUsage.getAllocationRates().getTimestampsList());
+    assertEquals(27328 / 0.061, heapUsage.getAllocationRates().getValues(0), 0.001);
+    assertEquals(27328 / 0.067, heapUsage.getAllocationRates().getValues(1), 0.001);
+    assertEquals(11824 / 1.0, heapUsage.getAllocationRates().getValues(2), 0.001);
+    assertEquals((27328 * 2 + 11824) / 1.128, heapUsage.getMeanAllocationRate(), 0.001);
+
+    assertEquals(Arrays.asList(126487L, 126554L),
+        heapUsage.getPromotionRates().getTimestampsList());
+    assertEquals(3179 / 0.061, heapUsage.getPromotionRates().getValues(0), 0.001);
+    assertEquals(3391 / 0.067, heapUsage.getPromotionRates().getValues(1), 0.001);
+    assertEquals((3179 + 3391) / 0.128, heapUsage.getMeanPromotionRate(), 0.001);
+
+    assertEquals(Arrays.asList(55406.0, 58585.0, 61976.0, 38462.0),
+        heapUsage.getOldOccupancies().getValuesList());
+  }
+
+  @Test
+  public void testBuild_NoUsage() {
+    final GcHeapUsage heapUsage = new HeapUsageAggregator().build(0);
+    assertEquals(0, heapUsage.getMeanAllocationRate(), 0.0);
+    assertEquals(0, heapUsage.getOldOccupancies().getValuesCount());
+  }
+}
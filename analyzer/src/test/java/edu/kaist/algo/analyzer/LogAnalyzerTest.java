@@ -11,6 +11,7 @@ package edu.kaist.algo.analyzer;
 import static org.junit.Assert.assertEquals;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcPauseWindows;
 import edu.kaist.algo.model.GcEvent;
 
 import org.junit.Before;
@@ -19,6 +20,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @RunWith(JUnit4.class)
@@ -253,5 +255,47 @@ public class LogAnalyzerTest {
 
     assertEquals(20, data.getConcurrences(9).getCount());
     assertEquals("CMS-concurrent-reset", data.getConcurrences(9).getTypeDetail());
+
+    // pauses overlap each other until the end of the log
+    assertEquals(LogAnalyzer.DEFAULT_MMU_WINDOW_SIZES, data.getMmu().getWindowSizesList());
+    assertEquals(0.0, data.getMmu().getUtilizations(0), 0.001);
+  }
+
+  @Test
+  public void analyzeData_returnPauseWindows() {
+    // every STW pause is in [0, 200) ms
+    GcAnalyzedData data = new LogAnalyzer(eventList).setWindowSizes(100, 60_000).analyzeData();
+
+    assertEquals(2, data.getWindowsCount());
+    GcPauseWindows windows = data.getWindows(0);
+    assertEquals(100, windows.getWindowSize());
+    assertEquals(0, windows.getStartTimestamp());
+    assertEquals(Arrays.asList(100, 100), windows.getCountsList());
+    assertEquals(214.0, windows.getTotalPauseTimes(0), 0.001);
+    assertEquals(10.0, windows.getMaxPauseTimes(1), 0.001);
+    assertEquals(214000.0, windows.getOverheads(1), 0.001);
+
+    windows = data.getWindows(1);
+    assertEquals(60_000, windows.getWindowSize());
+    assertEquals(Arrays.asList(200), windows.getCountsList());
+    assertEquals(428.0, windows.getTotalPauseTimes(0), 0.001);
+    assertEquals(428.0 / 60 * 100, windows.getOverheads(0), 0.001);
+  }
+
+  @Test
+  public void ofSegments_returnSameDataAsOneList() {
+    // each segment has its own dictionary of the concurrent phases
+    final int third = eventList.size() / 3;
+    final List<GcEventColumns> segments = Arrays.asList(
+        GcEventColumns.of(eventList.subList(0, third)),
+        GcEventColumns.of(new ArrayList<>()),
+        GcEventColumns.of(eventList.subList(third, 2 * third)),
+        GcEventColumns.of(eventList.subList(2 * third, eventList.size())));
+    final LogAnalyzer whole = new LogAnalyzer(eventList);
+    final LogAnalyzer segmented = LogAnalyzer.ofSegments(segments);
+
+    assertEquals(whole.analyzeData(), segmented.analyzeData());
+    assertEquals(whole.summarize(), segmented.summarize());
+    assertEquals(whole.getSpan(), segmented.getSpan());
   }
 }
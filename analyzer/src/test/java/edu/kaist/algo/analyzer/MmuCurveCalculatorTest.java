@@ -0,0 +1,81 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import static org.junit.Assert.assertEquals;
+
+import edu.kaist.algo.analysis.GcMmuCurve;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class MmuCurveCalculatorTest {
+  @Test
+  public void testBuild_ReturnMmuCurve() {
+    /* Log span: [0, 1000] ms
+     * pauses: [100, 150], [200, 260], [230, 300] (overlapped), [900, 910]
+     * merged: [100, 150], [200, 300], [900, 910] // total 160 ms
+     */
+    final MmuCurveCalculator calculator = new MmuCurveCalculator();
+    calculator.observe(0);
+    calculator.add(230, 0.07);
+    calculator.add(100, 0.05);
+    calculator.add(200, 0.06);
+    calculator.add(900, 0.01);
+    calculator.observe(1_000);
+
+    final GcMmuCurve curve = calculator.build(new long[] { 10, 100, 200, 500, 1_000, 5_000 });
+    assertEquals(Arrays.asList(10L, 100L, 200L, 500L, 1_000L, 5_000L), curve.getWindowSizesList());
+    assertEquals(0.0, curve.getUtilizations(0), 0.0001);  // inside [200, 300]
+    assertEquals(0.0, curve.getUtilizations(1), 0.0001);  // [200, 300]
+    assertEquals(0.25, curve.getUtilizations(2), 0.0001); // [100, 300]
+    assertEquals(0.7, curve.getUtilizations(3), 0.0001);  // [0, 500]
+    assertEquals(0.84, curve.getUtilizations(4), 0.0001); // whole span
+    assertEquals(0.84, curve.getUtilizations(5), 0.0001);
+  }
+
+  @Test
+  public void testBuild_WindowsClampedToSpan() {
+    // a pause at the end of the log: the window [T1 - w, T1] is the worst one
+    final MmuCurveCalculator calculator = new MmuCurveCalculator();
+    calculator.observe(0);
+    calculator.add(980, 0.02);
+
+    final GcMmuCurve curve = calculator.build(new long[] { 10, 40, 1_000 });
+    assertEquals(0.0, curve.getUtilizations(0), 0.0001);
+    assertEquals(0.5, curve.getUtilizations(1), 0.0001);
+    assertEquals(0.98, curve.getUtilizations(2), 0.0001);
+  }
+
+  @Test
+  public void testBuild_NoPauses() {
+    final MmuCurveCalculator calculator = new MmuCurveCalculator();
+    calculator.observe(100);
+
+    assertEquals(Arrays.asList(1.0), calculator.build(new long[] { 10 }).getUtilizationsList());
+  }
+
+  @Test
+  public void testBuild_ManyPauses() {
+    // a 1 ms pause every 10 ms, in reverse order
+    final MmuCurveCalculator calculator = new MmuCurveCalculator();
+    for (int i = 99_999; i >= 0; i--) {
+      calculator.add(i * 10L, 0.001);
+    }
+
+    final GcMmuCurve curve = calculator.build(new long[] { 5, 10, 100 });
+    assertEquals(0.8, curve.getUtilizations(0), 0.0001);
+    assertEquals(0.9, curve.getUtilizations(1), 0.0001);
+    assertEquals(0.9, curve.getUtilizations(2), 0.0001);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import static org.junit.Assert.assertEquals;
+
+import edu.kaist.algo.analysis.GcPauseWindows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class PauseWindowAggregatorTest {
+  @Test
+  public void testBuild_OutOfOrderPauses() {
+    final PauseWindowAggregator aggregator = new PauseWindowAggregator(1_000);
+    aggregator.add(1_500, 0.1);
+    aggregator.add(3_200, 0.5);
+    aggregator.add(900, 0.2); // earlier than the first window
+    aggregator.add(1_999, 0.3);
+
+    final GcPauseWindows windows = aggregator.build();
+    assertEquals(1_000, windows.getWindowSize());
+    assertEquals(0, windows.getStartTimestamp());
+    assertEquals(Arrays.asList(1, 2, 0, 1), windows.getCountsList());
+    assertEquals(0.2, windows.getTotalPauseTimes(0), 0.001);
+    assertEquals(0.4, windows.getTotalPauseTimes(1), 0.001);
+    assertEquals(0.0, windows.getTotalPauseTimes(2), 0.001);
+    assertEquals(0.3, windows.getMaxPauseTimes(1), 0.001);
+    assertEquals(40.0, windows.getOverheads(1), 0.001);
+    assertEquals(50.0, windows.getOverheads(3), 0.001);
+  }
+
+  @Test
+  public void testBuild_ManyWindows() {
+    final PauseWindowAggregator aggregator = new PauseWindowAggregator(10);
+    for (int i = 100; i >= 0; i--) {
+      aggregator.add(1_000 + i * 10, 0.001);
+    }
+
+    final GcPauseWindows windows = aggregator.build();
+    assertEquals(1_000, windows.getStartTimestamp());
+    assertEquals(101, windows.getCountsCount());
+    assertEquals(10.0, windows.getOverheads(100), 0.001);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_IllegalWindowSize() {
+    new PauseWindowAggregator(0);
+  }
+}
@@ -216,4 +216,48 @@ public class StatisticsTest {
     assertEquals(1, Statistics.getMin(testSetEven, TwoValue::getV1).getV1(), 0.0001);
     assertEquals(4, Statistics.getMax(testSetEven, TwoValue::getV1).getV1(), 0.0001);
   }
+
+  @Test public void testPrimitiveOverloads_returnSameAsList() {
+    final double[] data = { 3, 4, 2, 5, 5 };
+    final ArrayList<Double> list = new ArrayList<>();
+    for (double value : data) {
+      list.add(value);
+    }
+
+    final double sampleMean = Statistics.getSampleMean(data);
+    assertEquals(Statistics.getTotalSum(list), Statistics.getTotalSum(data), 0.0);
+    assertEquals(Statistics.getSampleMean(list), sampleMean, 0.0);
+    assertEquals(Statistics.getSampleMedian(list), Statistics.getSampleMedian(data), 0.0);
+    assertEquals(Statistics.getSampleStdDev(list, sampleMean),
+        Statistics.getSampleStdDev(data, sampleMean), 0.0);
+    assertEquals(2, Statistics.getMinIndex(data));
+    assertEquals(3, Statistics.getMaxIndex(data)); // the first one of the maximum values
+  }
+
+  @Test public void testGetOutlierIndices_returnOutlierIndices() {
+    final double[] testSet = new double[102];
+    for (int i = 0; i < 100; i++) {
+      testSet[i] = Math.random() * 2 - 1; // range[-1 ~ 1]
+    }
+    testSet[100] = 20.0;
+    testSet[101] = -20.0;
+
+    double sampleMean = Statistics.getSampleMean(testSet);
+    double sampleStdDev = Statistics.getSampleStdDev(testSet, sampleMean);
+    int[] outliers = Statistics.getOutlierIndices(testSet, sampleMean, sampleStdDev, 0.25);
+
+    assertEquals(1, outliers.length);
+    assertEquals(100, outliers[0]);
+  }
+
+  @Test public void testKolmogorovSmirnovPValue_returnCriticalLevels() {
+    // 1.36 and 1.63 are the asymptotic critical values of the levels 0.05 and 0.01
+    final double effectiveSize = Math.sqrt(1e6 * 1e6 / 2e6);
+    assertEquals(0.05, Statistics.getKolmogorovSmirnovPValue(
+        1.358 / effectiveSize, 1_000_000, 1_000_000), 0.001);
+    assertEquals(0.01, Statistics.getKolmogorovSmirnovPValue(
+        1.628 / effectiveSize, 1_000_000, 1_000_000), 0.001);
+    assertEquals(1, Statistics.getKolmogorovSmirnovPValue(0, 10, 20), 0.0);
+    assertEquals(0, Statistics.getKolmogorovSmirnovPValue(1, 1_000, 1_000), 1e-9);
+  }
 }
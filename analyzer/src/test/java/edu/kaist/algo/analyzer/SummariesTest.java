@@ -0,0 +1,301 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcComparison;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.analysis.GcPauseComparison;
+import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.analysis.GcPauseSummary;
+import edu.kaist.algo.analysis.GcQuantileChange;
+import edu.kaist.algo.model.GcEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class SummariesTest {
+  private static final Double[] MEAN_LEVELS = { 0.01, 0.05 };
+  private static final Double[] OUTLIER_LEVELS = { 0.01, 0.25 };
+  private static final Double[] QUANTILE_LEVELS = { 0.5, 0.9, 0.99 };
+
+  private List<GcEvent> eventList = new ArrayList<>();
+
+  /**
+   * Setting up pseudo-random events of every log type.
+   */
+  @Before public void setUp() {
+    final Random random = new Random(42);
+    final GcEvent.LogType[] types = { GcEvent.LogType.MINOR_GC, GcEvent.LogType.MINOR_GC,
+        GcEvent.LogType.MINOR_GC, GcEvent.LogType.CMS_INIT_MARK, GcEvent.LogType.CMS_CONCURRENT,
+        GcEvent.LogType.CMS_FINAL_REMARK, GcEvent.LogType.CMS_CONCURRENT,
+        GcEvent.LogType.FULL_GC };
+    long timestamp = 1_000;
+    long oldUsage = 40_000;
+    for (int i = 0; i < 4_000; i++) {
+      final GcEvent.LogType type = types[i % types.length];
+      final GcEvent.Builder builder = GcEvent.newBuilder()
+          .setLogType(type)
+          .setTimestamp(timestamp)
+          .setThread(11779);
+      if (type == GcEvent.LogType.CMS_CONCURRENT) {
+        builder.setTypeDetail(i % 16 == 4 ? "CMS-concurrent-mark" : "CMS-concurrent-sweep");
+      } else {
+        builder.setPauseTime(0.001 + 0.05 * -Math.log(1 - random.nextDouble()));
+      }
+      if (type == GcEvent.LogType.MINOR_GC || type == GcEvent.LogType.FULL_GC) {
+        oldUsage = type == GcEvent.LogType.FULL_GC ? 40_000 : oldUsage + random.nextInt(500);
+        builder.setYoungUsageBefore(30_720)
+            .setYoungUsageAfter(3_392)
+            .setYoungCapacity(30_720)
+            .setHeapUsageBefore(oldUsage + 30_720)
+            .setHeapUsageAfter(oldUsage + 3_392)
+            .setHeapCapacity(99_008);
+      }
+      eventList.add(builder.build());
+      timestamp += 50 + random.nextInt(450);
+    }
+  }
+
+  @Test
+  public void summarize_returnSameSummaryWhenSplit() {
+    final int split = eventList.size() / 3;
+    final GcLogSummary previous = new LogAnalyzer(eventList.subList(0, split)).summarize();
+    final GcLogSummary merged =
+        new LogAnalyzer(eventList.subList(split, eventList.size())).summarize(previous);
+    final GcLogSummary whole = new LogAnalyzer(eventList).summarize();
+
+    assertEquals(whole.getEventCount(), merged.getEventCount());
+    assertEquals(whole.getSpanStart(), merged.getSpanStart(), 0.0);
+    assertEquals(whole.getSpanEnd(), merged.getSpanEnd(), 0.0);
+    assertEquals(whole.getTotalPauseTime(), merged.getTotalPauseTime(), 1e-6);
+    assertEquals(whole.getPausesList(), merged.getPausesList());
+    assertEquals(whole.getConcurrences(), merged.getConcurrences());
+    assertEquals(whole.getWindowsList(), merged.getWindowsList());
+    assertEquals(whole.getHeapUsage(), merged.getHeapUsage());
+    assertEquals(whole.getPauseTimes(), merged.getPauseTimes());
+    assertEquals(whole.getTailPauses(), merged.getTailPauses());
+    assertEquals(whole.getMmu().getWindowSizesList(), merged.getMmu().getWindowSizesList());
+    for (int i = 0; i < whole.getMmu().getUtilizationsCount(); i++) {
+      assertEquals(whole.getMmu().getUtilizations(i), merged.getMmu().getUtilizations(i), 1e-9);
+    }
+  }
+
+  @Test
+  public void merge_returnSamePauseStatsAsOneLog() {
+    final int split = eventList.size() / 4;
+    final LogAnalyzer first = new LogAnalyzer(eventList.subList(0, split));
+    final LogAnalyzer second = new LogAnalyzer(eventList.subList(split, eventList.size()));
+    final GcLogSummary whole = new LogAnalyzer(eventList).summarize();
+    final GcLogSummary merged =
+        Summaries.merge(Arrays.asList(second.summarize(), first.summarize()));
+
+    assertEquals(whole.getEventCount(), merged.getEventCount());
+    assertEquals(whole.getTotalPauseTime(), merged.getTotalPauseTime(), 1e-6);
+    assertEquals(whole.getConcurrences(), merged.getConcurrences());
+    assertEquals(whole.getPausesCount(), merged.getPausesCount());
+    for (GcPauseSummary expected : whole.getPausesList()) {
+      final GcPauseSummary actual = merged.getPausesList().stream()
+          .filter(pause -> pause.getType() == expected.getType())
+          .findFirst().get();
+      assertEquals(expected.getCount(), actual.getCount());
+      assertEquals(expected.getSum(), actual.getSum(), 1e-9);
+      assertEquals(expected.getSumSquares(), actual.getSumSquares(), 1e-9);
+      assertEquals(expected.getMinEvent(), actual.getMinEvent());
+      assertEquals(expected.getMaxEvent(), actual.getMaxEvent());
+      assertEquals(expected.getHistogramOffset(), actual.getHistogramOffset());
+      assertEquals(expected.getHistogramList(), actual.getHistogramList());
+      assertEquals(expected.getLargestEventsList(), actual.getLargestEventsList());
+    }
+    assertTrue(merged.getWindowsList().isEmpty());
+
+    final GcAnalyzedData result =
+        Summaries.analyze(merged, MEAN_LEVELS, OUTLIER_LEVELS, LogAnalyzer.DEFAULT_MAX_POINTS);
+    final GcAnalyzedData expected = Summaries.analyze(whole, MEAN_LEVELS, OUTLIER_LEVELS, 0);
+    for (int i = 0; i < expected.getPausesCount(); i++) {
+      assertEquals(expected.getPauses(i).getSampleMedian(),
+          result.getPauses(i).getSampleMedian(), 0.0);
+      assertEquals(expected.getPauses(i).getOutliersList(), result.getPauses(i).getOutliersList());
+    }
+  }
+
+  @Test
+  public void analyze_returnApproximatedAnalyzedData() {
+    final LogAnalyzer analyzer = new LogAnalyzer(eventList);
+    final GcAnalyzedData expected = analyzer.analyzeData(MEAN_LEVELS, OUTLIER_LEVELS);
+    final GcAnalyzedData result = Summaries.analyze(analyzer.summarize(), MEAN_LEVELS,
+        OUTLIER_LEVELS, LogAnalyzer.DEFAULT_MAX_POINTS);
+
+    assertEquals(expected.getPausesCount(), result.getPausesCount());
+    for (int i = 0; i < expected.getPausesCount(); i++) {
+      final GcPauseStat exact = expected.getPauses(i);
+      final GcPauseStat approximated = result.getPauses(i);
+      assertEquals(exact.getType(), approximated.getType());
+      assertEquals(exact.getCount(), approximated.getCount());
+      assertEquals(exact.getTotalPauseTime(), approximated.getTotalPauseTime(), 1e-9);
+      assertEquals(exact.getSampleMean(), approximated.getSampleMean(), 1e-9);
+      assertEquals(exact.getSampleStdDev(), approximated.getSampleStdDev(), 1e-9);
+      assertEquals(exact.getSampleMedian(), approximated.getSampleMedian(),
+          exact.getSampleMedian() * 0.01);
+      assertEquals(exact.getMinEvent(), approximated.getMinEvent());
+      assertEquals(exact.getMaxEvent(), approximated.getMaxEvent());
+      for (int j = 0; j < exact.getMeansCount(); j++) {
+        assertEquals(exact.getMeans(j).getMean().getMin(),
+            approximated.getMeans(j).getMean().getMin(), 1e-9);
+        assertEquals(exact.getMeans(j).getMean().getMax(),
+            approximated.getMeans(j).getMean().getMax(), 1e-9);
+      }
+      for (int j = 0; j < exact.getOutliersCount(); j++) {
+        assertTrue(exact.getOutliers(j).getEventsCount() <= PauseSummarizer.LARGEST_EVENTS);
+        assertEquals(exact.getOutliers(j), approximated.getOutliers(j));
+      }
+    }
+    assertEquals(expected.getConcurrencesList(), result.getConcurrencesList());
+    assertEquals(expected.getWindowsList(), result.getWindowsList());
+    assertEquals(expected.getMmu(), result.getMmu());
+    assertEquals(expected.getHeapUsage(), result.getHeapUsage());
+    assertEquals(expected.getPauseTimes(), result.getPauseTimes());
+  }
+
+  @Test
+  public void analyze_returnCountOnlyForFewPauses() {
+    final GcLogSummary summary = new LogAnalyzer(withFullGcs(1)).summarize();
+    final GcAnalyzedData result = Summaries.analyze(summary, MEAN_LEVELS, OUTLIER_LEVELS,
+        LogAnalyzer.DEFAULT_MAX_POINTS);
+
+    final GcPauseStat full = result.getPauses(0);
+    assertEquals(GcEvent.LogType.FULL_GC, full.getType());
+    assertEquals(1, full.getCount());
+    assertTrue(full.getTotalPauseTime() > 0);
+    assertEquals(0, full.getMeansCount());
+    assertEquals(0, full.getOutliersCount());
+    assertEquals(MEAN_LEVELS.length, result.getPauses(1).getMeansCount());
+  }
+
+  @Test
+  public void analyze_returnNoOutliersForTwoPauses() {
+    final GcLogSummary summary = new LogAnalyzer(withFullGcs(2)).summarize();
+    final GcAnalyzedData result = Summaries.analyze(summary, MEAN_LEVELS, OUTLIER_LEVELS,
+        LogAnalyzer.DEFAULT_MAX_POINTS);
+
+    final GcPauseStat full = result.getPauses(0);
+    assertEquals(GcEvent.LogType.FULL_GC, full.getType());
+    assertEquals(2, full.getCount());
+    assertTrue(full.getSampleMean() > 0);
+    assertEquals(MEAN_LEVELS.length, full.getMeansCount());
+    assertEquals(OUTLIER_LEVELS.length, full.getOutliersCount());
+    for (int i = 0; i < OUTLIER_LEVELS.length; i++) {
+      assertEquals(0, full.getOutliers(i).getEventsCount());
+    }
+  }
+
+  // the events with only the first full GCs
+  private List<GcEvent> withFullGcs(int fullGcs) {
+    final List<GcEvent> events = new ArrayList<>();
+    int kept = 0;
+    for (GcEvent event : eventList) {
+      if (event.getLogType() != GcEvent.LogType.FULL_GC) {
+        events.add(event);
+      } else if (kept < fullGcs) {
+        events.add(event);
+        kept++;
+      }
+    }
+    return events;
+  }
+
+  @Test
+  public void compare_returnNoChangeForSameLog() {
+    final GcLogSummary summary = new LogAnalyzer(eventList).summarize();
+    final GcComparison comparison = Summaries.compare(summary, summary, QUANTILE_LEVELS);
+
+    assertEquals(0, comparison.getOverhead().getRelativeChange(), 0.0);
+    assertEquals(4, comparison.getPausesCount());
+    for (GcPauseComparison pause : comparison.getPausesList()) {
+      assertEquals(0, pause.getKsStatistic(), 0.0);
+      assertEquals(1, pause.getPValue(), 0.0);
+      assertEquals(0, pause.getCount().getRelativeChange(), 0.0);
+      assertEquals(QUANTILE_LEVELS.length, pause.getQuantilesCount());
+      for (GcQuantileChange quantile : pause.getQuantilesList()) {
+        assertEquals(0, quantile.getPauseTime().getRelativeChange(), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void compare_returnSignificantChangeForLongerPauses() {
+    final List<GcEvent> longer = new ArrayList<>();
+    for (GcEvent event : eventList) {
+      longer.add(event.toBuilder().setPauseTime(event.getPauseTime() * 1.5).build());
+    }
+    final GcComparison comparison = Summaries.compare(new LogAnalyzer(eventList).summarize(),
+        new LogAnalyzer(longer).summarize(), QUANTILE_LEVELS);
+
+    // longer pauses overlap more, and extend the span of the log
+    assertEquals(0.5, comparison.getOverhead().getRelativeChange(), 0.05);
+    for (GcPauseComparison pause : comparison.getPausesList()) {
+      assertEquals(0, pause.getCount().getRelativeChange(), 0.0);
+      assertEquals(0.5, pause.getMean().getRelativeChange(), 1e-9);
+      assertTrue(pause.getPValue() < 0.01);
+      for (GcQuantileChange quantile : pause.getQuantilesList()) {
+        // both quantiles are estimated within a bucket
+        assertEquals(0.5, quantile.getPauseTime().getRelativeChange(), 0.05);
+      }
+    }
+  }
+
+  @Test
+  public void estimateQuantile_returnQuantileWithinBucketError() {
+    final PauseSummarizer summarizer =
+        new PauseSummarizer(GcEvent.LogType.MINOR_GC, GcPauseSummary.getDefaultInstance());
+    final GcEventColumns columns = GcEventColumns.of(eventList);
+    final List<Double> pauseTimes = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.logType(i) == GcEvent.LogType.MINOR_GC) {
+        summarizer.add(columns, i);
+        pauseTimes.add(columns.pauseTime(i));
+      }
+    }
+    Collections.sort(pauseTimes);
+    for (double level : QUANTILE_LEVELS) {
+      final double quantile =
+          pauseTimes.get((int) Math.ceil(level * pauseTimes.size()) - 1);
+      assertEquals(quantile, PauseSummarizer.estimateQuantile(summarizer.build(), level),
+          quantile * 0.01);
+    }
+  }
+
+  @Test
+  public void estimateMedian_returnMedianWithinBucketError() {
+    final PauseSummarizer summarizer =
+        new PauseSummarizer(GcEvent.LogType.MINOR_GC, GcPauseSummary.getDefaultInstance());
+    final GcEventColumns columns = GcEventColumns.of(eventList);
+    final List<Double> pauseTimes = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.logType(i) == GcEvent.LogType.MINOR_GC) {
+        summarizer.add(columns, i);
+        pauseTimes.add(columns.pauseTime(i));
+      }
+    }
+    final double median = Statistics.getSampleMedian(pauseTimes);
+    assertEquals(median, PauseSummarizer.estimateMedian(summarizer.build()), median * 0.01);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.kaist.algo.analysis.GcTimeSeries;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class TimeSeriesBufferTest {
+  @Test
+  public void testBuild_KeepEveryPoint() {
+    final TimeSeriesBuffer buffer = new TimeSeriesBuffer();
+    for (int i = 0; i < 100; i++) {
+      buffer.add(i * 10, i);
+    }
+
+    assertEquals(100, buffer.build(0).getValuesCount());
+    assertEquals(100, buffer.build(100).getValuesCount());
+  }
+
+  @Test
+  public void testBuild_Downsample() {
+    // flat series with two spikes
+    final TimeSeriesBuffer buffer = new TimeSeriesBuffer();
+    for (int i = 0; i < 100_000; i++) {
+      buffer.add(i * 10L, i == 12_345 ? 100 : i == 87_654 ? -100 : 1);
+    }
+
+    final GcTimeSeries series = buffer.build(50);
+    assertEquals(50, series.getTimestampsCount());
+    assertEquals(50, series.getValuesCount());
+    assertEquals(0, series.getTimestamps(0));
+    assertEquals(999_990, series.getTimestamps(49));
+    assertTrue(series.getValuesList().contains(100.0));
+    assertTrue(series.getValuesList().contains(-100.0));
+    for (int i = 1; i < 50; i++) {
+      assertTrue(series.getTimestamps(i - 1) < series.getTimestamps(i));
+    }
+  }
+
+  @Test
+  public void testBuild_MinimumPoints() {
+    final TimeSeriesBuffer buffer = new TimeSeriesBuffer();
+    buffer.add(0, 1);
+    buffer.add(10, 5);
+    buffer.add(20, 2);
+    buffer.add(30, 1);
+
+    assertEquals(Arrays.asList(0L, 10L, 30L), buffer.build(3).getTimestampsList());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuild_IllegalMaxPoints() {
+    new TimeSeriesBuffer().build(2);
+  }
+}
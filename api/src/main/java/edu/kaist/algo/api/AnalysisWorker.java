@@ -0,0 +1,269 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api;
+
+import com.google.common.base.MoreObjects;
+
+import edu.kaist.algo.api.jobs.AnalysisQueue;
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
+import edu.kaist.algo.api.jobs.RedisAnalysisQueue;
+import edu.kaist.algo.api.metrics.MetricsHttpServer;
+import edu.kaist.algo.api.metrics.ServerMetrics;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AnalysisWorker analyzes the tickets taken from the analysis queue with a number of threads.
+ *
+ * <p>The workers run in the server process with a
+ * {@link edu.kaist.algo.api.jobs.LocalAnalysisQueue}, or on any number of nodes with a
+ * {@link RedisAnalysisQueue} through the main method of this class. The nodes read the logs from
+ * the storage shared with the server, and write the results through the {@link Ticketer}.
+ *
+ * <p>The depth of the queue and the time of the analyses are recorded in {@link ServerMetrics},
+ * which a node exposes to Prometheus with the metrics port option.
+ */
+public class AnalysisWorker {
+  private static final String DEFAULT_REDIS_HOST = "localhost";
+  private static final String DEFAULT_REDIS_PORT = "6379";
+  private static final long TAKE_SECONDS = 5;
+  private static final Logger logger = LoggerFactory.getLogger(AnalysisWorker.class);
+
+  private final Ticketer ticketer;
+  private final AnalysisQueue queue;
+  private final int threads;
+  private final Path storageDir;
+  private final ExecutorService executor;
+  private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+  private ScheduledFuture<?> requeueing;
+  private volatile boolean stopped;
+
+  /**
+   * Creates the workers reading the logs relative to the working directory.
+   *
+   * @param ticketer the ticketer instance to use for redis interactions
+   * @param queue the queue to take the tickets from
+   * @param threads number of the tickets analyzed at once
+   */
+  public AnalysisWorker(Ticketer ticketer, AnalysisQueue queue, int threads) {
+    this(ticketer, queue, threads, Paths.get(""));
+  }
+
+  /**
+   * Creates the workers.
+   *
+   * @param ticketer the ticketer instance to use for redis interactions
+   * @param queue the queue to take the tickets from
+   * @param threads number of the tickets analyzed at once
+   * @param storageDir directory of the logs shared with the server
+   */
+  public AnalysisWorker(Ticketer ticketer, AnalysisQueue queue, int threads, Path storageDir) {
+    this.ticketer = ticketer;
+    this.queue = queue;
+    this.threads = threads;
+    this.storageDir = storageDir;
+    this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    // keeps renewing the leases of the analyses finishing after stop()
+    scheduler.setContinueExistingPeriodicTasksAfterShutdownPolicy(true);
+  }
+
+  /**
+   * Starts the worker threads, and the periodic return of the expired tickets to the queue.
+   */
+  public void start() {
+    ServerMetrics.setQueueDepth(queue::size);
+    for (int i = 0; i < threads; i++) {
+      executor.submit(this::work);
+    }
+    final long leaseMillis = queue.getLeaseMillis();
+    requeueing = scheduler.scheduleWithFixedDelay(this::requeueExpired, leaseMillis,
+        leaseMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops taking tickets from the queue. The analyses in progress are finished in background.
+   */
+  public void stop() {
+    stopped = true;
+    if (requeueing != null) {
+      requeueing.cancel(false);
+    }
+    executor.shutdown();
+    scheduler.shutdown();
+  }
+
+  private void work() {
+    while (!stopped) {
+      final AnalysisQueue.Lease lease;
+      try {
+        lease = queue.take(TAKE_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException ie) {
+        return;
+      } catch (RuntimeException re) {
+        logger.error("Failed to take a ticket from the queue.", re);
+        sleepQuietly();
+        continue;
+      }
+      if (lease == null) {
+        continue;
+      }
+
+      final long ticket = lease.getTicket();
+      final long renewMillis = queue.getLeaseMillis() / 3;
+      final ScheduledFuture<?> renewal = scheduler.scheduleWithFixedDelay(
+          () -> queue.renew(lease), renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+      final long start = System.nanoTime();
+      // a failure of the store must not stop the thread, which would lose a worker for good
+      try {
+        new LogAnalyzeJob(ticketer, ticket, storageDir).run();
+      } catch (RuntimeException re) {
+        logger.error("Failed to analyze the ticket " + ticket + ".", re);
+      } finally {
+        ServerMetrics.ANALYSIS_DURATION.observeSince(start);
+        renewal.cancel(false);
+        complete(lease);
+      }
+    }
+  }
+
+  // the ticket left in the queue is returned to the queue when its lease expires
+  private void complete(AnalysisQueue.Lease lease) {
+    try {
+      queue.complete(lease);
+    } catch (RuntimeException re) {
+      logger.error("Failed to complete the ticket " + lease.getTicket() + ".", re);
+    }
+  }
+
+  private void requeueExpired() {
+    try {
+      queue.requeueExpired();
+    } catch (RuntimeException re) {
+      logger.error("Failed to return the expired tickets to the queue.", re);
+    }
+  }
+
+  private void sleepQuietly() {
+    try {
+      TimeUnit.SECONDS.sleep(TAKE_SECONDS);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      stopped = true;
+    }
+  }
+
+  private static Options makeWorkerOptions() {
+    Options options = new Options();
+    Option threads = Option.builder("t")
+        .hasArg(true)
+        .argName("threads")
+        .desc("give the number of the logs analyzed at once")
+        .build();
+    Option storage = Option.builder("d")
+        .hasArg(true)
+        .argName("directory")
+        .desc("give the directory of the logs shared with the server")
+        .build();
+    Option metricsPort = Option.builder()
+        .longOpt("metrics-port")
+        .hasArg(true)
+        .argName("port")
+        .desc("expose the metrics to Prometheus on the port (default: not exposed)")
+        .build();
+
+    options.addOption(threads);
+    options.addOption(storage);
+    options.addOption(metricsPort);
+    return options;
+  }
+
+  /**
+   * Runs the workers taking the tickets from the redis queue, until the JVM shuts down.
+   * The redis server is given by the REDIS_HOST and REDIS_PORT environment variables.
+   *
+   * @param args command-line user input.
+   */
+  public static void main(String[] args) {
+    final int threads;
+    final Path storageDir;
+    final int metricsPort;
+    try {
+      CommandLineParser parser = new DefaultParser();
+      CommandLine cmd = parser.parse(makeWorkerOptions(), args);
+      threads = Integer.parseInt(cmd.getOptionValue("t",
+          Integer.toString(Runtime.getRuntime().availableProcessors())));
+      storageDir = Paths.get(cmd.getOptionValue("d", ""));
+      metricsPort = Integer.parseInt(cmd.getOptionValue("metrics-port", "-1"));
+      if (threads < 1) {
+        throw new ParseException("Invalid number of threads. (1 <= threads)");
+      }
+      if (metricsPort > 65535 || cmd.hasOption("metrics-port") && metricsPort < 0) {
+        throw new ParseException("Invalid metrics port value. (0 <= port <= 65535).");
+      }
+    } catch (ParseException | NumberFormatException ex) {
+      logger.error("Parsing failed. Reason : " + ex.getMessage());
+      return;
+    }
+
+    String redisHost = MoreObjects.firstNonNull(System.getenv("REDIS_HOST"), DEFAULT_REDIS_HOST);
+    int redisPort = Integer.parseInt(
+        MoreObjects.firstNonNull(System.getenv("REDIS_PORT"), DEFAULT_REDIS_PORT));
+    JedisPoolConfig config = new JedisPoolConfig();
+    // a connection is held by each blocking take
+    config.setMaxTotal(threads + JedisPoolConfig.DEFAULT_MAX_TOTAL);
+    final JedisPool jedisPool = new JedisPool(config, redisHost, redisPort);
+
+    final MetricsHttpServer metricsServer;
+    try {
+      metricsServer = metricsPort >= 0
+          ? new MetricsHttpServer(metricsPort, ServerMetrics.REGISTRY) : null;
+    } catch (IOException ioe) {
+      logger.error("Cannot open the metrics port.", ioe);
+      jedisPool.destroy();
+      return;
+    }
+
+    final AnalysisWorker worker = new AnalysisWorker(new Ticketer(jedisPool),
+        new RedisAnalysisQueue(jedisPool), threads, storageDir);
+    worker.start();
+    if (metricsServer != null) {
+      metricsServer.start();
+    }
+    logger.info("Worker started with " + threads + " threads on " + redisHost);
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        System.err.println("*** Stopping the worker since JVM is shutting down");
+        worker.stop();
+        if (metricsServer != null) {
+          metricsServer.stop();
+        }
+        jedisPool.destroy();
+      }
+    });
+  }
+}
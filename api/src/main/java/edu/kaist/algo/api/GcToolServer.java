@@ -11,11 +11,21 @@ package edu.kaist.algo.api;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 
+import edu.kaist.algo.api.jobs.AnalysisQueue;
+import edu.kaist.algo.api.jobs.LocalAnalysisQueue;
+import edu.kaist.algo.api.jobs.RedisAnalysisQueue;
+import edu.kaist.algo.api.metrics.MetricsHttpServer;
+import edu.kaist.algo.api.metrics.MetricsInterceptor;
+import edu.kaist.algo.api.metrics.ServerMetrics;
+import edu.kaist.algo.api.store.EmbeddedTicketStore;
+import edu.kaist.algo.api.store.RedisTicketStore;
+import edu.kaist.algo.api.store.TicketStore;
 import edu.kaist.algo.service.LogAnalysisGrpc;
 import edu.kaist.algo.service.LogUploadGrpc;
 
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptors;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -29,18 +39,44 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * GcToolServer class that provides various services related to analyzing
  * Java Garbage Collector logs.
+ *
+ * <p>The uploaded logs are analyzed by the workers running in the server process. With the redis
+ * queue, the logs are analyzed by the workers of any node running {@link AnalysisWorker} as well,
+ * and the server may run no worker at all.
+ *
+ * <p>The tickets are kept in redis by default. A single-node server may keep them in the embedded
+ * store instead, which needs no redis server at all.
+ *
+ * <p>With a retention period or a disk quota, the tickets are evicted periodically by the
+ * {@link RetentionSweeper}, so that the store and the disk do not grow without bound.
+ *
+ * <p>The latency of the RPCs, the uploads, the analyses and the store operations are recorded in
+ * {@link ServerMetrics}, which are exposed to Prometheus with the metrics port option.
  */
 public class GcToolServer {
   private static final String DEFAULT_REDIS_HOST = "localhost";
   private static final String DEFAULT_REDIS_PORT = "6379";
+  private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+  private static final long SWEEP_MINUTES = 5;
+  private static final long COMPACT_MINUTES = 10;
+  private static final long STOP_SECONDS = 10;
   private static final Logger logger = LoggerFactory.getLogger(GcToolServer.class);
-  private final JedisPool jedisPool;
-  private final int port;
+  private final Ticketer ticketer;
+  private final String address;
   private final Server server;
+  private final AnalysisWorker worker;
+  private final TicketStore store;
+  private final RetentionSweeper sweeper;
+  private final ScheduledExecutorService maintenance =
+      Executors.newSingleThreadScheduledExecutor();
 
   /**
    * Constructs a server at given PORT number.
@@ -57,20 +93,87 @@ public class GcToolServer {
    * @param jedisPool JedisPool for redis server use
    */
   public GcToolServer(int port, JedisPool jedisPool) {
-    this.port = port;
-    this.jedisPool = jedisPool;
-    this.server = ServerBuilder.forPort(port)
-        .addService(LogUploadGrpc
-            .bindService(new LogUploadImpl(new Ticketer(jedisPool))))
-        .addService(LogAnalysisGrpc
-            .bindService(new LogAnalysisImpl(new Ticketer(jedisPool))))
+    this(port, jedisPool, new LocalAnalysisQueue(), DEFAULT_WORKERS);
+  }
+
+  /**
+   * Constructor of GcToolServer analyzing the logs through the given queue.
+   * @param port port number
+   * @param jedisPool JedisPool for redis server use
+   * @param analysisQueue the queue of the logs to analyze
+   * @param workers number of the logs analyzed at once in the server process
+   */
+  public GcToolServer(int port, JedisPool jedisPool, AnalysisQueue analysisQueue, int workers) {
+    this(port, new RedisTicketStore(jedisPool), analysisQueue, workers);
+  }
+
+  /**
+   * Constructor of GcToolServer keeping the tickets in the given store.
+   * @param port port number
+   * @param store the store of the tickets, closed when the server stops
+   * @param analysisQueue the queue of the logs to analyze
+   * @param workers number of the logs analyzed at once in the server process
+   */
+  public GcToolServer(int port, TicketStore store, AnalysisQueue analysisQueue, int workers) {
+    this(port, store, analysisQueue, workers, 0, 0);
+  }
+
+  /**
+   * Constructor of GcToolServer evicting the tickets after the retention period, or beyond the
+   * disk quota.
+   * @param port port number
+   * @param store the store of the tickets, closed when the server stops
+   * @param analysisQueue the queue of the logs to analyze
+   * @param workers number of the logs analyzed at once in the server process
+   * @param retentionMillis time a ticket is kept after its last access, 0 to keep it forever
+   * @param diskQuotaBytes total size of the files of the tickets, 0 for no quota
+   */
+  public GcToolServer(int port, TicketStore store, AnalysisQueue analysisQueue, int workers,
+                      long retentionMillis, long diskQuotaBytes) {
+    this(ServerBuilder.forPort(port), Integer.toString(port), store, analysisQueue, workers,
+        retentionMillis, diskQuotaBytes);
+  }
+
+  /**
+   * Constructor of GcToolServer on the transport of the given builder, e.g. the in-process
+   * transport of the load tests.
+   * @param serverBuilder builder of the gRPC server, to which the services are added
+   * @param address address of the server, to be logged
+   * @param store the store of the tickets, closed when the server stops
+   * @param analysisQueue the queue of the logs to analyze
+   * @param workers number of the logs analyzed at once in the server process
+   * @param retentionMillis time a ticket is kept after its last access, 0 to keep it forever
+   * @param diskQuotaBytes total size of the files of the tickets, 0 for no quota
+   */
+  @VisibleForTesting
+  GcToolServer(ServerBuilder<?> serverBuilder, String address, TicketStore store,
+               AnalysisQueue analysisQueue, int workers, long retentionMillis,
+               long diskQuotaBytes) {
+    this.address = address;
+    this.store = store;
+    this.ticketer = new Ticketer(store);
+    final MetricsInterceptor metricsInterceptor = new MetricsInterceptor();
+    this.server = serverBuilder
+        .addService(ServerInterceptors.intercept(LogUploadGrpc
+            .bindService(new LogUploadImpl(ticketer, analysisQueue)), metricsInterceptor))
+        .addService(ServerInterceptors.intercept(LogAnalysisGrpc
+            .bindService(new LogAnalysisImpl(ticketer)), metricsInterceptor))
         .build();
+    this.worker = new AnalysisWorker(ticketer, analysisQueue, workers);
+    this.sweeper = retentionMillis > 0 || diskQuotaBytes > 0
+        ? new RetentionSweeper(ticketer, Paths.get(""), retentionMillis, diskQuotaBytes) : null;
   }
 
   @VisibleForTesting
   void start() throws IOException {
     server.start();
-    logger.info("Server started, listening on " + this.port);
+    worker.start();
+    if (sweeper != null) {
+      maintenance.scheduleWithFixedDelay(sweeper, 0, SWEEP_MINUTES, TimeUnit.MINUTES);
+    }
+    maintenance.scheduleWithFixedDelay(this::compactStore, COMPACT_MINUTES, COMPACT_MINUTES,
+        TimeUnit.MINUTES);
+    logger.info("Server started, listening on " + this.address);
     Runtime.getRuntime().addShutdownHook(new Thread() {
       @Override
       public void run() {
@@ -82,9 +185,25 @@ public class GcToolServer {
     });
   }
 
+  private void compactStore() {
+    try {
+      store.compact();
+    } catch (IOException | RuntimeException ex) {
+      logger.error("Failed to compact the store.", ex);
+    }
+  }
+
   @VisibleForTesting
   void stop() {
-    jedisPool.destroy();
+    worker.stop();
+    // lets a running sweep or compaction finish before the store is closed
+    maintenance.shutdown();
+    try {
+      maintenance.awaitTermination(STOP_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    }
+    ticketer.closeTicketer();
     if (server != null) {
       server.shutdown();
     }
@@ -105,32 +224,96 @@ public class GcToolServer {
         .desc("give the port number")
         .build();
 
+    Option workers = Option.builder("w")
+        .hasArg(true)
+        .argName("workers")
+        .desc("give the number of the logs analyzed at once in the server")
+        .build();
+    Option redisQueue = Option.builder()
+        .longOpt("redis-queue")
+        .hasArg(false)
+        .desc("queue the logs in redis, to analyze them on the nodes running the workers too")
+        .build();
+
+    Option store = Option.builder()
+        .longOpt("store")
+        .hasArg(true)
+        .argName("file")
+        .desc("keep the tickets in the embedded store logged to the file, instead of redis")
+        .build();
+
+    Option retention = Option.builder()
+        .longOpt("retention-hours")
+        .hasArg(true)
+        .argName("hours")
+        .desc("give the hours a ticket is kept after its last access (default: forever)")
+        .build();
+    Option diskQuota = Option.builder()
+        .longOpt("disk-quota-mb")
+        .hasArg(true)
+        .argName("megabytes")
+        .desc("give the total size of the logs, evicting the least recently used beyond it")
+        .build();
+
+    Option metricsPort = Option.builder()
+        .longOpt("metrics-port")
+        .hasArg(true)
+        .argName("port")
+        .desc("expose the metrics to Prometheus on the port (default: not exposed)")
+        .build();
+
     options.addOption(port);
+    options.addOption(workers);
+    options.addOption(redisQueue);
+    options.addOption(store);
+    options.addOption(retention);
+    options.addOption(diskQuota);
+    options.addOption(metricsPort);
     return options;
   }
 
-  private static int parseOptions(Options options, String[] args)
+  private static CommandLine parseOptions(Options options, String[] args)
       throws ParseException {
     CommandLineParser parser = new DefaultParser();
     CommandLine cmd = parser.parse(options, args);
     int port;
+    int workers;
+    int metricsPort;
     try {
       port = Integer.parseInt(cmd.getOptionValue("p", "50051"));
+      metricsPort = Integer.parseInt(cmd.getOptionValue("metrics-port", "0"));
+      workers = Integer.parseInt(cmd.getOptionValue("w", Integer.toString(DEFAULT_WORKERS)));
+      if (Long.parseLong(cmd.getOptionValue("retention-hours", "0")) < 0
+          || Long.parseLong(cmd.getOptionValue("disk-quota-mb", "0")) < 0) {
+        throw new ParseException("Invalid retention or disk quota. (0 <= hours, megabytes)");
+      }
     } catch (NumberFormatException nfe) {
-      throw new ParseException("Port is not a number.");
+      throw new ParseException(
+          "Port, workers, retention, disk quota or metrics port is not a number.");
     }
 
-    if (port < 0 || port > 65535) {
+    if (port < 0 || port > 65535 || metricsPort < 0 || metricsPort > 65535) {
       throw new ParseException("Invalid port value. (0 <= port <= 65535).");
     }
+    // only the remote workers analyze the logs if none runs in the server
+    if (workers < (cmd.hasOption("redis-queue") ? 0 : 1)) {
+      throw new ParseException("Invalid number of workers. (1 <= workers, or 0 with redis queue)");
+    }
+    // the workers of the other nodes cannot reach the embedded store
+    if (cmd.hasOption("store") && cmd.hasOption("redis-queue")) {
+      throw new ParseException("The redis queue needs the tickets in redis, not in the store.");
+    }
 
-    return port;
+    return cmd;
   }
 
-  private static JedisPool createJedisPool() {
+  private static JedisPool createJedisPool(int workers) {
     String redisHost = MoreObjects.firstNonNull(System.getenv("REDIS_HOST"), DEFAULT_REDIS_HOST);
     int redisPort = Integer.parseInt(MoreObjects.firstNonNull(System.getenv("REDIS_PORT"), DEFAULT_REDIS_PORT));
-    return new JedisPool(new JedisPoolConfig(), redisHost, redisPort);
+    JedisPoolConfig config = new JedisPoolConfig();
+    // a connection is held by each blocking take of the redis queue
+    config.setMaxTotal(workers + JedisPoolConfig.DEFAULT_MAX_TOTAL);
+    return new JedisPool(config, redisHost, redisPort);
   }
 
   /**
@@ -140,17 +323,46 @@ public class GcToolServer {
    */
   public static void main(String[] args) {
     final Options options = makeServerOptions();
-    int port;
+    CommandLine cmd;
     try {
-      port = parseOptions(options, args);
+      cmd = parseOptions(options, args);
     } catch (ParseException pe) {
       logger.error("Parsing failed. Reason : " + pe.getMessage());
       return;
     }
+    final int port = Integer.parseInt(cmd.getOptionValue("p", "50051"));
+    final int workers =
+        Integer.parseInt(cmd.getOptionValue("w", Integer.toString(DEFAULT_WORKERS)));
+    final long retentionMillis = TimeUnit.HOURS.toMillis(
+        Long.parseLong(cmd.getOptionValue("retention-hours", "0")));
+    final long diskQuotaBytes = Long.parseLong(cmd.getOptionValue("disk-quota-mb", "0")) << 20;
 
     // start the server
-    final GcToolServer serverInstance = new GcToolServer(port, createJedisPool());
+    final TicketStore store;
+    final AnalysisQueue analysisQueue;
+    if (cmd.hasOption("store")) {
+      try {
+        store = new EmbeddedTicketStore(Paths.get(cmd.getOptionValue("store")));
+      } catch (IOException ioe) {
+        logger.error("Cannot open the store.", ioe);
+        return;
+      }
+      analysisQueue = new LocalAnalysisQueue();
+    } else {
+      final JedisPool jedisPool = createJedisPool(workers);
+      store = new RedisTicketStore(jedisPool);
+      analysisQueue = cmd.hasOption("redis-queue")
+          ? new RedisAnalysisQueue(jedisPool) : new LocalAnalysisQueue();
+    }
+    final GcToolServer serverInstance =
+        new GcToolServer(port, store, analysisQueue, workers, retentionMillis, diskQuotaBytes);
+    MetricsHttpServer metricsServer = null;
     try {
+      if (cmd.hasOption("metrics-port")) {
+        metricsServer = new MetricsHttpServer(
+            Integer.parseInt(cmd.getOptionValue("metrics-port")), ServerMetrics.REGISTRY);
+        metricsServer.start();
+      }
       serverInstance.start();
       serverInstance.blockUntilShutdown();
     } catch (IOException ioe) {
@@ -161,6 +373,10 @@ public class GcToolServer {
       ite.printStackTrace();
       logger.error("Thread interrupted.", ite);
       serverInstance.stop();
+    } finally {
+      if (metricsServer != null) {
+        metricsServer.stop();
+      }
     }
   }
 }
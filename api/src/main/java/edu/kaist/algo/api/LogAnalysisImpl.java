@@ -8,6 +8,12 @@
 
 package edu.kaist.algo.api;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.primitives.Longs;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 
 import org.apache.commons.io.FileUtils;
@@ -16,11 +22,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.analyzer.LogAnalyzer;
+import edu.kaist.algo.analyzer.Summaries;
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
 import edu.kaist.algo.service.AnalysisStatus;
 import edu.kaist.algo.service.AnalyzedResult;
+import edu.kaist.algo.service.CompareInfo;
+import edu.kaist.algo.service.CompareResult;
+import edu.kaist.algo.service.FleetInfo;
+import edu.kaist.algo.service.FleetResult;
 import edu.kaist.algo.service.LogAnalysisGrpc;
+import edu.kaist.algo.service.ResultSection;
 import edu.kaist.algo.service.TicketInfo;
 
 import redis.clients.jedis.JedisPool;
@@ -31,13 +50,31 @@ import redis.clients.jedis.JedisPool;
  * <p>categories of protocol
  * <ul>
  *   <li>RequestAnalyzedData</li>
+ *   <li>RequestFleetData</li>
+ *   <li>CompareAnalyses</li>
  * </ul>
+ *
+ * <p>When the request carries custom mean/outlier levels, window sizes or point budget, the
+ * analysis is computed on demand from the event column file of the ticket, and cached in the
+ * ticketer per parameter set. A custom window size is at least {@link #MIN_WINDOW_SIZE}, and
+ * makes at most {@link #MAX_WINDOWS} windows over the log, since every window is kept in memory
+ * and returned. A request has at most {@link #MAX_LEVELS} levels of each kind and window sizes,
+ * which bounds the key of the cached analysis.
+ *
+ * <p>Fleet data is merged from the summaries stored by the analysis of each ticket (see
+ * {@link Summaries#merge(Iterable)}), without reading the events of the tickets. Comparisons
+ * are made from the summaries as well.
  */
 public class LogAnalysisImpl implements LogAnalysisGrpc.LogAnalysis {
   private static final String NOT_READY_MSG = "The file to be analyzed is not ready";
   private static final String COMPLETED_MSG = "Log is analysed successfully";
   private static final String ANALYZING_MSG = "Server is analyzing log. Please wait.";
   private static final String ERROR_MSG = "Error occurred during analysis.";
+  private static final String NOT_FOUND_MSG = "The ticket does not exist.";
+
+  static final long MIN_WINDOW_SIZE = 1000;
+  static final long MAX_WINDOWS = 100_000;
+  static final int MAX_LEVELS = 16;
 
   private static final Logger logger = LoggerFactory.getLogger(LogAnalysisImpl.class);
 
@@ -56,7 +93,19 @@ public class LogAnalysisImpl implements LogAnalysisGrpc.LogAnalysis {
   public void requestAnalyzedData(TicketInfo request,
                                   StreamObserver<AnalyzedResult> responseObserver) {
     AnalysisStatus status = ticketer.getStatus(request.getTicketNumber());
+    if (status == null) {
+      responseObserver.onNext(AnalyzedResult.newBuilder()
+          .setStatus(AnalysisStatus.ERROR)
+          .setMessage(NOT_FOUND_MSG)
+          .build());
+      responseObserver.onCompleted();
+      return;
+    }
+    ticketer.touch(Collections.singletonList(request.getTicketNumber()));
     AnalyzedResult.Builder result = AnalyzedResult.newBuilder().setStatus(status);
+    if (request.getWithMeta()) {
+      result.putAllMeta(ticketer.getMeta(request.getTicketNumber()));
+    }
 
     switch (status) {
       case NOT_READY:
@@ -65,6 +114,13 @@ public class LogAnalysisImpl implements LogAnalysisGrpc.LogAnalysis {
         break;
       case ANALYZING:
         result.setMessage(ANALYZING_MSG);
+
+        // a followed or appended log keeps the result of the previous analysis meanwhile
+        final GcAnalyzedData previous =
+            ticketer.getResult(request.getTicketNumber(), getSections(request));
+        if (previous != null) {
+          result.setResultData(previous);
+        }
         responseObserver.onNext(result.build());
         break;
       case ERROR:
@@ -74,7 +130,13 @@ public class LogAnalysisImpl implements LogAnalysisGrpc.LogAnalysis {
       case COMPLETED:
         result.setMessage(COMPLETED_MSG);
 
-        final GcAnalyzedData data = ticketer.getResult(request.getTicketNumber());
+        final GcAnalyzedData data;
+        try {
+          data = getAnalyzedData(request);
+        } catch (StatusRuntimeException sre) {
+          responseObserver.onError(sre);
+          return;
+        }
         if (data != null) {
           result.setResultData(data);
         } else {
@@ -88,4 +150,147 @@ public class LogAnalysisImpl implements LogAnalysisGrpc.LogAnalysis {
 
     responseObserver.onCompleted();
   }
+
+  @Override
+  public void requestFleetData(FleetInfo request, StreamObserver<FleetResult> responseObserver) {
+    final List<Long> tickets = request.getTicketNumbersList();
+    final List<GcLogSummary> summaries = new ArrayList<>();
+    final List<Long> found = new ArrayList<>();
+    final FleetResult.Builder result = FleetResult.newBuilder();
+    final List<GcLogSummary> stored = ticketer.getSummaries(tickets);
+    for (int i = 0; i < tickets.size(); i++) {
+      if (stored.get(i) != null) {
+        summaries.add(stored.get(i));
+        found.add(tickets.get(i));
+      } else {
+        result.addMissingTickets(tickets.get(i));
+      }
+    }
+    ticketer.touch(found);
+    result.setTicketCount(summaries.size());
+
+    final List<Double> meanLevels = request.getMeanLevelsCount() > 0
+        ? request.getMeanLevelsList() : LogAnalyzer.DEFAULT_MEAN_LEVELS;
+    final List<Double> outlierLevels = request.getOutlierLevelsCount() > 0
+        ? request.getOutlierLevelsList() : LogAnalyzer.DEFAULT_OUTLIER_LEVELS;
+    if (summaries.isEmpty()) {
+      result.setStatus(AnalysisStatus.NOT_READY).setMessage(NOT_READY_MSG);
+    } else {
+      try {
+        result.setResultData(Summaries.analyze(Summaries.merge(summaries),
+            meanLevels.toArray(new Double[0]), outlierLevels.toArray(new Double[0]),
+            LogAnalyzer.DEFAULT_MAX_POINTS))
+            .setStatus(AnalysisStatus.COMPLETED).setMessage(COMPLETED_MSG);
+      } catch (IllegalArgumentException iae) {
+        logger.error("Failed to analyze the fleet of " + tickets, iae);
+        result.setStatus(AnalysisStatus.ERROR).setMessage(ERROR_MSG);
+      }
+    }
+
+    responseObserver.onNext(result.build());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void compareAnalyses(CompareInfo request,
+                              StreamObserver<CompareResult> responseObserver) {
+    final List<GcLogSummary> summaries = ticketer.getSummaries(
+        Arrays.asList(request.getBaseTicket(), request.getTargetTicket()));
+    final List<Double> quantileLevels = request.getQuantileLevelsCount() > 0
+        ? request.getQuantileLevelsList() : LogAnalyzer.DEFAULT_QUANTILE_LEVELS;
+    final CompareResult.Builder result = CompareResult.newBuilder();
+
+    if (summaries.contains(null)) {
+      result.setStatus(AnalysisStatus.NOT_READY).setMessage(NOT_READY_MSG);
+    } else {
+      ticketer.touch(Arrays.asList(request.getBaseTicket(), request.getTargetTicket()));
+      try {
+        result.setComparison(Summaries.compare(summaries.get(0), summaries.get(1),
+            quantileLevels.toArray(new Double[0])))
+            .setStatus(AnalysisStatus.COMPLETED).setMessage(COMPLETED_MSG);
+      } catch (IllegalArgumentException iae) {
+        logger.error("Failed to compare the ticket " + request.getBaseTicket() + " with "
+            + request.getTargetTicket(), iae);
+        result.setStatus(AnalysisStatus.ERROR).setMessage(ERROR_MSG);
+      }
+    }
+
+    responseObserver.onNext(result.build());
+    responseObserver.onCompleted();
+  }
+
+  // the sections to return, all of them if none is given
+  private static List<ResultSection> getSections(TicketInfo request) {
+    return request.getSectionsCount() > 0 ? request.getSectionsList() : ResultSections.ALL;
+  }
+
+  // throws INVALID_ARGUMENT for the levels and the window sizes out of the limits
+  private GcAnalyzedData getAnalyzedData(TicketInfo request) {
+    final long ticket = request.getTicketNumber();
+    if (request.getMeanLevelsCount() == 0 && request.getOutlierLevelsCount() == 0
+        && request.getWindowSizesCount() == 0 && request.getMaxPoints() == 0) {
+      return ticketer.getResult(ticket, getSections(request));
+    }
+    if (request.getMeanLevelsCount() > MAX_LEVELS || request.getOutlierLevelsCount() > MAX_LEVELS
+        || request.getWindowSizesCount() > MAX_LEVELS) {
+      throw Status.INVALID_ARGUMENT.withDescription("More than " + MAX_LEVELS
+          + " levels or window sizes are requested.").asRuntimeException();
+    }
+
+    final List<Double> meanLevels = request.getMeanLevelsCount() > 0
+        ? request.getMeanLevelsList() : LogAnalyzer.DEFAULT_MEAN_LEVELS;
+    final List<Double> outlierLevels = request.getOutlierLevelsCount() > 0
+        ? request.getOutlierLevelsList() : LogAnalyzer.DEFAULT_OUTLIER_LEVELS;
+    for (long windowSize : request.getWindowSizesList()) {
+      if (windowSize < MIN_WINDOW_SIZE) {
+        throw Status.INVALID_ARGUMENT.withDescription("Window size " + windowSize
+            + " is less than " + MIN_WINDOW_SIZE + " ms.").asRuntimeException();
+      }
+    }
+    final List<Long> windowSizes = request.getWindowSizesCount() > 0
+        ? request.getWindowSizesList() : LogAnalyzer.DEFAULT_WINDOW_SIZES;
+    final int maxPoints = request.getMaxPoints() != 0
+        ? request.getMaxPoints() : LogAnalyzer.DEFAULT_MAX_POINTS;
+    final String variant = makeVariantKey(meanLevels, outlierLevels, windowSizes, maxPoints);
+
+    GcAnalyzedData data = ticketer.getResult(ticket, variant);
+    if (data == null) {
+      try {
+        final LogAnalyzer analyzer = LogAnalyzeJob.loadAnalyzer(ticketer.getLogFile(ticket));
+        final long span = analyzer.getSpan();
+        for (long windowSize : request.getWindowSizesList()) {
+          if (span / windowSize >= MAX_WINDOWS) {
+            throw Status.INVALID_ARGUMENT.withDescription("Window size " + windowSize
+                + " makes more than " + MAX_WINDOWS + " windows.").asRuntimeException();
+          }
+        }
+        data = analyzer
+            .setWindowSizes(Longs.toArray(windowSizes))
+            .setMaxPoints(maxPoints)
+            .analyzeData(meanLevels.toArray(new Double[0]), outlierLevels.toArray(new Double[0]));
+        ticketer.setResult(ticket, variant, data);
+      } catch (IOException | IllegalArgumentException ex) {
+        logger.error("Failed to analyze the ticket " + ticket + " with " + variant, ex);
+      }
+    }
+    return data != null ? ResultSections.select(data, getSections(request)) : null;
+  }
+
+  /**
+   * Creates the key identifying the analysis parameters, for caching the analyzed data.
+   *
+   * @param meanLevels levels to estimating mean
+   * @param outlierLevels levels to detect outliers
+   * @param windowSizes sizes of the time windows
+   * @param maxPoints maximum number of points of each time series
+   * @return the variant key, e.g. "mean=0.01,0.05;outlier=0.1;window=60000;points=2000"
+   */
+  @VisibleForTesting
+  static String makeVariantKey(List<Double> meanLevels, List<Double> outlierLevels,
+                               List<Long> windowSizes, int maxPoints) {
+    return "mean=" + Joiner.on(',').join(meanLevels)
+        + ";outlier=" + Joiner.on(',').join(outlierLevels)
+        + ";window=" + Joiner.on(',').join(windowSizes)
+        + ";points=" + maxPoints;
+  }
 }
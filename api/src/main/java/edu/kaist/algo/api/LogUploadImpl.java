@@ -8,9 +8,14 @@
 
 package edu.kaist.algo.api;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.protobuf.ByteString;
 
-import edu.kaist.algo.api.jobs.LogAnalyzeJob;
+import edu.kaist.algo.api.jobs.AnalysisQueue;
+import edu.kaist.algo.api.metrics.ServerMetrics;
+import edu.kaist.algo.jfr.ChunkWriteEvent;
+import edu.kaist.algo.jfr.FlightRecorder;
+import edu.kaist.algo.jfr.UploadEvent;
 import edu.kaist.algo.service.AnalysisStatus;
 import edu.kaist.algo.service.FileInfo;
 import edu.kaist.algo.service.FileInfoResult;
@@ -32,27 +37,36 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Defines a service that firstly receives the information about
  * the file to be uploaded, and then receives a stream of logfile
  * contents and writes on a file on the server.
+ *
+ * <p>The time and the bytes of the last upload of a ticket are stored in its meta, for the
+ * timings of the pipeline of the ticket (see {@link edu.kaist.algo.api.jobs.LogAnalyzeJob}).
  */
 public class LogUploadImpl implements LogUploadGrpc.LogUpload {
+  static final String UPLOAD_STARTED_AT = "upload_started_at";
+  static final String UPLOAD_COMPLETED_AT = "upload_completed_at";
+  static final String UPLOAD_BYTES = "upload_bytes";
+  static final String UPLOAD_MILLIS = "upload_ms";
+
   private static final Logger logger =
       LoggerFactory.getLogger(LogUploadImpl.class);
   private final Ticketer ticketer;
   private final Map<Long, FileOutputStream> ticketToFos = new HashMap<>();
-  private final ExecutorService backgroundExecutor = Executors.newCachedThreadPool();
+  private final AnalysisQueue analysisQueue;
 
   /**
    * Creates LogUploadImpl instance.
    * @param ticketer the ticketer instance to use for redis interactions
+   * @param analysisQueue the queue to submit the uploaded logs to for the analysis
    */
-  LogUploadImpl(Ticketer ticketer) {
+  LogUploadImpl(Ticketer ticketer, AnalysisQueue analysisQueue) {
     this.ticketer = ticketer;
+    this.analysisQueue = analysisQueue;
   }
 
   /**
@@ -62,12 +76,21 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
    * is used to write contents received from the client in
    * logUpload() method.
    *
+   * <p>If the file information names a ticket to append to, the contents received afterwards are
+   * appended to the log of the ticket, and the log is re-analyzed incrementally. The ticket
+   * should not be waiting for an upload or in analysis.
+   *
    * @param fileinfo The file information such as file name, date, etc.
    * @param responseObserver StreamObserver type from client.
    */
   @Override
   public void infoUpload(FileInfo fileinfo,
                          StreamObserver<FileInfoResult> responseObserver) {
+    if (fileinfo.getAppendTo() > 0) {
+      appendInfo(fileinfo.getAppendTo(), responseObserver);
+      return;
+    }
+
     File uploadedFile = new File(FilenameUtils.getName(fileinfo.getFilename()));
 
     // file should not already exist
@@ -77,6 +100,9 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
       long ticket = ticketer.issueTicket();
       ticketer.setLogFile(ticket, uploadedFile.getName());
       ticketer.setStatus(ticket, AnalysisStatus.NOT_READY);
+      if (fileinfo.getFollow()) {
+        ticketer.issueFollow(ticket);
+      }
 
       FileInfoResult result = FileInfoResult.newBuilder()
           .setSuccessful(true)
@@ -88,6 +114,36 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
     }
   }
 
+  private void appendInfo(long ticket, StreamObserver<FileInfoResult> responseObserver) {
+    AnalysisStatus status = ticketer.getStatus(ticket);
+    if (status == null) {
+      responseObserver.onError(Status.NOT_FOUND
+          .withDescription("Ticket " + ticket + " does not exist.").asRuntimeException());
+      return;
+    }
+    if (status == AnalysisStatus.NOT_READY || status == AnalysisStatus.ANALYZING) {
+      responseObserver.onError(Status.FAILED_PRECONDITION
+          .withDescription("Ticket " + ticket + " is " + status + ".").asRuntimeException());
+      return;
+    }
+    if (ticketer.isFollowed(ticket)) {
+      responseObserver.onError(Status.FAILED_PRECONDITION
+          .withDescription("Ticket " + ticket + " is followed.").asRuntimeException());
+      return;
+    }
+    // blocks other appends until the contents are received
+    ticketer.setStatus(ticket, AnalysisStatus.NOT_READY);
+
+    FileInfoResult result = FileInfoResult.newBuilder()
+        .setSuccessful(true)
+        .setId(ticket)
+        .setOffset(new File(ticketer.getLogFile(ticket)).length())
+        .build();
+
+    responseObserver.onNext(result);
+    responseObserver.onCompleted();
+  }
+
   /**
    * Receives file contents from the client and writes to file
    * created in infoUpload() method.
@@ -98,9 +154,14 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
   public StreamObserver<UploadRequest> logUpload(
       final StreamObserver<UploadResult> responseObserver) {
 
+    ServerMetrics.UPLOADS_IN_FLIGHT.inc();
+    final long startedAt = System.currentTimeMillis();
+    final long startNanos = System.nanoTime();
+    final UploadEvent uploadEvent = FlightRecorder.beginUpload();
     return new StreamObserver<UploadRequest>() {
       private long ticketNum;
       int totalsize = 0;
+      private int chunks;
 
       @Override
       public void onNext(UploadRequest uploadrequest) {
@@ -109,7 +170,7 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
         FileOutputStream fos = ticketToFos.get(ticketNum);
         if (fos == null) {
           try {
-            fos = FileUtils.openOutputStream(new File(ticketer.getLogFile(ticketNum)));
+            fos = FileUtils.openOutputStream(new File(ticketer.getLogFile(ticketNum)), true);
           } catch (IOException ioe) {
             logger.error("Could not open file.", ioe);
             responseObserver.onCompleted();
@@ -120,20 +181,32 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
 
         ByteString bytestring = uploadrequest.getContents();
         int size = bytestring.size();
+        final ChunkWriteEvent writeEvent = FlightRecorder.beginChunkWrite();
         try {
           bytestring.writeTo(fos);
         } catch (IOException ie) {
           logger.error("Error occurred during file receiving : " + ie.getMessage());
         }
+        FlightRecorder.commitChunkWrite(writeEvent, ticketNum, size);
         totalsize += size;
+        chunks++;
+        ServerMetrics.UPLOADED_BYTES.add(size);
       }
 
       @Override
       public void onError(Throwable thrown) {
         Status status = Status.fromThrowable(thrown);
         logger.error("Log receiving failed : " + status.getDescription());
-        ticketer.deleteResource(ticketNum);
-        ticketToFos.remove(ticketNum);
+        ServerMetrics.UPLOADS_IN_FLIGHT.dec();
+        closeOutputStream(ticketToFos.remove(ticketNum));
+        if (ticketer.getSummary(ticketNum) != null) {
+          // failed to append, keeps the analyzed log with the contents received so far
+          analysisQueue.submit(ticketNum);
+        } else {
+          ticketer.deleteResource(ticketNum);
+        }
+
+        FlightRecorder.commitUpload(uploadEvent, "LogUpload", ticketNum, totalsize, chunks, false);
 
         UploadResult result = UploadResult.newBuilder().setFilesize(totalsize)
             .setSuccessful(false).build();
@@ -142,11 +215,14 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
 
       @Override
       public void onCompleted() {
-        ticketToFos.remove(ticketNum);
+        ServerMetrics.UPLOADS_IN_FLIGHT.dec();
+        closeOutputStream(ticketToFos.remove(ticketNum));
 
         final String logFile = ticketer.getLogFile(ticketNum);
-        ticketer.setMeta(ticketNum, logFile, totalsize);
-        backgroundExecutor.submit(new LogAnalyzeJob(ticketer, ticketNum));
+        ticketer.setMeta(ticketNum, logFile, new File(logFile).length());
+        ticketer.setMeta(ticketNum, getUploadMeta(startedAt, startNanos, totalsize));
+        analysisQueue.submit(ticketNum);
+        FlightRecorder.commitUpload(uploadEvent, "LogUpload", ticketNum, totalsize, chunks, true);
 
         UploadResult result = UploadResult.newBuilder()
             .setFilesize(totalsize)
@@ -157,4 +233,141 @@ public class LogUploadImpl implements LogUploadGrpc.LogUpload {
       }
     };
   }
+
+  /**
+   * Receives the contents of a log still being written from the client, and appends them to
+   * the file created in infoUpload() method. Each batch of contents requests an analysis of
+   * the log, which is coalesced with the analysis in progress (see {@link AnalysisQueue}).
+   * @param responseObserver StreamObserver type from the client.
+   * @return StreamObserver type from the server.
+   */
+  @Override
+  public StreamObserver<UploadRequest> logFollow(
+      final StreamObserver<UploadResult> responseObserver) {
+
+    ServerMetrics.UPLOADS_IN_FLIGHT.inc();
+    final long startedAt = System.currentTimeMillis();
+    final long startNanos = System.nanoTime();
+    final UploadEvent uploadEvent = FlightRecorder.beginUpload();
+    return new StreamObserver<UploadRequest>() {
+      private long ticketNum;
+      private FileOutputStream fos;
+      private boolean failed;
+      private boolean claimed;
+      private long totalsize = 0;
+      private int chunks;
+
+      @Override
+      public void onNext(UploadRequest uploadrequest) {
+        if (failed) {
+          return;
+        }
+        if (!claimed && !claim(uploadrequest.getId())) {
+          failed = true;
+          return;
+        }
+        ByteString bytestring = uploadrequest.getContents();
+        if (bytestring.isEmpty()) {
+          return;
+        }
+
+        final ChunkWriteEvent writeEvent = FlightRecorder.beginChunkWrite();
+        try {
+          if (fos == null) {
+            fos = FileUtils.openOutputStream(new File(ticketer.getLogFile(ticketNum)), true);
+          }
+          bytestring.writeTo(fos);
+        } catch (IOException ioe) {
+          logger.error("Could not write the followed log.", ioe);
+          closeOutputStream(fos);
+          failed = true;
+          responseObserver.onError(Status.INTERNAL
+              .withDescription("Could not write the log.").asRuntimeException());
+          return;
+        }
+        FlightRecorder.commitChunkWrite(writeEvent, ticketNum, bytestring.size());
+        totalsize += bytestring.size();
+        chunks++;
+        ServerMetrics.UPLOADED_BYTES.add(bytestring.size());
+        analysisQueue.submit(ticketNum);
+      }
+
+      @Override
+      public void onError(Throwable thrown) {
+        Status status = Status.fromThrowable(thrown);
+        logger.error("Log following failed : " + status.getDescription());
+        ServerMetrics.UPLOADS_IN_FLIGHT.dec();
+        closeOutputStream(fos);
+        FlightRecorder.commitUpload(uploadEvent, "LogFollow", ticketNum, totalsize, chunks, false);
+        if (claimed) {
+          ticketer.endFollow(ticketNum);
+        }
+      }
+
+      // the stream follows only the ticket of its first request, issued for following
+      private boolean claim(long ticket) {
+        if (ticket <= 0 || ticketer.getStatus(ticket) == null) {
+          responseObserver.onError(Status.NOT_FOUND
+              .withDescription("Ticket " + ticket + " does not exist.").asRuntimeException());
+          return false;
+        }
+        if (!ticketer.claimFollow(ticket)) {
+          responseObserver.onError(Status.FAILED_PRECONDITION
+              .withDescription("Ticket " + ticket + " is not issued for this follow.")
+              .asRuntimeException());
+          return false;
+        }
+        ticketNum = ticket;
+        claimed = true;
+        return true;
+      }
+
+      @Override
+      public void onCompleted() {
+        ServerMetrics.UPLOADS_IN_FLIGHT.dec();
+        closeOutputStream(fos);
+        FlightRecorder.commitUpload(uploadEvent, "LogFollow", ticketNum, totalsize, chunks,
+            !failed);
+        if (claimed) {
+          ticketer.endFollow(ticketNum);
+        }
+        if (failed) {
+          return;
+        }
+        if (claimed) {
+          final String logFile = ticketer.getLogFile(ticketNum);
+          ticketer.setMeta(ticketNum, logFile, new File(logFile).length());
+          ticketer.setMeta(ticketNum, getUploadMeta(startedAt, startNanos, totalsize));
+          analysisQueue.submit(ticketNum);
+        }
+
+        UploadResult result = UploadResult.newBuilder()
+            .setFilesize(totalsize)
+            .setSuccessful(true)
+            .build();
+        responseObserver.onNext(result);
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  private static Map<String, String> getUploadMeta(long startedAt, long startNanos, long bytes) {
+    final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    return ImmutableMap.of(
+        UPLOAD_STARTED_AT, Long.toString(startedAt),
+        UPLOAD_COMPLETED_AT, Long.toString(System.currentTimeMillis()),
+        UPLOAD_BYTES, Long.toString(bytes),
+        UPLOAD_MILLIS, Long.toString(millis));
+  }
+
+  private static void closeOutputStream(FileOutputStream fos) {
+    if (fos == null) {
+      return;
+    }
+    try {
+      fos.close();
+    } catch (IOException ioe) {
+      logger.error("Could not close file.", ioe);
+    }
+  }
 }
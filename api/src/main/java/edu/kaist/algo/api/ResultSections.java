@@ -0,0 +1,151 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.service.ResultSection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Splits the analyzed data into the sections of {@link ResultSection}, and joins them back.
+ *
+ * <p>The summary is small and fetched on every poll, while the outliers and the time series grow
+ * with the log. Storing them apart lets the summary be fetched without the rest. Each section is
+ * compressed with deflate, the repeated event fields and timestamps compressing well.
+ */
+final class ResultSections {
+  // every section, without the UNRECOGNIZED value of the generated enum
+  static final ImmutableList<ResultSection> ALL = ImmutableList.of(
+      ResultSection.SUMMARY,
+      ResultSection.OUTLIERS,
+      ResultSection.TIME_SERIES
+  );
+
+  private ResultSections() {
+  }
+
+  /**
+   * Splits the analyzed data into its sections.
+   *
+   * @param data the analyzed data
+   * @return the part of the data in each section
+   */
+  static Map<ResultSection, GcAnalyzedData> split(GcAnalyzedData data) {
+    final GcAnalyzedData.Builder summary = GcAnalyzedData.newBuilder()
+        .addAllConcurrences(data.getConcurrencesList());
+    final GcAnalyzedData.Builder outliers = GcAnalyzedData.newBuilder();
+    for (GcPauseStat pause : data.getPausesList()) {
+      summary.addPauses(pause.toBuilder().clearOutliers());
+      outliers.addPauses(GcPauseStat.newBuilder()
+          .setType(pause.getType())
+          .addAllOutliers(pause.getOutliersList()));
+    }
+    if (data.hasMmu()) {
+      summary.setMmu(data.getMmu());
+    }
+
+    final GcAnalyzedData.Builder timeSeries = GcAnalyzedData.newBuilder()
+        .addAllWindows(data.getWindowsList());
+    if (data.hasHeapUsage()) {
+      timeSeries.setHeapUsage(data.getHeapUsage());
+    }
+    if (data.hasPauseTimes()) {
+      timeSeries.setPauseTimes(data.getPauseTimes());
+    }
+
+    final Map<ResultSection, GcAnalyzedData> sections = new EnumMap<>(ResultSection.class);
+    sections.put(ResultSection.SUMMARY, summary.build());
+    sections.put(ResultSection.OUTLIERS, outliers.build());
+    sections.put(ResultSection.TIME_SERIES, timeSeries.build());
+    return sections;
+  }
+
+  /**
+   * Joins the sections split by {@link #split(GcAnalyzedData)}. Some of the sections may be
+   * left out, the data having none of their fields then.
+   *
+   * @param sections the part of the data in each section
+   * @return the analyzed data
+   */
+  static GcAnalyzedData join(Map<ResultSection, GcAnalyzedData> sections) {
+    final GcAnalyzedData.Builder builder = GcAnalyzedData.newBuilder();
+    for (ResultSection section : ALL) {
+      final GcAnalyzedData data = sections.get(section);
+      if (data == null) {
+        continue;
+      }
+      if (section == ResultSection.OUTLIERS && builder.getPausesCount() > 0) {
+        // the outliers are of the pauses of the summary, in the same order
+        for (int i = 0; i < data.getPausesCount(); i++) {
+          builder.getPausesBuilder(i).addAllOutliers(data.getPauses(i).getOutliersList());
+        }
+      } else {
+        builder.mergeFrom(data);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Keeps only the given sections of the analyzed data.
+   *
+   * @param data the analyzed data
+   * @param sections the sections to keep
+   * @return the analyzed data with the given sections
+   */
+  static GcAnalyzedData select(GcAnalyzedData data, Collection<ResultSection> sections) {
+    if (sections.containsAll(ALL)) {
+      return data;
+    }
+    final Map<ResultSection, GcAnalyzedData> selected = split(data);
+    selected.keySet().retainAll(sections);
+    return join(selected);
+  }
+
+  /**
+   * Compresses the serialized data.
+   *
+   * @param data the data
+   * @return the compressed data
+   */
+  static byte[] compress(byte[] data) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 16);
+    try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+      out.write(data);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Parses the analyzed data compressed by {@link #compress(byte[])}.
+   *
+   * @param compressed the compressed data
+   * @return the analyzed data
+   * @throws IOException if the data is corrupted
+   */
+  static GcAnalyzedData decompress(byte[] compressed) throws IOException {
+    try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+      return GcAnalyzedData.parseFrom(in);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
+import edu.kaist.algo.service.AnalysisStatus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RetentionSweeper evicts the tickets in the order of their last access, deleting their
+ * resources in the store together with their log file and event column files.
+ *
+ * <p>A ticket is evicted when it has not been accessed for the retention period, or while the
+ * files of the tickets exceed the disk quota. The quota never evicts a ticket being uploaded or
+ * analyzed. The tickets are evicted by the sweeper rather than expired by the store, so that no
+ * file is left behind by an expired ticket.
+ */
+public class RetentionSweeper implements Runnable {
+  private static final Logger logger = LoggerFactory.getLogger(RetentionSweeper.class);
+
+  private final Ticketer ticketer;
+  private final Path storageDir;
+  private final long retentionMillis;
+  private final long diskQuotaBytes;
+
+  /**
+   * Creates the sweeper.
+   *
+   * @param ticketer the ticketer instance
+   * @param storageDir the directory which the log files of the tickets are relative to
+   * @param retentionMillis time a ticket is kept after its last access, 0 to keep it forever
+   * @param diskQuotaBytes total size of the files of the tickets, 0 for no quota
+   */
+  public RetentionSweeper(Ticketer ticketer, Path storageDir, long retentionMillis,
+                          long diskQuotaBytes) {
+    this.ticketer = ticketer;
+    this.storageDir = storageDir;
+    this.retentionMillis = retentionMillis;
+    this.diskQuotaBytes = diskQuotaBytes;
+  }
+
+  @Override
+  public void run() {
+    try {
+      sweep(System.currentTimeMillis());
+    } catch (RuntimeException re) {
+      logger.error("Failed to sweep the tickets.", re);
+    }
+  }
+
+  /**
+   * Evicts the tickets expired at the given time, then the least recently accessed tickets
+   * until the files are within the quota.
+   *
+   * @param now the current time in milliseconds
+   * @return number of the evicted tickets
+   */
+  @VisibleForTesting
+  int sweep(long now) {
+    final List<Map.Entry<Long, Long>> tickets = new ArrayList<>(
+        ticketer.getAccessTimes().entrySet());
+    tickets.sort(Map.Entry.comparingByValue());
+
+    int evicted = 0;
+    final List<Long> kept = new ArrayList<>();
+    for (Map.Entry<Long, Long> ticket : tickets) {
+      if (retentionMillis > 0 && now - ticket.getValue() > retentionMillis) {
+        evict(ticket.getKey());
+        evicted++;
+      } else {
+        kept.add(ticket.getKey());
+      }
+    }
+    if (diskQuotaBytes <= 0) {
+      return evicted;
+    }
+
+    final List<Long> sizes = new ArrayList<>(kept.size());
+    long total = 0;
+    for (Long ticket : kept) {
+      final long size = sizeOf(ticket);
+      sizes.add(size);
+      total += size;
+    }
+    for (int i = 0; i < kept.size() && total > diskQuotaBytes; i++) {
+      final AnalysisStatus status = ticketer.getStatus(kept.get(i));
+      if (status == AnalysisStatus.COMPLETED || status == AnalysisStatus.ERROR) {
+        evict(kept.get(i));
+        evicted++;
+        total -= sizes.get(i);
+      }
+    }
+    if (total > diskQuotaBytes) {
+      logger.warn("The files of the tickets in progress exceed the disk quota.");
+    }
+    return evicted;
+  }
+
+  // files of the ticket: the log file, and the event column files parsed from it
+  private List<Path> filesOf(long ticket) {
+    final List<Path> files = new ArrayList<>();
+    final String logFile = ticketer.getLogFile(ticket);
+    if (logFile != null) {
+      final String path = storageDir.resolve(logFile).toString();
+      files.add(storageDir.resolve(logFile));
+      files.addAll(LogAnalyzeJob.getEventFiles(path));
+    }
+    return files;
+  }
+
+  private long sizeOf(long ticket) {
+    long size = 0;
+    for (Path file : filesOf(ticket)) {
+      try {
+        size += Files.size(file);
+      } catch (IOException ioe) {
+        // deleted meanwhile
+      }
+    }
+    return size;
+  }
+
+  private void evict(long ticket) {
+    for (Path file : filesOf(ticket)) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ioe) {
+        logger.error("Cannot delete " + file + " of the ticket " + ticket, ioe);
+      }
+    }
+    ticketer.deleteResource(ticket);
+    logger.info("Evicted the ticket " + ticket);
+  }
+}
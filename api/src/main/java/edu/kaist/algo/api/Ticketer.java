@@ -14,21 +14,40 @@ import com.google.protobuf.InvalidProtocolBufferException;
 
 import edu.kaist.algo.service.AnalysisStatus;
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.api.metrics.Counter;
+import edu.kaist.algo.api.metrics.ServerMetrics;
+import edu.kaist.algo.api.store.RedisTicketStore;
+import edu.kaist.algo.api.store.TicketStore;
+import edu.kaist.algo.api.store.TimedTicketStore;
+import edu.kaist.algo.model.GcParserCheckpoint;
+import edu.kaist.algo.service.ResultSection;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.util.SafeEncoder;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * The Ticketer class manages various information for GC log analysis.
- * It uses Jedis, a java redis connection library, to manage the data.
+ * It keeps the data in a {@link TicketStore}: redis through Jedis, a java redis connection
+ * library, by default, or the embedded store for single-node deployments.
  * Avaliable resources are : analysis status, name of logfile, name of metadata file, and
  * name of analysis result file.
  *
@@ -43,15 +62,40 @@ public class Ticketer {
   private static final String LOCALHOST = "localhost";
   private static final String COUNTER = "counter";
   private static final String TICKET = "ticket";
+  // hash of the last access time of each ticket, in milliseconds
+  private static final String ACCESS_INDEX = "ticket_access";
+  // number of the tickets taken from the counter at once
+  public static final long TICKET_BLOCK_SIZE = 1000;
 
   static final String STATUS = "status";
   static final String LOGFILE = "logfile";
   static final String META = "meta";
+  // the result stored as a single uncompressed value, by the servers before the sections
   static final String RESULT = "result";
+  static final String RESULT_SECTIONS = "result_sections";
+  static final String RESULT_VARIANTS = "result_variants";
+  static final String VARIANT_ACCESS = "variant_access";
+  static final String CHECKPOINT = "checkpoint";
+  static final String SUMMARY = "summary";
+  // hash of the follow state of a ticket issued for LogFollow
+  static final String FOLLOW = "follow";
   static final String META_NAME = "meta_name";
   static final String META_SIZE = "meta_size";
 
-  private final JedisPool jedisPool;
+  // maximum number of analysis variants cached per ticket
+  static final int MAX_RESULT_VARIANTS = 8;
+  // logical clock for the access order of the variants, stored in the variant access hash
+  private static final String ACCESS_CLOCK = "clock";
+  // number of the streams which have claimed the follow, and the end of the follow
+  private static final String FOLLOW_CLAIMS = "claims";
+  private static final String FOLLOW_ENDED = "ended";
+
+  private static final Counter VARIANT_HITS = ServerMetrics.CACHE_HITS.labels("result_variant");
+  private static final Counter VARIANT_MISSES =
+      ServerMetrics.CACHE_MISSES.labels("result_variant");
+
+  private final TicketStore store;
+  private volatile TicketBlock ticketBlock = new TicketBlock(1, 1);
   private final Logger logger = LoggerFactory.getLogger(Ticketer.class);
 
   /**
@@ -79,18 +123,57 @@ public class Ticketer {
    * @param jedisPool JedisPool instance for jedis use in this class.
    */
   public Ticketer(JedisPool jedisPool) {
-    this.jedisPool = jedisPool;
+    this(new RedisTicketStore(jedisPool));
+  }
+
+  /**
+   * Creates a Ticketer instance given the store of the resources. The latency of the operations
+   * on the store is recorded in {@link ServerMetrics#STORE_DURATION}.
+   *
+   * @param store the store instance to keep the resources in.
+   */
+  public Ticketer(TicketStore store) {
+    this.store = new TimedTicketStore(store);
   }
 
   /**
    * Issues a ticket.
    * The ticket number is incremented by 1 whenever it is issued.
    *
+   * <p>The tickets are taken from the counter in blocks of {@link #TICKET_BLOCK_SIZE}, and issued
+   * from the block without going to the store. Each block belongs to one Ticketer only, so the
+   * tickets are unique across the servers sharing the store, and across restarts. The tickets
+   * left in the block of a stopped server are never issued.
+   *
    * @return ticket number
    */
   public long issueTicket() {
-    try (Jedis jedis = jedisPool.getResource()) {
-      return jedis.incr(COUNTER);
+    while (true) {
+      final TicketBlock block = ticketBlock;
+      final long ticket = block.next.getAndIncrement();
+      if (ticket < block.end) {
+        return ticket;
+      }
+      takeTicketBlock(block);
+    }
+  }
+
+  // takes a new block from the counter, unless another thread has taken it already
+  private synchronized void takeTicketBlock(TicketBlock exhausted) {
+    if (ticketBlock == exhausted) {
+      final long end = store.increment(COUNTER, TICKET_BLOCK_SIZE) + 1;
+      ticketBlock = new TicketBlock(end - TICKET_BLOCK_SIZE, end);
+    }
+  }
+
+  // tickets from next (inclusive) to end (exclusive)
+  private static class TicketBlock {
+    private final AtomicLong next;
+    private final long end;
+
+    private TicketBlock(long next, long end) {
+      this.next = new AtomicLong(next);
+      this.end = end;
     }
   }
 
@@ -102,11 +185,13 @@ public class Ticketer {
    * then the key will be : "ticket:2:result"
    *
    * <p>The resourceName argument SHOULD be either one of :
-   * Ticketer.LOGFILE, Ticketer.STATUS, Ticketer.META, Ticketer.RESULT.
+   * Ticketer.LOGFILE, Ticketer.STATUS, Ticketer.META, Ticketer.RESULT,
+   * Ticketer.RESULT_SECTIONS, Ticketer.RESULT_VARIANTS, Ticketer.VARIANT_ACCESS,
+   * Ticketer.CHECKPOINT, Ticketer.SUMMARY, Ticketer.FOLLOW.
    *
    * @param ticketNum the ticket number
    * @param resourceName the string name of the resource
-   * @return key string for jedis use
+   * @return key string for the store
    */
   @VisibleForTesting
   static String makeKey(long ticketNum, String resourceName)
@@ -119,7 +204,11 @@ public class Ticketer {
 
     // checks the validity of resource name
     if (!resourceName.equals(STATUS) && !resourceName.equals(LOGFILE)
-        && !resourceName.equals(META) && !resourceName.equals(RESULT)) {
+        && !resourceName.equals(META) && !resourceName.equals(RESULT)
+        && !resourceName.equals(RESULT_SECTIONS)
+        && !resourceName.equals(RESULT_VARIANTS) && !resourceName.equals(VARIANT_ACCESS)
+        && !resourceName.equals(CHECKPOINT) && !resourceName.equals(SUMMARY)
+        && !resourceName.equals(FOLLOW)) {
       throw new IllegalArgumentException("Invalid resource name.");
     }
 
@@ -137,14 +226,11 @@ public class Ticketer {
    * @return enum status of current GC log analysis status
    */
   public AnalysisStatus getStatus(long ticketNum) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, STATUS);
-      String statusString = jedis.get(key);
-      if (statusString == null) {
-        return null;
-      }
-      return AnalysisStatus.valueOf(statusString);
+    String statusString = getString(makeKey(ticketNum, STATUS));
+    if (statusString == null) {
+      return null;
     }
+    return AnalysisStatus.valueOf(statusString);
   }
 
   /**
@@ -156,10 +242,44 @@ public class Ticketer {
    * @param status the enum Status to be set
    */
   public void setStatus(long ticketNum, AnalysisStatus status) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, STATUS);
-      jedis.set(key, status.name());
+    store.set(makeKey(ticketNum, STATUS), SafeEncoder.encode(status.name()));
+    touch(Collections.singletonList(ticketNum));
+  }
+
+  /**
+   * Records the access to the tickets, e.g. by a request of the analyzed data. The tickets are
+   * evicted in the order of the last access by {@link RetentionSweeper}. Setting the status
+   * records the access as well.
+   *
+   * @param ticketNums the ticket numbers
+   */
+  public void touch(Collection<Long> ticketNums) {
+    touch(ticketNums, System.currentTimeMillis());
+  }
+
+  @VisibleForTesting
+  void touch(Collection<Long> ticketNums, long time) {
+    if (ticketNums.isEmpty()) {
+      return;
+    }
+    final byte[] value = SafeEncoder.encode(Long.toString(time));
+    final Map<String, byte[]> fields = new HashMap<>();
+    for (Long ticketNum : ticketNums) {
+      fields.put(ticketNum.toString(), value);
     }
+    store.setFields(ACCESS_INDEX, fields);
+  }
+
+  /**
+   * Returns the last access time of every ticket having resources.
+   *
+   * @return the last access time in milliseconds, by ticket number
+   */
+  public Map<Long, Long> getAccessTimes() {
+    final Map<Long, Long> accessTimes = new HashMap<>();
+    getStringFields(ACCESS_INDEX).forEach((ticketNum, time) ->
+        accessTimes.put(Long.valueOf(ticketNum), Long.valueOf(time)));
+    return accessTimes;
   }
 
   /**
@@ -169,10 +289,7 @@ public class Ticketer {
    * @return the name of the log file
    */
   public String getLogFile(long ticketNum) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, LOGFILE);
-      return jedis.get(key);
-    }
+    return getString(makeKey(ticketNum, LOGFILE));
   }
 
   /**
@@ -182,10 +299,7 @@ public class Ticketer {
    * @param logfile the name of the log file
    */
   public void setLogFile(long ticketNum, String logfile) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, LOGFILE);
-      jedis.set(key, logfile);
-    }
+    store.set(makeKey(ticketNum, LOGFILE), SafeEncoder.encode(logfile));
   }
 
   /**
@@ -195,14 +309,22 @@ public class Ticketer {
    * @param size the size of log file
    */
   public void setMeta(long ticketNum, String name, long size) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, META);
-      Map<String, String> data = ImmutableMap.of(
-          META_NAME, name,
-          META_SIZE, String.valueOf(size)
-      );
-      jedis.hmset(key, data);
-    }
+    setMeta(ticketNum, ImmutableMap.of(
+        META_NAME, name,
+        META_SIZE, String.valueOf(size)
+    ));
+  }
+
+  /**
+   * Sets the given fields of the meta-information, e.g. the timings of the upload and the
+   * analysis of the log. The other fields are kept.
+   * @param ticketNum the ticket number
+   * @param fields the fields to set
+   */
+  public void setMeta(long ticketNum, Map<String, String> fields) {
+    final Map<String, byte[]> data = new HashMap<>();
+    fields.forEach((field, value) -> data.put(field, SafeEncoder.encode(value)));
+    store.setFields(makeKey(ticketNum, META), data);
   }
 
   /**
@@ -211,9 +333,7 @@ public class Ticketer {
    * @return returns the map of metadata
    */
   public Map<String, String> getMeta(long ticketNum) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      return jedis.hgetAll(makeKey(ticketNum, META));
-    }
+    return getStringFields(makeKey(ticketNum, META));
   }
 
   /**
@@ -223,31 +343,274 @@ public class Ticketer {
    * @return the analyzed data
    */
   public GcAnalyzedData getResult(long ticketNum) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, RESULT);
-      try {
-        byte[] data = jedis.get(SafeEncoder.encode(key));
-        if (!ArrayUtils.isEmpty(data)) {
-          return GcAnalyzedData.parseFrom(data);
+    return getResult(ticketNum, ResultSections.ALL);
+  }
+
+  /**
+   * Returns the given sections of the analyzed data for the given ticket number. Only the given
+   * sections are fetched from the store, e.g. the summary without the outliers and time series.
+   *
+   * @param ticketNum the ticket number
+   * @param sections the sections to fetch
+   * @return the analyzed data with the given sections
+   */
+  public GcAnalyzedData getResult(long ticketNum, Collection<ResultSection> sections) {
+    final List<ResultSection> fetched = ResultSections.ALL.stream()
+        .filter(sections::contains)
+        .collect(Collectors.toList());
+    final List<byte[]> values = store.getFields(makeKey(ticketNum, RESULT_SECTIONS),
+        fetched.stream().map(Ticketer::sectionField).collect(Collectors.toList()));
+    if (values.stream().allMatch(ArrayUtils::isEmpty)) {
+      return getLegacyResult(ticketNum, sections);
+    }
+
+    final Map<ResultSection, GcAnalyzedData> parts = new EnumMap<>(ResultSection.class);
+    try {
+      for (int i = 0; i < fetched.size(); i++) {
+        if (!ArrayUtils.isEmpty(values.get(i))) {
+          parts.put(fetched.get(i), ResultSections.decompress(values.get(i)));
         }
-      } catch (InvalidProtocolBufferException ipbe) {
-        logger.error("Cannot parse the result.", ipbe);
       }
+    } catch (IOException ioe) {
+      logger.error("Cannot parse the result.", ioe);
       return null;
     }
+    return ResultSections.join(parts);
   }
 
   /**
-   * Sets the result of GC analysis information.
+   * Returns the cached analyzed data of the given variant (analysis parameter set).
+   * A cache hit refreshes the access time of the variant.
+   *
+   * @param ticketNum the ticket number
+   * @param variant the key identifying the analysis parameters
+   * @return the analyzed data, or null if the variant is not cached
+   */
+  public GcAnalyzedData getResult(long ticketNum, String variant) {
+    try {
+      byte[] data = store.getField(makeKey(ticketNum, RESULT_VARIANTS), variant);
+      if (!ArrayUtils.isEmpty(data)) {
+        touchVariant(makeKey(ticketNum, VARIANT_ACCESS), variant);
+        final GcAnalyzedData result = ResultSections.decompress(data);
+        VARIANT_HITS.inc();
+        return result;
+      }
+    } catch (IOException ioe) {
+      // e.g. cached uncompressed by an older server, analyzed again as a miss
+      logger.error("Cannot parse the result.", ioe);
+    }
+    VARIANT_MISSES.inc();
+    return null;
+  }
+
+  private GcAnalyzedData getLegacyResult(long ticketNum, Collection<ResultSection> sections) {
+    try {
+      byte[] data = store.get(makeKey(ticketNum, RESULT));
+      if (!ArrayUtils.isEmpty(data)) {
+        return ResultSections.select(GcAnalyzedData.parseFrom(data), sections);
+      }
+    } catch (InvalidProtocolBufferException ipbe) {
+      logger.error("Cannot parse the result.", ipbe);
+    }
+    return null;
+  }
+
+  private static String sectionField(ResultSection section) {
+    return section.name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Sets the result of GC analysis information. The result is stored in compressed sections,
+   * which are fetched separately.
    *
    * @param ticketNum the ticket number
    * @param result GC analysis data
    */
   public void setResult(long ticketNum, GcAnalyzedData result) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      String key = makeKey(ticketNum, RESULT);
-      jedis.set(SafeEncoder.encode(key), result.toByteArray());
+    final Map<String, byte[]> fields = new HashMap<>();
+    ResultSections.split(result).forEach((section, data) ->
+        fields.put(sectionField(section), ResultSections.compress(data.toByteArray())));
+    store.setFields(makeKey(ticketNum, RESULT_SECTIONS), fields);
+  }
+
+  /**
+   * Caches the analyzed data of the given variant (analysis parameter set).
+   *
+   * <p>At most {@link #MAX_RESULT_VARIANTS} variants are kept per ticket. When the limit is
+   * exceeded, the least recently accessed variant is evicted.
+   *
+   * @param ticketNum the ticket number
+   * @param variant the key identifying the analysis parameters
+   * @param result GC analysis data
+   */
+  public void setResult(long ticketNum, String variant, GcAnalyzedData result) {
+    String key = makeKey(ticketNum, RESULT_VARIANTS);
+    String accessKey = makeKey(ticketNum, VARIANT_ACCESS);
+    store.setField(key, variant, ResultSections.compress(result.toByteArray()));
+    touchVariant(accessKey, variant);
+
+    Map<String, String> accessTimes = getStringFields(accessKey);
+    accessTimes.remove(ACCESS_CLOCK);
+    while (accessTimes.size() > MAX_RESULT_VARIANTS) {
+      String leastRecent = accessTimes.entrySet().stream()
+          .min(Comparator.comparing(entry -> Long.valueOf(entry.getValue())))
+          .get().getKey();
+      store.deleteField(key, leastRecent);
+      store.deleteField(accessKey, leastRecent);
+      accessTimes.remove(leastRecent);
+    }
+  }
+
+  /**
+   * Drops every cached variant of the ticket, e.g. after the log was appended.
+   *
+   * @param ticketNum the ticket number
+   */
+  public void clearResultVariants(long ticketNum) {
+    store.delete(makeKey(ticketNum, RESULT_VARIANTS));
+    store.delete(makeKey(ticketNum, VARIANT_ACCESS));
+  }
+
+  /**
+   * Returns the state of the parser after the analyzed part of the log.
+   *
+   * @param ticketNum the ticket number
+   * @return the parser checkpoint, or null if the log was not analyzed yet
+   */
+  public GcParserCheckpoint getCheckpoint(long ticketNum) {
+    try {
+      byte[] data = store.get(makeKey(ticketNum, CHECKPOINT));
+      if (data != null) {
+        return GcParserCheckpoint.parseFrom(data);
+      }
+    } catch (InvalidProtocolBufferException ipbe) {
+      logger.error("Cannot parse the checkpoint.", ipbe);
+    }
+    return null;
+  }
+
+  /**
+   * Sets the state of the parser after the analyzed part of the log.
+   *
+   * @param ticketNum the ticket number
+   * @param checkpoint the parser checkpoint
+   */
+  public void setCheckpoint(long ticketNum, GcParserCheckpoint checkpoint) {
+    store.set(makeKey(ticketNum, CHECKPOINT), checkpoint.toByteArray());
+  }
+
+  /**
+   * Returns the mergeable summary of the analyzed part of the log.
+   *
+   * @param ticketNum the ticket number
+   * @return the summary, or null if the log was not analyzed yet
+   */
+  public GcLogSummary getSummary(long ticketNum) {
+    try {
+      byte[] data = store.get(makeKey(ticketNum, SUMMARY));
+      if (data != null) {
+        return GcLogSummary.parseFrom(data);
+      }
+    } catch (InvalidProtocolBufferException ipbe) {
+      logger.error("Cannot parse the summary.", ipbe);
+    }
+    return null;
+  }
+
+  /**
+   * Returns the summaries of the given tickets, in one round trip to the store.
+   *
+   * @param ticketNums the ticket numbers
+   * @return the summaries in the order of the tickets, with null for the tickets not analyzed
+   */
+  public List<GcLogSummary> getSummaries(List<Long> ticketNums) {
+    if (ticketNums.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<String> keys = ticketNums.stream()
+        .map(ticketNum -> makeKey(ticketNum, SUMMARY))
+        .collect(Collectors.toList());
+    List<GcLogSummary> summaries = new ArrayList<>(keys.size());
+    for (byte[] data : store.get(keys)) {
+      GcLogSummary summary = null;
+      try {
+        if (data != null) {
+          summary = GcLogSummary.parseFrom(data);
+        }
+      } catch (InvalidProtocolBufferException ipbe) {
+        logger.error("Cannot parse the summary.", ipbe);
+      }
+      summaries.add(summary);
     }
+    return summaries;
+  }
+
+  /**
+   * Sets the mergeable summary of the analyzed part of the log.
+   *
+   * @param ticketNum the ticket number
+   * @param summary the summary
+   */
+  public void setSummary(long ticketNum, GcLogSummary summary) {
+    store.set(makeKey(ticketNum, SUMMARY), summary.toByteArray());
+  }
+
+  /**
+   * Marks the ticket as issued for following its log.
+   *
+   * @param ticketNum the ticket number
+   */
+  public void issueFollow(long ticketNum) {
+    store.setField(makeKey(ticketNum, FOLLOW), FOLLOW_CLAIMS, SafeEncoder.encode("0"));
+  }
+
+  /**
+   * Claims the follow of the ticket for a stream. Only the first claim of a ticket issued for
+   * following succeeds, so the log is written by a single stream.
+   *
+   * @param ticketNum the ticket number
+   * @return true if the ticket is issued for following and not claimed yet
+   */
+  public boolean claimFollow(long ticketNum) {
+    final String key = makeKey(ticketNum, FOLLOW);
+    return store.getField(key, FOLLOW_CLAIMS) != null
+        && store.incrementField(key, FOLLOW_CLAIMS, 1) == 1;
+  }
+
+  /**
+   * Marks the follow of the ticket as ended. The claims of the ticket keep failing.
+   *
+   * @param ticketNum the ticket number
+   */
+  public void endFollow(long ticketNum) {
+    store.setField(makeKey(ticketNum, FOLLOW), FOLLOW_ENDED, SafeEncoder.encode("1"));
+  }
+
+  /**
+   * Tells whether the log of the ticket is followed, or is waiting for the stream to follow it.
+   *
+   * @param ticketNum the ticket number
+   * @return true if the ticket is issued for following and its follow has not ended
+   */
+  public boolean isFollowed(long ticketNum) {
+    final Map<String, byte[]> fields = store.getFields(makeKey(ticketNum, FOLLOW));
+    return fields.containsKey(FOLLOW_CLAIMS) && !fields.containsKey(FOLLOW_ENDED);
+  }
+
+  private void touchVariant(String accessKey, String variant) {
+    long clock = store.incrementField(accessKey, ACCESS_CLOCK, 1);
+    store.setField(accessKey, variant, SafeEncoder.encode(String.valueOf(clock)));
+  }
+
+  private String getString(String key) {
+    byte[] data = store.get(key);
+    return data != null ? SafeEncoder.encode(data) : null;
+  }
+
+  private Map<String, String> getStringFields(String key) {
+    Map<String, String> fields = new HashMap<>();
+    store.getFields(key).forEach((field, value) -> fields.put(field, SafeEncoder.encode(value)));
+    return fields;
   }
 
   /**
@@ -256,18 +619,23 @@ public class Ticketer {
    * @param ticketNum the ticket number to delete
    */
   public void deleteResource(long ticketNum) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      jedis.del(makeKey(ticketNum, STATUS));
-      jedis.del(SafeEncoder.encode(makeKey(ticketNum, RESULT)));
-      jedis.del(makeKey(ticketNum, LOGFILE));
-      jedis.del(makeKey(ticketNum, META));
-    }
+    store.delete(makeKey(ticketNum, STATUS));
+    store.delete(makeKey(ticketNum, RESULT));
+    store.delete(makeKey(ticketNum, RESULT_SECTIONS));
+    store.delete(makeKey(ticketNum, LOGFILE));
+    store.delete(makeKey(ticketNum, META));
+    store.delete(makeKey(ticketNum, RESULT_VARIANTS));
+    store.delete(makeKey(ticketNum, VARIANT_ACCESS));
+    store.delete(makeKey(ticketNum, CHECKPOINT));
+    store.delete(makeKey(ticketNum, SUMMARY));
+    store.delete(makeKey(ticketNum, FOLLOW));
+    store.deleteField(ACCESS_INDEX, Long.toString(ticketNum));
   }
 
   /**
-   * Close the Jedis pool application.
+   * Close the store of the resources, e.g. the Jedis pool.
    */
   public void closeTicketer() {
-    jedisPool.destroy();
+    store.close();
   }
 }
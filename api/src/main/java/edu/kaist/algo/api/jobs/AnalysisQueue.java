@@ -0,0 +1,110 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.jobs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of the tickets to analyze, shared by the upload service and the analysis workers.
+ *
+ * <p>A ticket taken by a worker stays in the queue as in progress until it is completed. If the
+ * worker does not renew the lease of the ticket in time (e.g. the worker crashed), the ticket is
+ * returned to the queue by {@link #requeueExpired()}, so that another worker analyzes it.
+ *
+ * <p>A ticket is analyzed by one worker at a time, and a ticket submitted again while it waits in
+ * the queue is analyzed once. Since {@link LogAnalyzeJob} parses only the contents appended after
+ * the previous analysis, the cost of a log still being written follows the rate of the log, not
+ * the rate of the submissions.
+ *
+ * <p>The time a ticket waits in the queue is recorded by {@link #take(long, TimeUnit)} in
+ * {@link edu.kaist.algo.api.metrics.ServerMetrics#QUEUE_WAIT}.
+ */
+public interface AnalysisQueue {
+  /**
+   * Submits the analysis of the ticket, unless the ticket is already waiting in the queue.
+   *
+   * @param ticket the ticket number
+   */
+  void submit(long ticket);
+
+  /**
+   * Takes the next ticket to analyze, waiting for one if the queue is empty.
+   *
+   * @param timeout how long to wait
+   * @param unit unit of the timeout
+   * @return the lease of the ticket, or null if there was no ticket to analyze
+   * @throws InterruptedException if interrupted while waiting
+   */
+  Lease take(long timeout, TimeUnit unit) throws InterruptedException;
+
+  /**
+   * Extends the lease of the ticket being analyzed, unless the ticket has been taken again since
+   * the lease expired.
+   *
+   * @param lease the lease returned by {@link #take(long, TimeUnit)}
+   */
+  void renew(Lease lease);
+
+  /**
+   * Completes the analysis of the ticket, and releases its lease, unless the ticket has been
+   * taken again since the lease expired.
+   *
+   * @param lease the lease returned by {@link #take(long, TimeUnit)}
+   */
+  void complete(Lease lease);
+
+  /**
+   * Returns the tickets in progress whose lease has expired to the queue.
+   *
+   * @return the number of the returned tickets
+   */
+  int requeueExpired();
+
+  /**
+   * Returns the number of the tickets waiting in the queue, not counting those in progress.
+   *
+   * @return the number of the waiting tickets
+   */
+  long size();
+
+  /**
+   * Returns how long a ticket stays leased to a worker without renewal.
+   *
+   * @return the lease time in milliseconds
+   */
+  long getLeaseMillis();
+
+  /**
+   * A ticket taken by a worker. The token tells the takes of the same ticket apart, e.g. by the
+   * threads of a worker sharing the queue.
+   */
+  final class Lease {
+    private final long ticket;
+    private final String token;
+
+    /**
+     * Creates the lease of a take.
+     *
+     * @param ticket the ticket number
+     * @param token the token unique to the take
+     */
+    public Lease(long ticket, String token) {
+      this.ticket = ticket;
+      this.token = token;
+    }
+
+    public long getTicket() {
+      return ticket;
+    }
+
+    public String getToken() {
+      return token;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.jobs;
+
+import edu.kaist.algo.api.metrics.ServerMetrics;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory analysis queue for the workers running in the server process.
+ *
+ * <p>The workers live and die with the queue, so the leases never expire. A ticket in progress is
+ * skipped by {@link #take(long, TimeUnit)} until it is completed.
+ */
+public class LocalAnalysisQueue implements AnalysisQueue {
+  private static final long LEASE_MILLIS = 60_000;
+
+  private final Queue<Long> queue = new ArrayDeque<>();
+  private final Set<Long> inProgress = new HashSet<>();
+  // nano time of the submission of the waiting tickets
+  private final Map<Long, Long> submitted = new HashMap<>();
+
+  @Override
+  public synchronized void submit(long ticket) {
+    if (!queue.contains(ticket)) {
+      queue.add(ticket);
+      submitted.put(ticket, System.nanoTime());
+      notifyAll();
+    }
+  }
+
+  @Override
+  public synchronized Lease take(long timeout, TimeUnit unit) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      for (Iterator<Long> it = queue.iterator(); it.hasNext(); ) {
+        final long ticket = it.next();
+        if (inProgress.add(ticket)) {
+          it.remove();
+          ServerMetrics.QUEUE_WAIT.observeSince(submitted.remove(ticket));
+          // a ticket in progress is never taken again, so every take has the same token
+          return new Lease(ticket, "");
+        }
+      }
+      final long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+  }
+
+  @Override
+  public void renew(Lease lease) {
+    // never expires
+  }
+
+  @Override
+  public synchronized void complete(Lease lease) {
+    inProgress.remove(lease.getTicket());
+    notifyAll();
+  }
+
+  @Override
+  public int requeueExpired() {
+    return 0;
+  }
+
+  @Override
+  public synchronized long size() {
+    return queue.size();
+  }
+
+  @Override
+  public long getLeaseMillis() {
+    return LEASE_MILLIS;
+  }
+}
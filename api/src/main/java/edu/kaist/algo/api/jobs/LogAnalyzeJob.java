@@ -9,52 +9,319 @@
 package edu.kaist.algo.api.jobs;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.analyzer.GcEventColumns;
 import edu.kaist.algo.analyzer.LogAnalyzer;
+import edu.kaist.algo.analyzer.Summaries;
 import edu.kaist.algo.api.Ticketer;
+import edu.kaist.algo.api.metrics.ServerMetrics;
 import edu.kaist.algo.model.GcEvent;
+import edu.kaist.algo.model.GcParserCheckpoint;
 import edu.kaist.algo.parser.CmsLogParser;
 import edu.kaist.algo.service.AnalysisStatus;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Log analyzing job for the background work.
+ *
+ * <p>Besides the analyzed result, the job stores the parsed events as a column file next to the
+ * log file (see {@link GcEventColumns}), so that the ticket can be re-analyzed later without
+ * parsing the text log again.
+ *
+ * <p>When the log was appended after a previous run, only the appended lines are parsed, from the
+ * parser checkpoint stored in the ticket. Their events are stored as the next segment of the
+ * column file, and the result is computed from the summary of the previous run merged with the
+ * appended events (see {@link LogAnalyzer#summarize(GcLogSummary)}), so the cost of a run is
+ * proportional to the appended data only.
+ *
+ * <p>The counters and the time of each phase of the run (parse, analysis, serialization and
+ * store) are stored in the meta of the ticket, next to the timings of its upload, so that a slow
+ * ticket tells the phase to blame.
  */
 public class LogAnalyzeJob implements Runnable {
 
   private static final Logger logger = LoggerFactory.getLogger(LogAnalyzeJob.class);
+  private static final String EVENT_FILE_EXTENSION = ".events";
+
+  static final String ANALYSIS_STARTED_AT = "analysis_started_at";
+  static final String ANALYSIS_COMPLETED_AT = "analysis_completed_at";
+  static final String PARSED_BYTES = "parsed_bytes";
+  static final String LINES_SCANNED = "lines_scanned";
+  static final String LINES_MATCHED = "lines_matched";
+  static final String LINES_UNMATCHED = "lines_unmatched";
+  static final String EVENTS = "events";
+
+  /**
+   * Phases of the job timed in the meta of the ticket. The conversion to the columns and the
+   * write of the column file are the serialization, and the store phase includes the encoding
+   * of the stored summary and result.
+   */
+  enum Phase {
+    PARSE("parse_ms"),
+    ANALYSIS("analysis_ms"),
+    SERIALIZE("serialize_ms"),
+    STORE("store_ms");
+
+    final String metaField;
+
+    Phase(String metaField) {
+      this.metaField = metaField;
+    }
+  }
 
   private final Ticketer ticketer;
 
   private final long ticket;
 
+  private final Path storageDir;
+
+  // counters and time of each phase of this run, stored in the meta of the ticket
+  private final long[] phaseNanos = new long[Phase.values().length];
+  private long parsedBytes;
+  private long linesScanned;
+  private long linesUnmatched;
+  private long eventCount;
+
   /**
    * Return the LogAnalyzedJob for the given ticket number.
    * @param ticketer the ticketer instance
    * @param ticket the ticket number
    */
   public LogAnalyzeJob(Ticketer ticketer, long ticket) {
+    this(ticketer, ticket, Paths.get(""));
+  }
+
+  /**
+   * Return the LogAnalyzedJob for the given ticket number, reading the log from the directory.
+   * @param ticketer the ticketer instance
+   * @param ticket the ticket number
+   * @param storageDir the directory which the log file of the ticket is relative to
+   */
+  public LogAnalyzeJob(Ticketer ticketer, long ticket, Path storageDir) {
     this.ticketer = ticketer;
     this.ticket = ticket;
+    this.storageDir = storageDir;
   }
 
   @Override
   public void run() {
-    ticketer.setStatus(ticket, AnalysisStatus.ANALYZING);
-    final CmsLogParser parser = new CmsLogParser();
+    final long startedAt = System.currentTimeMillis();
+    long lap = System.nanoTime();
     try {
-      final List<GcEvent> parsedResult = parser.parse(Paths.get(ticketer.getLogFile(ticket)));
-      final LogAnalyzer analyzer = new LogAnalyzer(parsedResult);
-      final GcAnalyzedData result = analyzer.analyzeData();
-      ticketer.setResult(ticket, result);
+      ticketer.setStatus(ticket, AnalysisStatus.ANALYZING);
+      final String logFile = storageDir.resolve(ticketer.getLogFile(ticket)).toString();
+      final GcParserCheckpoint checkpoint = ticketer.getCheckpoint(ticket);
+      final GcLogSummary summary = ticketer.getSummary(ticket);
+      lap(Phase.STORE, lap);
+      if (checkpoint != null && summary != null) {
+        analyzeAppended(logFile, checkpoint, summary);
+      } else {
+        analyzeAll(logFile);
+      }
+      lap = System.nanoTime();
+      ticketer.clearResultVariants(ticket);
+      lap(Phase.STORE, lap);
+      // before the status, so that the client finding the result finds its timings too
+      ticketer.setMeta(ticket, getPipelineMeta(startedAt));
       ticketer.setStatus(ticket, AnalysisStatus.COMPLETED);
-    } catch (Exception e) {
-      ticketer.setStatus(ticket, AnalysisStatus.ERROR);
-      logger.error("Failed to analyze the log.", e);
+    } catch (Exception ex) {
+      logger.error("Failed to analyze the log.", ex);
+      try {
+        ticketer.setStatus(ticket, AnalysisStatus.ERROR);
+      } catch (RuntimeException re) {
+        logger.error("Failed to set the status of the failed analysis.", re);
+      }
+    }
+  }
+
+  private void analyzeAll(String logFile) throws IOException {
+    long lap = System.nanoTime();
+    final CmsLogParser parser = new CmsLogParser();
+    final List<GcEvent> parsedResult = parser.parse(Paths.get(logFile), 0);
+    lap = lap(Phase.PARSE, lap);
+    recordParse(parser, parsedResult, 0);
+
+    final GcEventColumns columns = GcEventColumns.of(parsedResult);
+    columns.writeTo(getEventFile(logFile));
+    // segments of a previous analysis are stale
+    int segment = 1;
+    while (Files.deleteIfExists(getEventFile(logFile, segment))) {
+      segment++;
+    }
+    lap = lap(Phase.SERIALIZE, lap);
+
+    // the state is stored first, since a log being written may not have enough data to analyze
+    final LogAnalyzer analyzer = new LogAnalyzer(columns);
+    final GcLogSummary summary = analyzer.summarize();
+    lap = lap(Phase.ANALYSIS, lap);
+    ticketer.setSummary(ticket, summary);
+    ticketer.setCheckpoint(ticket, parser.checkpoint().toBuilder().setSegments(1).build());
+    lap = lap(Phase.STORE, lap);
+    final GcAnalyzedData result = analyzer.analyzeData();
+    lap = lap(Phase.ANALYSIS, lap);
+    ticketer.setResult(ticket, result);
+    lap(Phase.STORE, lap);
+  }
+
+  private void analyzeAppended(String logFile, GcParserCheckpoint checkpoint,
+                               GcLogSummary summary) throws IOException {
+    long lap = System.nanoTime();
+    final CmsLogParser parser = new CmsLogParser(checkpoint);
+    final List<GcEvent> parsedResult = parser.parse(Paths.get(logFile), checkpoint.getOffset());
+    lap = lap(Phase.PARSE, lap);
+    recordParse(parser, parsedResult, checkpoint.getOffset());
+    // The segment of the lines after the checkpoint. A run failing before storing the checkpoint
+    // may have written it already, and the retry overwrites it, so that its events are never
+    // loaded twice. The checkpoints stored before the segments were counted have none.
+    final int segment = checkpoint.getSegments() > 0
+        ? checkpoint.getSegments() : countSegments(logFile);
+    GcLogSummary merged = summary;
+    int segments = segment;
+    if (!parsedResult.isEmpty()) {
+      final GcEventColumns columns = GcEventColumns.of(parsedResult);
+      columns.writeTo(getEventFile(logFile, segment));
+      segments++;
+      lap = lap(Phase.SERIALIZE, lap);
+      merged = new LogAnalyzer(columns).summarize(summary);
+      lap = lap(Phase.ANALYSIS, lap);
+    } else {
+      Files.deleteIfExists(getEventFile(logFile, segment));
+    }
+
+    // the state is stored first, so that the segment is never merged twice
+    ticketer.setSummary(ticket, merged);
+    ticketer.setCheckpoint(ticket, parser.checkpoint().toBuilder().setSegments(segments).build());
+    lap = lap(Phase.STORE, lap);
+    final GcAnalyzedData result = Summaries.analyze(merged,
+        LogAnalyzer.DEFAULT_MEAN_LEVELS.toArray(new Double[0]),
+        LogAnalyzer.DEFAULT_OUTLIER_LEVELS.toArray(new Double[0]),
+        LogAnalyzer.DEFAULT_MAX_POINTS);
+    lap = lap(Phase.ANALYSIS, lap);
+    ticketer.setResult(ticket, result);
+    lap(Phase.STORE, lap);
+  }
+
+  // adds the time from the start to the phase, and returns the start of the next phase
+  private long lap(Phase phase, long start) {
+    final long now = System.nanoTime();
+    phaseNanos[phase.ordinal()] += now - start;
+    return now;
+  }
+
+  private void recordParse(CmsLogParser parser, List<GcEvent> events, long offset) {
+    linesScanned = parser.getLineCount();
+    linesUnmatched = parser.getUnmatchedLineCount();
+    eventCount = events.size();
+    parsedBytes = parser.checkpoint().getOffset() - offset;
+    ServerMetrics.PARSED_LINES.add(linesScanned);
+    ServerMetrics.PARSED_EVENTS.add(eventCount);
+    ServerMetrics.PARSED_BYTES.add(parsedBytes);
+  }
+
+  private Map<String, String> getPipelineMeta(long startedAt) {
+    final Map<String, String> meta = new HashMap<>();
+    meta.put(ANALYSIS_STARTED_AT, Long.toString(startedAt));
+    meta.put(ANALYSIS_COMPLETED_AT, Long.toString(System.currentTimeMillis()));
+    meta.put(PARSED_BYTES, Long.toString(parsedBytes));
+    meta.put(LINES_SCANNED, Long.toString(linesScanned));
+    meta.put(LINES_MATCHED, Long.toString(linesScanned - linesUnmatched));
+    meta.put(LINES_UNMATCHED, Long.toString(linesUnmatched));
+    meta.put(EVENTS, Long.toString(eventCount));
+    for (Phase phase : Phase.values()) {
+      meta.put(phase.metaField,
+          Long.toString(TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()])));
+    }
+    return meta;
+  }
+
+  private static int countSegments(String logFile) {
+    int segments = 0;
+    while (Files.exists(getEventFile(logFile, segments))) {
+      segments++;
+    }
+    return segments;
+  }
+
+  /**
+   * Returns the path of the column file holding the parsed events of the log file.
+   *
+   * @param logFile the name of the log file
+   * @return path of the event column file
+   */
+  public static Path getEventFile(String logFile) {
+    return getEventFile(logFile, 0);
+  }
+
+  /**
+   * Returns the path of the column file holding the events parsed from the given segment of the
+   * log file. The segment 0 holds the events of the first analysis, and each later segment holds
+   * the events of the data appended before an incremental analysis.
+   *
+   * @param logFile the name of the log file
+   * @param segment the index of the segment
+   * @return path of the event column file
+   */
+  public static Path getEventFile(String logFile, int segment) {
+    return Paths.get(segment == 0
+        ? logFile + EVENT_FILE_EXTENSION : logFile + EVENT_FILE_EXTENSION + "." + segment);
+  }
+
+  /**
+   * Returns the paths of the existing column files of every segment of the log file.
+   *
+   * @param logFile the name of the log file
+   * @return paths of the event column files
+   */
+  public static List<Path> getEventFiles(String logFile) {
+    final List<Path> eventFiles = new ArrayList<>();
+    for (int segment = 0; Files.exists(getEventFile(logFile, segment)); segment++) {
+      eventFiles.add(getEventFile(logFile, segment));
+    }
+    return eventFiles;
+  }
+
+  /**
+   * Re-analyzes the log with the given levels from the event column file written by a
+   * previous run of the job, without parsing the log file again.
+   *
+   * @param logFile the name of the log file
+   * @param meanLevels levels to estimating mean.
+   * @param outlierLevels levels to detect outliers.
+   * @return analyzed data
+   * @throws IOException if the event column file cannot be read
+   */
+  public static GcAnalyzedData reanalyze(String logFile, Double[] meanLevels,
+                                         Double[] outlierLevels) throws IOException {
+    return loadAnalyzer(logFile).analyzeData(meanLevels, outlierLevels);
+  }
+
+  /**
+   * Returns the analyzer reading the event column files written by the previous runs of the job.
+   * The mapped files are read in place, so the events of a long followed log are never copied
+   * onto the heap.
+   *
+   * @param logFile the name of the log file
+   * @return the analyzer backed by the mapped event column files
+   * @throws IOException if the event column file cannot be read
+   */
+  public static LogAnalyzer loadAnalyzer(String logFile) throws IOException {
+    final List<GcEventColumns> segments = new ArrayList<>();
+    segments.add(GcEventColumns.map(getEventFile(logFile)));
+    for (int segment = 1; Files.exists(getEventFile(logFile, segment)); segment++) {
+      segments.add(GcEventColumns.map(getEventFile(logFile, segment)));
     }
+    return LogAnalyzer.ofSegments(segments);
   }
 }
@@ -0,0 +1,215 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.jobs;
+
+import edu.kaist.algo.api.metrics.ServerMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis queue stored in redis, shared by the workers of many nodes.
+ *
+ * <p>It is a reliable queue: a worker moves the ticket from the queue list to the in-progress list
+ * atomically (BRPOPLPUSH), and holds a lease on the ticket, a key expiring after the lease time.
+ * Tickets in progress without a lease are returned to the queue by {@link #requeueExpired()}.
+ * Since the lease is set right after the move, a ticket is returned only if its lease is missing
+ * on two consecutive calls.
+ *
+ * <p>The lease holds a random token of the take. A worker renews and releases only its own
+ * lease, by a script comparing the token, so a worker whose lease expired, e.g. after a long GC
+ * pause, does not take the lease of the worker analyzing the ticket again, even a thread of the
+ * same process.
+ *
+ * <p>The submission time of the waiting tickets is kept in a hash, for the wait time of the
+ * tickets across the nodes.
+ *
+ * <p>The blocking take holds a connection of the pool while waiting, so the pool should have a
+ * connection for each worker thread besides the others.
+ */
+public class RedisAnalysisQueue implements AnalysisQueue {
+  public static final long DEFAULT_LEASE_MILLIS = 60_000;
+
+  static final String QUEUE = "analysis:queue";
+  static final String IN_PROGRESS = "analysis:in_progress";
+  static final String QUEUED = "analysis:queued";
+  static final String LEASE = "analysis:lease:";
+  static final String SUBMITTED = "analysis:submitted";
+
+  // releases the lease (KEYS[1]) and the ticket (ARGV[2]) in progress (KEYS[2]), unless the lease
+  // is held by another take than the token ARGV[1]
+  static final String COMPLETE_SCRIPT =
+      "local owner = redis.call('get', KEYS[1]) "
+      + "if owner and owner ~= ARGV[1] then return 0 end "
+      + "redis.call('del', KEYS[1]) "
+      + "redis.call('lrem', KEYS[2], 1, ARGV[2]) "
+      + "return 1";
+  // extends the lease (KEYS[1]) by ARGV[2] milliseconds, if it is held by the token ARGV[1]
+  static final String RENEW_SCRIPT =
+      "if redis.call('get', KEYS[1]) == ARGV[1] then "
+      + "return redis.call('pexpire', KEYS[1], ARGV[2]) end "
+      + "return 0";
+
+  // delay before taking again a ticket analyzed by another worker
+  private static final long DEFER_MILLIS = 100;
+
+  private static final Logger logger = LoggerFactory.getLogger(RedisAnalysisQueue.class);
+
+  private final JedisPool jedisPool;
+  private final long leaseMillis;
+  // the process holding a lease, for the operators looking at the leases
+  private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+  // tickets found without a lease on the previous call of requeueExpired
+  private Set<String> suspects = new HashSet<>();
+
+  /**
+   * Creates the queue with the default lease time.
+   *
+   * @param jedisPool JedisPool instance for jedis use in this class
+   */
+  public RedisAnalysisQueue(JedisPool jedisPool) {
+    this(jedisPool, DEFAULT_LEASE_MILLIS);
+  }
+
+  /**
+   * Creates the queue.
+   *
+   * @param jedisPool JedisPool instance for jedis use in this class
+   * @param leaseMillis how long a ticket stays leased to a worker without renewal
+   */
+  public RedisAnalysisQueue(JedisPool jedisPool, long leaseMillis) {
+    this.jedisPool = jedisPool;
+    this.leaseMillis = leaseMillis;
+  }
+
+  @Override
+  public void submit(long ticket) {
+    final String value = Long.toString(ticket);
+    try (Jedis jedis = jedisPool.getResource()) {
+      if (jedis.sadd(QUEUED, value) > 0) {
+        jedis.hset(SUBMITTED, value, Long.toString(System.currentTimeMillis()));
+        jedis.lpush(QUEUE, value);
+      }
+    }
+  }
+
+  @Override
+  public Lease take(long timeout, TimeUnit unit) throws InterruptedException {
+    // 0 would block forever
+    final int seconds = (int) Math.max(1, unit.toSeconds(timeout));
+    final String value;
+    try (Jedis jedis = jedisPool.getResource()) {
+      value = jedis.brpoplpush(QUEUE, IN_PROGRESS, seconds);
+      if (value == null) {
+        return null;
+      }
+      // submissions from now on need another analysis
+      jedis.srem(QUEUED, value);
+      final String token = workerId + "/" + UUID.randomUUID();
+      if ("OK".equals(jedis.set(LEASE + value, token, "NX", "PX", leaseMillis))) {
+        observeWait(jedis, value);
+        return new Lease(Long.parseLong(value), token);
+      }
+
+      // analyzed by another worker, analyzes it again after that
+      jedis.lrem(IN_PROGRESS, 1, value);
+    }
+    submit(Long.parseLong(value));
+    Thread.sleep(DEFER_MILLIS);
+    return null;
+  }
+
+  private static void observeWait(Jedis jedis, String value) {
+    final String submitted = jedis.hget(SUBMITTED, value);
+    if (submitted == null) {
+      // submitted by an older node
+      return;
+    }
+    jedis.hdel(SUBMITTED, value);
+    final long waitMillis = System.currentTimeMillis() - Long.parseLong(submitted);
+    ServerMetrics.QUEUE_WAIT.observe(TimeUnit.MILLISECONDS.toNanos(Math.max(0, waitMillis)));
+  }
+
+  @Override
+  public void renew(Lease lease) {
+    final Object renewed;
+    try (Jedis jedis = jedisPool.getResource()) {
+      renewed = jedis.eval(RENEW_SCRIPT, Arrays.asList(LEASE + lease.getTicket()),
+          Arrays.asList(lease.getToken(), Long.toString(leaseMillis)));
+    }
+    if (!Long.valueOf(1).equals(renewed)) {
+      logger.warn("The lease of the ticket " + lease.getTicket() + " expired before its renewal.");
+    }
+  }
+
+  @Override
+  public void complete(Lease lease) {
+    final String value = Long.toString(lease.getTicket());
+    final Object completed;
+    try (Jedis jedis = jedisPool.getResource()) {
+      completed = jedis.eval(COMPLETE_SCRIPT, Arrays.asList(LEASE + value, IN_PROGRESS),
+          Arrays.asList(lease.getToken(), value));
+    }
+    if (!Long.valueOf(1).equals(completed)) {
+      logger.warn("The ticket " + value + " is analyzed again by another worker.");
+    }
+  }
+
+  @Override
+  public synchronized int requeueExpired() {
+    int requeued = 0;
+    final Set<String> missing = new HashSet<>();
+    try (Jedis jedis = jedisPool.getResource()) {
+      for (String value : new LinkedHashSet<>(jedis.lrange(IN_PROGRESS, 0, -1))) {
+        if (jedis.exists(LEASE + value)) {
+          continue;
+        }
+        if (!suspects.contains(value)) {
+          missing.add(value);
+          continue;
+        }
+        // only one of the workers calling at once removes it
+        if (jedis.lrem(IN_PROGRESS, 1, value) > 0) {
+          logger.warn("The lease of the ticket " + value + " expired, analyzing it again.");
+          if (jedis.sadd(QUEUED, value) > 0) {
+            jedis.hset(SUBMITTED, value, Long.toString(System.currentTimeMillis()));
+            // analyzed before the other tickets
+            jedis.rpush(QUEUE, value);
+          }
+          requeued++;
+        }
+      }
+    }
+    suspects = missing;
+    return requeued;
+  }
+
+  @Override
+  public long size() {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.llen(QUEUE);
+    }
+  }
+
+  @Override
+  public long getLeaseMillis() {
+    return leaseMillis;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter only going up, e.g. the number of the bytes received.
+ */
+public class Counter extends Metric {
+  private final LongAdder value = new LongAdder();
+
+  Counter() {
+  }
+
+  public void inc() {
+    value.increment();
+  }
+
+  /**
+   * Adds the amount to the counter.
+   *
+   * @param amount the amount to add, not negative
+   */
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  void write(StringBuilder out, String name, String labels) {
+    writeSample(out, name, labels, Long.toString(value.sum()));
+  }
+}
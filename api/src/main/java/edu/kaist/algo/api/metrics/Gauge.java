@@ -0,0 +1,46 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Gauge going up and down, e.g. the number of the uploads in progress. The gauge either keeps
+ * its value, or reads it from a supplier when scraped, e.g. the size of a queue.
+ */
+public class Gauge extends Metric {
+  private final LongAdder value = new LongAdder();
+  private final LongSupplier supplier;
+
+  Gauge() {
+    this(null);
+  }
+
+  Gauge(LongSupplier supplier) {
+    this.supplier = supplier;
+  }
+
+  public void inc() {
+    value.increment();
+  }
+
+  public void dec() {
+    value.decrement();
+  }
+
+  public long get() {
+    return supplier != null ? supplier.getAsLong() : value.sum();
+  }
+
+  @Override
+  void write(StringBuilder out, String name, String labels) {
+    writeSample(out, name, labels, Long.toString(get()));
+  }
+}
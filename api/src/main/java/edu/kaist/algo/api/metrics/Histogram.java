@@ -0,0 +1,98 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations, observed in nanoseconds and exposed in seconds.
+ *
+ * <p>The buckets span from 100 microseconds for the store operations to a minute for the
+ * analyses of large logs. An observation is a binary search and two adds, without a lock or an
+ * allocation.
+ */
+public class Histogram extends Metric {
+  private static final double[] BUCKET_SECONDS = {
+      0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+      1, 2.5, 5, 10, 30, 60};
+  private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+  private static final String[] BUCKET_LABELS = new String[BUCKET_SECONDS.length + 1];
+
+  static {
+    for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+      BUCKET_NANOS[i] = Math.round(BUCKET_SECONDS[i] * 1e9);
+      BUCKET_LABELS[i] =
+          BigDecimal.valueOf(BUCKET_SECONDS[i]).stripTrailingZeros().toPlainString();
+    }
+    BUCKET_LABELS[BUCKET_SECONDS.length] = "+Inf";
+  }
+
+  // not cumulative, the last one is above the largest bound
+  private final LongAdder[] buckets = new LongAdder[BUCKET_SECONDS.length + 1];
+  private final LongAdder sumNanos = new LongAdder();
+
+  Histogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Observes a duration.
+   *
+   * @param nanos the duration in nanoseconds
+   */
+  public void observe(long nanos) {
+    final int index = Arrays.binarySearch(BUCKET_NANOS, nanos);
+    // the bounds are inclusive
+    buckets[index >= 0 ? index : -index - 1].increment();
+    sumNanos.add(nanos);
+  }
+
+  /**
+   * Observes the duration from the given start.
+   *
+   * @param startNanos the start taken by {@link System#nanoTime()}
+   */
+  public void observeSince(long startNanos) {
+    observe(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns the number of the observations.
+   *
+   * @return the number of the observations
+   */
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  public double getSumSeconds() {
+    return sumNanos.sum() / 1e9;
+  }
+
+  @Override
+  void write(StringBuilder out, String name, String labels) {
+    final String bucketName = name + "_bucket";
+    final String prefix = labels.isEmpty() ? "le=\"" : labels + ",le=\"";
+    long count = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      count += buckets[i].sum();
+      writeSample(out, bucketName, prefix + BUCKET_LABELS[i] + "\"", Long.toString(count));
+    }
+    writeSample(out, name + "_sum", labels, Double.toString(sumNanos.sum() / 1e9));
+    writeSample(out, name + "_count", labels, Long.toString(count));
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+/**
+ * A metric of a {@link MetricFamily}, for one value of the label of the family.
+ */
+public abstract class Metric {
+  /**
+   * Writes the samples of the metric in the Prometheus text format.
+   *
+   * @param out the exposition to append to
+   * @param name the name of the family
+   * @param labels the label pair of the metric, e.g. {@code method="x"}, or empty
+   */
+  abstract void write(StringBuilder out, String name, String labels);
+
+  static void writeSample(StringBuilder out, String name, String labels, String value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+}
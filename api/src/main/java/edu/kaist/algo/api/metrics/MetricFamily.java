@@ -0,0 +1,82 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Metrics sharing a name, one for each value of the label of the family, e.g. the latency of
+ * each RPC method. A family without a label has a single metric.
+ *
+ * <p>The metric of a label value is created on its first use. Callers on hot paths should keep
+ * the metric returned by {@link #labels(String)} rather than looking it up on each use.
+ *
+ * @param <T> the type of the metrics
+ */
+public class MetricFamily<T extends Metric> {
+  private final String name;
+  private final String help;
+  private final String type;
+  private final String labelName;
+  private final Supplier<T> factory;
+  private final ConcurrentMap<String, T> metrics = new ConcurrentHashMap<>();
+
+  MetricFamily(String name, String help, String type, String labelName, Supplier<T> factory) {
+    this.name = name;
+    this.help = help;
+    this.type = type;
+    this.labelName = labelName;
+    this.factory = factory;
+  }
+
+  /**
+   * Returns the metric of the label value, creating it on its first use.
+   *
+   * @param value the value of the label
+   * @return the metric of the value
+   */
+  public T labels(String value) {
+    final T metric = metrics.get(value);
+    return metric != null ? metric : metrics.computeIfAbsent(value, v -> factory.get());
+  }
+
+  String getType() {
+    return type;
+  }
+
+  String getLabelName() {
+    return labelName;
+  }
+
+  void put(String value, T metric) {
+    metrics.put(value, metric);
+  }
+
+  void write(StringBuilder out) {
+    out.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    for (Map.Entry<String, T> entry : new TreeMap<>(metrics).entrySet()) {
+      final String labels = labelName == null
+          ? "" : labelName + "=\"" + escapeLabel(entry.getKey()) + "\"";
+      entry.getValue().write(out, name, labels);
+    }
+  }
+
+  private static String escapeHelp(String help) {
+    return help.replace("\\", "\\\\").replace("\n", "\\n");
+  }
+
+  private static String escapeLabel(String value) {
+    return escapeHelp(value).replace("\"", "\\\"");
+  }
+}
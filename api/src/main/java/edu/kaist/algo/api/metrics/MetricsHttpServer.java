@@ -0,0 +1,79 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP server exposing the metrics of a registry at {@code /metrics}, for Prometheus to scrape.
+ */
+public class MetricsHttpServer {
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final Logger logger = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+  private final HttpServer server;
+  private final MetricsRegistry registry;
+
+  /**
+   * Creates the server on the given port of every interface.
+   *
+   * @param port the port number, 0 for any free port
+   * @param registry the registry of the exposed metrics
+   * @throws IOException if the port cannot be bound
+   */
+  public MetricsHttpServer(int port, MetricsRegistry registry) throws IOException {
+    this.registry = registry;
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/metrics", this::handle);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      int code = 200;
+      byte[] body;
+      try {
+        body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+      } catch (RuntimeException re) {
+        // e.g. the redis queue is unreachable
+        logger.error("Failed to scrape the metrics.", re);
+        code = 500;
+        body = String.valueOf(re.getMessage()).getBytes(StandardCharsets.UTF_8);
+      }
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(code, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * Records the latency and the errors of each RPC method of the intercepted services, in
+ * {@link ServerMetrics#RPC_DURATION} and {@link ServerMetrics#RPC_ERRORS}.
+ *
+ * <p>The latency of a streaming call is the time from its start to its status, e.g. the whole
+ * upload. The calls cancelled by the client, or failed by an exception of the service, are closed
+ * by the transport without a status through the call, and are not recorded.
+ */
+public class MetricsInterceptor implements ServerInterceptor {
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, ServerCall<RespT> call, Metadata headers,
+      ServerCallHandler<ReqT, RespT> next) {
+    final String methodName = method.getFullMethodName();
+    final long start = System.nanoTime();
+    return next.startCall(method, new SimpleForwardingServerCall<RespT>(call) {
+      @Override
+      public void close(Status status, Metadata trailers) {
+        ServerMetrics.RPC_DURATION.labels(methodName).observeSince(start);
+        if (!status.isOk()) {
+          ServerMetrics.RPC_ERRORS.labels(methodName).inc();
+        }
+        super.close(status, trailers);
+      }
+    }, headers);
+  }
+}
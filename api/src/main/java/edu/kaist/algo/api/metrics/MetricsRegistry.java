@@ -0,0 +1,131 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the metrics of a process, written in the Prometheus text format.
+ *
+ * <p>The metrics are recorded without a lock or an allocation; only the registration and the
+ * scrape take the lock of the registry. Registering a name again returns the family registered
+ * first, so that a class may register its metrics in each instance.
+ */
+public class MetricsRegistry {
+  private final Map<String, MetricFamily<?>> families = new LinkedHashMap<>();
+
+  /**
+   * Registers a counter.
+   *
+   * @param name the name of the counter, ending with {@code _total}
+   * @param help the description of the counter
+   * @return the counter
+   */
+  public Counter counter(String name, String help) {
+    return register(name, help, "counter", null, Counter::new).labels("");
+  }
+
+  /**
+   * Registers a family of counters with a label.
+   *
+   * @param name the name of the counters, ending with {@code _total}
+   * @param help the description of the counters
+   * @param labelName the name of the label
+   * @return the family of the counters
+   */
+  public MetricFamily<Counter> counters(String name, String help, String labelName) {
+    return register(name, help, "counter", labelName, Counter::new);
+  }
+
+  /**
+   * Registers a gauge keeping its value.
+   *
+   * @param name the name of the gauge
+   * @param help the description of the gauge
+   * @return the gauge
+   */
+  public Gauge gauge(String name, String help) {
+    return register(name, help, "gauge", null, Gauge::new).labels("");
+  }
+
+  /**
+   * Registers a gauge reading its value from the supplier when scraped. The supplier replaces
+   * the one registered before, e.g. by a previous instance of the caller.
+   *
+   * @param name the name of the gauge
+   * @param help the description of the gauge
+   * @param value the supplier of the value
+   */
+  public void gauge(String name, String help, LongSupplier value) {
+    register(name, help, "gauge", null, Gauge::new).put("", new Gauge(value));
+  }
+
+  /**
+   * Registers a histogram of durations.
+   *
+   * @param name the name of the histogram, ending with {@code _seconds}
+   * @param help the description of the histogram
+   * @return the histogram
+   */
+  public Histogram histogram(String name, String help) {
+    return register(name, help, "histogram", null, Histogram::new).labels("");
+  }
+
+  /**
+   * Registers a family of histograms of durations with a label.
+   *
+   * @param name the name of the histograms, ending with {@code _seconds}
+   * @param help the description of the histograms
+   * @param labelName the name of the label
+   * @return the family of the histograms
+   */
+  public MetricFamily<Histogram> histograms(String name, String help, String labelName) {
+    return register(name, help, "histogram", labelName, Histogram::new);
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized <T extends Metric> MetricFamily<T> register(
+      String name, String help, String type, String labelName, Supplier<T> factory) {
+    final MetricFamily<?> registered = families.get(name);
+    if (registered == null) {
+      final MetricFamily<T> family = new MetricFamily<>(name, help, type, labelName, factory);
+      families.put(name, family);
+      return family;
+    }
+    if (!registered.getType().equals(type)
+        || !Objects.equals(registered.getLabelName(), labelName)) {
+      throw new IllegalArgumentException(
+          "Metric " + name + " is already registered as another " + registered.getType() + ".");
+    }
+    return (MetricFamily<T>) registered;
+  }
+
+  /**
+   * Writes every metric in the Prometheus text format, version 0.0.4.
+   *
+   * @return the exposition of the metrics
+   */
+  public String scrape() {
+    final List<MetricFamily<?>> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(families.values());
+    }
+    final StringBuilder out = new StringBuilder();
+    for (MetricFamily<?> family : snapshot) {
+      family.write(out);
+    }
+    return out.toString();
+  }
+}
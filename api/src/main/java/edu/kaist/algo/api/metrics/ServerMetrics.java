@@ -0,0 +1,67 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics of the server and of the analysis workers, in the registry of the process.
+ *
+ * <p>The rates, e.g. the uploaded bytes or the parsed lines per second, are computed from the
+ * counters by the monitoring system, as {@code rate(gctool_parsed_lines_total[1m])}.
+ */
+public final class ServerMetrics {
+  public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+  public static final MetricFamily<Histogram> RPC_DURATION = REGISTRY.histograms(
+      "gctool_rpc_duration_seconds", "Time from the start of the RPCs to their status.",
+      "method");
+  public static final MetricFamily<Counter> RPC_ERRORS = REGISTRY.counters(
+      "gctool_rpc_errors_total", "RPCs closed with a status other than OK.", "method");
+
+  public static final Counter UPLOADED_BYTES = REGISTRY.counter(
+      "gctool_uploaded_bytes_total", "Bytes of the logs received by the uploads.");
+  public static final Gauge UPLOADS_IN_FLIGHT = REGISTRY.gauge(
+      "gctool_uploads_in_flight", "Uploads and followed logs being received.");
+
+  public static final Histogram QUEUE_WAIT = REGISTRY.histogram(
+      "gctool_analysis_queue_wait_seconds",
+      "Time from the submission of the tickets to the start of their analysis.");
+  public static final Histogram ANALYSIS_DURATION = REGISTRY.histogram(
+      "gctool_analysis_duration_seconds", "Time of the analyses of the tickets.");
+
+  public static final Counter PARSED_LINES = REGISTRY.counter(
+      "gctool_parsed_lines_total", "Lines of the logs parsed by the analyses.");
+  public static final Counter PARSED_EVENTS = REGISTRY.counter(
+      "gctool_parsed_events_total", "GC events parsed from the logs by the analyses.");
+  public static final Counter PARSED_BYTES = REGISTRY.counter(
+      "gctool_parsed_bytes_total", "Bytes of the logs parsed by the analyses.");
+
+  public static final MetricFamily<Histogram> STORE_DURATION = REGISTRY.histograms(
+      "gctool_store_operation_duration_seconds",
+      "Time of the operations on the ticket store, by redis command.", "op");
+
+  public static final MetricFamily<Counter> CACHE_HITS = REGISTRY.counters(
+      "gctool_cache_hits_total", "Lookups found in the cache.", "cache");
+  public static final MetricFamily<Counter> CACHE_MISSES = REGISTRY.counters(
+      "gctool_cache_misses_total", "Lookups missing from the cache.", "cache");
+
+  private ServerMetrics() {
+  }
+
+  /**
+   * Exposes the number of the tickets waiting in the analysis queue.
+   *
+   * @param depth the supplier of the number, called on each scrape
+   */
+  public static void setQueueDepth(LongSupplier depth) {
+    REGISTRY.gauge("gctool_analysis_queue_depth", "Tickets waiting in the analysis queue.",
+        depth);
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ticket store kept in the server process, for single-node deployments.
+ *
+ * <p>The data is held in concurrent maps, so reads take no lock and no round trip. For
+ * durability, each write is appended to a log file before it returns (to the operating system,
+ * without fsync, as redis with appendfsync no). The log is replayed when the store is opened,
+ * and rewritten with the current data only, so that the file does not grow across restarts. It
+ * is rewritten as well by {@link #compact()} when it has grown to twice the size of the data. A
+ * record torn by a crash is dropped on the replay.
+ *
+ * <p>A record is encoded whole and appended before the data is changed, so a key or a field
+ * longer than 65535 bytes in UTF-8 is rejected without a trace, and a failed append leaves the
+ * data as it is in the log.
+ */
+public class EmbeddedTicketStore implements TicketStore {
+  private static final byte SET = 1;
+  private static final byte SET_FIELD = 2;
+  private static final byte DELETE = 3;
+  private static final byte DELETE_FIELD = 4;
+  // the log is not compacted below this size
+  private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+
+  private static final Logger logger = LoggerFactory.getLogger(EmbeddedTicketStore.class);
+
+  private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+  private final Path logFile;
+  private DataOutputStream log;
+  // size of the log after the last rewrite
+  private long rewrittenBytes;
+
+  /**
+   * Opens the store, replaying the log file if it exists.
+   *
+   * @param logFile path of the append-only log file
+   * @throws IOException if the log file cannot be read or written
+   */
+  public EmbeddedTicketStore(Path logFile) throws IOException {
+    this.logFile = logFile;
+    if (Files.exists(logFile)) {
+      replay();
+    }
+    rewrite();
+  }
+
+  private void replay() throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(logFile)))) {
+      while (true) {
+        final byte op;
+        try {
+          op = in.readByte();
+        } catch (EOFException eofe) {
+          return;
+        }
+        try {
+          final String key = in.readUTF();
+          switch (op) {
+            case SET:
+              values.put(key, readValue(in));
+              break;
+            case SET_FIELD:
+              hash(key).put(in.readUTF(), readValue(in));
+              break;
+            case DELETE:
+              values.remove(key);
+              hashes.remove(key);
+              break;
+            case DELETE_FIELD:
+              deleteFromHash(key, in.readUTF());
+              break;
+            default:
+              throw new IOException("Unknown record in " + logFile);
+          }
+        } catch (EOFException eofe) {
+          logger.warn("Dropped the last record of " + logFile + " torn by a crash.");
+          return;
+        }
+      }
+    }
+  }
+
+  private static byte[] readValue(DataInputStream in) throws IOException {
+    final byte[] value = new byte[in.readInt()];
+    in.readFully(value);
+    return value;
+  }
+
+  /**
+   * Rewrites the log file with the current data only, if it has grown to twice the size of the
+   * data since the last rewrite.
+   *
+   * @throws IOException if the log file cannot be written
+   */
+  @Override
+  public synchronized void compact() throws IOException {
+    if (log.size() > Math.max(rewrittenBytes, MIN_COMPACT_BYTES)) {
+      rewrite();
+    }
+  }
+
+  private synchronized void rewrite() throws IOException {
+    final Path compacted = logFile.resolveSibling(logFile.getFileName() + ".compact");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+      for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+        out.writeByte(SET);
+        out.writeUTF(entry.getKey());
+        writeValue(out, entry.getValue());
+      }
+      for (Map.Entry<String, Map<String, byte[]>> hash : hashes.entrySet()) {
+        for (Map.Entry<String, byte[]> field : hash.getValue().entrySet()) {
+          out.writeByte(SET_FIELD);
+          out.writeUTF(hash.getKey());
+          out.writeUTF(field.getKey());
+          writeValue(out, field.getValue());
+        }
+      }
+    }
+    if (log != null) {
+      log.close();
+    }
+    Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    rewrittenBytes = Files.size(logFile);
+    log = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(logFile, StandardOpenOption.APPEND)));
+  }
+
+  private static void writeValue(DataOutputStream out, byte[] value) throws IOException {
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  private Map<String, byte[]> hash(String key) {
+    return hashes.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+  }
+
+  private void deleteFromHash(String key, String field) {
+    final Map<String, byte[]> hash = hashes.get(key);
+    if (hash != null) {
+      hash.remove(field);
+      if (hash.isEmpty()) {
+        hashes.remove(key);
+      }
+    }
+  }
+
+  // appends the record of a write before the write, which is done in the same lock
+  private void append(byte op, String key, String field, byte[] value) {
+    final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(record)) {
+      out.writeByte(op);
+      out.writeUTF(key);
+      if (field != null) {
+        out.writeUTF(field);
+      }
+      if (value != null) {
+        writeValue(out, value);
+      }
+    } catch (UTFDataFormatException utfe) {
+      throw new IllegalArgumentException("The key or the field is too long: " + key, utfe);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException("Cannot encode the record of the ticket store.", ioe);
+    }
+
+    try {
+      record.writeTo(log);
+      log.flush();
+    } catch (IOException ioe) {
+      // the log may end with a part of the record, which would corrupt the next records
+      try {
+        rewrite();
+      } catch (IOException rewriteError) {
+        ioe.addSuppressed(rewriteError);
+      }
+      throw new UncheckedIOException("Cannot write the log of the ticket store.", ioe);
+    }
+  }
+
+  @Override
+  public byte[] get(String key) {
+    return values.get(key);
+  }
+
+  @Override
+  public List<byte[]> get(List<String> keys) {
+    final List<byte[]> result = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      result.add(values.get(key));
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void set(String key, byte[] value) {
+    append(SET, key, null, value);
+    values.put(key, value);
+  }
+
+  @Override
+  public synchronized long increment(String key, long delta) {
+    final byte[] current = values.get(key);
+    final long counter = (current == null ? 0 : parseCounter(current)) + delta;
+    set(key, Long.toString(counter).getBytes(StandardCharsets.US_ASCII));
+    return counter;
+  }
+
+  private static long parseCounter(byte[] value) {
+    return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+  }
+
+  @Override
+  public byte[] getField(String key, String field) {
+    final Map<String, byte[]> hash = hashes.get(key);
+    return hash != null ? hash.get(field) : null;
+  }
+
+  @Override
+  public Map<String, byte[]> getFields(String key) {
+    final Map<String, byte[]> hash = hashes.get(key);
+    return hash != null ? new HashMap<>(hash) : Collections.emptyMap();
+  }
+
+  @Override
+  public List<byte[]> getFields(String key, List<String> fields) {
+    final Map<String, byte[]> hash = hashes.getOrDefault(key, Collections.emptyMap());
+    final List<byte[]> result = new ArrayList<>(fields.size());
+    for (String field : fields) {
+      result.add(hash.get(field));
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void setField(String key, String field, byte[] value) {
+    append(SET_FIELD, key, field, value);
+    hash(key).put(field, value);
+  }
+
+  @Override
+  public synchronized void setFields(String key, Map<String, byte[]> fields) {
+    fields.forEach((field, value) -> setField(key, field, value));
+  }
+
+  @Override
+  public synchronized long incrementField(String key, String field, long delta) {
+    final byte[] current = getField(key, field);
+    final long counter = (current == null ? 0 : parseCounter(current)) + delta;
+    setField(key, field, Long.toString(counter).getBytes(StandardCharsets.US_ASCII));
+    return counter;
+  }
+
+  @Override
+  public synchronized void deleteField(String key, String field) {
+    append(DELETE_FIELD, key, field, null);
+    deleteFromHash(key, field);
+  }
+
+  @Override
+  public synchronized void delete(String key) {
+    append(DELETE, key, null, null);
+    values.remove(key);
+    hashes.remove(key);
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      log.close();
+    } catch (IOException ioe) {
+      logger.error("Cannot close the log of the ticket store.", ioe);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.store;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.util.SafeEncoder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ticket store kept in redis, shared by every server and worker node.
+ */
+public class RedisTicketStore implements TicketStore {
+  private final JedisPool jedisPool;
+
+  /**
+   * Creates the store given JedisPool class instance.
+   *
+   * @param jedisPool JedisPool instance for jedis use in this class.
+   */
+  public RedisTicketStore(JedisPool jedisPool) {
+    this.jedisPool = jedisPool;
+  }
+
+  @Override
+  public byte[] get(String key) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.get(SafeEncoder.encode(key));
+    }
+  }
+
+  @Override
+  public List<byte[]> get(List<String> keys) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.mget(keys.stream().map(SafeEncoder::encode).toArray(byte[][]::new));
+    }
+  }
+
+  @Override
+  public void set(String key, byte[] value) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.set(SafeEncoder.encode(key), value);
+    }
+  }
+
+  @Override
+  public long increment(String key, long delta) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.incrBy(SafeEncoder.encode(key), delta);
+    }
+  }
+
+  @Override
+  public byte[] getField(String key, String field) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.hget(SafeEncoder.encode(key), SafeEncoder.encode(field));
+    }
+  }
+
+  @Override
+  public Map<String, byte[]> getFields(String key) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      final Map<String, byte[]> fields = new HashMap<>();
+      jedis.hgetAll(SafeEncoder.encode(key)).forEach((field, value) ->
+          fields.put(SafeEncoder.encode(field), value));
+      return fields;
+    }
+  }
+
+  @Override
+  public List<byte[]> getFields(String key, List<String> fields) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.hmget(SafeEncoder.encode(key),
+          fields.stream().map(SafeEncoder::encode).toArray(byte[][]::new));
+    }
+  }
+
+  @Override
+  public void setField(String key, String field, byte[] value) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), value);
+    }
+  }
+
+  @Override
+  public void setFields(String key, Map<String, byte[]> fields) {
+    final Map<byte[], byte[]> encoded = new HashMap<>();
+    fields.forEach((field, value) -> encoded.put(SafeEncoder.encode(field), value));
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.hmset(SafeEncoder.encode(key), encoded);
+    }
+  }
+
+  @Override
+  public long incrementField(String key, String field, long delta) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.hincrBy(SafeEncoder.encode(key), SafeEncoder.encode(field), delta);
+    }
+  }
+
+  @Override
+  public void deleteField(String key, String field) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.hdel(SafeEncoder.encode(key), SafeEncoder.encode(field));
+    }
+  }
+
+  @Override
+  public void delete(String key) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.del(SafeEncoder.encode(key));
+    }
+  }
+
+  @Override
+  public void close() {
+    jedisPool.destroy();
+  }
+}
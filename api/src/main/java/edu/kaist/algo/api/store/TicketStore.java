@@ -0,0 +1,136 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.store;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of the ticket resources behind {@link edu.kaist.algo.api.Ticketer}.
+ *
+ * <p>A key holds either a value or a hash of fields, as in redis. Counters are values holding the
+ * decimal string of the number, so that both kinds of store keep the same data.
+ */
+public interface TicketStore {
+  /**
+   * Returns the value of the key.
+   *
+   * @param key the key
+   * @return the value, or null if the key has no value
+   */
+  byte[] get(String key);
+
+  /**
+   * Returns the values of the keys at once.
+   *
+   * @param keys the keys
+   * @return the values in the order of the keys, with null for the keys without a value
+   */
+  List<byte[]> get(List<String> keys);
+
+  /**
+   * Sets the value of the key.
+   *
+   * @param key the key
+   * @param value the value
+   */
+  void set(String key, byte[] value);
+
+  /**
+   * Adds the delta to the counter of the key, a missing counter being 0.
+   *
+   * @param key the key
+   * @param delta the number to add
+   * @return the counter after the addition
+   */
+  long increment(String key, long delta);
+
+  /**
+   * Returns the value of the field of the hash.
+   *
+   * @param key the key of the hash
+   * @param field the field
+   * @return the value, or null if the hash has no such field
+   */
+  byte[] getField(String key, String field);
+
+  /**
+   * Returns every field of the hash.
+   *
+   * @param key the key of the hash
+   * @return the values by field, empty if there is no hash
+   */
+  Map<String, byte[]> getFields(String key);
+
+  /**
+   * Returns the values of the fields of the hash at once.
+   *
+   * @param key the key of the hash
+   * @param fields the fields
+   * @return the values in the order of the fields, with null for the fields not in the hash
+   */
+  List<byte[]> getFields(String key, List<String> fields);
+
+  /**
+   * Sets the value of the field of the hash.
+   *
+   * @param key the key of the hash
+   * @param field the field
+   * @param value the value
+   */
+  void setField(String key, String field, byte[] value);
+
+  /**
+   * Sets the values of the fields of the hash at once.
+   *
+   * @param key the key of the hash
+   * @param fields the values by field
+   */
+  void setFields(String key, Map<String, byte[]> fields);
+
+  /**
+   * Adds the delta to the counter in the field of the hash, a missing counter being 0.
+   *
+   * @param key the key of the hash
+   * @param field the field
+   * @param delta the number to add
+   * @return the counter after the addition
+   */
+  long incrementField(String key, String field, long delta);
+
+  /**
+   * Deletes the field of the hash.
+   *
+   * @param key the key of the hash
+   * @param field the field
+   */
+  void deleteField(String key, String field);
+
+  /**
+   * Deletes the value or the hash of the key.
+   *
+   * @param key the key
+   */
+  void delete(String key);
+
+  /**
+   * Compacts the persistent data of the store, if it keeps the overwritten data until then. It
+   * is called periodically, and does nothing if there is not enough to drop.
+   *
+   * @throws IOException if the persistent data cannot be written
+   */
+  default void compact() throws IOException {
+  }
+
+  /**
+   * Closes the store, releasing its connections or files.
+   */
+  void close();
+}
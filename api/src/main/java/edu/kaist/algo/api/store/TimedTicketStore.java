@@ -0,0 +1,198 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.store;
+
+import edu.kaist.algo.api.metrics.Histogram;
+import edu.kaist.algo.api.metrics.ServerMetrics;
+import edu.kaist.algo.jfr.FlightRecorder;
+import edu.kaist.algo.jfr.StoreOperationEvent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ticket store recording the latency of each operation of the given store in
+ * {@link ServerMetrics#STORE_DURATION}, labeled by the redis command of the operation. Each
+ * operation is also a flight recorder event, for a recording to relate the slow operations to the
+ * pauses of the server.
+ */
+public class TimedTicketStore implements TicketStore {
+  private final TicketStore store;
+  private final Histogram getTime = ServerMetrics.STORE_DURATION.labels("get");
+  private final Histogram mgetTime = ServerMetrics.STORE_DURATION.labels("mget");
+  private final Histogram setTime = ServerMetrics.STORE_DURATION.labels("set");
+  private final Histogram incrbyTime = ServerMetrics.STORE_DURATION.labels("incrby");
+  private final Histogram hgetTime = ServerMetrics.STORE_DURATION.labels("hget");
+  private final Histogram hgetallTime = ServerMetrics.STORE_DURATION.labels("hgetall");
+  private final Histogram hmgetTime = ServerMetrics.STORE_DURATION.labels("hmget");
+  private final Histogram hsetTime = ServerMetrics.STORE_DURATION.labels("hset");
+  private final Histogram hmsetTime = ServerMetrics.STORE_DURATION.labels("hmset");
+  private final Histogram hincrbyTime = ServerMetrics.STORE_DURATION.labels("hincrby");
+  private final Histogram hdelTime = ServerMetrics.STORE_DURATION.labels("hdel");
+  private final Histogram delTime = ServerMetrics.STORE_DURATION.labels("del");
+
+  public TimedTicketStore(TicketStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public byte[] get(String key) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.get(key);
+    } finally {
+      getTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "get", key);
+    }
+  }
+
+  @Override
+  public List<byte[]> get(List<String> keys) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.get(keys);
+    } finally {
+      mgetTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "mget", null);
+    }
+  }
+
+  @Override
+  public void set(String key, byte[] value) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      store.set(key, value);
+    } finally {
+      setTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "set", key);
+    }
+  }
+
+  @Override
+  public long increment(String key, long delta) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.increment(key, delta);
+    } finally {
+      incrbyTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "incrby", key);
+    }
+  }
+
+  @Override
+  public byte[] getField(String key, String field) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.getField(key, field);
+    } finally {
+      hgetTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hget", key);
+    }
+  }
+
+  @Override
+  public Map<String, byte[]> getFields(String key) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.getFields(key);
+    } finally {
+      hgetallTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hgetall", key);
+    }
+  }
+
+  @Override
+  public List<byte[]> getFields(String key, List<String> fields) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.getFields(key, fields);
+    } finally {
+      hmgetTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hmget", key);
+    }
+  }
+
+  @Override
+  public void setField(String key, String field, byte[] value) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      store.setField(key, field, value);
+    } finally {
+      hsetTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hset", key);
+    }
+  }
+
+  @Override
+  public void setFields(String key, Map<String, byte[]> fields) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      store.setFields(key, fields);
+    } finally {
+      hmsetTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hmset", key);
+    }
+  }
+
+  @Override
+  public long incrementField(String key, String field, long delta) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      return store.incrementField(key, field, delta);
+    } finally {
+      hincrbyTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hincrby", key);
+    }
+  }
+
+  @Override
+  public void deleteField(String key, String field) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      store.deleteField(key, field);
+    } finally {
+      hdelTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "hdel", key);
+    }
+  }
+
+  @Override
+  public void delete(String key) {
+    final StoreOperationEvent event = FlightRecorder.beginStoreOperation();
+    final long start = System.nanoTime();
+    try {
+      store.delete(key);
+    } finally {
+      delTime.observeSince(start);
+      FlightRecorder.commitStoreOperation(event, "del", key);
+    }
+  }
+
+  @Override
+  public void compact() throws IOException {
+    store.compact();
+  }
+
+  @Override
+  public void close() {
+    store.close();
+  }
+}
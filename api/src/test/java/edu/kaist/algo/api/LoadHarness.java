@@ -0,0 +1,302 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api;
+
+import com.google.common.io.ByteStreams;
+
+import edu.kaist.algo.api.jobs.LocalAnalysisQueue;
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
+import edu.kaist.algo.api.store.MemoryTicketStore;
+import edu.kaist.algo.client.AnalysisDataRequester;
+import edu.kaist.algo.client.LogUploader;
+import edu.kaist.algo.parser.CmsLogGenerator;
+import edu.kaist.algo.service.AnalysisStatus;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of {@link GcToolServer}: simulated clients upload generated logs at once, each
+ * through its own channel with {@link LogUploader}, and poll the analyzed results with
+ * {@link AnalysisDataRequester}, as the command line client does. The tickets are kept in memory,
+ * so that the upload and the analysis are measured without redis.
+ *
+ * <p>The server runs in the same JVM on the in-process transport, or on the loopback with a port,
+ * so the heap and the threads reported are of the clients as well. The uploaded logs and their
+ * events are written to the working directory, and deleted at the end.
+ *
+ * <p>Run by <code>./gradlew :api:loadTest -PloadArgs='--clients 8 --uploads 4'</code>.
+ */
+public final class LoadHarness {
+  private static final String SERVER_NAME = "gctool-load";
+  private static final long UPLOAD_POLL_MILLIS = 5;
+  private static final long RESULT_POLL_MILLIS = 20;
+  private static final long SAMPLE_MILLIS = 100;
+
+  private final int clients;
+  private final int uploads;
+  private final long events;
+  private final int workers;
+  private final int port;
+
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final AtomicLong maxHeapUsed = new AtomicLong();
+
+  private LoadHarness(int clients, int uploads, long events, int workers, int port) {
+    this.clients = clients;
+    this.uploads = uploads;
+    this.events = events;
+    this.workers = workers;
+    this.port = port;
+  }
+
+  // times of an upload in nanoseconds, from the ticket to the upload finished and to the result
+  private static class Upload {
+    final long bytes;
+    final long uploadNanos;
+    final long resultNanos;
+
+    Upload(long bytes, long uploadNanos, long resultNanos) {
+      this.bytes = bytes;
+      this.uploadNanos = uploadNanos;
+      this.resultNanos = resultNanos;
+    }
+  }
+
+  private void run() throws Exception {
+    final Path logDir = Files.createTempDirectory("gctool-load-");
+    final List<Path> logs = new ArrayList<>();
+    for (int client = 0; client < clients; client++) {
+      final Path log = logDir.resolve("client-" + client + ".log");
+      new CmsLogGenerator(client).write(log, events);
+      logs.add(log);
+    }
+    System.out.printf("%d clients x %d uploads of %d events (%.1f MB per log), %d workers, %s%n",
+        clients, uploads, events, Files.size(logs.get(0)) / 1e6, workers,
+        port > 0 ? "loopback port " + port : "in-process");
+
+    final MemoryTicketStore store = new MemoryTicketStore();
+    final ServerBuilder<?> serverBuilder =
+        port > 0 ? ServerBuilder.forPort(port) : InProcessServerBuilder.forName(SERVER_NAME);
+    final GcToolServer server = new GcToolServer(serverBuilder,
+        port > 0 ? Integer.toString(port) : SERVER_NAME, store, new LocalAnalysisQueue(), workers,
+        0, 0);
+    final Ticketer ticketer = new Ticketer(store);
+    final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+    final ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+    final PrintStream out = System.out;
+    deleteUploads();
+    server.start();
+    try {
+      final int baseThreads = threads.getThreadCount();
+      threads.resetPeakThreadCount();
+      final long gcCount = getGcCount();
+      final long gcMillis = getGcMillis();
+      sampler.scheduleAtFixedRate(() -> maxHeapUsed.accumulateAndGet(
+          memory.getHeapMemoryUsage().getUsed(), Math::max), 0, SAMPLE_MILLIS,
+          TimeUnit.MILLISECONDS);
+
+      // the clients print the progress of every chunk uploaded
+      System.setOut(new PrintStream(ByteStreams.nullOutputStream()));
+      final long start = System.nanoTime();
+      final List<Future<List<Upload>>> futures = new ArrayList<>();
+      for (int client = 0; client < clients; client++) {
+        final int id = client;
+        futures.add(clientThreads.submit(() -> runClient(id, logs.get(id), ticketer)));
+      }
+      final List<Upload> results = new ArrayList<>();
+      for (Future<List<Upload>> future : futures) {
+        results.addAll(future.get());
+      }
+      final long elapsed = System.nanoTime() - start;
+      System.setOut(out);
+
+      report(results, elapsed);
+      System.out.printf("heap used max %.1f MB, committed %.1f MB%n", maxHeapUsed.get() / 1e6,
+          memory.getHeapMemoryUsage().getCommitted() / 1e6);
+      System.out.printf("threads %d before the load, peak %d%n", baseThreads,
+          threads.getPeakThreadCount());
+      System.out.printf("gc %d collections, %d ms%n", getGcCount() - gcCount,
+          getGcMillis() - gcMillis);
+    } finally {
+      System.setOut(out);
+      clientThreads.shutdownNow();
+      sampler.shutdownNow();
+      server.stop();
+      deleteUploads();
+      for (Path log : logs) {
+        Files.delete(log);
+      }
+      Files.delete(logDir);
+    }
+  }
+
+  private List<Upload> runClient(int client, Path log, Ticketer ticketer) throws Exception {
+    final ManagedChannel channel = port > 0
+        ? ManagedChannelBuilder.forAddress("localhost", port).usePlaintext(true).build()
+        : InProcessChannelBuilder.forName(SERVER_NAME).build();
+    try {
+      final LogUploader uploader = new LogUploader(channel);
+      final AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+      final List<Upload> results = new ArrayList<>();
+      for (int upload = 0; upload < uploads; upload++) {
+        final long begin = System.nanoTime();
+        final long ticket = uploader.uploadInfo(uploadName(client, upload));
+        if (ticket == 0) {
+          throw new IllegalStateException("No ticket for " + uploadName(client, upload));
+        }
+        try (FileInputStream in = new FileInputStream(log.toFile())) {
+          uploader.uploadLog(ticket, in);
+        }
+        // the meta of the ticket is set when the server received the whole log
+        while (ticketer.getMeta(ticket).isEmpty()) {
+          Thread.sleep(UPLOAD_POLL_MILLIS);
+        }
+        final long uploaded = System.nanoTime();
+        while (requester.requestAnalysisData(ticket) == null) {
+          if (ticketer.getStatus(ticket) == AnalysisStatus.ERROR) {
+            throw new IllegalStateException("Failed to analyze ticket " + ticket);
+          }
+          Thread.sleep(RESULT_POLL_MILLIS);
+        }
+        results.add(new Upload(Files.size(log), uploaded - begin, System.nanoTime() - begin));
+      }
+      return results;
+    } finally {
+      channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private static void report(List<Upload> results, long elapsedNanos) {
+    final double seconds = elapsedNanos / 1e9;
+    final long bytes = results.stream().mapToLong(u -> u.bytes).sum();
+    System.out.printf("%d uploads in %.2f s : %.2f analyses/s, %.2f MB/s received%n",
+        results.size(), seconds, results.size() / seconds, bytes / 1e6 / seconds);
+    final double[] uploadRates = results.stream()
+        .mapToDouble(u -> u.bytes / 1e6 / (u.uploadNanos / 1e9)).sorted().toArray();
+    System.out.printf("upload MB/s per client : p50 %.2f, min %.2f%n",
+        percentile(uploadRates, 0.5), uploadRates[0]);
+    final double[] resultMillis = results.stream()
+        .mapToDouble(u -> u.resultNanos / 1e6).sorted().toArray();
+    System.out.printf("time to result ms : p50 %.0f, p90 %.0f, p99 %.0f, max %.0f%n",
+        percentile(resultMillis, 0.5), percentile(resultMillis, 0.9),
+        percentile(resultMillis, 0.99), resultMillis[resultMillis.length - 1]);
+  }
+
+  // nearest-rank percentile of the sorted values
+  private static double percentile(double[] sorted, double quantile) {
+    final int rank = (int) Math.ceil(quantile * sorted.length);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+
+  private static long getGcCount() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+  }
+
+  private static long getGcMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream()
+        .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+
+  private static String uploadName(int client, int upload) {
+    return "load-" + client + "-" + upload + ".log";
+  }
+
+  // the uploaded logs are named after the clients, and refused if they exist
+  private void deleteUploads() throws IOException {
+    for (int client = 0; client < clients; client++) {
+      for (int upload = 0; upload < uploads; upload++) {
+        final String logFile = uploadName(client, upload);
+        Files.deleteIfExists(Paths.get(logFile));
+        for (Path eventFile : LogAnalyzeJob.getEventFiles(logFile)) {
+          Files.deleteIfExists(eventFile);
+        }
+      }
+    }
+  }
+
+  private static Options makeOptions() {
+    final Options options = new Options();
+    options.addOption(Option.builder("c").longOpt("clients").hasArg(true).argName("clients")
+        .desc("give the number of the clients uploading at once (default: 4)").build());
+    options.addOption(Option.builder("u").longOpt("uploads").hasArg(true).argName("uploads")
+        .desc("give the number of the logs uploaded by each client (default: 5)").build());
+    options.addOption(Option.builder("e").longOpt("events").hasArg(true).argName("events")
+        .desc("give the number of the events of each log (default: 100000)").build());
+    options.addOption(Option.builder("w").longOpt("workers").hasArg(true).argName("workers")
+        .desc("give the number of the logs analyzed at once (default: processors)").build());
+    options.addOption(Option.builder("p").longOpt("port").hasArg(true).argName("port")
+        .desc("serve on the loopback at the port, instead of the in-process transport").build());
+    return options;
+  }
+
+  /**
+   * Runs the load test with the options of the arguments, and prints the report.
+   *
+   * @param args command-line options
+   * @throws Exception if the load test fails
+   */
+  public static void main(String[] args) throws Exception {
+    final Options options = makeOptions();
+    final LoadHarness harness;
+    try {
+      final CommandLine cmd = new DefaultParser().parse(options, args);
+      harness = new LoadHarness(
+          Integer.parseInt(cmd.getOptionValue("c", "4")),
+          Integer.parseInt(cmd.getOptionValue("u", "5")),
+          Long.parseLong(cmd.getOptionValue("e", "100000")),
+          Integer.parseInt(cmd.getOptionValue("w",
+              Integer.toString(Runtime.getRuntime().availableProcessors()))),
+          Integer.parseInt(cmd.getOptionValue("p", "0")));
+      if (harness.clients < 1 || harness.uploads < 1 || harness.events < 1
+          || harness.workers < 1) {
+        throw new ParseException("Clients, uploads, events and workers should be positive.");
+      }
+    } catch (ParseException | NumberFormatException ex) {
+      System.err.println(ex.getMessage() + " " + Arrays.toString(args));
+      new HelpFormatter().printHelp("loadTest", options);
+      return;
+    }
+    harness.run();
+    // the threads of the gRPC transports and of the server are not daemons
+    System.exit(0);
+  }
+}
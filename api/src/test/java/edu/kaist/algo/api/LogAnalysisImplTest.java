@@ -10,20 +10,29 @@ package edu.kaist.algo.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import com.google.common.io.Resources;
 
 import com.fiftyonred.mock_jedis.MockJedisPool;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcComparison;
+import edu.kaist.algo.analysis.GcPauseComparison;
+import edu.kaist.algo.analyzer.GcEventColumns;
 import edu.kaist.algo.analyzer.LogAnalyzer;
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
 import edu.kaist.algo.client.AnalysisDataRequester;
 import edu.kaist.algo.model.GcEvent;
 import edu.kaist.algo.parser.CmsLogParser;
 import edu.kaist.algo.service.AnalysisStatus;
+import edu.kaist.algo.service.CompareInfo;
+import edu.kaist.algo.service.TicketInfo;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -42,6 +51,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 @RunWith(JUnit4.class)
@@ -51,16 +62,19 @@ public class LogAnalysisImplTest {
   private static final long COMPLETED_TICKET = 1002;
   private static final long ANALYZING_TICKET = 1003;
   private static final long ERROR_TICKET = 1004;
+  private static final long UNKNOWN_TICKET = 1005;
   private static final String RESOURCE_FILE_NAME = "hotspot_long.log";
   private static final String ANALYZED_FILE_NAME = "data";
 
   @Rule public AnalyzedFile analyzedFile;
   private GcToolServer server;
+  private Ticketer ticketer;
 
   public class AnalyzedFile extends ExternalResource {
     public String filepath;
     public File file;
     public GcAnalyzedData data;
+    public List<GcEvent> events;
 
     AnalyzedFile(String srcname, String filename) throws Exception {
       this.file = File.createTempFile(filename, filename);
@@ -68,7 +82,8 @@ public class LogAnalysisImplTest {
 
       CmsLogParser parser = new CmsLogParser();
       final Path path = Paths.get(Resources.getResource(srcname).toURI());
-      List<GcEvent> events = parser.parse(path);
+      events = parser.parse(path);
+      GcEventColumns.of(events).writeTo(LogAnalyzeJob.getEventFile(filepath));
       LogAnalyzer logAnalyzer = new LogAnalyzer(events);
       data = logAnalyzer.analyzeData();
 
@@ -80,6 +95,7 @@ public class LogAnalysisImplTest {
     @Override
     protected void after() {
       file.deleteOnExit();
+      LogAnalyzeJob.getEventFile(filepath).toFile().deleteOnExit();
     }
   }
 
@@ -91,7 +107,7 @@ public class LogAnalysisImplTest {
   @Before
   public void setUp() throws Exception {
     JedisPool jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
-    Ticketer ticketer = new Ticketer(jedisPool);
+    ticketer = new Ticketer(jedisPool);
     server = new GcToolServer(TEST_PORT, jedisPool);
 
     try {
@@ -109,6 +125,7 @@ public class LogAnalysisImplTest {
     ticketer.setStatus(ERROR_TICKET, AnalysisStatus.ERROR);
 
     ticketer.setResult(COMPLETED_TICKET, analyzedFile.data);
+    ticketer.setLogFile(COMPLETED_TICKET, analyzedFile.filepath);
   }
 
   /**
@@ -137,7 +154,125 @@ public class LogAnalysisImplTest {
     GcAnalyzedData errorData = requester.requestAnalysisData(ERROR_TICKET);
     assertNull(errorData);
 
+    GcAnalyzedData unknownData = requester.requestAnalysisData(UNKNOWN_TICKET);
+    assertNull(unknownData);
+
     GcAnalyzedData completedData = requester.requestAnalysisData(COMPLETED_TICKET);
     assertEquals(analyzedFile.data.toString(), completedData.toString());
   }
+
+  @Test
+  public void testLogAnalysisRequest_CustomLevels() {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+
+    AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+    final List<Double> meanLevels = Arrays.asList(0.2);
+    final List<Double> outlierLevels = Arrays.asList(0.05, 0.5);
+    final GcAnalyzedData expected = new LogAnalyzer(analyzedFile.events)
+        .analyzeData(meanLevels.toArray(new Double[0]), outlierLevels.toArray(new Double[0]));
+
+    final String variant = LogAnalysisImpl.makeVariantKey(meanLevels, outlierLevels,
+        LogAnalyzer.DEFAULT_WINDOW_SIZES, LogAnalyzer.DEFAULT_MAX_POINTS);
+    assertNull(ticketer.getResult(COMPLETED_TICKET, variant));
+    assertEquals(expected,
+        requester.requestAnalysisData(COMPLETED_TICKET, meanLevels, outlierLevels));
+    assertEquals(expected, ticketer.getResult(COMPLETED_TICKET, variant));
+
+    // served from the cache
+    assertEquals(expected,
+        requester.requestAnalysisData(COMPLETED_TICKET, meanLevels, outlierLevels));
+
+    // invalid level
+    assertNull(requester.requestAnalysisData(COMPLETED_TICKET, Arrays.asList(2.0),
+        Collections.emptyList()));
+  }
+
+  @Test
+  public void testLogAnalysisRequest_MaxPoints() {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+
+    AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+    final GcAnalyzedData data = requester.requestAnalysisData(TicketInfo.newBuilder()
+        .setTicketNumber(COMPLETED_TICKET)
+        .setMaxPoints(3)
+        .build());
+    assertEquals(3, data.getPauseTimes().getValuesCount());
+    assertEquals(analyzedFile.data.getPauses(0), data.getPauses(0));
+  }
+
+  @Test
+  public void testLogAnalysisRequest_RejectTinyWindowSize() {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+
+    AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+    try {
+      requester.requestAnalysisData(TicketInfo.newBuilder()
+          .setTicketNumber(COMPLETED_TICKET)
+          .addWindowSizes(1)
+          .build());
+      fail("A window of a millisecond should be rejected.");
+    } catch (StatusRuntimeException sre) {
+      assertEquals(Status.Code.INVALID_ARGUMENT, sre.getStatus().getCode());
+    }
+
+    final GcAnalyzedData data = requester.requestAnalysisData(TicketInfo.newBuilder()
+        .setTicketNumber(COMPLETED_TICKET)
+        .addWindowSizes(LogAnalysisImpl.MIN_WINDOW_SIZE)
+        .build());
+    assertEquals(LogAnalysisImpl.MIN_WINDOW_SIZE, data.getWindows(0).getWindowSize());
+  }
+
+  @Test
+  public void testLogAnalysisRequest_RejectTooManyLevels() {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+
+    final TicketInfo.Builder request = TicketInfo.newBuilder().setTicketNumber(COMPLETED_TICKET);
+    for (int i = 0; i <= LogAnalysisImpl.MAX_LEVELS; i++) {
+      request.addMeanLevels(0.01 + i * 0.001);
+    }
+    try {
+      new AnalysisDataRequester(channel).requestAnalysisData(request.build());
+      fail("More mean levels than the limit should be rejected.");
+    } catch (StatusRuntimeException sre) {
+      assertEquals(Status.Code.INVALID_ARGUMENT, sre.getStatus().getCode());
+    }
+  }
+
+  @Test
+  public void testCompareAnalyses_ReturnComparison() {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+
+    AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+    ticketer.setSummary(COMPLETED_TICKET, new LogAnalyzer(analyzedFile.events).summarize());
+    final GcComparison comparison = requester.requestComparison(CompareInfo.newBuilder()
+        .setBaseTicket(COMPLETED_TICKET)
+        .setTargetTicket(COMPLETED_TICKET)
+        .build());
+    assertEquals(4, comparison.getPausesCount());
+    for (GcPauseComparison pause : comparison.getPausesList()) {
+      assertEquals(LogAnalyzer.DEFAULT_QUANTILE_LEVELS.size(), pause.getQuantilesCount());
+      assertEquals(1, pause.getPValue(), 0.0);
+    }
+
+    // the other ticket is not analyzed yet
+    assertNull(requester.requestComparison(CompareInfo.newBuilder()
+        .setBaseTicket(COMPLETED_TICKET)
+        .setTargetTicket(NOT_READY_TICKET)
+        .build()));
+  }
 }
@@ -9,28 +9,43 @@
 package edu.kaist.algo.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
+import edu.kaist.algo.api.metrics.Histogram;
+import edu.kaist.algo.api.metrics.ServerMetrics;
 import edu.kaist.algo.client.AnalysisDataRequester;
+import edu.kaist.algo.client.LogFollower;
 import edu.kaist.algo.client.LogUploader;
+import edu.kaist.algo.parser.CmsLogParser;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
 
 import com.fiftyonred.mock_jedis.MockJedisPool;
+import com.google.protobuf.ByteString;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExternalResource;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import edu.kaist.algo.service.AnalysisStatus;
+import edu.kaist.algo.service.LogAnalysisGrpc;
+import edu.kaist.algo.service.LogUploadGrpc;
+import edu.kaist.algo.service.TicketInfo;
+import edu.kaist.algo.service.UploadRequest;
+import edu.kaist.algo.service.UploadResult;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
@@ -39,8 +54,16 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 /**
  * The server receives the file from the client and tests the validity of
@@ -50,12 +73,17 @@ import java.util.concurrent.TimeUnit;
 public class LogUploadImplTest {
   private File uploadFile;
   private static final String UPLOADED_FILE_NAME = "uploaded.log";
+  private static final String FOLLOWED_FILE_NAME = "followed.log";
+  private static final String UNFOLLOWED_FILE_NAME = "unfollowed.log";
+  private static final String CLAIMED_FILE_NAME = "claimed.log";
   private static final String RESOURCE_FILE_NAME = "hotspot_pid6017.log";
   private static final int TEST_PORT = 50053;
 
   // open a sample real GC log file
   @Rule
   public ResourceFile resourceFile = new ResourceFile(RESOURCE_FILE_NAME);
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
   GcToolServer server;
   private Ticketer ticketer;
 
@@ -175,6 +203,11 @@ public class LogUploadImplTest {
         .usePlaintext(true)
         .build();
 
+    final Histogram uploadDuration = ServerMetrics.RPC_DURATION.labels(
+        LogUploadGrpc.METHOD_LOG_UPLOAD.getFullMethodName());
+    final long uploads = uploadDuration.getCount();
+    final long uploadedBytes = ServerMetrics.UPLOADED_BYTES.get();
+
     // Upload log file, and wait for analyzing.
     LogUploader logUploader = new LogUploader(channel);
     long ticket = logUploader.uploadInfo(UPLOADED_FILE_NAME);
@@ -192,9 +225,133 @@ public class LogUploadImplTest {
     assertNotNull(result);
     assertEquals(resultFromResult, result);
 
+    // recorded by the interceptor and the service, once the upload is closed
+    waitUntil(() -> uploadDuration.getCount() > uploads);
+    assertEquals(uploadedBytes + FileUtils.sizeOf(uploadFile), ServerMetrics.UPLOADED_BYTES.get());
+
+    // the timings of the pipeline of the ticket
+    final Map<String, String> meta = LogAnalysisGrpc.newBlockingStub(channel)
+        .requestAnalyzedData(TicketInfo.newBuilder()
+            .setTicketNumber(ticket)
+            .setWithMeta(true)
+            .build())
+        .getMeta();
+    assertEquals(Long.toString(FileUtils.sizeOf(uploadFile)), meta.get(LogUploadImpl.UPLOAD_BYTES));
+    assertTrue(meta.containsKey(LogUploadImpl.UPLOAD_MILLIS));
+    assertTrue(meta.containsKey("parse_ms"));
+    assertTrue(Long.parseLong(meta.get("events")) > 0);
+
+    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testFollowLog() throws Exception {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+
+    // follow the log while the second half is written
+    final byte[] log = Files.readAllBytes(uploadFile.toPath());
+    final Path followedFile = folder.getRoot().toPath().resolve(FOLLOWED_FILE_NAME);
+    Files.write(followedFile, Arrays.copyOf(log, log.length / 2));
+    final LogFollower follower = new LogFollower(new LogUploader(channel), followedFile);
+    final Thread followThread = new Thread(() -> {
+      try {
+        follower.follow();
+      } catch (IOException | InterruptedException ex) {
+        fail("Follow failed : " + ex.getMessage());
+      }
+    });
+    followThread.start();
+
+    final File serverFile = new File(FOLLOWED_FILE_NAME);
+    waitUntil(() -> serverFile.length() == log.length / 2);
+    Files.write(followedFile, Arrays.copyOfRange(log, log.length / 2, log.length),
+        StandardOpenOption.APPEND);
+    waitUntil(() -> serverFile.length() == log.length);
+    follower.stop();
+    followThread.join();
+    assertTrue(FileUtils.contentEquals(uploadFile, serverFile));
+
+    // the rolling analysis catches up with the whole log
+    final long ticket = 1;
+    assertEquals(FOLLOWED_FILE_NAME, ticketer.getLogFile(ticket));
+    final int eventCount = new CmsLogParser().parse(uploadFile.toPath()).size();
+    waitUntil(() -> ticketer.getStatus(ticket) == AnalysisStatus.COMPLETED
+        && ticketer.getSummary(ticket).getEventCount() == eventCount);
+
     channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
   }
 
+  @Test
+  public void testFollowLog_RejectTicketNotIssuedForFollow() throws Exception {
+    ManagedChannel channel = ManagedChannelBuilder
+        .forAddress("localhost", TEST_PORT)
+        .usePlaintext(true)
+        .build();
+    final LogUploader uploader = new LogUploader(channel);
+
+    assertEquals(Status.Code.NOT_FOUND, followError(channel, 1005));
+    final long uploaded = uploader.uploadInfo(UNFOLLOWED_FILE_NAME);
+    assertEquals(Status.Code.FAILED_PRECONDITION, followError(channel, uploaded));
+    assertFalse(new File(UNFOLLOWED_FILE_NAME).exists());
+
+    // only the first stream follows a ticket issued for following
+    final long followed = uploader.uploadInfo(CLAIMED_FILE_NAME, true);
+    final StreamObserver<UploadRequest> stream =
+        uploader.followLog(followed, new CountDownLatch(1));
+    stream.onNext(UploadRequest.newBuilder()
+        .setId(followed)
+        .setContents(ByteString.copyFrom(Files.readAllBytes(uploadFile.toPath())))
+        .build());
+    waitUntil(() -> new File(CLAIMED_FILE_NAME).exists());
+    assertEquals(Status.Code.FAILED_PRECONDITION, followError(channel, followed));
+    stream.onCompleted();
+    waitUntil(() -> !ticketer.isFollowed(followed));
+
+    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  // follows the ticket with a single chunk, and returns the code of the error of the stream
+  private static Status.Code followError(ManagedChannel channel, long ticket)
+      throws InterruptedException {
+    final CountDownLatch finishLatch = new CountDownLatch(1);
+    final AtomicReference<Status> status = new AtomicReference<>(Status.OK);
+    final StreamObserver<UploadRequest> stream = LogUploadGrpc.newStub(channel)
+        .logFollow(new StreamObserver<UploadResult>() {
+          @Override
+          public void onNext(UploadResult result) {
+          }
+
+          @Override
+          public void onError(Throwable thrown) {
+            status.set(Status.fromThrowable(thrown));
+            finishLatch.countDown();
+          }
+
+          @Override
+          public void onCompleted() {
+            finishLatch.countDown();
+          }
+        });
+    stream.onNext(UploadRequest.newBuilder()
+        .setId(ticket)
+        .setContents(ByteString.copyFromUtf8("0.100: [GC (Allocation Failure)]\n"))
+        .build());
+    stream.onCompleted();
+    assertTrue(finishLatch.await(5, TimeUnit.SECONDS));
+    return status.get().getCode();
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 30_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline);
+      Thread.sleep(100);
+    }
+  }
+
   /**
    * Delete the resulting file after testing is completed.
    */
@@ -202,6 +359,14 @@ public class LogUploadImplTest {
   public void cleanUp() {
     File resultfile = new File(UPLOADED_FILE_NAME);
     resultfile.deleteOnExit();
+    LogAnalyzeJob.getEventFile(UPLOADED_FILE_NAME).toFile().deleteOnExit();
+    new File(FOLLOWED_FILE_NAME).deleteOnExit();
+    new File(CLAIMED_FILE_NAME).deleteOnExit();
+    LogAnalyzeJob.getEventFile(CLAIMED_FILE_NAME, 0).toFile().deleteOnExit();
+    for (int segment = 0; LogAnalyzeJob.getEventFile(FOLLOWED_FILE_NAME, segment).toFile().exists();
+        segment++) {
+      LogAnalyzeJob.getEventFile(FOLLOWED_FILE_NAME, segment).toFile().deleteOnExit();
+    }
 
     server.stop();
   }
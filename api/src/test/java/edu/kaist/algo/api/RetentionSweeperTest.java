@@ -0,0 +1,106 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fiftyonred.mock_jedis.MockJedisPool;
+
+import edu.kaist.algo.api.jobs.LogAnalyzeJob;
+import edu.kaist.algo.service.AnalysisStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Tests the RetentionSweeper class with the tickets accessed one second apart.
+ */
+@RunWith(JUnit4.class)
+public class RetentionSweeperTest {
+  private static final long START = 1_000_000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Ticketer ticketer;
+  private Path storageDir;
+
+  @Before
+  public void setUp() {
+    ticketer = new Ticketer(new MockJedisPool(new JedisPoolConfig(), "localhost"));
+    storageDir = folder.getRoot().toPath();
+  }
+
+  @After
+  public void tearDown() {
+    ticketer.closeTicketer();
+  }
+
+  // issues a ticket with a log file of the given size, accessed at the given time
+  private long createTicket(String logFile, int size, AnalysisStatus status, long accessTime)
+      throws IOException {
+    final long ticket = ticketer.issueTicket();
+    ticketer.setLogFile(ticket, logFile);
+    ticketer.setStatus(ticket, status);
+    ticketer.touch(Collections.singletonList(ticket), accessTime);
+    Files.write(storageDir.resolve(logFile), new byte[size]);
+    return ticket;
+  }
+
+  @Test
+  public void sweep_evictExpiredTickets() throws IOException {
+    final long expired = createTicket("expired.log", 100, AnalysisStatus.COMPLETED, START);
+    final Path eventFile = LogAnalyzeJob.getEventFile(
+        storageDir.resolve("expired.log").toString());
+    Files.write(eventFile, new byte[100]);
+    final long kept = createTicket("kept.log", 100, AnalysisStatus.COMPLETED, START + 1000);
+
+    final RetentionSweeper sweeper = new RetentionSweeper(ticketer, storageDir, 1500, 0);
+    assertEquals(1, sweeper.sweep(START + 2500));
+    assertNull(ticketer.getStatus(expired));
+    assertFalse(Files.exists(storageDir.resolve("expired.log")));
+    assertFalse(Files.exists(eventFile));
+    assertEquals(AnalysisStatus.COMPLETED, ticketer.getStatus(kept));
+    assertTrue(Files.exists(storageDir.resolve("kept.log")));
+    assertEquals(Collections.singleton(kept), ticketer.getAccessTimes().keySet());
+  }
+
+  @Test
+  public void sweep_evictLeastRecentlyUsedBeyondQuota() throws IOException {
+    final long analyzing = createTicket("analyzing.log", 200, AnalysisStatus.ANALYZING, START);
+    final long leastRecent =
+        createTicket("least.log", 100, AnalysisStatus.COMPLETED, START + 1000);
+    final long mostRecent = createTicket("most.log", 100, AnalysisStatus.ERROR, START + 2000);
+
+    final RetentionSweeper sweeper = new RetentionSweeper(ticketer, storageDir, 0, 350);
+    assertEquals(1, sweeper.sweep(START + 3000));
+    assertEquals(AnalysisStatus.ANALYZING, ticketer.getStatus(analyzing));
+    assertNull(ticketer.getStatus(leastRecent));
+    assertFalse(Files.exists(storageDir.resolve("least.log")));
+    assertEquals(AnalysisStatus.ERROR, ticketer.getStatus(mostRecent));
+
+    // within the quota now
+    assertEquals(0, sweeper.sweep(START + 3000));
+  }
+}
@@ -9,6 +9,7 @@
 package edu.kaist.algo.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -18,9 +19,14 @@ import com.google.common.collect.ImmutableMap;
 import com.fiftyonred.mock_jedis.MockJedisPool;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.analysis.GcPauseOutliers;
 import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.analysis.GcTimeSeries;
 import edu.kaist.algo.model.GcEvent;
+import edu.kaist.algo.model.GcParserCheckpoint;
 import edu.kaist.algo.service.AnalysisStatus;
+import edu.kaist.algo.service.ResultSection;
 
 import org.junit.After;
 import org.junit.Before;
@@ -31,7 +37,11 @@ import org.junit.runners.JUnit4;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -46,6 +56,7 @@ public class TicketerTest {
       GcPauseStat.newBuilder().setType(GcEvent.LogType.MINOR_GC).build()).build();
   private static final long EXAMPLE_SIZE = 6778;
 
+  private static JedisPool jedisPool;
   private static Ticketer ticketer;
   private static long ticket;
 
@@ -55,7 +66,7 @@ public class TicketerTest {
    */
   @Before
   public void setUp() {
-    JedisPool jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
+    jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
     ticketer = new Ticketer(jedisPool); // MockJedisPool constructor
     ticket = ticketer.issueTicket(); // this should be 1
     ticketer.setLogFile(ticket, EXAMPLE_LOGFILE);
@@ -71,6 +82,18 @@ public class TicketerTest {
     assertEquals(2, ticket);
   }
 
+  // issues the tickets of many blocks from two servers sharing the store
+  @Test
+  public void issueTicket_uniqueAcrossTicketers() {
+    final Ticketer other = new Ticketer(jedisPool);
+    final Set<Long> tickets = new HashSet<>();
+    tickets.add(ticket);
+    for (int i = 0; i < Ticketer.TICKET_BLOCK_SIZE * 3; i++) {
+      assertTrue(tickets.add(ticketer.issueTicket()));
+      assertTrue(tickets.add(other.issueTicket()));
+    }
+  }
+
   // given illegal ticket number
   @Test(expected = IllegalArgumentException.class)
   public void wrongTicketNumTest() {
@@ -138,6 +161,84 @@ public class TicketerTest {
     assertEquals(EXAMPLE_RESULT, ticketer.getResult(ticket));
   }
 
+  // store the result in sections, and fetch the summary without the outliers and time series
+  @Test
+  public void resultSectionsTest() {
+    final GcEvent outlier = GcEvent.newBuilder().setPauseTime(1.5).build();
+    final GcAnalyzedData result = GcAnalyzedData.newBuilder()
+        .addPauses(GcPauseStat.newBuilder().setType(GcEvent.LogType.MINOR_GC).setCount(3)
+            .addOutliers(GcPauseOutliers.newBuilder().setLevel(0.05).addEvents(outlier)))
+        .addPauses(GcPauseStat.newBuilder().setType(GcEvent.LogType.FULL_GC).setCount(1))
+        .setPauseTimes(GcTimeSeries.newBuilder().addTimestamps(1000).addValues(1.5))
+        .build();
+    ticketer.setResult(ticket, result);
+    assertEquals(result, ticketer.getResult(ticket));
+
+    final GcAnalyzedData summary =
+        ticketer.getResult(ticket, Collections.singletonList(ResultSection.SUMMARY));
+    assertEquals(3, summary.getPauses(0).getCount());
+    assertEquals(0, summary.getPauses(0).getOutliersCount());
+    assertFalse(summary.hasPauseTimes());
+
+    final GcAnalyzedData outliers = ticketer.getResult(ticket,
+        Arrays.asList(ResultSection.SUMMARY, ResultSection.OUTLIERS));
+    assertEquals(result.getPausesList(), outliers.getPausesList());
+    assertFalse(outliers.hasPauseTimes());
+  }
+
+  // cache analysis variants and evict the least recently accessed one
+  @Test
+  public void resultVariantTest() {
+    assertNull(ticketer.getResult(ticket, "variant0"));
+    for (int i = 0; i < Ticketer.MAX_RESULT_VARIANTS; i++) {
+      ticketer.setResult(ticket, "variant" + i, EXAMPLE_RESULT);
+    }
+    assertEquals(EXAMPLE_RESULT, ticketer.getResult(ticket, "variant0"));
+
+    // variant1 is the least recently accessed one
+    ticketer.setResult(ticket, "variant" + Ticketer.MAX_RESULT_VARIANTS, EXAMPLE_RESULT);
+    assertNull(ticketer.getResult(ticket, "variant1"));
+    assertEquals(EXAMPLE_RESULT, ticketer.getResult(ticket, "variant0"));
+    assertEquals(EXAMPLE_RESULT,
+        ticketer.getResult(ticket, "variant" + Ticketer.MAX_RESULT_VARIANTS));
+  }
+
+  // store the state for the incremental analysis, and drop the variants of the appended log
+  @Test
+  public void incrementalStateTest() {
+    assertNull(ticketer.getCheckpoint(ticket));
+    assertNull(ticketer.getSummary(ticket));
+
+    final GcParserCheckpoint checkpoint = GcParserCheckpoint.newBuilder()
+        .setOffset(EXAMPLE_SIZE).setCurrentThread(11779)
+        .putAllIncompleteLines(ImmutableMap.of(11779, "44.151: [GC (Allocation Failure) [CMS"))
+        .build();
+    final GcLogSummary summary = GcLogSummary.newBuilder()
+        .setEventCount(42).putAllConcurrences(ImmutableMap.of("CMS-concurrent-mark", 3)).build();
+    ticketer.setCheckpoint(ticket, checkpoint);
+    ticketer.setSummary(ticket, summary);
+    assertEquals(checkpoint, ticketer.getCheckpoint(ticket));
+    assertEquals(summary, ticketer.getSummary(ticket));
+
+    ticketer.setResult(ticket, "variant0", EXAMPLE_RESULT);
+    ticketer.clearResultVariants(ticket);
+    assertNull(ticketer.getResult(ticket, "variant0"));
+    assertEquals(EXAMPLE_RESULT, ticketer.getResult(ticket));
+  }
+
+  // fetch the summaries of many tickets at once, with null for the tickets not analyzed yet
+  @Test
+  public void getSummariesTest() {
+    final GcLogSummary summary = GcLogSummary.newBuilder().setEventCount(42).build();
+    ticketer.setSummary(ticket, summary);
+    final long other = ticketer.issueTicket();
+
+    assertEquals(Arrays.asList(summary, null, summary),
+        ticketer.getSummaries(Arrays.asList(ticket, other, ticket)));
+    assertTrue(ticketer.getSummaries(Collections.emptyList()).isEmpty());
+    ticketer.deleteResource(other);
+  }
+
   /**
    * Delete the resources and close the ticketer instance.
    * On the way, test if the resources are deleted appropriately.
@@ -154,6 +255,9 @@ public class TicketerTest {
     assertTrue(metaKey.isEmpty());
 
     assertNull(ticketer.getResult(ticket));
+    assertNull(ticketer.getResult(ticket, "variant0"));
+    assertNull(ticketer.getCheckpoint(ticket));
+    assertNull(ticketer.getSummary(ticket));
 
     ticketer.closeTicketer();
   }
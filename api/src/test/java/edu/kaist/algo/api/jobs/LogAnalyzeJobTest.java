@@ -9,32 +9,154 @@
 package edu.kaist.algo.api.jobs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import com.fiftyonred.mock_jedis.MockJedisPool;
 
+import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.analyzer.LogAnalyzer;
+import edu.kaist.algo.analyzer.Summaries;
 import edu.kaist.algo.api.GcTestUtils;
 import edu.kaist.algo.api.Ticketer;
+import edu.kaist.algo.model.GcEvent;
+import edu.kaist.algo.parser.CmsLogParser;
 import edu.kaist.algo.service.AnalysisStatus;
 
+import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import redis.clients.jedis.JedisPoolConfig;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @RunWith(JUnit4.class)
 public class LogAnalyzeJobTest {
+  private static final String LOG_FILE = "src/test/resources/hotspot_long.log";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void cleanUp() {
+    LogAnalyzeJob.getEventFile(LOG_FILE).toFile().delete();
+  }
 
   @Test
   public void testAnalyzeJob() throws Exception {
     final MockJedisPool jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
     final Ticketer ticketer = new Ticketer(jedisPool);
     final long ticketNum = 1;
-    ticketer.setLogFile(ticketNum, "src/test/resources/hotspot_long.log");
+    ticketer.setLogFile(ticketNum, LOG_FILE);
 
     new LogAnalyzeJob(ticketer, ticketNum).run();
 
     assertEquals(AnalysisStatus.COMPLETED, ticketer.getStatus(ticketNum));
     assertEquals(GcTestUtils.parseFromResource("hotspot_long.log"), ticketer.getResult(ticketNum));
+
+    // the pipeline of the ticket
+    final Map<String, String> meta = ticketer.getMeta(ticketNum);
+    final CmsLogParser parser = new CmsLogParser();
+    final List<GcEvent> events = parser.parse(Paths.get(LOG_FILE), 0);
+    assertEquals(Long.toString(events.size()), meta.get(LogAnalyzeJob.EVENTS));
+    assertEquals(Long.toString(parser.getLineCount()), meta.get(LogAnalyzeJob.LINES_SCANNED));
+    assertEquals(Long.toString(parser.getLineCount() - parser.getUnmatchedLineCount()),
+        meta.get(LogAnalyzeJob.LINES_MATCHED));
+    assertEquals(Long.toString(Files.size(Paths.get(LOG_FILE))),
+        meta.get(LogAnalyzeJob.PARSED_BYTES));
+    for (LogAnalyzeJob.Phase phase : LogAnalyzeJob.Phase.values()) {
+      assertTrue(Long.parseLong(meta.get(phase.metaField)) >= 0);
+    }
+  }
+
+  @Test
+  public void testAnalyzeLogWithoutFullGc() throws Exception {
+    final MockJedisPool jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
+    final Ticketer ticketer = new Ticketer(jedisPool);
+    final long ticketNum = 1;
+    // without the full GCs, and the ParNew collections ending up in a full GC
+    final Path logFile = folder.getRoot().toPath().resolve("healthy.log");
+    Files.write(logFile, Files.readAllLines(Paths.get(LOG_FILE)).stream()
+        .filter(line -> !line.contains("Full GC") && !line.trim().endsWith("[CMS"))
+        .collect(Collectors.toList()));
+    ticketer.setLogFile(ticketNum, logFile.toString());
+
+    new LogAnalyzeJob(ticketer, ticketNum).run();
+
+    assertEquals(AnalysisStatus.COMPLETED, ticketer.getStatus(ticketNum));
+    final GcPauseStat fullGc = ticketer.getResult(ticketNum).getPauses(0);
+    assertEquals(GcEvent.LogType.FULL_GC, fullGc.getType());
+    assertEquals(0, fullGc.getCount());
+    assertEquals(new LogAnalyzer(new CmsLogParser().parse(logFile)).analyzeData(),
+        ticketer.getResult(ticketNum));
+  }
+
+  @Test
+  public void testReanalyzeFromEventFile() throws Exception {
+    final MockJedisPool jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
+    final Ticketer ticketer = new Ticketer(jedisPool);
+    final long ticketNum = 1;
+    ticketer.setLogFile(ticketNum, LOG_FILE);
+
+    new LogAnalyzeJob(ticketer, ticketNum).run();
+    assertTrue(LogAnalyzeJob.getEventFile(LOG_FILE).toFile().exists());
+
+    final Double[] meanLevels = { 0.2 };
+    final Double[] outlierLevels = { 0.05, 0.5 };
+    final GcAnalyzedData reanalyzed =
+        LogAnalyzeJob.reanalyze(LOG_FILE, meanLevels, outlierLevels);
+    final GcAnalyzedData expected = new LogAnalyzer(new CmsLogParser().parse(new File(LOG_FILE)
+        .toPath())).analyzeData(meanLevels, outlierLevels);
+    assertEquals(expected, reanalyzed);
+  }
+
+  @Test
+  public void testAnalyzeAppendedLog() throws Exception {
+    final MockJedisPool jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
+    final Ticketer ticketer = new Ticketer(jedisPool);
+    final long ticketNum = 1;
+    final String logFile = folder.getRoot().toPath().resolve("appended.log").toString();
+    ticketer.setLogFile(ticketNum, logFile);
+
+    // upload the first half of the log, cut in the middle of a line, and append the rest
+    final byte[] log = Files.readAllBytes(Paths.get(LOG_FILE));
+    Files.write(Paths.get(logFile), Arrays.copyOf(log, log.length / 2));
+    new LogAnalyzeJob(ticketer, ticketNum).run();
+    assertEquals(AnalysisStatus.COMPLETED, ticketer.getStatus(ticketNum));
+
+    Files.write(Paths.get(logFile), Arrays.copyOfRange(log, log.length / 2, log.length),
+        StandardOpenOption.APPEND);
+    // the segment written by a run which failed to store the checkpoint is overwritten
+    Files.copy(LogAnalyzeJob.getEventFile(logFile), LogAnalyzeJob.getEventFile(logFile, 1));
+    new LogAnalyzeJob(ticketer, ticketNum).run();
+    assertEquals(AnalysisStatus.COMPLETED, ticketer.getStatus(ticketNum));
+    assertTrue(LogAnalyzeJob.getEventFile(logFile, 1).toFile().exists());
+    assertFalse(LogAnalyzeJob.getEventFile(logFile, 2).toFile().exists());
+    assertEquals(2, ticketer.getCheckpoint(ticketNum).getSegments());
+
+    final List<GcEvent> events = new CmsLogParser().parse(new File(LOG_FILE).toPath());
+    final LogAnalyzer analyzer = new LogAnalyzer(events);
+    assertEquals(events.size(), ticketer.getSummary(ticketNum).getEventCount());
+    assertEquals(log.length, ticketer.getCheckpoint(ticketNum).getOffset());
+    assertEquals(Summaries.analyze(analyzer.summarize(),
+        LogAnalyzer.DEFAULT_MEAN_LEVELS.toArray(new Double[0]),
+        LogAnalyzer.DEFAULT_OUTLIER_LEVELS.toArray(new Double[0]),
+        LogAnalyzer.DEFAULT_MAX_POINTS).getPausesList(),
+        ticketer.getResult(ticketNum).getPausesList());
+
+    // custom levels are analyzed exactly from the segments of the event file
+    assertEquals(analyzer.analyzeData(), LogAnalyzeJob.loadAnalyzer(logFile).analyzeData());
   }
 }
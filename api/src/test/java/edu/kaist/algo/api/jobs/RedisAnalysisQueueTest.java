@@ -0,0 +1,275 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fiftyonred.mock_jedis.MockJedis;
+import com.fiftyonred.mock_jedis.MockJedisPool;
+
+import edu.kaist.algo.api.metrics.ServerMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the RedisAnalysisQueue class with a MockJedis class extended with the list commands of
+ * the reliable queue, which MockJedis does not support.
+ */
+@RunWith(JUnit4.class)
+public class RedisAnalysisQueueTest {
+  private MockJedisPool jedisPool;
+  private QueueMockJedis jedis;
+
+  /**
+   * Stand-in of a redis server supporting the list commands of the reliable queue, the
+   * expiring leases and the scripts on the leases.
+   */
+  static class QueueMockJedis extends MockJedis {
+    private final Map<String, LinkedList<String>> lists = new HashMap<>();
+    private final Map<String, Long> expirations = new HashMap<>();
+    private final Map<String, String> leases = new HashMap<>();
+
+    QueueMockJedis() {
+      super("localhost");
+    }
+
+    private LinkedList<String> list(String key) {
+      return lists.computeIfAbsent(key, k -> new LinkedList<>());
+    }
+
+    @Override
+    public synchronized Long lpush(String key, String... values) {
+      for (String value : values) {
+        list(key).addFirst(value);
+      }
+      return (long) list(key).size();
+    }
+
+    @Override
+    public synchronized Long rpush(String key, String... values) {
+      list(key).addAll(Arrays.asList(values));
+      return (long) list(key).size();
+    }
+
+    @Override
+    public synchronized List<String> lrange(String key, long start, long end) {
+      final int size = list(key).size();
+      final int from = (int) (start < 0 ? size + start : start);
+      final int to = (int) Math.min(size, (end < 0 ? size + end : end) + 1);
+      return from < to ? new ArrayList<>(list(key).subList(from, to)) : new ArrayList<>();
+    }
+
+    @Override
+    public synchronized Long llen(String key) {
+      return (long) list(key).size();
+    }
+
+    @Override
+    public synchronized String brpoplpush(String source, String destination, int timeout) {
+      if (list(source).isEmpty()) {
+        return null;
+      }
+      final String value = list(source).removeLast();
+      list(destination).addFirst(value);
+      return value;
+    }
+
+    @Override
+    public synchronized Long lrem(String key, long count, String value) {
+      long removed = 0;
+      while (removed < count && list(key).remove(value)) {
+        removed++;
+      }
+      return removed;
+    }
+
+    @Override
+    public synchronized String set(String key, String value, String nxxx, String expx,
+                                   long time) {
+      if ("NX".equals(nxxx) && exists(key)) {
+        return null;
+      }
+      expirations.put(key, System.currentTimeMillis() + time);
+      leases.put(key, value);
+      return "OK";
+    }
+
+    @Override
+    public synchronized String get(String key) {
+      return exists(key) ? leases.get(key) : null;
+    }
+
+    @Override
+    public synchronized Object eval(String script, List<String> keys, List<String> args) {
+      final String owner = get(keys.get(0));
+      if (script.equals(RedisAnalysisQueue.COMPLETE_SCRIPT)) {
+        if (owner != null && !owner.equals(args.get(0))) {
+          return 0L;
+        }
+        del(keys.get(0));
+        lrem(keys.get(1), 1, args.get(1));
+        return 1L;
+      }
+      if (script.equals(RedisAnalysisQueue.RENEW_SCRIPT)) {
+        return args.get(0).equals(owner) ? pexpire(keys.get(0), Long.parseLong(args.get(1))) : 0L;
+      }
+      throw new UnsupportedOperationException(script);
+    }
+
+    @Override
+    public synchronized Long pexpire(String key, long milliseconds) {
+      if (!exists(key)) {
+        return 0L;
+      }
+      expirations.put(key, System.currentTimeMillis() + milliseconds);
+      return 1L;
+    }
+
+    @Override
+    public synchronized Boolean exists(String key) {
+      final Long expiration = expirations.get(key);
+      return expiration != null && expiration > System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized Long del(String key) {
+      leases.remove(key);
+      return expirations.remove(key) != null ? 1L : 0L;
+    }
+  }
+
+  /**
+   * Set up the mock redis server.
+   */
+  @Before
+  public void setUp() {
+    jedisPool = new MockJedisPool(new JedisPoolConfig(), "localhost");
+    jedis = new QueueMockJedis();
+    jedisPool.setClient(jedis);
+  }
+
+  @Test
+  public void take_returnTicketsInSubmittedOrder() throws Exception {
+    final RedisAnalysisQueue queue = new RedisAnalysisQueue(jedisPool);
+    queue.submit(1);
+    queue.submit(2);
+    // waiting in the queue already
+    queue.submit(1);
+
+    final AnalysisQueue.Lease first = queue.take(1, TimeUnit.SECONDS);
+    final AnalysisQueue.Lease second = queue.take(1, TimeUnit.SECONDS);
+    assertEquals(1, ticket(first));
+    assertEquals(2, ticket(second));
+    assertEquals(0, ticket(queue.take(1, TimeUnit.SECONDS)));
+    assertEquals(Arrays.asList("2", "1"), jedis.lrange(RedisAnalysisQueue.IN_PROGRESS, 0, -1));
+
+    queue.complete(first);
+    queue.complete(second);
+    assertTrue(jedis.lrange(RedisAnalysisQueue.IN_PROGRESS, 0, -1).isEmpty());
+    assertFalse(jedis.exists(RedisAnalysisQueue.LEASE + 1));
+  }
+
+  @Test
+  public void take_deferTicketInProgress() throws Exception {
+    final RedisAnalysisQueue queue = new RedisAnalysisQueue(jedisPool);
+    queue.submit(1);
+    final AnalysisQueue.Lease lease = queue.take(1, TimeUnit.SECONDS);
+    assertEquals(1, ticket(lease));
+
+    // submitted again while analyzed, e.g. by a followed log
+    queue.submit(1);
+    assertEquals(0, ticket(queue.take(1, TimeUnit.SECONDS)));
+    assertEquals(Arrays.asList("1"), jedis.lrange(RedisAnalysisQueue.QUEUE, 0, -1));
+
+    queue.complete(lease);
+    assertEquals(1, ticket(queue.take(1, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  public void requeueExpired_returnTicketsOfLostWorkers() throws Exception {
+    final RedisAnalysisQueue crashed = new RedisAnalysisQueue(jedisPool, 1);
+    crashed.submit(1);
+    crashed.submit(2);
+    assertEquals(1, ticket(crashed.take(1, TimeUnit.SECONDS)));
+    Thread.sleep(20);
+
+    final RedisAnalysisQueue queue = new RedisAnalysisQueue(jedisPool);
+    assertEquals(2, ticket(queue.take(1, TimeUnit.SECONDS)));
+    // the lease may have not been set yet on the first call
+    assertEquals(0, queue.requeueExpired());
+    assertEquals(1, queue.requeueExpired());
+    assertEquals(Arrays.asList("2"), jedis.lrange(RedisAnalysisQueue.IN_PROGRESS, 0, -1));
+
+    // analyzed again before the other tickets
+    queue.submit(3);
+    assertEquals(1, ticket(queue.take(1, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  public void complete_keepLeaseOfAnotherTake() throws Exception {
+    // the threads of a worker share the queue
+    final RedisAnalysisQueue queue = new RedisAnalysisQueue(jedisPool, 200);
+    queue.submit(1);
+    final AnalysisQueue.Lease paused = queue.take(1, TimeUnit.SECONDS);
+    assertEquals(1, paused.getTicket());
+    Thread.sleep(450);
+
+    assertEquals(0, queue.requeueExpired());
+    assertEquals(1, queue.requeueExpired());
+    final AnalysisQueue.Lease taken = queue.take(1, TimeUnit.SECONDS);
+    assertEquals(1, taken.getTicket());
+    assertNotEquals(paused.getToken(), taken.getToken());
+
+    // the paused thread resumes after its lease expired
+    queue.renew(paused);
+    queue.complete(paused);
+    assertEquals(taken.getToken(), jedis.get(RedisAnalysisQueue.LEASE + 1));
+    assertEquals(Arrays.asList("1"), jedis.lrange(RedisAnalysisQueue.IN_PROGRESS, 0, -1));
+
+    queue.renew(taken);
+    queue.complete(taken);
+    assertFalse(jedis.exists(RedisAnalysisQueue.LEASE + 1));
+    assertTrue(jedis.lrange(RedisAnalysisQueue.IN_PROGRESS, 0, -1).isEmpty());
+  }
+
+  @Test
+  public void take_recordWaitOfTickets() throws Exception {
+    final RedisAnalysisQueue queue = new RedisAnalysisQueue(jedisPool);
+    queue.submit(1);
+    queue.submit(2);
+    assertEquals(2, queue.size());
+
+    final long waits = ServerMetrics.QUEUE_WAIT.getCount();
+    assertEquals(1, ticket(queue.take(1, TimeUnit.SECONDS)));
+    assertEquals(1, queue.size());
+    assertEquals(waits + 1, ServerMetrics.QUEUE_WAIT.getCount());
+    assertNull(jedis.hget(RedisAnalysisQueue.SUBMITTED, "1"));
+  }
+
+  private static long ticket(AnalysisQueue.Lease lease) {
+    return lease != null ? lease.getTicket() : 0;
+  }
+}
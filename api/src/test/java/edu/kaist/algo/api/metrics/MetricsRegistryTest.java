@@ -0,0 +1,122 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the MetricsRegistry class and its exposition in the Prometheus text format.
+ */
+@RunWith(JUnit4.class)
+public class MetricsRegistryTest {
+  @Test
+  public void scrape_writeCountersAndGauges() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    final Counter bytes = registry.counter("test_bytes_total", "Bytes.");
+    final MetricFamily<Counter> errors =
+        registry.counters("test_errors_total", "Errors.", "method");
+    final Gauge inFlight = registry.gauge("test_in_flight", "In flight.");
+    registry.gauge("test_depth", "Depth.", () -> 7);
+
+    bytes.add(1024);
+    errors.labels("b").inc();
+    errors.labels("a\"").inc();
+    errors.labels("b").inc();
+    inFlight.inc();
+    inFlight.inc();
+    inFlight.dec();
+
+    assertEquals("# HELP test_bytes_total Bytes.\n"
+        + "# TYPE test_bytes_total counter\n"
+        + "test_bytes_total 1024\n"
+        + "# HELP test_errors_total Errors.\n"
+        + "# TYPE test_errors_total counter\n"
+        + "test_errors_total{method=\"a\\\"\"} 1\n"
+        + "test_errors_total{method=\"b\"} 2\n"
+        + "# HELP test_in_flight In flight.\n"
+        + "# TYPE test_in_flight gauge\n"
+        + "test_in_flight 1\n"
+        + "# HELP test_depth Depth.\n"
+        + "# TYPE test_depth gauge\n"
+        + "test_depth 7\n", registry.scrape());
+  }
+
+  @Test
+  public void scrape_writeCumulativeBuckets() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    final Histogram duration =
+        registry.histograms("test_seconds", "Duration.", "op").labels("get");
+    duration.observe(TimeUnit.MICROSECONDS.toNanos(100));
+    duration.observe(TimeUnit.MILLISECONDS.toNanos(3));
+    duration.observe(TimeUnit.MINUTES.toNanos(2));
+
+    final String exposition = registry.scrape();
+    assertTrue(exposition.contains("# TYPE test_seconds histogram\n"));
+    // the bounds are inclusive
+    assertTrue(exposition.contains("test_seconds_bucket{op=\"get\",le=\"0.0001\"} 1\n"));
+    assertTrue(exposition.contains("test_seconds_bucket{op=\"get\",le=\"0.0025\"} 1\n"));
+    assertTrue(exposition.contains("test_seconds_bucket{op=\"get\",le=\"0.005\"} 2\n"));
+    assertTrue(exposition.contains("test_seconds_bucket{op=\"get\",le=\"60\"} 2\n"));
+    assertTrue(exposition.contains("test_seconds_bucket{op=\"get\",le=\"+Inf\"} 3\n"));
+    assertTrue(exposition.contains("test_seconds_count{op=\"get\"} 3\n"));
+    assertEquals(3, duration.getCount());
+    assertEquals(120.0031, duration.getSumSeconds(), 1e-9);
+  }
+
+  @Test
+  public void register_returnRegisteredFamily() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    final Counter counter = registry.counter("test_total", "Test.");
+    assertSame(counter, registry.counter("test_total", "Test."));
+
+    registry.gauge("test_depth", "Depth.", () -> 1);
+    registry.gauge("test_depth", "Depth.", () -> 2);
+    assertTrue(registry.scrape().contains("test_depth 2\n"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void register_rejectAnotherType() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("test_total", "Test.");
+    registry.gauge("test_total", "Test.");
+  }
+
+  @Test
+  public void httpServer_serveExposition() throws IOException {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("test_total", "Test.").inc();
+    final MetricsHttpServer server = new MetricsHttpServer(0, registry);
+    server.start();
+    try {
+      final HttpURLConnection connection = (HttpURLConnection)
+          new URL("http://localhost:" + server.getPort() + "/metrics").openConnection();
+      assertEquals(200, connection.getResponseCode());
+      assertEquals(MetricsHttpServer.CONTENT_TYPE, connection.getContentType());
+      try (InputStream in = connection.getInputStream()) {
+        assertEquals(registry.scrape(), IOUtils.toString(in, StandardCharsets.UTF_8));
+      }
+    } finally {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import edu.kaist.algo.api.Ticketer;
+import edu.kaist.algo.service.AnalysisStatus;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the EmbeddedTicketStore class, which has to keep the data across restarts.
+ */
+@RunWith(JUnit4.class)
+public class EmbeddedTicketStoreTest {
+  private static final byte[] VALUE = "value".getBytes(StandardCharsets.UTF_8);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void reopen_restoreData() throws IOException {
+    final Path logFile = folder.getRoot().toPath().resolve("tickets.log");
+    EmbeddedTicketStore store = new EmbeddedTicketStore(logFile);
+    store.set("a", VALUE);
+    store.set("b", VALUE);
+    store.delete("b");
+    store.setField("h", "f1", VALUE);
+    store.setField("h", "f2", VALUE);
+    store.deleteField("h", "f1");
+    assertEquals(3, store.increment("c", 3));
+    assertEquals(2, store.incrementField("h", "clock", 2));
+    store.close();
+
+    store = new EmbeddedTicketStore(logFile);
+    assertArrayEquals(VALUE, store.get("a"));
+    assertNull(store.get("b"));
+    final List<byte[]> both = store.get(Arrays.asList("a", "b"));
+    assertArrayEquals(VALUE, both.get(0));
+    assertNull(both.get(1));
+    assertNull(store.getField("h", "f1"));
+    assertArrayEquals(VALUE, store.getField("h", "f2"));
+    assertEquals(2, store.getFields("h").size());
+    assertEquals(4, store.increment("c", 1));
+    assertEquals(3, store.incrementField("h", "clock", 1));
+    store.close();
+  }
+
+  @Test
+  public void reopen_dropTornRecord() throws IOException {
+    final Path logFile = folder.getRoot().toPath().resolve("tickets.log");
+    final EmbeddedTicketStore store = new EmbeddedTicketStore(logFile);
+    store.set("a", VALUE);
+    store.set("b", VALUE);
+    store.close();
+
+    // cuts the last record in the middle of the value, as a crash while writing would
+    final long size = Files.size(logFile);
+    Files.newByteChannel(logFile, StandardOpenOption.WRITE).truncate(size - 2).close();
+
+    final EmbeddedTicketStore reopened = new EmbeddedTicketStore(logFile);
+    assertArrayEquals(VALUE, reopened.get("a"));
+    assertNull(reopened.get("b"));
+    reopened.close();
+    assertTrue(Files.size(logFile) < size);
+  }
+
+  @Test
+  public void setField_rejectTooLongField() throws IOException {
+    final Path logFile = folder.getRoot().toPath().resolve("tickets.log");
+    EmbeddedTicketStore store = new EmbeddedTicketStore(logFile);
+    final char[] field = new char[70_000];
+    Arrays.fill(field, 'f');
+    try {
+      store.setField("h", new String(field), VALUE);
+      fail("A field longer than the log record allows should be rejected.");
+    } catch (IllegalArgumentException expected) {
+      // nothing is written
+    }
+    assertTrue(store.getFields("h").isEmpty());
+    store.set("a", VALUE);
+    store.close();
+
+    // the records after the rejected one are replayed
+    store = new EmbeddedTicketStore(logFile);
+    assertArrayEquals(VALUE, store.get("a"));
+    assertTrue(store.getFields("h").isEmpty());
+    store.close();
+  }
+
+  @Test
+  public void compact_dropOverwrittenRecords() throws IOException {
+    final Path logFile = folder.getRoot().toPath().resolve("tickets.log");
+    final EmbeddedTicketStore store = new EmbeddedTicketStore(logFile);
+    final byte[] large = new byte[1024];
+    for (int i = 0; i < 2048; i++) {
+      store.set("a", large);
+    }
+    final long size = Files.size(logFile);
+    store.compact();
+    assertTrue(Files.size(logFile) < size / 1000);
+    assertArrayEquals(large, store.get("a"));
+
+    // too small to compact again
+    store.set("a", VALUE);
+    final long compacted = Files.size(logFile);
+    store.compact();
+    assertEquals(compacted, Files.size(logFile));
+    store.close();
+  }
+
+  @Test
+  public void ticketer_keepTicketsAcrossRestarts() throws IOException {
+    final Path logFile = folder.getRoot().toPath().resolve("tickets.log");
+    Ticketer ticketer = new Ticketer(new EmbeddedTicketStore(logFile));
+    final long ticket = ticketer.issueTicket();
+    ticketer.setStatus(ticket, AnalysisStatus.COMPLETED);
+    ticketer.setLogFile(ticket, "example.log");
+    ticketer.setMeta(ticket, "example.log", 6778);
+    ticketer.closeTicketer();
+
+    ticketer = new Ticketer(new EmbeddedTicketStore(logFile));
+    assertEquals(AnalysisStatus.COMPLETED, ticketer.getStatus(ticket));
+    assertEquals("example.log", ticketer.getLogFile(ticket));
+    assertEquals("6778", ticketer.getMeta(ticket).get("meta_size"));
+    // the rest of the ticket block taken before the restart is skipped
+    assertEquals(ticket + Ticketer.TICKET_BLOCK_SIZE, ticketer.issueTicket());
+    ticketer.closeTicketer();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.api.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ticket store kept in memory only, for the load tests of the server without the cost of redis
+ * or of the log of the embedded store.
+ */
+public class MemoryTicketStore implements TicketStore {
+  private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+
+  @Override
+  public byte[] get(String key) {
+    return values.get(key);
+  }
+
+  @Override
+  public List<byte[]> get(List<String> keys) {
+    final List<byte[]> result = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      result.add(values.get(key));
+    }
+    return result;
+  }
+
+  @Override
+  public void set(String key, byte[] value) {
+    values.put(key, value);
+  }
+
+  @Override
+  public synchronized long increment(String key, long delta) {
+    final byte[] current = values.get(key);
+    final long counter = (current == null ? 0 : parseCounter(current)) + delta;
+    values.put(key, Long.toString(counter).getBytes(StandardCharsets.US_ASCII));
+    return counter;
+  }
+
+  private static long parseCounter(byte[] value) {
+    return Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+  }
+
+  @Override
+  public byte[] getField(String key, String field) {
+    final Map<String, byte[]> hash = hashes.get(key);
+    return hash != null ? hash.get(field) : null;
+  }
+
+  @Override
+  public Map<String, byte[]> getFields(String key) {
+    final Map<String, byte[]> hash = hashes.get(key);
+    return hash != null ? new HashMap<>(hash) : Collections.emptyMap();
+  }
+
+  @Override
+  public List<byte[]> getFields(String key, List<String> fields) {
+    final Map<String, byte[]> hash = hashes.getOrDefault(key, Collections.emptyMap());
+    final List<byte[]> result = new ArrayList<>(fields.size());
+    for (String field : fields) {
+      result.add(hash.get(field));
+    }
+    return result;
+  }
+
+  @Override
+  public void setField(String key, String field, byte[] value) {
+    hashes.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(field, value);
+  }
+
+  @Override
+  public void setFields(String key, Map<String, byte[]> fields) {
+    hashes.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).putAll(fields);
+  }
+
+  @Override
+  public synchronized long incrementField(String key, String field, long delta) {
+    final byte[] current = getField(key, field);
+    final long counter = (current == null ? 0 : parseCounter(current)) + delta;
+    setField(key, field, Long.toString(counter).getBytes(StandardCharsets.US_ASCII));
+    return counter;
+  }
+
+  @Override
+  public void deleteField(String key, String field) {
+    final Map<String, byte[]> hash = hashes.get(key);
+    if (hash != null) {
+      hash.remove(field);
+    }
+  }
+
+  @Override
+  public void delete(String key) {
+    values.remove(key);
+    hashes.remove(key);
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcLogSummary;
+import edu.kaist.algo.benchmarks.BenchmarkLogs;
+import edu.kaist.algo.model.GcEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis time against the number of events, on generated events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AnalyzeBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int eventCount;
+
+  private List<GcEvent> events;
+  private GcEventColumns columns;
+  private GcLogSummary summary;
+
+  /**
+   * Generates the events, and their columns and summary for the analyses from them.
+   */
+  @Setup
+  public void setUp() {
+    events = BenchmarkLogs.generateEvents(eventCount, 42);
+    columns = GcEventColumns.of(events);
+    summary = new LogAnalyzer(columns).summarize();
+  }
+
+  // from the events parsed from the log, including the conversion to the columns
+  @Benchmark
+  public GcAnalyzedData analyzeEvents() {
+    return new LogAnalyzer(events).analyzeData();
+  }
+
+  // from the columns stored by a previous analysis, as for another set of levels
+  @Benchmark
+  public GcAnalyzedData analyzeColumns() {
+    return new LogAnalyzer(columns).analyzeData();
+  }
+
+  @Benchmark
+  public GcLogSummary summarize() {
+    return new LogAnalyzer(columns).summarize();
+  }
+
+  // from the stored summary, as for appended logs and fleets
+  @Benchmark
+  public GcAnalyzedData analyzeSummary() {
+    return Summaries.analyze(summary, LogAnalyzer.DEFAULT_MEAN_LEVELS.toArray(new Double[0]),
+        LogAnalyzer.DEFAULT_OUTLIER_LEVELS.toArray(new Double[0]), LogAnalyzer.DEFAULT_MAX_POINTS);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.analyzer;
+
+import edu.kaist.algo.statistics.MeanRange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the statistics of the pause times against the number of pauses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatisticsBenchmark {
+  @Param({"100", "10000", "1000000"})
+  public int size;
+
+  private double[] pauseTimes;
+  private double mean;
+  private double stdDev;
+
+  /**
+   * Generates the log-normal pause times.
+   */
+  @Setup
+  public void setUp() {
+    final Random random = new Random(42);
+    pauseTimes = new double[size];
+    for (int i = 0; i < size; i++) {
+      pauseTimes[i] = 0.01 * Math.exp(random.nextGaussian() * 0.5);
+    }
+    mean = Statistics.getSampleMean(pauseTimes);
+    stdDev = Statistics.getSampleStdDev(pauseTimes, mean);
+  }
+
+  @Benchmark
+  public double sampleMean() {
+    return Statistics.getSampleMean(pauseTimes);
+  }
+
+  @Benchmark
+  public double sampleStdDev() {
+    return Statistics.getSampleStdDev(pauseTimes, mean);
+  }
+
+  // copies and sorts the data
+  @Benchmark
+  public double sampleMedian() {
+    return Statistics.getSampleMedian(pauseTimes);
+  }
+
+  @Benchmark
+  public MeanRange estimateMean() {
+    return Statistics.estimateMean(mean, stdDev, size, 0.05);
+  }
+
+  @Benchmark
+  public int[] outlierIndices() {
+    return Statistics.getOutlierIndices(pauseTimes, mean, stdDev, 0.1);
+  }
+
+  @Benchmark
+  public double grubbsCriticalValue() {
+    return Statistics.getGrubbsCriticalValue(size, 0.1);
+  }
+
+  @Benchmark
+  public double kolmogorovSmirnovPValue() {
+    return Statistics.getKolmogorovSmirnovPValue(0.05, size, size);
+  }
+}
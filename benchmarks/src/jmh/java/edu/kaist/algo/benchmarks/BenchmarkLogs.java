@@ -0,0 +1,103 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.benchmarks;
+
+import com.google.common.io.CharStreams;
+
+import edu.kaist.algo.model.GcEvent;
+import edu.kaist.algo.parser.CmsLogGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data of the benchmarks: the logs of the tests copied to temporary files, and generated logs and
+ * events.
+ */
+public final class BenchmarkLogs {
+  private BenchmarkLogs() {
+  }
+
+  /**
+   * Copies the log in the resources to a temporary file, repeated the given number of times to
+   * make a larger file. The file is deleted when the JVM exits.
+   *
+   * @param resource name of the log in the resources, e.g. hotspot_long.log
+   * @param repeat number of the copies of the log in the file
+   * @return path of the file
+   */
+  public static Path copyLog(String resource, int repeat) {
+    try {
+      final Path file = Files.createTempFile("benchmark-", ".log");
+      file.toFile().deleteOnExit();
+      try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+        for (int i = 0; i < repeat; i++) {
+          try (InputStream in = BenchmarkLogs.class.getResourceAsStream("/" + resource)) {
+            if (in == null) {
+              throw new IllegalArgumentException("No log in the resources : " + resource);
+            }
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+              out.write(buffer, 0, read);
+            }
+          }
+        }
+      }
+      return file;
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * Generates a CMS log of the given number of events to a temporary file. The file is deleted
+   * when the JVM exits.
+   *
+   * @param count number of the events
+   * @param seed seed of the log, the same seed giving the same log
+   * @return path of the file
+   */
+  public static Path generateLog(long count, long seed) {
+    try {
+      final Path file = Files.createTempFile("benchmark-", ".log");
+      file.toFile().deleteOnExit();
+      new CmsLogGenerator(seed).write(file, count);
+      return file;
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * Generates the events of a CMS log: minor GCs, CMS cycles with their concurrent phases, and
+   * occasional full GCs, as parsed from the log of {@link CmsLogGenerator}. The pause times are
+   * log-normal, with some outliers.
+   *
+   * @param count number of the events
+   * @param seed seed of the log, the same seed giving the same events
+   * @return the events in the order of the log
+   */
+  public static List<GcEvent> generateEvents(int count, long seed) {
+    final List<GcEvent> events = new ArrayList<>(count + 1);
+    try {
+      new CmsLogGenerator(seed).write(CharStreams.nullWriter(), count, events::add);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+    return events.subList(0, count);
+  }
+}
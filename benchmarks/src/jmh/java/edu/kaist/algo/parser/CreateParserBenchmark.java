@@ -0,0 +1,47 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import edu.kaist.algo.model.GcEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a parser, which is paid by every analysis on top of the parse of the file.
+ * The grammar is built once per thread, so the first line parsed by a new parser costs as much as
+ * the next ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateParserBenchmark {
+  private static final String LINE = "2.688: [GC (Allocation Failure) 2.688: [ParNew: "
+      + "27328K-&gt;3392K(30720K), 0.0110677 secs] 27328K-&gt;4114K(99008K), 0.0111929 secs] "
+      + "[Times: user=0.02 sys=0.00, real=0.02 secs] ";
+
+  @Benchmark
+  public CmsLogParser createParser() {
+    return new CmsLogParser();
+  }
+
+  @Benchmark
+  public GcEvent createParserAndParseLine() {
+    return new CmsLogParser().parseLine(LINE);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import edu.kaist.algo.benchmarks.BenchmarkLogs;
+import edu.kaist.algo.model.GcEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of parsing whole log files, as the analysis job does with a new parser for each
+ * file. The size of each file is printed in the setup, so that the throughput in MB/s is the
+ * number of operations per second times the size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseFileBenchmark {
+  @Param({"hotspot_short.log", "hotspot_long.log", "hotspot_pid6017.log"})
+  public String log;
+
+  // copies of the log in the file, for the files larger than the caches
+  @Param({"1", "20"})
+  public int repeat;
+
+  private Path file;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = BenchmarkLogs.copyLog(log, repeat);
+    System.out.printf("%n%s x %d : %.3f MB%n", log, repeat, Files.size(file) / 1e6);
+  }
+
+  @Benchmark
+  public List<GcEvent> parseFile() throws IOException {
+    return new CmsLogParser().parse(file, 0);
+  }
+}
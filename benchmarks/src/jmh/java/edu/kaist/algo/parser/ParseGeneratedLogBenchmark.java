@@ -0,0 +1,61 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import edu.kaist.algo.benchmarks.BenchmarkLogs;
+import edu.kaist.algo.model.GcEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of parsing generated logs far larger than the logs of the tests, each parse of a large log
+ * being long enough to be measured once.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParseGeneratedLogBenchmark {
+  @Param({"100000", "1000000"})
+  public long eventCount;
+
+  private Path file;
+
+  /**
+   * Generates the log, whose size is printed so that the time is comparable to the other logs.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    file = BenchmarkLogs.generateLog(eventCount, 42);
+    System.out.printf("%n%d events : %.3f MB%n", eventCount, Files.size(file) / 1e6);
+  }
+
+  @Benchmark
+  public List<GcEvent> parseFile() throws IOException {
+    return new CmsLogParser().parse(file, 0);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.kaist.algo.model.GcEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing one line of each event type. With -prof gc, the allocation per operation is
+ * the allocation per event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseLineBenchmark {
+  // lines of hotspot_long.log and hotspot_pid6017.log
+  private static final Map<String, String> LINES = ImmutableMap.<String, String>builder()
+      .put("PAR_NEW", "2.688: [GC (Allocation Failure) 2.688: [ParNew: 27328K-&gt;3392K(30720K), "
+          + "0.0110677 secs] 27328K-&gt;4114K(99008K), 0.0111929 secs] "
+          + "[Times: user=0.02 sys=0.00, real=0.02 secs] ")
+      .put("FULL_GC", "5.117: [Full GC (System.gc()) 5.117: [CMS: 8940K-&gt;7698K(68288K), "
+          + "0.0498885 secs] 14374K-&gt;7698K(99008K), [Metaspace: 20543K-&gt;20543K(1069056K)], "
+          + "0.0500363 secs] [Times: user=0.06 sys=0.01, real=0.05 secs] ")
+      .put("CMS_INIT_MARK", "5.167: [GC (CMS Initial Mark) [1 CMS-initial-mark: "
+          + "7698K(68288K)] 7698K(99008K), 0.0005296 secs] "
+          + "[Times: user=0.01 sys=0.00, real=0.00 secs] ")
+      .put("CMS_REMARK", "5.193: [GC (CMS Final Remark) [YG occupancy: 605 K (30720 K)]5.193: "
+          + "[Rescan (parallel) , 0.0006465 secs]5.194: [weak refs processing, 0.0000257 secs]"
+          + "5.194: [class unloading, 0.0050824 secs]5.199: [scrub symbol table, 0.0021696 secs]"
+          + "5.201: [scrub string table, 0.0005127 secs][1 CMS-remark: 7698K(68288K)] "
+          + "8304K(99008K), 0.0087687 secs] [Times: user=0.03 sys=0.00, real=0.01 secs] ")
+      .put("CMS_CONCURRENT", "5.208: [CMS-concurrent-sweep: 0.006/0.006 secs] "
+          + "[Times: user=0.01 sys=0.00, real=0.01 secs] ")
+      .put("OTHER", "<dependency_failed type='leaf_type' ctxk='java/util/zip/CRC32' "
+          + "witness='sun/util/calendar/ZoneInfoFile$Checksum' stamp='2.324'/>")
+      .build();
+
+  @Param({"PAR_NEW", "FULL_GC", "CMS_INIT_MARK", "CMS_REMARK", "CMS_CONCURRENT", "OTHER"})
+  public String eventType;
+
+  private CmsLogParser parser;
+  private String line;
+
+  @Setup
+  public void setUp() {
+    parser = new CmsLogParser();
+    line = LINES.get(eventType);
+  }
+
+  @Benchmark
+  public GcEvent parseLine() {
+    return parser.parseLine(line);
+  }
+}
@@ -11,10 +11,19 @@ package edu.kaist.algo.client;
 import io.grpc.ManagedChannel;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcComparison;
+import edu.kaist.algo.service.AnalysisStatus;
 import edu.kaist.algo.service.AnalyzedResult;
+import edu.kaist.algo.service.CompareInfo;
+import edu.kaist.algo.service.CompareResult;
+import edu.kaist.algo.service.FleetInfo;
+import edu.kaist.algo.service.FleetResult;
 import edu.kaist.algo.service.LogAnalysisGrpc;
 import edu.kaist.algo.service.TicketInfo;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Class to request analyzed data of log file.
  */
@@ -32,11 +41,66 @@ public class AnalysisDataRequester {
    * @return analyzed data
    */
   public GcAnalyzedData requestAnalysisData(long ticketNumber) {
-    TicketInfo ticketInfo = TicketInfo
+    return requestAnalysisData(ticketNumber, Collections.emptyList(), Collections.emptyList());
+  }
+
+  /**
+   * Request analyzed data with custom levels. Empty levels mean the default levels of the server.
+   *
+   * @param ticketNumber ticket number to request
+   * @param meanLevels levels to estimating mean
+   * @param outlierLevels levels to detect outliers
+   * @return analyzed data
+   */
+  public GcAnalyzedData requestAnalysisData(long ticketNumber, List<Double> meanLevels,
+                                            List<Double> outlierLevels) {
+    return requestAnalysisData(TicketInfo
         .newBuilder()
         .setTicketNumber(ticketNumber)
-        .build();
+        .addAllMeanLevels(meanLevels)
+        .addAllOutlierLevels(outlierLevels)
+        .build());
+  }
+
+  /**
+   * Request analyzed data with the analysis parameters in the ticket info.
+   *
+   * @param ticketInfo ticket number and analysis parameters to request
+   * @return analyzed data
+   */
+  public GcAnalyzedData requestAnalysisData(TicketInfo ticketInfo) {
     AnalyzedResult result = blockingStub.requestAnalyzedData(ticketInfo);
+    if (!result.getMeta().isEmpty()) {
+      System.out.println(LogUtil.beautifyMeta(result.getMeta()));
+    }
+
+    switch (result.getStatus()) {
+      case NOT_READY:
+      case ANALYZING:
+        // fall through
+      case ERROR:
+        System.out.println(result.getMessage());
+        return null;
+      case COMPLETED:
+        break;
+      default:
+        System.out.println("Unknown status received.");
+        return null;
+    }
+    return result.getResultData();
+  }
+
+  /**
+   * Request the analyzed data merged from the logs of the tickets, e.g. of a fleet of JVMs.
+   *
+   * @param fleetInfo ticket numbers and analysis levels to request
+   * @return analyzed data of the fleet
+   */
+  public GcAnalyzedData requestFleetData(FleetInfo fleetInfo) {
+    FleetResult result = blockingStub.requestFleetData(fleetInfo);
+    if (result.getMissingTicketsCount() > 0) {
+      System.out.println("Tickets not analyzed yet : " + result.getMissingTicketsList());
+    }
 
     switch (result.getStatus()) {
       case NOT_READY:
@@ -51,6 +115,22 @@ public class AnalysisDataRequester {
         System.out.println("Unknown status received.");
         return null;
     }
+    System.out.println("Merged Tickets : " + result.getTicketCount());
     return result.getResultData();
   }
+
+  /**
+   * Request the comparison of the analyzed data of two tickets.
+   *
+   * @param compareInfo tickets and quantile levels to compare
+   * @return comparison of the target with the base, or null if not available
+   */
+  public GcComparison requestComparison(CompareInfo compareInfo) {
+    CompareResult result = blockingStub.compareAnalyses(compareInfo);
+    if (result.getStatus() != AnalysisStatus.COMPLETED) {
+      System.out.println(result.getMessage());
+      return null;
+    }
+    return result.getComparison();
+  }
 }
@@ -26,9 +26,20 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcComparison;
+import edu.kaist.algo.service.CompareInfo;
+import edu.kaist.algo.service.FleetInfo;
+import edu.kaist.algo.service.ResultSection;
+import edu.kaist.algo.service.TicketInfo;
 
 public class GcToolClient {
   private final ManagedChannel channel;
@@ -62,7 +73,9 @@ public class GcToolClient {
     public enum ClientAction {
       NONE,
       UPLOAD_FILE,
-      REQUEST_ANALYZED_DATA
+      REQUEST_ANALYZED_DATA,
+      REQUEST_FLEET_DATA,
+      COMPARE_ANALYSES
     }
 
     private ClientAction action;
@@ -71,6 +84,16 @@ public class GcToolClient {
     private String host;
     private long requestTicket;
     private boolean beautifyResult;
+    private List<Double> meanLevels;
+    private List<Double> outlierLevels;
+    private int maxPoints;
+    private long appendTicket;
+    private boolean follow;
+    private List<Long> fleetTickets;
+    private List<Long> compareTickets;
+    private List<Double> quantileLevels;
+    private boolean summaryOnly;
+    private boolean timings;
 
     public ClientAction getAction() {
       return this.action;
@@ -96,6 +119,46 @@ public class GcToolClient {
       return beautifyResult;
     }
 
+    public List<Double> getMeanLevels() {
+      return meanLevels;
+    }
+
+    public List<Double> getOutlierLevels() {
+      return outlierLevels;
+    }
+
+    public int getMaxPoints() {
+      return maxPoints;
+    }
+
+    public long getAppendTicket() {
+      return appendTicket;
+    }
+
+    public boolean getFollow() {
+      return follow;
+    }
+
+    public List<Long> getFleetTickets() {
+      return fleetTickets;
+    }
+
+    public List<Long> getCompareTickets() {
+      return compareTickets;
+    }
+
+    public List<Double> getQuantileLevels() {
+      return quantileLevels;
+    }
+
+    public boolean getSummaryOnly() {
+      return summaryOnly;
+    }
+
+    public boolean getTimings() {
+      return timings;
+    }
+
     private ParsedOptions(ParsedOptionBuilder builder) {
       this.action = builder.action;
       this.port = builder.port;
@@ -103,6 +166,16 @@ public class GcToolClient {
       this.host = builder.host;
       this.requestTicket = builder.requestTicket;
       this.beautifyResult = builder.beautifyResult;
+      this.meanLevels = builder.meanLevels;
+      this.outlierLevels = builder.outlierLevels;
+      this.maxPoints = builder.maxPoints;
+      this.appendTicket = builder.appendTicket;
+      this.follow = builder.follow;
+      this.fleetTickets = builder.fleetTickets;
+      this.compareTickets = builder.compareTickets;
+      this.quantileLevels = builder.quantileLevels;
+      this.summaryOnly = builder.summaryOnly;
+      this.timings = builder.timings;
     }
 
     public static class ParsedOptionBuilder {
@@ -112,6 +185,16 @@ public class GcToolClient {
       private String host;
       private long requestTicket;
       private boolean beautifyResult;
+      private List<Double> meanLevels = Collections.emptyList();
+      private List<Double> outlierLevels = Collections.emptyList();
+      private int maxPoints;
+      private long appendTicket;
+      private boolean follow;
+      private List<Long> fleetTickets = Collections.emptyList();
+      private List<Long> compareTickets = Collections.emptyList();
+      private List<Double> quantileLevels = Collections.emptyList();
+      private boolean summaryOnly;
+      private boolean timings;
 
       public void setPort(int port) {
         this.port = port;
@@ -135,6 +218,48 @@ public class GcToolClient {
         this.beautifyResult = beautify;
       }
 
+      public void setMeanLevels(List<Double> meanLevels) {
+        this.meanLevels = meanLevels;
+      }
+
+      public void setOutlierLevels(List<Double> outlierLevels) {
+        this.outlierLevels = outlierLevels;
+      }
+
+      public void setMaxPoints(int maxPoints) {
+        this.maxPoints = maxPoints;
+      }
+
+      public void setAppendTicket(long ticket) {
+        this.appendTicket = ticket;
+      }
+
+      public void setFollow(boolean follow) {
+        this.follow = follow;
+      }
+
+      public void setFleetTickets(List<Long> tickets) {
+        this.action = ClientAction.REQUEST_FLEET_DATA;
+        this.fleetTickets = tickets;
+      }
+
+      public void setCompareTickets(List<Long> tickets) {
+        this.action = ClientAction.COMPARE_ANALYSES;
+        this.compareTickets = tickets;
+      }
+
+      public void setQuantileLevels(List<Double> quantileLevels) {
+        this.quantileLevels = quantileLevels;
+      }
+
+      public void setSummaryOnly(boolean summaryOnly) {
+        this.summaryOnly = summaryOnly;
+      }
+
+      public void setTimings(boolean timings) {
+        this.timings = timings;
+      }
+
       public ParsedOptions build() {
         return new ParsedOptions(this);
       }
@@ -178,11 +303,88 @@ public class GcToolClient {
         .desc("beautify analyzed data")
         .required(false)
         .build();
+    Option meanLevels = Option.builder()
+        .longOpt("mean-levels")
+        .hasArg(true)
+        .argName("levels")
+        .desc("give comma-separated levels to estimate mean (e.g. 0.01,0.05)")
+        .required(false)
+        .build();
+    Option outlierLevels = Option.builder()
+        .longOpt("outlier-levels")
+        .hasArg(true)
+        .argName("levels")
+        .desc("give comma-separated levels to detect outliers (e.g. 0.01,0.1)")
+        .required(false)
+        .build();
+    Option maxPoints = Option.builder()
+        .longOpt("max-points")
+        .hasArg(true)
+        .argName("points")
+        .desc("give the maximum number of points of each time series (at least 3)")
+        .required(false)
+        .build();
+    Option append = Option.builder()
+        .longOpt("append")
+        .hasArg(true)
+        .argName("ticket_to_append")
+        .desc("give ticket number to append the file to its analyzed log")
+        .required(false)
+        .build();
+    Option follow = Option.builder()
+        .longOpt("follow")
+        .hasArg(false)
+        .desc("keep uploading the file as it is written, until interrupted")
+        .required(false)
+        .build();
+    Option fleet = Option.builder()
+        .longOpt("fleet")
+        .hasArg(true)
+        .argName("tickets")
+        .desc("give comma-separated ticket numbers to get data merged from their logs")
+        .required(false)
+        .build();
+    Option compare = Option.builder()
+        .longOpt("compare")
+        .hasArg(true)
+        .argName("base,target")
+        .desc("give two ticket numbers to compare the analyzed data of the target with the base")
+        .required(false)
+        .build();
+    Option quantileLevels = Option.builder()
+        .longOpt("quantile-levels")
+        .hasArg(true)
+        .argName("levels")
+        .desc("give comma-separated levels of pause time quantiles to compare (e.g. 0.5,0.99)")
+        .required(false)
+        .build();
+    Option summaryOnly = Option.builder()
+        .longOpt("summary-only")
+        .hasArg(false)
+        .desc("request the pause statistics only, without the outliers and time series")
+        .required(false)
+        .build();
+    Option timings = Option.builder()
+        .longOpt("timings")
+        .hasArg(false)
+        .desc("print the timings of the upload and the analysis of the ticket as well")
+        .required(false)
+        .build();
     options.addOption(host);
     options.addOption(port);
     options.addOption(filename);
     options.addOption(requestData);
     options.addOption(beautifyData);
+    options.addOption(meanLevels);
+    options.addOption(outlierLevels);
+    options.addOption(maxPoints);
+    options.addOption(append);
+    options.addOption(follow);
+    options.addOption(fleet);
+    options.addOption(compare);
+    options.addOption(quantileLevels);
+    options.addOption(summaryOnly);
+    options.addOption(timings);
 
     return options;
   }
@@ -231,13 +433,73 @@ public class GcToolClient {
           System.err.println("Must give a proper existing file name.");
           return null;
         }
-      } else if (cmd.hasOption("rd")) {
+
+        if (cmd.hasOption("append")) {
+          try {
+            optionBuilder.setAppendTicket(Long.parseLong(cmd.getOptionValue("append")));
+          } catch (NumberFormatException nfe) {
+            System.err.println("Must give a number to option 'ticket_to_append'");
+            return null;
+          }
+        }
+
+        if (cmd.hasOption("follow")) {
+          if (cmd.hasOption("append")) {
+            System.err.println("Cannot follow and append a file at once.");
+            return null;
+          }
+          optionBuilder.setFollow(true);
+        }
+      } else if (cmd.hasOption("rd") || cmd.hasOption("fleet")) {
         try {
-          long ticket = Long.parseLong(cmd.getOptionValue("rd"));
-          optionBuilder.setRequestTicket(ticket);
+          if (cmd.hasOption("rd")) {
+            optionBuilder.setRequestTicket(Long.parseLong(cmd.getOptionValue("rd")));
+            optionBuilder.setSummaryOnly(cmd.hasOption("summary-only"));
+            optionBuilder.setTimings(cmd.hasOption("timings"));
+          } else {
+            optionBuilder.setFleetTickets(parseTickets(cmd.getOptionValue("fleet")));
+          }
           optionBuilder.setBeautifyResult(cmd.hasOption("beautify"));
         } catch (NumberFormatException nfe) {
-          System.err.println("Must give a number to option 'ticket_to_request'");
+          System.err.println("Must give numbers to option 'ticket_to_request' or 'tickets'");
+          return null;
+        }
+
+        try {
+          optionBuilder.setMeanLevels(parseLevels(cmd.getOptionValue("mean-levels")));
+          optionBuilder.setOutlierLevels(parseLevels(cmd.getOptionValue("outlier-levels")));
+        } catch (NumberFormatException nfe) {
+          System.err.println("Must give comma-separated numbers to option 'levels'");
+          return null;
+        }
+
+        if (cmd.hasOption("max-points")) {
+          int maxPoints;
+          try {
+            maxPoints = Integer.parseInt(cmd.getOptionValue("max-points"));
+          } catch (NumberFormatException nfe) {
+            System.err.println("Must give a number to option 'points'");
+            return null;
+          }
+          if (maxPoints < 3) {
+            System.err.println("Must give a number larger than 2 to option 'points'");
+            return null;
+          }
+          optionBuilder.setMaxPoints(maxPoints);
+        }
+      } else if (cmd.hasOption("compare")) {
+        try {
+          final List<Long> tickets = parseTickets(cmd.getOptionValue("compare"));
+          if (tickets.size() != 2) {
+            System.err.println("Must give two ticket numbers to option 'base,target'");
+            return null;
+          }
+          optionBuilder.setCompareTickets(tickets);
+          optionBuilder.setQuantileLevels(parseLevels(cmd.getOptionValue("quantile-levels")));
+          optionBuilder.setBeautifyResult(cmd.hasOption("beautify"));
+        } catch (NumberFormatException nfe) {
+          System.err.println("Must give comma-separated numbers to option 'base,target' and "
+              + "'levels'");
           return null;
         }
       }
@@ -252,6 +514,24 @@ public class GcToolClient {
     return null;
   }
 
+  // parses comma-separated levels, null means the default levels of the server
+  private static List<Double> parseLevels(String levels) {
+    if (levels == null) {
+      return Collections.emptyList();
+    }
+    return Arrays.stream(levels.split(","))
+        .map(String::trim)
+        .map(Double::valueOf)
+        .collect(Collectors.toList());
+  }
+
+  private static List<Long> parseTickets(String tickets) {
+    return Arrays.stream(tickets.split(","))
+        .map(String::trim)
+        .map(Long::valueOf)
+        .collect(Collectors.toList());
+  }
+
   // printing help
   private static void help(Options options) {
     HelpFormatter formatter = new HelpFormatter();
@@ -268,11 +548,27 @@ public class GcToolClient {
       return;
     }
 
-    // give the filename to server to open on server
-    long ticket = logUploader.uploadInfo(parsedOptions.getFilename());
+    // give the filename to server to open on server, or the ticket to append to
+    long ticket = parsedOptions.getAppendTicket();
+    long offset = 0;
+    if (ticket > 0) {
+      offset = logUploader.appendInfo(parsedOptions.getFilename(), ticket);
+      if (offset < 0) {
+        System.out.println("Cannot append to the log of the ticket!");
+        return;
+      }
+      if (offset > logfile.length()) {
+        // uploads nothing, which releases the ticket
+        System.out.println("File is shorter than the log of the ticket!");
+        offset = logfile.length();
+      }
+    } else {
+      ticket = logUploader.uploadInfo(parsedOptions.getFilename());
+    }
 
-    // Send and upload the file
+    // Send and upload the file, skipping the part already on the server
     try (FileInputStream inputStream = FileUtils.openInputStream(logfile)) {
+      inputStream.getChannel().position(offset);
       logUploader.uploadLog(ticket, inputStream);
     } catch (InterruptedException ie) {
       System.out.println("File upload failed due to interruption.");
@@ -281,9 +577,47 @@ public class GcToolClient {
     }
   }
 
+  private void followLog(ParsedOptions parsedOptions) {
+    final LogFollower follower = new LogFollower(new LogUploader(channel),
+        Paths.get(parsedOptions.getFilename()));
+
+    // stop following on interruption (e.g. Ctrl-C), after sending what was read
+    final CountDownLatch finished = new CountDownLatch(1);
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        follower.stop();
+        try {
+          finished.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    System.out.println("***Following " + parsedOptions.getFilename() + "***");
+    try {
+      follower.follow();
+    } catch (InterruptedException ie) {
+      System.out.println("File follow stopped due to interruption.");
+    } catch (IOException ioe) {
+      System.out.println("Could not follow the file : " + ioe.getMessage());
+    } finally {
+      finished.countDown();
+    }
+  }
+
   private void requestAnalyzedData(ParsedOptions parsedOptions) {
     AnalysisDataRequester requester = new AnalysisDataRequester(channel);
-    GcAnalyzedData result = requester.requestAnalysisData(parsedOptions.getRequestTicket());
+    GcAnalyzedData result = requester.requestAnalysisData(TicketInfo.newBuilder()
+        .setTicketNumber(parsedOptions.getRequestTicket())
+        .addAllMeanLevels(parsedOptions.getMeanLevels())
+        .addAllOutlierLevels(parsedOptions.getOutlierLevels())
+        .setMaxPoints(parsedOptions.getMaxPoints())
+        .addAllSections(parsedOptions.getSummaryOnly()
+            ? Collections.singletonList(ResultSection.SUMMARY) : Collections.emptyList())
+        .setWithMeta(parsedOptions.getTimings())
+        .build());
 
     if (parsedOptions.getBeautifyResult()) {
       System.out.println(LogUtil.beautifyAnalyzedData(result));
@@ -292,6 +626,36 @@ public class GcToolClient {
     }
   }
 
+  private void requestFleetData(ParsedOptions parsedOptions) {
+    AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+    GcAnalyzedData result = requester.requestFleetData(FleetInfo.newBuilder()
+        .addAllTicketNumbers(parsedOptions.getFleetTickets())
+        .addAllMeanLevels(parsedOptions.getMeanLevels())
+        .addAllOutlierLevels(parsedOptions.getOutlierLevels())
+        .build());
+
+    if (parsedOptions.getBeautifyResult()) {
+      System.out.println(LogUtil.beautifyAnalyzedData(result));
+    } else {
+      System.out.println(result);
+    }
+  }
+
+  private void compareAnalyses(ParsedOptions parsedOptions) {
+    AnalysisDataRequester requester = new AnalysisDataRequester(channel);
+    GcComparison result = requester.requestComparison(CompareInfo.newBuilder()
+        .setBaseTicket(parsedOptions.getCompareTickets().get(0))
+        .setTargetTicket(parsedOptions.getCompareTickets().get(1))
+        .addAllQuantileLevels(parsedOptions.getQuantileLevels())
+        .build());
+
+    if (parsedOptions.getBeautifyResult() && result != null) {
+      System.out.println(LogUtil.beautifyComparison(result));
+    } else {
+      System.out.println(result);
+    }
+  }
+
   /**
    * Main method of cli-client.
    *
@@ -316,11 +680,21 @@ public class GcToolClient {
 
     switch (parsedOptions.getAction()) {
       case UPLOAD_FILE:
-        client.uploadLog(parsedOptions);
+        if (parsedOptions.getFollow()) {
+          client.followLog(parsedOptions);
+        } else {
+          client.uploadLog(parsedOptions);
+        }
         break;
       case REQUEST_ANALYZED_DATA:
         client.requestAnalyzedData(parsedOptions);
         break;
+      case REQUEST_FLEET_DATA:
+        client.requestFleetData(parsedOptions);
+        break;
+      case COMPARE_ANALYSES:
+        client.compareAnalyses(parsedOptions);
+        break;
       default:
         help(options);
         break;
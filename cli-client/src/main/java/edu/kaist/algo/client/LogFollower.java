@@ -0,0 +1,208 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.client;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import com.google.protobuf.ByteString;
+
+import edu.kaist.algo.service.UploadRequest;
+
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a log file written by a running JVM (e.g. with -XX:+LogVMOutput), and streams the
+ * contents to the server as they are written.
+ *
+ * <p>The follower sleeps on a WatchService of the directory instead of polling the file, and
+ * sends the contents written in a linger period together. The contents are read straight from
+ * the file into one fixed-size buffer, so the memory does not depend on the size of the log.
+ *
+ * <p>When the file is rotated (replaced by another file), the rest of the old file is sent and
+ * the new file is followed with a new ticket. A truncated file (e.g. by a restarted JVM) is
+ * followed with a new ticket from the beginning.
+ */
+public class LogFollower {
+  private static final int BATCH_SIZE = 64 * 1024;
+  // the contents written during this period are sent together
+  private static final long LINGER_MILLIS = 1_000;
+  // wakes up without file events too, since some file systems do not report modifications
+  private static final long POLL_MILLIS = 10_000;
+  private static final long FINISH_SECONDS = 5;
+
+  private final LogUploader uploader;
+  private final Path path;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BATCH_SIZE);
+  private volatile boolean stopped;
+  private volatile WatchService watcher;
+  private int generation;
+
+  /**
+   * Constructor of LogFollower.
+   *
+   * @param uploader the uploader to send the contents with
+   * @param path path of the log file to follow
+   */
+  public LogFollower(LogUploader uploader, Path path) {
+    this.uploader = uploader;
+    this.path = path.toAbsolutePath();
+  }
+
+  /**
+   * Follows the log until {@link #stop()} is called.
+   *
+   * @throws IOException if the log cannot be read
+   * @throws InterruptedException if interrupted while waiting for the log
+   */
+  public void follow() throws IOException, InterruptedException {
+    try (WatchService watchService = path.getFileSystem().newWatchService()) {
+      watcher = watchService;
+      path.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      while (!stopped) {
+        if (Files.exists(path)) {
+          followFile();
+        } else {
+          await();
+        }
+      }
+    } catch (ClosedWatchServiceException cwse) {
+      // stopped while registering
+    }
+  }
+
+  /**
+   * Stops following the log. The contents read so far are sent before {@link #follow()} returns.
+   */
+  public void stop() {
+    stopped = true;
+    final WatchService watchService = watcher;
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException ioe) {
+        System.err.println("Could not close the watch service.");
+      }
+    }
+  }
+
+  // follows one file until it is rotated or truncated, with its own ticket
+  private void followFile() throws IOException, InterruptedException {
+    final String filename = generation == 0
+        ? path.getFileName().toString() : path.getFileName() + "." + generation;
+    generation++;
+    final long ticket = uploader.uploadInfo(filename, true);
+    if (ticket <= 0) {
+      System.out.println("Cannot follow the file as " + filename + "!");
+      stopped = true;
+      return;
+    }
+
+    final CountDownLatch finishLatch = new CountDownLatch(1);
+    final StreamObserver<UploadRequest> stream = uploader.followLog(ticket, finishLatch);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final Object fileKey = fileKey();
+      long position = send(channel, 0, ticket, stream);
+      while (await()) {
+        if (fileKey == null || !Objects.equals(fileKey, fileKey())) {
+          System.out.println("File is rotated, following the new file.");
+          send(channel, position, ticket, stream);
+          break;
+        }
+        if (channel.size() < position) {
+          System.out.println("File is truncated, following from the beginning.");
+          break;
+        }
+        position = send(channel, position, ticket, stream);
+      }
+      if (stopped) {
+        send(channel, position, ticket, stream);
+      }
+    } finally {
+      stream.onCompleted();
+      finishLatch.await(FINISH_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  // sends the contents from the position to the current end of the file
+  private long send(FileChannel channel, long position, long ticket,
+                    StreamObserver<UploadRequest> stream) throws IOException {
+    final long size = channel.size();
+    while (position < size) {
+      buffer.clear();
+      buffer.limit((int) Math.min(BATCH_SIZE, size - position));
+      final int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      buffer.flip();
+      stream.onNext(UploadRequest.newBuilder()
+          .setId(ticket)
+          .setContents(ByteString.copyFrom(buffer))
+          .build());
+      position += read;
+    }
+    return position;
+  }
+
+  // identifies the file at the path, or null if there is no file
+  private Object fileKey() throws IOException {
+    try {
+      final BasicFileAttributes attributes =
+          Files.readAttributes(path, BasicFileAttributes.class);
+      return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    } catch (NoSuchFileException nsfe) {
+      return null;
+    }
+  }
+
+  // waits for a change of the file, then lingers to batch the following writes.
+  // returns false if stopped.
+  private boolean await() throws InterruptedException {
+    try {
+      final long deadline = System.currentTimeMillis() + POLL_MILLIS;
+      long remaining;
+      while (!stopped && (remaining = deadline - System.currentTimeMillis()) > 0) {
+        final WatchKey key = watcher.poll(remaining, TimeUnit.MILLISECONDS);
+        if (key == null) {
+          break;
+        }
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          changed |= event.context() == null || path.getFileName().equals(event.context());
+        }
+        key.reset();
+        if (changed) {
+          break;
+        }
+      }
+      Thread.sleep(LINGER_MILLIS);
+    } catch (ClosedWatchServiceException cwse) {
+      // stopped
+    }
+    return !stopped;
+  }
+}
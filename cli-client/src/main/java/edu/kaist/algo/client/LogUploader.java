@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * A log file uploader for the client.
@@ -58,7 +59,18 @@ public class LogUploader {
    * @return the ticket number
    */
   public long uploadInfo(String filename) {
-    FileInfo fileinfo = FileInfo.newBuilder().setFilename(filename).build();
+    return uploadInfo(filename, false);
+  }
+
+  /**
+   * Send meta-information about the file to be uploaded or followed.
+   * Receives the success status and file identification number.
+   * @param filename indicate the file name to be stored on server.
+   * @param follow whether the file is followed by followLog() instead of uploaded
+   * @return the ticket number
+   */
+  public long uploadInfo(String filename, boolean follow) {
+    FileInfo fileinfo = FileInfo.newBuilder().setFilename(filename).setFollow(follow).build();
     long ticketNum = 0;
 
     try {
@@ -72,6 +84,29 @@ public class LogUploader {
     return ticketNum;
   }
 
+  /**
+   * Requests to append to the log of an analyzed ticket.
+   * Receives the size of the log already stored on the server, from which the contents
+   * should be uploaded.
+   * @param filename indicate the file name of the log to append.
+   * @param ticketNum the ticket number of the analyzed log
+   * @return the size of the stored log, or -1 if the log cannot be appended
+   */
+  public long appendInfo(String filename, long ticketNum) {
+    FileInfo fileinfo = FileInfo.newBuilder().setFilename(filename).setAppendTo(ticketNum).build();
+    long offset = -1;
+
+    try {
+      FileInfoResult result = blockingStub.infoUpload(fileinfo);
+      offset = result.getOffset();
+      System.out.println("File to append on opened on server : " + result.getSuccessful());
+      System.out.println("Stored File Size : " + offset);
+    } catch (StatusRuntimeException event) {
+      logger.error("infoUpload failed : ", event.getStatus());
+    }
+    return offset;
+  }
+
   /**
    * Creates a responseObserver that can be used in the server,
    * and uses an uploadObserver to stream file contents to the server until it is empty.
@@ -136,6 +171,42 @@ public class LogUploader {
     uploadObserver.onCompleted();
   }
 
+  /**
+   * Opens a long-lived stream to send the contents of a log still being written.
+   * The server re-analyzes the log as the contents arrive, and the stream is closed by
+   * calling onCompleted() of the returned observer.
+   *
+   * @param ticketNum the ticket number for file identification
+   * @param finishLatch latch counted down when the server closes the stream
+   * @return the observer to send the contents with
+   */
+  public StreamObserver<UploadRequest> followLog(long ticketNum, CountDownLatch finishLatch) {
+    StreamObserver<UploadResult> responseObserver = new StreamObserver<UploadResult>() {
+      @Override
+      public void onNext(UploadResult result) {
+        System.out.println("***Follow Result Summary***");
+        System.out.println("Successful : " + result.getSuccessful());
+        System.out.println("File ID : " + ticketNum);
+        System.out.println("Total Received File Size : " + result.getFilesize());
+      }
+
+      @Override
+      public void onError(Throwable thrown) {
+        Status status = Status.fromThrowable(thrown);
+        System.err.println("***Log Follow Failed" + status.toString());
+        finishLatch.countDown();
+      }
+
+      @Override
+      public void onCompleted() {
+        System.out.println("***Finished logfile follow***");
+        finishLatch.countDown();
+      }
+    };
+
+    return asyncStub.logFollow(responseObserver);
+  }
+
   /**
    * Looks for the file given the filepath.
    * @param filepath the path of the file to upload.
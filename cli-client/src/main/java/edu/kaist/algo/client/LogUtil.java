@@ -9,9 +9,12 @@
 package edu.kaist.algo.client;
 
 import edu.kaist.algo.analysis.GcAnalyzedData;
+import edu.kaist.algo.analysis.GcComparison;
 import edu.kaist.algo.analysis.GcConcurrentStat;
+import edu.kaist.algo.analysis.GcPauseComparison;
 import edu.kaist.algo.analysis.GcPauseOutliers;
 import edu.kaist.algo.analysis.GcPauseStat;
+import edu.kaist.algo.analysis.GcValueChange;
 import edu.kaist.algo.model.GcEvent;
 
 import com.jakewharton.fliptables.FlipTableConverters;
@@ -19,6 +22,8 @@ import com.jakewharton.fliptables.FlipTableConverters;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Util class for GC Log.
@@ -39,6 +44,18 @@ public class LogUtil {
   private static final String MAX_HEADER = "- Max\n";
   private static final String GC_EVENT_FORMAT = "%s.%s: Paused %s sec\n";
   private static final String OUTLIERS_HEADER_FORMAT = "- Outliers %s%%\n";
+  private static final String COMPARISON_RESULT_TITLE = "======STW COMPARISON======\n";
+  private static final String OVERHEAD_FORMAT = "Overhead : %s%%\n";
+  private static final String TYPE_HEADER = "Type";
+  private static final String MEAN_CHANGE_HEADER = "Mean";
+  private static final String QUANTILE_HEADER_FORMAT = "P%s";
+  private static final String KS_HEADER = "KS Statistic";
+  private static final String P_VALUE_HEADER = "P-Value";
+  private static final String CHANGE_FORMAT = "%s -> %s (%s%%)";
+  private static final String META_RESULT_TITLE = "======PIPELINE======\n";
+  private static final String FIELD_HEADER = "Field";
+  private static final String VALUE_HEADER = "Value";
+  private static final String QUEUE_WAIT_FIELD = "queue_wait_ms";
 
   /**
    * return beautified analysis result.
@@ -140,4 +157,91 @@ public class LogUtil {
 
     return output.toString();
   }
+
+  /**
+   * return beautified comparison of two analysis results.
+   *
+   * @param comparison comparison to beautify
+   * @return beautified String
+   */
+  public static String beautifyComparison(GcComparison comparison) {
+    DecimalFormat headerDf = new DecimalFormat("0",
+        DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+    headerDf.setMaximumFractionDigits(1);
+
+    DecimalFormat dataDf = new DecimalFormat("0",
+        DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+    dataDf.setMaximumFractionDigits(5);
+
+    int quantileCount = comparison.getPausesList().stream()
+        .mapToInt(GcPauseComparison::getQuantilesCount).max().orElse(0);
+    String[] header = new String[5 + quantileCount];
+    header[0] = TYPE_HEADER;
+    header[1] = COUNT_HEADER;
+    header[2] = MEAN_CHANGE_HEADER;
+    header[3 + quantileCount] = KS_HEADER;
+    header[4 + quantileCount] = P_VALUE_HEADER;
+
+    Object[][] data = new Object[comparison.getPausesCount()][header.length];
+    for (int row = 0; row < comparison.getPausesCount(); row++) {
+      GcPauseComparison pause = comparison.getPauses(row);
+      data[row][0] = pause.getType().toString();
+      data[row][1] = formatChange(pause.getCount(), dataDf);
+      data[row][2] = pause.hasMean() ? formatChange(pause.getMean(), dataDf) : "";
+      for (int i = 0; i < quantileCount; i++) {
+        if (i < pause.getQuantilesCount()) {
+          header[3 + i] = String.format(QUANTILE_HEADER_FORMAT,
+              headerDf.format(pause.getQuantiles(i).getLevel() * 100));
+          data[row][3 + i] = formatChange(pause.getQuantiles(i).getPauseTime(), dataDf);
+        } else {
+          data[row][3 + i] = "";
+        }
+      }
+      data[row][3 + quantileCount] = dataDf.format(pause.getKsStatistic());
+      data[row][4 + quantileCount] = dataDf.format(pause.getPValue());
+    }
+
+    return new StringBuilder()
+        .append(COMPARISON_RESULT_TITLE)
+        .append(String.format(OVERHEAD_FORMAT, formatChange(comparison.getOverhead(), dataDf)))
+        .append(FlipTableConverters.fromObjects(header, data))
+        .append('\n')
+        .toString();
+  }
+
+  /**
+   * return beautified meta-information of a ticket, with the timings of its upload and analysis.
+   * The wait in the analysis queue is derived from the end of the upload and the start of the
+   * analysis.
+   *
+   * @param meta meta-information to beautify
+   * @return beautified String
+   */
+  public static String beautifyMeta(Map<String, String> meta) {
+    final Map<String, String> fields = new TreeMap<>(meta);
+    try {
+      final long waitMillis = Long.parseLong(meta.get("analysis_started_at"))
+          - Long.parseLong(meta.get("upload_completed_at"));
+      if (waitMillis >= 0) {
+        fields.put(QUEUE_WAIT_FIELD, Long.toString(waitMillis));
+      }
+    } catch (NumberFormatException nfe) {
+      // not uploaded or not analyzed yet
+    }
+
+    final String[] header = {FIELD_HEADER, VALUE_HEADER};
+    final Object[][] data = new Object[fields.size()][];
+    int row = 0;
+    for (Map.Entry<String, String> field : fields.entrySet()) {
+      data[row++] = new Object[] {field.getKey(), field.getValue()};
+    }
+    return META_RESULT_TITLE + FlipTableConverters.fromObjects(header, data);
+  }
+
+  private static String formatChange(GcValueChange change, DecimalFormat df) {
+    DecimalFormat percentDf = new DecimalFormat("+0.0;-0.0",
+        DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+    return String.format(CHANGE_FORMAT, df.format(change.getBase()), df.format(change.getTarget()),
+        percentDf.format(change.getRelativeChange() * 100));
+  }
 }
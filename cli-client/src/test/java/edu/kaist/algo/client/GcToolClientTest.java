@@ -19,6 +19,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Arrays;
+
 /**
  * Tests the functionality of parsing arguments for the client.
  */
@@ -86,6 +88,84 @@ public class GcToolClientTest {
     assertEquals(GcToolClient.ParsedOptions.ClientAction.REQUEST_ANALYZED_DATA,
         parsedopt.getAction());
 
+    // working options, custom analysis levels
+    args = new String[] {"-p", "50051", "-rd", "1", "--mean-levels", "0.01, 0.2",
+        "--outlier-levels", "0.05"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNotNull(parsedopt);
+    assertEquals(Arrays.asList(0.01, 0.2), parsedopt.getMeanLevels());
+    assertEquals(Arrays.asList(0.05), parsedopt.getOutlierLevels());
+
+    // invalid analysis levels
+    args = new String[] {"-p", "50051", "-rd", "1", "--mean-levels", "0.01,high"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNull(parsedopt);
+
+    // working options, point budget of time series
+    args = new String[] {"-p", "50051", "-rd", "1", "--max-points", "500"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNotNull(parsedopt);
+    assertEquals(500, parsedopt.getMaxPoints());
+
+    // invalid point budget
+    args = new String[] {"-p", "50051", "-rd", "1", "--max-points", "2"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNull(parsedopt);
+
+    // working options, append to the log of a ticket
+    args = new String[] {"-p", "50051", "-f", "logfile.log", "--append", "3"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNotNull(parsedopt);
+    assertEquals(3, parsedopt.getAppendTicket());
+    assertEquals(GcToolClient.ParsedOptions.ClientAction.UPLOAD_FILE,
+        parsedopt.getAction());
+
+    // invalid ticket to append
+    args = new String[] {"-p", "50051", "-f", "logfile.log", "--append", "last"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNull(parsedopt);
+
+    // working options, follow the file as it is written
+    args = new String[] {"-p", "50051", "-f", "logfile.log", "--follow"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNotNull(parsedopt);
+    assertTrue(parsedopt.getFollow());
+    assertEquals(GcToolClient.ParsedOptions.ClientAction.UPLOAD_FILE,
+        parsedopt.getAction());
+
+    // cannot follow and append at once
+    args = new String[] {"-p", "50051", "-f", "logfile.log", "--follow", "--append", "3"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNull(parsedopt);
+
+    // working options, data merged from the logs of a fleet
+    args = new String[] {"-p", "50051", "--fleet", "1, 2,3", "--beautify"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNotNull(parsedopt);
+    assertEquals(Arrays.asList(1L, 2L, 3L), parsedopt.getFleetTickets());
+    assertTrue(parsedopt.getBeautifyResult());
+    assertEquals(GcToolClient.ParsedOptions.ClientAction.REQUEST_FLEET_DATA,
+        parsedopt.getAction());
+
+    // invalid fleet tickets
+    args = new String[] {"-p", "50051", "--fleet", "1,two"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNull(parsedopt);
+
+    // working options, comparison of two tickets
+    args = new String[] {"-p", "50051", "--compare", "1,2", "--quantile-levels", "0.5,0.99"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNotNull(parsedopt);
+    assertEquals(Arrays.asList(1L, 2L), parsedopt.getCompareTickets());
+    assertEquals(Arrays.asList(0.5, 0.99), parsedopt.getQuantileLevels());
+    assertEquals(GcToolClient.ParsedOptions.ClientAction.COMPARE_ANALYSES,
+        parsedopt.getAction());
+
+    // comparison needs two tickets
+    args = new String[] {"-p", "50051", "--compare", "1,2,3"};
+    parsedopt = GcToolClient.parseOptions(options, args);
+    assertNull(parsedopt);
+
     // working options, implicit host = localhost, no file option
     args = new String[] {"-p", "50051"};
     parsedopt = GcToolClient.parseOptions(options, args);
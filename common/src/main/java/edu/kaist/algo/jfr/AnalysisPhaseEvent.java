@@ -0,0 +1,33 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Phase of the analysis of the events of a log, e.g. the statistics of the pauses. Created by
+ * {@link FlightRecorder} only.
+ */
+@Name("edu.kaist.algo.AnalysisPhase")
+@Label("Analysis Phase")
+@Category({"GCTool", "Analysis"})
+@StackTrace(false)
+public class AnalysisPhaseEvent extends jdk.jfr.Event {
+  @Label("Phase")
+  String phase;
+
+  @Label("Events")
+  long events;
+
+  AnalysisPhaseEvent() {
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Write of a chunk of an uploaded log to its file. Created by {@link FlightRecorder} only.
+ */
+@Name("edu.kaist.algo.ChunkWrite")
+@Label("Log Chunk Write")
+@Category({"GCTool", "Upload"})
+@StackTrace(false)
+public class ChunkWriteEvent extends jdk.jfr.Event {
+  @Label("Ticket")
+  long ticket;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  ChunkWriteEvent() {
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.jfr;
+
+/**
+ * Begins and commits the custom Java Flight Recorder events of GCTool, e.g. the parse of a log.
+ *
+ * <p>The events are recorded with the JVM events of a recording, e.g. started by
+ * {@code -XX:StartFlightRecording}. Without a recording, an event is a check of a flag.
+ *
+ * <p>The JVMs without the {@code jdk.jfr} API, e.g. OpenJDK 8 before 8u262, never load the event
+ * classes: every {@code begin} method returns null there, and every {@code commit} method ignores
+ * null. So the callers refer to the events only by these methods.
+ */
+public final class FlightRecorder {
+  private static final boolean AVAILABLE = isAvailable();
+
+  private FlightRecorder() {
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightRecorder.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether this JVM records the events.
+   *
+   * @return true if the {@code jdk.jfr} API is available
+   */
+  public static boolean isEnabled() {
+    return AVAILABLE;
+  }
+
+  /**
+   * Begins the event of an upload stream.
+   *
+   * @return the event, or null without the {@code jdk.jfr} API
+   */
+  public static UploadEvent beginUpload() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    final UploadEvent event = new UploadEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commits the event of an upload stream, if it is enabled.
+   *
+   * @param event the event, or null
+   * @param method the name of the RPC method
+   * @param ticket the ticket of the log
+   * @param bytes the number of the received bytes
+   * @param chunks the number of the received chunks
+   * @param successful whether the stream is completed, not failed
+   */
+  public static void commitUpload(UploadEvent event, String method, long ticket, long bytes,
+                                  int chunks, boolean successful) {
+    if (event == null || !event.shouldCommit()) {
+      return;
+    }
+    event.method = method;
+    event.ticket = ticket;
+    event.bytes = bytes;
+    event.chunks = chunks;
+    event.successful = successful;
+    event.commit();
+  }
+
+  /**
+   * Begins the event of a write of a chunk.
+   *
+   * @return the event, or null without the {@code jdk.jfr} API
+   */
+  public static ChunkWriteEvent beginChunkWrite() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    final ChunkWriteEvent event = new ChunkWriteEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commits the event of a write of a chunk, if it is enabled.
+   *
+   * @param event the event, or null
+   * @param ticket the ticket of the log
+   * @param bytes the size of the chunk
+   */
+  public static void commitChunkWrite(ChunkWriteEvent event, long ticket, long bytes) {
+    if (event == null || !event.shouldCommit()) {
+      return;
+    }
+    event.ticket = ticket;
+    event.bytes = bytes;
+    event.commit();
+  }
+
+  /**
+   * Begins the event of a parse of a log file.
+   *
+   * @return the event, or null without the {@code jdk.jfr} API
+   */
+  public static ParseEvent beginParse() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    final ParseEvent event = new ParseEvent();
+    event.startNanos = System.nanoTime();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commits the event of a parse of a log file, if it is enabled.
+   *
+   * @param event the event, or null
+   * @param file the parsed file
+   * @param bytes the number of the parsed bytes
+   * @param lines the number of the scanned lines
+   * @param unmatchedLines the number of the lines matching no event
+   * @param events the number of the parsed events
+   */
+  public static void commitParse(ParseEvent event, String file, long bytes, long lines,
+                                 long unmatchedLines, long events) {
+    if (event == null || !event.shouldCommit()) {
+      return;
+    }
+    final long nanos = System.nanoTime() - event.startNanos;
+    event.file = file;
+    event.bytes = bytes;
+    event.lines = lines;
+    event.unmatchedLines = unmatchedLines;
+    event.events = events;
+    event.linesPerSecond = nanos > 0 ? lines * 1e9 / nanos : 0;
+    event.commit();
+  }
+
+  /**
+   * Begins the event of a phase of an analysis.
+   *
+   * @return the event, or null without the {@code jdk.jfr} API
+   */
+  public static AnalysisPhaseEvent beginAnalysisPhase() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    final AnalysisPhaseEvent event = new AnalysisPhaseEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commits the event of a phase of an analysis, if it is enabled.
+   *
+   * @param event the event, or null
+   * @param phase the name of the phase
+   * @param events the number of the analyzed events
+   */
+  public static void commitAnalysisPhase(AnalysisPhaseEvent event, String phase, long events) {
+    if (event == null || !event.shouldCommit()) {
+      return;
+    }
+    event.phase = phase;
+    event.events = events;
+    event.commit();
+  }
+
+  /**
+   * Begins the event of an operation on the ticket store.
+   *
+   * @return the event, or null without the {@code jdk.jfr} API
+   */
+  public static StoreOperationEvent beginStoreOperation() {
+    if (!AVAILABLE) {
+      return null;
+    }
+    final StoreOperationEvent event = new StoreOperationEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commits the event of an operation on the ticket store, if it is enabled.
+   *
+   * @param event the event, or null
+   * @param operation the redis command of the operation
+   * @param key the key of the operation, or null for the operations on many keys
+   */
+  public static void commitStoreOperation(StoreOperationEvent event, String operation,
+                                          String key) {
+    if (event == null || !event.shouldCommit()) {
+      return;
+    }
+    event.operation = operation;
+    event.key = key;
+    event.commit();
+  }
+}
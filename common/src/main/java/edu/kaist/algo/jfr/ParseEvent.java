@@ -0,0 +1,50 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parse of a log file, or of the part appended since the previous parse. Created by
+ * {@link FlightRecorder} only.
+ */
+@Name("edu.kaist.algo.Parse")
+@Label("Log Parse")
+@Category({"GCTool", "Analysis"})
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+  @Label("File")
+  String file;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Lines")
+  long lines;
+
+  @Label("Unmatched Lines")
+  long unmatchedLines;
+
+  @Label("Events")
+  long events;
+
+  @Label("Lines per Second")
+  double linesPerSecond;
+
+  // not recorded, for the lines per second
+  transient long startNanos;
+
+  ParseEvent() {
+  }
+}
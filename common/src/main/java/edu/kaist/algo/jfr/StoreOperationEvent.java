@@ -0,0 +1,32 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Operation on the ticket store, e.g. a redis command. Created by {@link FlightRecorder} only.
+ */
+@Name("edu.kaist.algo.StoreOperation")
+@Label("Ticket Store Operation")
+@Category({"GCTool", "Store"})
+@StackTrace(false)
+public class StoreOperationEvent extends jdk.jfr.Event {
+  @Label("Operation")
+  String operation;
+
+  @Label("Key")
+  String key;
+
+  StoreOperationEvent() {
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Upload stream of a log, from its start to its end. Created by {@link FlightRecorder} only.
+ */
+@Name("edu.kaist.algo.Upload")
+@Label("Log Upload")
+@Description("Stream of the contents of a log uploaded or followed by a client")
+@Category({"GCTool", "Upload"})
+@StackTrace(false)
+public class UploadEvent extends jdk.jfr.Event {
+  @Label("Method")
+  String method;
+
+  @Label("Ticket")
+  long ticket;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Chunks")
+  int chunks;
+
+  @Label("Successful")
+  boolean successful;
+
+  UploadEvent() {
+  }
+}
@@ -8,7 +8,6 @@
 
 package edu.kaist.algo.parser;
 
-import org.apache.commons.lang3.StringUtils;
 import org.parboiled.BaseParser;
 import org.parboiled.Rule;
 import org.parboiled.annotations.BuildParseTree;
@@ -157,7 +156,7 @@ public class CmsGcLogRule extends BaseParser<Object> {
   Rule Size() {
     return Sequence(
         Digits(),
-        push(Long.valueOf(match())),
+        push(matchFixedPoint()),
         WhiteSpace(), "K "
     );
   }
@@ -176,7 +175,7 @@ public class CmsGcLogRule extends BaseParser<Object> {
   Rule TimeDouble() {
     return Sequence(
         Sequence(Digits(), ".", Digits()),
-        push(Double.valueOf(match())),
+        push(matchDouble()),
         Optional(" secs")
     );
   }
@@ -186,7 +185,7 @@ public class CmsGcLogRule extends BaseParser<Object> {
   Rule TimeLong() {
     return Sequence(
         Sequence(Digits(), ".", Digits()),
-        push(Long.valueOf(StringUtils.remove(match(), ".")))
+        push(matchFixedPoint())
     );
   }
 
@@ -211,6 +210,15 @@ public class CmsGcLogRule extends BaseParser<Object> {
         : String(string);
   }
 
+  // The numbers are parsed from the input buffer, since they are most of the matches of a line.
+  protected Long matchFixedPoint() {
+    return Decimals.parseFixedPoint(getContext().getInputBuffer(), matchStart(), matchEnd());
+  }
+
+  protected Double matchDouble() {
+    return Decimals.parseDouble(getContext().getInputBuffer(), matchStart(), matchEnd());
+  }
+
   protected Double popAsDouble() {
     return (Double) pop();
   }
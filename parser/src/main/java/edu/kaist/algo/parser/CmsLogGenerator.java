@@ -0,0 +1,592 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import edu.kaist.algo.model.GcEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * The <code>CmsLogGenerator</code> writes synthetic CMS GC logs in the format of
+ * -XX:+LogVMOutput, of any size, for the scale tests and the benchmarks of the parser.
+ *
+ * <p>The log follows a timeline of the VM thread doing the pauses (minor GCs, CMS initial marks
+ * and remarks, full GCs), the CMS thread doing the concurrent phases between them, and the
+ * compiler thread writing unrelated lines, each section preceded by its writer thread tag. A full
+ * GC during a concurrent phase is a concurrent mode failure, whose line is split by the CMS thread
+ * finishing the phase as in the real logs. The pause times are log-normal, with occasional
+ * outliers.
+ *
+ * <p>The same seed and settings give the same log. The log is written as it is generated, and the
+ * events the parser should find in it are given to a listener in the same order, so that neither
+ * is held in memory.
+ */
+public class CmsLogGenerator {
+  private static final int VM_THREAD = 11779;
+  private static final int CMS_THREAD = 11267;
+  private static final int COMPILER_THREAD = 3079;
+  private static final String[] CONCURRENT_PHASES = {
+      "CMS-concurrent-mark",
+      "CMS-concurrent-preclean",
+      "CMS-concurrent-abortable-preclean",
+      "CMS-concurrent-sweep",
+      "CMS-concurrent-reset"
+  };
+  private static final int ABORTABLE_PRECLEAN = 2;
+  private static final int SWEEP = 3;
+  private static final String[] DEPENDENCIES = {
+      "type='leaf_type' ctxk='java/util/ArrayList' witness='com/sun/istack/FinalArrayList'",
+      "type='leaf_type' ctxk='java/io/File' witness='org/apache/derby/impl/io/DirFile'",
+      "type='unique_concrete_method' ctxk='java/util/HashMap' "
+          + "x='java/util/HashMap put (Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;' "
+          + "witness='java/util/LinkedHashMap'",
+      "type='abstract_with_unique_concrete_subtype' ctxk='sun/misc/Resource' "
+          + "x='sun/misc/URLClassPath$JarLoader$2' witness='sun/misc/URLClassPath$FileLoader$1'"
+  };
+  private static final String METASPACE = "[Metaspace: 60965K-&gt;60965K(1105920K)]";
+
+  // sizes of the generations in KB, as in the logs of -Xmx100m
+  private static final long YOUNG_CAPACITY = 30_720;
+  private static final long OLD_CAPACITY = 68_288;
+  private static final long HEAP_CAPACITY = YOUNG_CAPACITY + OLD_CAPACITY;
+  private static final long SURVIVOR_CAPACITY = 3_392;
+
+  // pause times are written in 0.1 microseconds, the Times in 10 milliseconds, and the times of
+  // the concurrent phases in milliseconds, so that the values of the events are what the parser
+  // reads from the text
+  private static final double PAUSE_UNIT = 1e7;
+  private static final double TIMES_UNIT = 1e2;
+  private static final double CONCURRENT_UNIT = 1e3;
+
+  private final long seed;
+  private long pauseInterval = 200;
+  private double minorGcPause = 0.01;
+  private double fullGcPause = 0.2;
+  private double pauseSigma = 0.5;
+  private double outlierRate = 0.001;
+  private double outlierFactor = 10;
+  private int minorGcsPerCycle = 20;
+  private double fullGcRate = 0.005;
+  private double noiseRate = 0.05;
+
+  public CmsLogGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Sets the interval between the pauses of the VM thread. Each interval is random between the
+   * given interval and twice of it.
+   *
+   * @param pauseInterval interval in milliseconds <font color=orange>(should be positive)</font>
+   * @return this generator
+   */
+  public CmsLogGenerator setPauseInterval(long pauseInterval) {
+    if (pauseInterval <= 0) {
+      throw new IllegalArgumentException("Pause interval should be positive.");
+    }
+    this.pauseInterval = pauseInterval;
+    return this;
+  }
+
+  /**
+   * Sets the log-normal distribution of the pause times. The CMS initial marks and remarks take
+   * a fifth and the same of the minor GCs.
+   *
+   * @param minorGcPause median pause time of the minor GCs in seconds
+   * @param fullGcPause median pause time of the full GCs in seconds
+   * @param sigma standard deviation of the logarithm of the pause times
+   *              <font color=orange>(the times should be positive, the sigma not negative)</font>
+   * @return this generator
+   */
+  public CmsLogGenerator setPauseTimes(double minorGcPause, double fullGcPause, double sigma) {
+    if (minorGcPause <= 0 || fullGcPause <= 0 || sigma < 0) {
+      throw new IllegalArgumentException(
+          "Pause times should be positive, and sigma should not be negative.");
+    }
+    this.minorGcPause = minorGcPause;
+    this.fullGcPause = fullGcPause;
+    this.pauseSigma = sigma;
+    return this;
+  }
+
+  /**
+   * Sets the outliers of the pause times, which are the pauses multiplied by the given factor.
+   *
+   * @param rate probability of a pause to be an outlier
+   *             <font color=orange>(should be between 0 and 1)</font>
+   * @param factor multiplier of the pause time of the outliers
+   *               <font color=orange>(should be positive)</font>
+   * @return this generator
+   */
+  public CmsLogGenerator setOutliers(double rate, double factor) {
+    checkRate(rate);
+    if (factor <= 0) {
+      throw new IllegalArgumentException("Outlier factor should be positive.");
+    }
+    this.outlierRate = rate;
+    this.outlierFactor = factor;
+    return this;
+  }
+
+  /**
+   * Sets the number of the minor GCs before a CMS cycle begins with an initial mark.
+   *
+   * @param minorGcsPerCycle number of the minor GCs <font color=orange>(should be positive)</font>
+   * @return this generator
+   */
+  public CmsLogGenerator setMinorGcsPerCycle(int minorGcsPerCycle) {
+    if (minorGcsPerCycle <= 0) {
+      throw new IllegalArgumentException("Minor GCs per cycle should be positive.");
+    }
+    this.minorGcsPerCycle = minorGcsPerCycle;
+    return this;
+  }
+
+  /**
+   * Sets the probability of a pause of the VM thread to be a full GC. The full GCs during the
+   * concurrent phases are concurrent mode failures, which make the split lines.
+   *
+   * @param fullGcRate probability of the full GCs
+   *                   <font color=orange>(should be between 0 and 1)</font>
+   * @return this generator
+   */
+  public CmsLogGenerator setFullGcRate(double fullGcRate) {
+    checkRate(fullGcRate);
+    this.fullGcRate = fullGcRate;
+    return this;
+  }
+
+  /**
+   * Sets the probability of the compiler thread writing a line between the pauses.
+   *
+   * @param noiseRate probability of the lines <font color=orange>(should be between 0 and 1)</font>
+   * @return this generator
+   */
+  public CmsLogGenerator setNoiseRate(double noiseRate) {
+    checkRate(noiseRate);
+    this.noiseRate = noiseRate;
+    return this;
+  }
+
+  /**
+   * Writes a log of the given number of events to the file.
+   *
+   * @param path path of the log file, overwritten if it exists
+   * @param eventCount number of the events
+   * @return number of the events written, which may exceed the given number by one
+   * @throws IOException if the file cannot be written
+   */
+  public long write(Path path, long eventCount) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      return write(writer, eventCount, e -> { });
+    }
+  }
+
+  /**
+   * Writes a log of the given number of events, giving each event to the listener after the line
+   * that completes it is written. The writer is neither buffered nor closed by the generator.
+   *
+   * @param out writer of the log
+   * @param eventCount number of the events
+   * @param listener listener of the events the parser should find in the log
+   * @return number of the events written, which may exceed the given number by one
+   * @throws IOException if the log cannot be written
+   */
+  public long write(Writer out, long eventCount, Consumer<GcEvent> listener)
+      throws IOException {
+    return new Timeline(out, listener).write(eventCount);
+  }
+
+  private static void checkRate(double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException("Rate should be between 0 and 1.");
+    }
+  }
+
+  // state of one log being written
+  private class Timeline {
+    private final Random random = new Random(seed);
+    private final Writer out;
+    private final Consumer<GcEvent> listener;
+    private final StringBuilder line = new StringBuilder(512);
+
+    private long eventsWritten;
+    private int writer = -1;
+    private long old = OLD_CAPACITY / 10;
+    private long nextPause = 1_000;
+    private int minorGcs;
+
+    // concurrent phase in progress, or -1 out of the CMS cycles
+    private int phase = -1;
+    private boolean phaseStarted;
+    private long nextConcurrent = Long.MAX_VALUE;
+    private long phaseStart;
+
+    Timeline(Writer out, Consumer<GcEvent> listener) {
+      this.out = out;
+      this.listener = listener;
+    }
+
+    long write(long eventCount) throws IOException {
+      out.write("<?xml version='1.0' encoding='UTF-8'?>\n"
+          + "<hotspot_log version='160 1' process='" + seed + "' time_ms='1462188097262'>\n"
+          + "<tty>\n");
+      long time = 0;
+      while (eventsWritten < eventCount) {
+        if (nextConcurrent <= nextPause) {
+          time = nextConcurrent;
+          concurrentStep(time);
+        } else {
+          time = nextPause;
+          if (random.nextDouble() < noiseRate) {
+            switchWriter(COMPILER_THREAD);
+            line.append("<dependency_failed ")
+                .append(DEPENDENCIES[random.nextInt(DEPENDENCIES.length)]).append(" stamp='");
+            appendTimestamp(time);
+            writeLine("'/>");
+          }
+          final long pause = pause(time);
+          nextPause = time + pause + pauseInterval + nextLong(pauseInterval);
+        }
+      }
+      final StringBuilder end = new StringBuilder();
+      appendFixed(end, time, 3);
+      out.write("<tty_done stamp='" + end + "'/>\n</tty>\n"
+          + "<hotspot_log_done stamp='" + end + "'/>\n</hotspot_log>\n");
+      return eventsWritten;
+    }
+
+    // writes the pause of the VM thread at the time, and returns its length in milliseconds
+    private long pause(long time) throws IOException {
+      if (phase < 0 && minorGcs >= minorGcsPerCycle) {
+        minorGcs = 0;
+        final long pause = initialMark(time);
+        phase = 0;
+        phaseStarted = false;
+        nextConcurrent = time + pause + 1;
+        return pause;
+      }
+      if (random.nextDouble() < fullGcRate) {
+        return phaseStarted ? concurrentModeFailure(time) : fullGc(time);
+      }
+      minorGcs++;
+      return minorGc(time);
+    }
+
+    private long minorGc(long time) throws IOException {
+      final long pause = pauseTicks(minorGcPause);
+      final long youngBefore = YOUNG_CAPACITY - nextLong(YOUNG_CAPACITY / 50);
+      final long youngAfter = SURVIVOR_CAPACITY - nextLong(SURVIVOR_CAPACITY / 10);
+      final long promoted = Math.min(nextLong(OLD_CAPACITY / 30), OLD_CAPACITY - 1 - old);
+      final long heapBefore = old + youngBefore;
+      old += promoted;
+      final long heapAfter = old + youngAfter;
+
+      switchWriter(VM_THREAD);
+      appendTimestamp(time);
+      line.append(": [GC (Allocation Failure) ");
+      appendTimestamp(time);
+      line.append(": [ParNew: ");
+      appendUsage(youngBefore, youngAfter, YOUNG_CAPACITY);
+      line.append(", ");
+      appendFixed(line, pause - pause / 20, 7);
+      line.append(" secs] ");
+      appendUsage(heapBefore, heapAfter, HEAP_CAPACITY);
+      final GcEvent.Builder event = pauseEvent(time, GcEvent.LogType.MINOR_GC, pause)
+          .setTypeDetail("GC (Allocation Failure); ParNew")
+          .setYoungUsageBefore(youngBefore)
+          .setYoungUsageAfter(youngAfter)
+          .setYoungCapacity(YOUNG_CAPACITY)
+          .setHeapUsageBefore(heapBefore)
+          .setHeapUsageAfter(heapAfter)
+          .setHeapCapacity(HEAP_CAPACITY);
+      line.append(", ");
+      endPause(event, pause);
+      return millis(pause);
+    }
+
+    private long fullGc(long time) throws IOException {
+      final long pause = pauseTicks(fullGcPause);
+      switchWriter(VM_THREAD);
+      appendTimestamp(time);
+      line.append(": [Full GC (System.gc()) ");
+      appendTimestamp(time);
+      line.append(": [CMS: ");
+      final GcEvent.Builder event = collectOld(time, nextLong(YOUNG_CAPACITY), pause,
+          "Full GC (System.gc()); CMS; Metaspace");
+      endPause(event, pause);
+      return millis(pause);
+    }
+
+    // the first half of the line is written before the CMS thread finishes the phase
+    private long concurrentModeFailure(long time) throws IOException {
+      final long pause = pauseTicks(fullGcPause);
+      final long youngBefore = YOUNG_CAPACITY - nextLong(YOUNG_CAPACITY / 50);
+      final String typeDetail;
+      switchWriter(VM_THREAD);
+      appendTimestamp(time);
+      if (random.nextBoolean()) {
+        line.append(": [GC (Allocation Failure) ");
+        appendTimestamp(time);
+        line.append(": [ParNew: ");
+        appendUsage(youngBefore, youngBefore, YOUNG_CAPACITY);
+        line.append(", 0.0000493 secs]");
+        appendTimestamp(time);
+        typeDetail = "GC (Allocation Failure); ParNew; CMS (concurrent mode failure); Metaspace";
+      } else {
+        line.append(": [Full GC (Allocation Failure) ");
+        appendTimestamp(time);
+        typeDetail = "Full GC (Allocation Failure); CMS (concurrent mode failure); Metaspace";
+      }
+      writeLine(": [CMS");
+
+      endPhase(time);
+      phase = -1;
+      phaseStarted = false;
+      nextConcurrent = Long.MAX_VALUE;
+
+      switchWriter(VM_THREAD);
+      line.append(" (concurrent mode failure): ");
+      final GcEvent.Builder event = collectOld(time, youngBefore, pause, typeDetail);
+      endPause(event, pause);
+      return millis(pause);
+    }
+
+    // appends the collection of the old gen and the heap of a full GC, with the metaspace
+    private GcEvent.Builder collectOld(long time, long youngBefore, long pause,
+                                       String typeDetail) {
+      final long oldBefore = old;
+      old = old / 2 + nextLong(old / 4);
+      appendUsage(oldBefore, old, OLD_CAPACITY);
+      line.append(", ");
+      appendFixed(line, pause - pause / 50, 7);
+      line.append(" secs] ");
+      final long heapBefore = oldBefore + youngBefore;
+      appendUsage(heapBefore, old, HEAP_CAPACITY);
+      line.append(", ").append(METASPACE).append(", ");
+      return pauseEvent(time, GcEvent.LogType.FULL_GC, pause)
+          .setTypeDetail(typeDetail)
+          .setYoungUsageBefore(youngBefore)
+          .setYoungCapacity(YOUNG_CAPACITY)
+          .setHeapUsageBefore(heapBefore)
+          .setHeapUsageAfter(old)
+          .setHeapCapacity(HEAP_CAPACITY);
+    }
+
+    private long initialMark(long time) throws IOException {
+      final long pause = pauseTicks(minorGcPause / 5);
+      final long heap = old + nextLong(YOUNG_CAPACITY);
+      switchWriter(VM_THREAD);
+      appendTimestamp(time);
+      line.append(": [GC (CMS Initial Mark) [1 CMS-initial-mark: ").append(old).append("K(")
+          .append(OLD_CAPACITY).append("K)] ").append(heap).append("K(").append(HEAP_CAPACITY)
+          .append("K), ");
+      endPause(pauseEvent(time, GcEvent.LogType.CMS_INIT_MARK, pause)
+          .setTypeDetail("GC (CMS Initial Mark); 1 CMS-initial-mark")
+          .setHeapUsageAfter(heap)
+          .setHeapCapacity(HEAP_CAPACITY), pause);
+      return millis(pause);
+    }
+
+    private long remark(long time) throws IOException {
+      final long pause = pauseTicks(minorGcPause);
+      final long young = nextLong(YOUNG_CAPACITY);
+      // the rescan, weak refs processing, class unloading and the scrubs are parts of the pause
+      final long[] parts = new long[5];
+      for (int i = 0; i < parts.length; i++) {
+        parts[i] = nextLong(pause / 6) + 1;
+      }
+      switchWriter(VM_THREAD);
+      appendTimestamp(time);
+      line.append(": [GC (CMS Final Remark) [YG occupancy: ").append(young).append(" K (")
+          .append(YOUNG_CAPACITY).append(" K)]");
+      appendPart(time, "Rescan (parallel) ,", parts[0]);
+      appendPart(time, "weak refs processing,", parts[1]);
+      appendPart(time, "class unloading,", parts[2]);
+      appendPart(time, "scrub symbol table,", parts[3]);
+      appendPart(time, "scrub string table,", parts[4]);
+      line.append("[1 CMS-remark: ").append(old).append("K(").append(OLD_CAPACITY).append("K)] ")
+          .append(old + young).append("K(").append(HEAP_CAPACITY).append("K), ");
+      endPause(pauseEvent(time, GcEvent.LogType.CMS_FINAL_REMARK, pause)
+          .setTypeDetail("GC (CMS Final Remark); YG occupancy; Rescan (parallel); "
+              + "weak refs processing; class unloading; scrub symbol table; scrub string table; "
+              + "1 CMS-remark")
+          .setRefTime(parts[1] / PAUSE_UNIT)
+          .setHeapUsageAfter(old + young)
+          .setHeapCapacity(HEAP_CAPACITY), pause);
+      return millis(pause);
+    }
+
+    // starts or ends the concurrent phase in progress
+    private void concurrentStep(long time) throws IOException {
+      if (!phaseStarted) {
+        switchWriter(CMS_THREAD);
+        appendTimestamp(time);
+        line.append(": [").append(CONCURRENT_PHASES[phase]);
+        writeLine("-start]");
+        event(GcEvent.newBuilder()
+            .setThread(CMS_THREAD)
+            .setTimestamp(time)
+            .setLogType(GcEvent.LogType.CMS_CONCURRENT)
+            .setTypeDetail(CONCURRENT_PHASES[phase] + "-start"));
+        phaseStarted = true;
+        phaseStart = time;
+        nextConcurrent = time + 1 + nextLong(phase == ABORTABLE_PRECLEAN ? 1_000 : 200);
+        return;
+      }
+      endPhase(time);
+      nextConcurrent = time;
+      if (phase == ABORTABLE_PRECLEAN) {
+        nextConcurrent += remark(time);
+      } else if (phase == SWEEP) {
+        old -= nextLong(old / 2);
+      }
+      phaseStarted = false;
+      phase++;
+      if (phase == CONCURRENT_PHASES.length) {
+        phase = -1;
+        nextConcurrent = Long.MAX_VALUE;
+      }
+    }
+
+    private void endPhase(long time) throws IOException {
+      final long wall = Math.max(time - phaseStart, 0);
+      final long cpu = wall - nextLong(wall / 2);
+      final long real = (wall + 5) / 10;
+      final long user = real * 3 + nextLong(3);
+      final long sys = nextLong(real / 10 + 1);
+      switchWriter(CMS_THREAD);
+      appendTimestamp(time);
+      line.append(": [").append(CONCURRENT_PHASES[phase]).append(": ");
+      appendFixed(line, cpu, 3);
+      line.append('/');
+      appendFixed(line, wall, 3);
+      line.append(" secs] ");
+      appendTimes(user, sys, real);
+      writeLine(" ");
+      event(GcEvent.newBuilder()
+          .setThread(CMS_THREAD)
+          .setTimestamp(time)
+          .setLogType(GcEvent.LogType.CMS_CONCURRENT)
+          .setTypeDetail(CONCURRENT_PHASES[phase])
+          .setCmsCpuTime(cpu / CONCURRENT_UNIT)
+          .setCmsWallTime(wall / CONCURRENT_UNIT)
+          .setUserTime(user / TIMES_UNIT)
+          .setSysTime(sys / TIMES_UNIT)
+          .setRealTime(real / TIMES_UNIT));
+    }
+
+    private GcEvent.Builder pauseEvent(long time, GcEvent.LogType logType, long pause) {
+      return GcEvent.newBuilder()
+          .setThread(VM_THREAD)
+          .setTimestamp(time)
+          .setLogType(logType)
+          .setPauseTime(pause / PAUSE_UNIT);
+    }
+
+    // appends the pause time and the Times to the line, and writes the line and the event
+    private void endPause(GcEvent.Builder event, long pause) throws IOException {
+      final long real = (pause + 50_000) / 100_000;
+      final long user = real * 2 + nextLong(2);
+      final long sys = nextLong(real / 10 + 1);
+      appendFixed(line, pause, 7);
+      line.append(" secs] ");
+      appendTimes(user, sys, real);
+      writeLine(" ");
+      event(event
+          .setUserTime(user / TIMES_UNIT)
+          .setSysTime(sys / TIMES_UNIT)
+          .setRealTime(real / TIMES_UNIT));
+    }
+
+    private void event(GcEvent.Builder event) {
+      eventsWritten++;
+      listener.accept(event.build());
+    }
+
+    // log-normal pause time in 0.1 microseconds, at least 1 millisecond
+    private long pauseTicks(double median) {
+      double pause = median * Math.exp(random.nextGaussian() * pauseSigma);
+      if (random.nextDouble() < outlierRate) {
+        pause *= outlierFactor;
+      }
+      return Math.max(Math.round(pause * PAUSE_UNIT), (long) (PAUSE_UNIT / 1_000));
+    }
+
+    private long millis(long pauseTicks) {
+      return (long) Math.ceil(pauseTicks / (PAUSE_UNIT / 1_000));
+    }
+
+    private long nextLong(long bound) {
+      return bound <= 0 ? 0 : (long) (random.nextDouble() * bound);
+    }
+
+    private void switchWriter(int thread) throws IOException {
+      if (writer != thread) {
+        writer = thread;
+        out.write("<writer thread='" + thread + "'/>\n");
+      }
+    }
+
+    private void appendTimestamp(long time) {
+      appendFixed(line, time, 3);
+    }
+
+    private void appendUsage(long before, long after, long capacity) {
+      line.append(before).append("K-&gt;").append(after).append("K(").append(capacity)
+          .append("K)");
+    }
+
+    private void appendTimes(long user, long sys, long real) {
+      line.append("[Times: user=");
+      appendFixed(line, user, 2);
+      line.append(" sys=");
+      appendFixed(line, sys, 2);
+      line.append(", real=");
+      appendFixed(line, real, 2);
+      line.append(" secs]");
+    }
+
+    private void appendPart(long time, String name, long ticks) {
+      appendTimestamp(time);
+      line.append(": [").append(name).append(' ');
+      appendFixed(line, ticks, 7);
+      line.append(" secs]");
+    }
+
+    private void writeLine(String end) throws IOException {
+      line.append(end).append('\n');
+      out.append(line);
+      line.setLength(0);
+    }
+  }
+
+  // appends the value in the units of 10^-decimals as a decimal number, e.g. 0.0111929 for
+  // 111929 with 7 decimals
+  private static void appendFixed(StringBuilder sb, long value, int decimals) {
+    final String digits = Long.toString(value);
+    if (digits.length() <= decimals) {
+      sb.append("0.");
+      for (int i = digits.length(); i < decimals; i++) {
+        sb.append('0');
+      }
+      sb.append(digits);
+    } else {
+      sb.append(digits, 0, digits.length() - decimals).append('.')
+          .append(digits, digits.length() - decimals, digits.length());
+    }
+  }
+}
@@ -9,29 +9,32 @@
 package edu.kaist.algo.parser;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.MoreObjects;
-import com.google.common.collect.ImmutableList;
 
+import edu.kaist.algo.jfr.FlightRecorder;
+import edu.kaist.algo.jfr.ParseEvent;
 import edu.kaist.algo.model.GcEvent;
+import edu.kaist.algo.model.GcParserCheckpoint;
 
 import org.apache.commons.lang3.StringUtils;
-import org.parboiled.Parboiled;
-import org.parboiled.parserunners.BasicParseRunner;
-import org.parboiled.parserunners.ParseRunner;
-import org.parboiled.support.ParsingResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -39,22 +42,48 @@ import java.util.stream.Stream;
 
 /**
  * The <code>CmsLogParser</code> is responsible to parse the CMS GC log file.
+ *
+ * <p>A parser is the session of the parse of one log, with the writer thread and the split lines
+ * of the log, and is used by one thread at a time. The grammar is in the
+ * {@link CmsLogParserEngine} shared by the parsers, so creating a parser is cheap.
  */
 public class CmsLogParser {
 
   private static final Logger logger = LoggerFactory.getLogger(CmsLogParser.class);
 
   private static final Pattern WRITER_THREAD = Pattern.compile("<writer thread='(\\d+)'/>");
-  private static final Pattern MULTI_LINE = Pattern.compile(".*GC.*\\[CMS$");
+  private static final int BUFFER_SIZE = 64 * 1024;
 
+  private final CmsLogParserEngine engine;
   @VisibleForTesting
   int currentThread;
   private final Map<Integer, String> threadToIncompleteLine = new HashMap<>();
-  private final ParseRunner<Object> parseRunner;
+  private long offset;
+  private long lineCount;
+  private long unmatchedLineCount;
 
+  /**
+   * Creates the parser of a log on the shared engine, from its beginning.
+   */
   public CmsLogParser() {
-    final CmsGcLogRule parser = Parboiled.createParser(CmsGcLogRule.class);
-    parseRunner = new BasicParseRunner<>(parser.InputLine());
+    this(CmsLogParserEngine.getInstance(), GcParserCheckpoint.getDefaultInstance());
+  }
+
+  /**
+   * Creates the parser of a log on the shared engine resuming from the given checkpoint, which is
+   * taken by {@link #checkpoint()} after parsing the previous part of the log.
+   *
+   * @param checkpoint the checkpoint to resume from
+   */
+  public CmsLogParser(GcParserCheckpoint checkpoint) {
+    this(CmsLogParserEngine.getInstance(), checkpoint);
+  }
+
+  CmsLogParser(CmsLogParserEngine engine, GcParserCheckpoint checkpoint) {
+    this.engine = engine;
+    offset = checkpoint.getOffset();
+    currentThread = checkpoint.getCurrentThread();
+    threadToIncompleteLine.putAll(checkpoint.getIncompleteLines());
   }
 
   /**
@@ -72,6 +101,54 @@ public class CmsLogParser {
     return Collections.emptyList();
   }
 
+  /**
+   * Parses the complete lines of the given log file from the byte offset to the list of GcEvent.
+   * The last line is left for the next parse if it is not terminated by a line feed yet, since
+   * the log may still be written.
+   *
+   * @param path path of the log file
+   * @param offset byte offset of the first line to parse
+   * @return list of GcEvent
+   * @throws IOException if the log file cannot be read
+   */
+  public List<GcEvent> parse(final Path path, final long offset) throws IOException {
+    final ParseEvent parseEvent = FlightRecorder.beginParse();
+    final long startLineCount = lineCount;
+    final long startUnmatchedLineCount = unmatchedLineCount;
+    this.offset = offset;
+    final List<GcEvent> events = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      channel.position(offset);
+      final InputStream inputStream = Channels.newInputStream(channel);
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      final ByteArrayOutputStream line = new ByteArrayOutputStream();
+      long position = offset;
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        int start = 0;
+        for (int i = 0; i < read; i++) {
+          if (buffer[i] != '\n') {
+            continue;
+          }
+          line.write(buffer, start, i - start);
+          final GcEvent event = parseLine(StringUtils.removeEnd(
+              new String(line.toByteArray(), StandardCharsets.UTF_8), "\r"));
+          if (event != null) {
+            events.add(event);
+          }
+          line.reset();
+          start = i + 1;
+          this.offset = position + start;
+        }
+        line.write(buffer, start, read - start);
+        position += read;
+      }
+    }
+    FlightRecorder.commitParse(parseEvent, path.toString(), this.offset - offset,
+        lineCount - startLineCount, unmatchedLineCount - startUnmatchedLineCount, events.size());
+    return Collections.unmodifiableList(events);
+  }
+
   /**
    * Parses the given logs to the list of GcEvent.
    *
@@ -83,22 +160,67 @@ public class CmsLogParser {
         .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
   }
 
+  /**
+   * Returns the state of the parser after the last complete line parsed by
+   * {@link #parse(Path, long)}.
+   *
+   * @return the checkpoint to resume parsing from
+   */
+  public GcParserCheckpoint checkpoint() {
+    return GcParserCheckpoint.newBuilder()
+        .setOffset(offset)
+        .setCurrentThread(currentThread)
+        .putAllIncompleteLines(threadToIncompleteLine)
+        .build();
+  }
+
+  /**
+   * Returns the number of the lines parsed by this parser, e.g. for the parsing rate.
+   *
+   * @return the number of the parsed lines
+   */
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Returns the number of the lines (joined with their first part when split) not matching the
+   * grammar of the events, e.g. the headers of the log or the lines of other collectors.
+   *
+   * @return the number of the unmatched lines
+   */
+  public long getUnmatchedLineCount() {
+    return unmatchedLineCount;
+  }
+
   @VisibleForTesting
   GcEvent parseLine(String line) {
+    lineCount++;
     if (line.startsWith("<writer")) {
       currentThread = parseWriterThreadId(line);
-    } else if (MULTI_LINE.matcher(line).matches()) {
+    } else if (isFirstHalf(line)) {
       threadToIncompleteLine.put(currentThread, line);
     } else {
       if (threadToIncompleteLine.containsKey(currentThread)) {
         final String previousLine = threadToIncompleteLine.remove(currentThread);
         line = previousLine + line;
       }
-      return parseGcEvent(line);
+      final GcEvent event = parseGcEvent(line);
+      if (event == null) {
+        unmatchedLineCount++;
+      }
+      return event;
     }
     return null;
   }
 
+  // The first half of a collection cut by the log of another thread, e.g.
+  // "1.0: [GC (Allocation Failure) 1.0: [ParNew: ...], 1.0: [CMS", matching ".*GC.*\[CMS$". The
+  // "GC" cannot overlap the "[CMS", so it is before it anywhere in the line.
+  private static boolean isFirstHalf(String line) {
+    return line.endsWith("[CMS") && line.contains("GC");
+  }
+
   @VisibleForTesting
   int parseWriterThreadId(String line) {
     final Matcher m = WRITER_THREAD.matcher(line);
@@ -114,66 +236,6 @@ public class CmsLogParser {
 
   @VisibleForTesting
   GcEvent parseGcEvent(final String line) {
-    final ParsingResult<Object> result = parseRunner.run(line);
-    if (!result.matched) {
-      return null;
-    }
-    final GcEventNode node = (GcEventNode) result.resultValue;
-    final GcEvent.LogType logType = convertLogType(node);
-    final String typeDetails =
-        Stream.concat(Stream.of(node), node.children().stream())
-            .map(GcEventNode::typeAndDetail)
-            .collect(Collectors.joining("; "));
-    final GcEvent.Builder builder = GcEvent.newBuilder()
-        .setThread(currentThread)
-        .setTimestamp(MoreObjects.firstNonNull(node.timestamp(), 0L))
-        .setLogType(logType)
-        .setPauseTime(MoreObjects.firstNonNull(node.elapsedTime(), 0.0))
-        .setUserTime(MoreObjects.firstNonNull(node.user(), 0.0))
-        .setSysTime(MoreObjects.firstNonNull(node.sys(), 0.0))
-        .setRealTime(MoreObjects.firstNonNull(node.real(), 0.0))
-        .setCmsCpuTime(MoreObjects.firstNonNull(node.cmsCpuTime(), 0.0))
-        .setCmsWallTime(MoreObjects.firstNonNull(node.cmsWallTime(), 0.0))
-        .setTypeDetail(typeDetails);
-    if (logType == GcEvent.LogType.CMS_FINAL_REMARK) {
-      final Optional<GcEventNode> weakRefTimeOption = node.children().stream()
-          .filter(e -> StringUtils.equals(e.type(), "weak refs processing"))
-          .findFirst();
-      if (weakRefTimeOption.isPresent()) {
-        double refTime = MoreObjects.firstNonNull(weakRefTimeOption.get().elapsedTime(), 0.0);
-        builder.setRefTime(refTime);
-      }
-    }
-    return builder.build();
-  }
-
-  @VisibleForTesting
-  GcEvent.LogType convertLogType(final GcEventNode node) {
-    if (StringUtils.startsWith(node.type(), "CMS-concurrent-")) {
-      return GcEvent.LogType.CMS_CONCURRENT;
-    }
-    if (StringUtils.equals(node.type(), "Full GC")) {
-      return GcEvent.LogType.FULL_GC;
-    }
-    // GC Pause that starts with "GC" can be either one of the following:
-    //   * CMS initial mark
-    //   * CMS remark
-    //   * ParNew (Minor GC)
-    //   * ParNew that ended up as Full GC
-    if (StringUtils.equals(node.type(), "GC")) {
-      if (StringUtils.equals(node.detail(), "CMS Initial Mark")) {
-        return GcEvent.LogType.CMS_INIT_MARK;
-      }
-      if (StringUtils.equals(node.detail(), "CMS Final Remark")) {
-        return GcEvent.LogType.CMS_FINAL_REMARK;
-      }
-      final List<String> types = node.children().stream()
-          .map(GcEventNode::type).collect(Collectors.toList());
-      // If ParNew ended up in full GC, [CMS ... ] appears in the log.
-      final boolean isFullGc = Collections.indexOfSubList(
-          types, ImmutableList.of("ParNew", "CMS")) != -1;
-      return isFullGc ? GcEvent.LogType.FULL_GC : GcEvent.LogType.MINOR_GC;
-    }
-    throw new IllegalArgumentException("Log type must be specified. Check the log.");
+    return engine.parseGcEvent(line, currentThread);
   }
 }
@@ -0,0 +1,203 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import edu.kaist.algo.model.GcEvent;
+import edu.kaist.algo.model.GcParserCheckpoint;
+
+import org.apache.commons.lang3.StringUtils;
+import org.parboiled.Parboiled;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.parserunners.ParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The <code>CmsLogParserEngine</code> is the compiled grammar of the CMS GC log, shared by the
+ * parsers of any number of logs and threads.
+ *
+ * <p>The engine has no state of a log: each {@link CmsLogParser} created by it is the session of
+ * a parse, with the writer thread and the split lines of its log. The grammar is generated by
+ * parboiled once per JVM, and its rules are built once per thread, since the actions of the rules
+ * share the context of a parse. So the concurrent parses on an engine never wait for each other.
+ */
+public final class CmsLogParserEngine {
+  private static final CmsLogParserEngine INSTANCE = new CmsLogParserEngine();
+
+  private final ThreadLocal<ParseRunner<Object>> parseRunner =
+      ThreadLocal.withInitial(CmsLogParserEngine::createParseRunner);
+
+  private CmsLogParserEngine() {
+  }
+
+  /**
+   * Returns the engine shared by the parsers of this JVM.
+   *
+   * @return the shared engine
+   */
+  public static CmsLogParserEngine getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Creates the parser of a log, from its beginning.
+   *
+   * @return the new parser
+   */
+  public CmsLogParser newParser() {
+    return new CmsLogParser(this, GcParserCheckpoint.getDefaultInstance());
+  }
+
+  /**
+   * Creates the parser of a log resuming from the given checkpoint, which is taken by
+   * {@link CmsLogParser#checkpoint()} after parsing the previous part of the log.
+   *
+   * @param checkpoint the checkpoint to resume from
+   * @return the new parser
+   */
+  public CmsLogParser newParser(GcParserCheckpoint checkpoint) {
+    return new CmsLogParser(this, checkpoint);
+  }
+
+  // The first call generates the classes of the grammar, which takes hundreds of milliseconds,
+  // and the later calls only build the rules.
+  private static ParseRunner<Object> createParseRunner() {
+    final CmsGcLogRule parser = Parboiled.createParser(CmsGcLogRule.class);
+    return new BasicParseRunner<>(parser.InputLine());
+  }
+
+  /**
+   * Parses the given complete line to a GcEvent.
+   *
+   * @param line the line, joined with its first part when split
+   * @param thread the id of the thread which wrote the line
+   * @return the event, or null if the line is not an event
+   */
+  GcEvent parseGcEvent(final String line, final int thread) {
+    if (!isCandidate(line)) {
+      return null;
+    }
+    final ParsingResult<Object> result = parseRunner.get().run(line);
+    if (!result.matched) {
+      return null;
+    }
+    final GcEventNode node = (GcEventNode) result.resultValue;
+    final GcEvent.LogType logType = convertLogType(node);
+    final String typeDetails =
+        Stream.concat(Stream.of(node), node.children().stream())
+            .map(GcEventNode::typeAndDetail)
+            .collect(Collectors.joining("; "));
+    final GcEvent.Builder builder = GcEvent.newBuilder()
+        .setThread(thread)
+        .setTimestamp(MoreObjects.firstNonNull(node.timestamp(), 0L))
+        .setLogType(logType)
+        .setPauseTime(MoreObjects.firstNonNull(node.elapsedTime(), 0.0))
+        .setUserTime(MoreObjects.firstNonNull(node.user(), 0.0))
+        .setSysTime(MoreObjects.firstNonNull(node.sys(), 0.0))
+        .setRealTime(MoreObjects.firstNonNull(node.real(), 0.0))
+        .setCmsCpuTime(MoreObjects.firstNonNull(node.cmsCpuTime(), 0.0))
+        .setCmsWallTime(MoreObjects.firstNonNull(node.cmsWallTime(), 0.0))
+        .setTypeDetail(typeDetails);
+    setUsage(builder, node);
+    if (logType == GcEvent.LogType.CMS_FINAL_REMARK) {
+      final Optional<GcEventNode> weakRefTimeOption = node.children().stream()
+          .filter(e -> StringUtils.equals(e.type(), "weak refs processing"))
+          .findFirst();
+      if (weakRefTimeOption.isPresent()) {
+        double refTime = MoreObjects.firstNonNull(weakRefTimeOption.get().elapsedTime(), 0.0);
+        builder.setRefTime(refTime);
+      }
+    }
+    return builder.build();
+  }
+
+  // Rejects most of the lines of a hotspot log, e.g. the compiler log, before the grammar, which
+  // fails slowly on them. Every line matching the grammar starts with a time or an event, and has
+  // the times of a collection or is a concurrent phase, so this never rejects an event.
+  @VisibleForTesting
+  static boolean isCandidate(String line) {
+    if (line.isEmpty()) {
+      return false;
+    }
+    final char first = line.charAt(0);
+    if (first != '[' && (first < '0' || first > '9')) {
+      return false;
+    }
+    return line.contains("[Times:") || line.contains("[CMS-concurrent-");
+  }
+
+  // The root node has the usage of the whole heap, and the ParNew child has the usage of the young
+  // gen. When the old gen was collected, the young gen is what is left of the heap after the CMS
+  // child, since ParNew may have given up (e.g. promotion failed) before it.
+  private static void setUsage(GcEvent.Builder builder, GcEventNode node) {
+    builder.setHeapUsageBefore(MoreObjects.firstNonNull(node.prevUsage(), 0L))
+        .setHeapUsageAfter(MoreObjects.firstNonNull(node.afterUsage(), 0L))
+        .setHeapCapacity(MoreObjects.firstNonNull(node.capacity(), 0L));
+
+    final Optional<GcEventNode> oldGen = findChildWithUsage(node, "CMS");
+    if (oldGen.isPresent() && node.prevUsage() != null && node.capacity() != null) {
+      builder.setYoungUsageBefore(Math.max(node.prevUsage() - oldGen.get().prevUsage(), 0))
+          .setYoungUsageAfter(Math.max(node.afterUsage() - oldGen.get().afterUsage(), 0))
+          .setYoungCapacity(Math.max(node.capacity() - oldGen.get().capacity(), 0));
+      return;
+    }
+    final Optional<GcEventNode> youngGen = findChildWithUsage(node, "ParNew");
+    if (youngGen.isPresent()) {
+      builder.setYoungUsageBefore(youngGen.get().prevUsage())
+          .setYoungUsageAfter(youngGen.get().afterUsage())
+          .setYoungCapacity(youngGen.get().capacity());
+    }
+  }
+
+  private static Optional<GcEventNode> findChildWithUsage(GcEventNode node, String type) {
+    return node.children().stream()
+        .filter(e -> StringUtils.equals(e.type(), type))
+        .filter(e -> e.prevUsage() != null && e.capacity() != null)
+        .findFirst();
+  }
+
+  @VisibleForTesting
+  static GcEvent.LogType convertLogType(final GcEventNode node) {
+    if (StringUtils.startsWith(node.type(), "CMS-concurrent-")) {
+      return GcEvent.LogType.CMS_CONCURRENT;
+    }
+    if (StringUtils.equals(node.type(), "Full GC")) {
+      return GcEvent.LogType.FULL_GC;
+    }
+    // GC Pause that starts with "GC" can be either one of the following:
+    //   * CMS initial mark
+    //   * CMS remark
+    //   * ParNew (Minor GC)
+    //   * ParNew that ended up as Full GC
+    if (StringUtils.equals(node.type(), "GC")) {
+      if (StringUtils.equals(node.detail(), "CMS Initial Mark")) {
+        return GcEvent.LogType.CMS_INIT_MARK;
+      }
+      if (StringUtils.equals(node.detail(), "CMS Final Remark")) {
+        return GcEvent.LogType.CMS_FINAL_REMARK;
+      }
+      final List<String> types = node.children().stream()
+          .map(GcEventNode::type).collect(Collectors.toList());
+      // If ParNew ended up in full GC, [CMS ... ] appears in the log.
+      final boolean isFullGc = Collections.indexOfSubList(
+          types, ImmutableList.of("ParNew", "CMS")) != -1;
+      return isFullGc ? GcEvent.LogType.FULL_GC : GcEvent.LogType.MINOR_GC;
+    }
+    throw new IllegalArgumentException("Log type must be specified. Check the log.");
+  }
+}
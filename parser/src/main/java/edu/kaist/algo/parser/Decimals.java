@@ -0,0 +1,93 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import org.apache.commons.lang3.StringUtils;
+import org.parboiled.buffers.InputBuffer;
+
+/**
+ * Parses the numbers of the log from the input buffer of the grammar, without extracting them to
+ * Strings first.
+ */
+final class Decimals {
+  private static final int MAX_LONG_DIGITS = 18;
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    // every power up to 10^22 is exact in a double
+    double power = 1;
+    for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = power;
+      power *= 10;
+    }
+  }
+
+  private Decimals() {
+  }
+
+  /**
+   * Parses the digits of the given range as a long, skipping the decimal point, e.g. "2.688" to
+   * 2688, the fixed-point value with as many decimal places as in the log.
+   *
+   * @param buffer the input buffer
+   * @param start the start index of the digits
+   * @param end the end index of the digits, exclusive
+   * @return the value of the digits
+   */
+  static long parseFixedPoint(InputBuffer buffer, int start, int end) {
+    if (end - start > MAX_LONG_DIGITS) {
+      // may overflow, fails as before
+      return Long.parseLong(StringUtils.remove(buffer.extract(start, end), "."));
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      final char c = buffer.charAt(i);
+      if (c != '.') {
+        value = value * 10 + (c - '0');
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Parses the decimal of the given range as a double, e.g. "0.0110677", to the same value as
+   * {@link Double#valueOf(String)}.
+   *
+   * @param buffer the input buffer
+   * @param start the start index of the decimal
+   * @param end the end index of the decimal, exclusive
+   * @return the value of the decimal
+   */
+  static double parseDouble(InputBuffer buffer, int start, int end) {
+    long mantissa = 0;
+    int scale = 0;
+    boolean fraction = false;
+    for (int i = start; i < end; i++) {
+      final char c = buffer.charAt(i);
+      if (c == '.') {
+        fraction = true;
+        continue;
+      }
+      if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+        return Double.parseDouble(buffer.extract(start, end));
+      }
+      mantissa = mantissa * 10 + (c - '0');
+      if (fraction) {
+        scale++;
+      }
+    }
+    if (scale >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(buffer.extract(start, end));
+    }
+    // both operands are exact, so the quotient is the correctly rounded value of the decimal,
+    // as parsed by Double.valueOf
+    return mantissa / POWERS_OF_TEN[scale];
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * ----------------------------------------------------------------------------
+ * "THE BEER-WARE LICENSE"
+ * If we meet some day, and you think
+ * this stuff is worth it, you can buy me a beer in return.
+ * ----------------------------------------------------------------------------
+ */
+
+package edu.kaist.algo.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.kaist.algo.model.GcEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RunWith(JUnit4.class)
+public class CmsLogGeneratorTest {
+
+  private static String generate(CmsLogGenerator generator, long eventCount) throws Exception {
+    final StringWriter writer = new StringWriter();
+    generator.write(writer, eventCount, e -> { });
+    return writer.toString();
+  }
+
+  @Test
+  public void testSameSeedSameLog() throws Exception {
+    final String log = generate(new CmsLogGenerator(7), 10_000);
+    assertEquals(log, generate(new CmsLogGenerator(7), 10_000));
+    assertNotEquals(log, generate(new CmsLogGenerator(8), 10_000));
+  }
+
+  @Test
+  public void testEventCount() throws Exception {
+    final List<GcEvent> events = new ArrayList<>();
+    final long written = new CmsLogGenerator(7).write(new StringWriter(), 10_000, events::add);
+    assertEquals(events.size(), written);
+    assertTrue(written == 10_000 || written == 10_001);
+    for (GcEvent.LogType logType : new GcEvent.LogType[] {GcEvent.LogType.MINOR_GC,
+        GcEvent.LogType.FULL_GC, GcEvent.LogType.CMS_INIT_MARK, GcEvent.LogType.CMS_FINAL_REMARK,
+        GcEvent.LogType.CMS_CONCURRENT}) {
+      assertTrue(logType.toString(), events.stream().anyMatch(e -> e.getLogType() == logType));
+    }
+  }
+
+  @Test
+  public void testSplitLines() throws Exception {
+    final String log = generate(new CmsLogGenerator(7).setFullGcRate(0.1), 10_000);
+    final Matcher matcher = Pattern.compile("\\[CMS\n<writer thread='11267'/>\n.*\n"
+        + "<writer thread='11779'/>\n \\(concurrent mode failure\\)").matcher(log);
+    assertTrue(matcher.find());
+    assertTrue(log.startsWith("<?xml"));
+    assertTrue(log.endsWith("</hotspot_log>\n"));
+  }
+
+  @Test
+  public void testOutliers() throws Exception {
+    final List<GcEvent> events = new ArrayList<>();
+    new CmsLogGenerator(7).setPauseTimes(0.01, 0.2, 0).setOutliers(0.01, 10)
+        .setFullGcRate(0).write(new StringWriter(), 10_000, events::add);
+    final long outliers = events.stream()
+        .filter(e -> e.getLogType() == GcEvent.LogType.MINOR_GC)
+        .filter(e -> e.getPauseTime() == 0.1)
+        .count();
+    assertTrue(outliers > 0);
+    assertTrue(events.stream()
+        .filter(e -> e.getLogType() == GcEvent.LogType.MINOR_GC)
+        .allMatch(e -> e.getPauseTime() == 0.01 || e.getPauseTime() == 0.1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalRate() throws Exception {
+    new CmsLogGenerator(7).setFullGcRate(1.5);
+  }
+}
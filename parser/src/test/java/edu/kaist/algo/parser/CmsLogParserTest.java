@@ -9,24 +9,46 @@
 package edu.kaist.algo.parser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import com.google.common.io.Resources;
 
+import edu.kaist.algo.jfr.FlightRecorder;
 import edu.kaist.algo.model.GcEvent;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.parboiled.buffers.DefaultInputBuffer;
 
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 @RunWith(JUnit4.class)
 public class CmsLogParserTest {
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
   private final CmsLogParser parser = new CmsLogParser();
 
   @Test
@@ -108,6 +130,25 @@ public class CmsLogParserTest {
         + "83156K-&gt;58798K(99008K), 0.0131301 secs] "
         + "[Times: user=0.02 sys=0.00, real=0.01 secs]");
     assertGcEvent(gcEvent, GcEvent.LogType.MINOR_GC, 0, 126426, 0.0131301, 0.02, 0.00, 0.01);
+    assertEquals(30720, gcEvent.getYoungUsageBefore());
+    assertEquals(3392, gcEvent.getYoungUsageAfter());
+    assertEquals(30720, gcEvent.getYoungCapacity());
+    assertEquals(83156, gcEvent.getHeapUsageBefore());
+    assertEquals(58798, gcEvent.getHeapUsageAfter());
+    assertEquals(99008, gcEvent.getHeapCapacity());
+
+    // young gen is derived from the old gen
+    gcEvent = parser.parseGcEvent("111.569: [Full GC (System.gc()) 111.569: "
+        + "[CMS: 49837K-&gt;38462K(68288K), 0.1817762 secs] 65053K-&gt;38462K(99008K), "
+        + "[Metaspace: 60946K-&gt;60946K(1105920K)], 0.1819922 secs] "
+        + "[Times: user=0.18 sys=0.00, real=0.18 secs]");
+    assertEquals(GcEvent.LogType.FULL_GC, gcEvent.getLogType());
+    assertEquals(15216, gcEvent.getYoungUsageBefore());
+    assertEquals(0, gcEvent.getYoungUsageAfter());
+    assertEquals(30720, gcEvent.getYoungCapacity());
+    assertEquals(65053, gcEvent.getHeapUsageBefore());
+    assertEquals(38462, gcEvent.getHeapUsageAfter());
+    assertEquals(99008, gcEvent.getHeapCapacity());
 
     gcEvent = parser.parseGcEvent("25.969: [CMS-concurrent-reset: 0.000/0.000 secs] "
         + "[Times: user=0.01 sys=0.00, real=0.00 secs]");
@@ -133,92 +174,128 @@ public class CmsLogParserTest {
     assertNull(parser.parseGcEvent(illegalTimestamp));
   }
 
+  @Test
+  public void testIsCandidate() throws Exception {
+    assertTrue(CmsLogParserEngine.isCandidate("2.688: [GC (Allocation Failure) 2.688: [ParNew: "
+        + "27328K-&gt;3392K(30720K), 0.0110677 secs] 27328K-&gt;4114K(99008K), 0.0111929 secs] "
+        + "[Times: user=0.02 sys=0.00, real=0.02 secs] "));
+    assertTrue(CmsLogParserEngine.isCandidate("[GC (CMS Initial Mark) [1 CMS-initial-mark: "
+        + "7698K(68288K)] 7698K(99008K), 0.0005296 secs] [Times: user=0.01 sys=0.00, real=0.00 secs]"));
+    assertTrue(CmsLogParserEngine.isCandidate("5.179: [CMS-concurrent-mark-start]"));
+
+    assertFalse(CmsLogParserEngine.isCandidate(""));
+    assertFalse(CmsLogParserEngine.isCandidate("<dependency_failed type='leaf_type' "
+        + "ctxk='java/util/zip/CRC32' stamp='2.324'/>"));
+    assertFalse(CmsLogParserEngine.isCandidate("1108 : 13 1.1 java.lang.String::hashCode"));
+    assertFalse(CmsLogParserEngine.isCandidate(" (concurrent mode failure): "
+        + "64750K-&gt;45276K(68288K), 0.1975301 secs] [Times: user=0.19 sys=0.00, real=0.20 secs]"));
+  }
+
+  @Test
+  public void testParseDecimalsAsValueOf() throws Exception {
+    final Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      // up to 5 integer and 9 fraction digits, e.g. the times of the log
+      final String fraction = String.format("%09d", random.nextInt(1_000_000_000));
+      final String decimal = random.nextInt(100_000) + "."
+          + fraction.substring(0, 1 + random.nextInt(fraction.length()));
+      final DefaultInputBuffer buffer = new DefaultInputBuffer(decimal.toCharArray());
+      assertEquals(decimal, Double.doubleToLongBits(Double.valueOf(decimal)),
+          Double.doubleToLongBits(Decimals.parseDouble(buffer, 0, decimal.length())));
+      assertEquals(decimal, Long.parseLong(decimal.replace(".", "")),
+          Decimals.parseFixedPoint(buffer, 0, decimal.length()));
+    }
+    final String longDecimal = "12345678901234567890.123456789";
+    assertEquals(Double.valueOf(longDecimal), Decimals.parseDouble(
+        new DefaultInputBuffer(longDecimal.toCharArray()), 0, longDecimal.length()), 0.0);
+  }
+
   @Test
   public void testConvertLogType() throws Exception {
     GcEventNode fullGcNode = GcEventNode.builder().type("Full GC").build();
-    assertEquals(GcEvent.LogType.FULL_GC, parser.convertLogType(fullGcNode));
+    assertEquals(GcEvent.LogType.FULL_GC, CmsLogParserEngine.convertLogType(fullGcNode));
 
     GcEventNode initialMarkNode = GcEventNode.builder()
         .type("GC").detail("CMS Initial Mark").build();
-    assertEquals(GcEvent.LogType.CMS_INIT_MARK, parser.convertLogType(initialMarkNode));
+    assertEquals(GcEvent.LogType.CMS_INIT_MARK, CmsLogParserEngine.convertLogType(initialMarkNode));
 
     GcEventNode finalRemarkNode = GcEventNode.builder()
         .type("GC").detail("CMS Final Remark").build();
-    assertEquals(GcEvent.LogType.CMS_FINAL_REMARK, parser.convertLogType(finalRemarkNode));
+    assertEquals(GcEvent.LogType.CMS_FINAL_REMARK, CmsLogParserEngine.convertLogType(finalRemarkNode));
 
     GcEventNode parNewCmsFullGcNode = GcEventNode.builder()
         .type("GC")
         .addChild(GcEventNode.builder().type("ParNew").build())
         .addChild(GcEventNode.builder().type("CMS").build())
         .build();
-    assertEquals(GcEvent.LogType.FULL_GC, parser.convertLogType(parNewCmsFullGcNode));
+    assertEquals(GcEvent.LogType.FULL_GC, CmsLogParserEngine.convertLogType(parNewCmsFullGcNode));
 
     GcEventNode parNewNode = GcEventNode.builder()
         .type("GC")
         .addChild(GcEventNode.builder().type("ParNew").build())
         .build();
-    assertEquals(GcEvent.LogType.MINOR_GC, parser.convertLogType(parNewNode));
+    assertEquals(GcEvent.LogType.MINOR_GC, CmsLogParserEngine.convertLogType(parNewNode));
 
     GcEventNode cmsMarkStartNode = GcEventNode.builder()
         .type("CMS-concurrent-mark-start")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsMarkStartNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsMarkStartNode));
 
     GcEventNode cmsMarkNode = GcEventNode.builder()
         .type("CMS-concurrent-mark")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsMarkNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsMarkNode));
 
     GcEventNode cmsPrecleanStartNode = GcEventNode.builder()
         .type("CMS-concurrent-preclean-start")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsPrecleanStartNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsPrecleanStartNode));
 
     GcEventNode cmsPrecleanNode = GcEventNode.builder()
         .type("CMS-concurrent-preclean")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsPrecleanNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsPrecleanNode));
 
     GcEventNode cmsAbortablePrecleanStartNode = GcEventNode.builder()
         .type("CMS-concurrent-abortable-preclean-start")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsAbortablePrecleanStartNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsAbortablePrecleanStartNode));
 
     GcEventNode cmsAbortablePrecleanNode = GcEventNode.builder()
         .type("CMS-concurrent-abortable-preclean")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsAbortablePrecleanNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsAbortablePrecleanNode));
 
     GcEventNode cmsSweepStartNode = GcEventNode.builder()
         .type("CMS-concurrent-sweep-start")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsSweepStartNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsSweepStartNode));
 
     GcEventNode cmsSweepNode = GcEventNode.builder()
         .type("CMS-concurrent-sweep")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsSweepNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsSweepNode));
 
     GcEventNode cmsResetStartNode = GcEventNode.builder()
         .type("CMS-concurrent-reset-start")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsResetStartNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsResetStartNode));
 
     GcEventNode cmsResetNode = GcEventNode.builder()
         .type("CMS-concurrent-reset")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsResetNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsResetNode));
 
     GcEventNode cmsCustomNode = GcEventNode.builder()
         .type("CMS-concurrent-custom-type-is-allowed")
         .build();
-    assertEquals(GcEvent.LogType.CMS_CONCURRENT, parser.convertLogType(cmsCustomNode));
+    assertEquals(GcEvent.LogType.CMS_CONCURRENT, CmsLogParserEngine.convertLogType(cmsCustomNode));
   }
 
   @Test(expected = IllegalArgumentException.class)
   public void testConvertLogTypeWithIllegalType() throws Exception {
     GcEventNode illegalNode = GcEventNode.builder().type("illegal-type").build();
-    parser.convertLogType(illegalNode);
+    CmsLogParserEngine.convertLogType(illegalNode);
   }
 
   @Test
@@ -321,6 +398,30 @@ public class CmsLogParserTest {
     assertEquals(258, gcEventCountWithoutCmsConcurrent - fullGcCount); // Total : 263
   }
 
+  @Test
+  public void testParseAppendedLogFile() throws Exception {
+    final byte[] log = Files.readAllBytes(
+        Paths.get(Resources.getResource("hotspot_short.log").toURI()));
+    final List<GcEvent> expected = parser.parse(Stream.of(
+        new String(log, StandardCharsets.UTF_8).split("\n")));
+
+    // cut in the middle of the line after the first half of a multi-line log
+    final int multiLine = new String(log, StandardCharsets.UTF_8).indexOf("[CMS\n");
+    final int cut = multiLine + "[CMS\n".length() + 10;
+    final Path path = folder.newFile("appended.log").toPath();
+    Files.write(path, Arrays.copyOf(log, cut));
+    final CmsLogParser firstParser = new CmsLogParser();
+    final List<GcEvent> result = new ArrayList<>(firstParser.parse(path, 0));
+    assertEquals(multiLine + "[CMS\n".length(), firstParser.checkpoint().getOffset());
+    assertEquals(1, firstParser.checkpoint().getIncompleteLines().size());
+
+    Files.write(path, log);
+    final CmsLogParser resumedParser = new CmsLogParser(firstParser.checkpoint());
+    result.addAll(resumedParser.parse(path, firstParser.checkpoint().getOffset()));
+    assertEquals(expected, result);
+    assertEquals(log.length, resumedParser.checkpoint().getOffset());
+  }
+
   @Test
   public void testCMSConcurrent() throws Exception {
     final String log = "<writer thread='11267'/>\n"
@@ -368,6 +469,68 @@ public class CmsLogParserTest {
     assertEquals("CMS-concurrent-sweep-start", result.get(3).getTypeDetail());
   }
 
+  @Test
+  public void testParseGeneratedLog() throws Exception {
+    // concurrent mode failures are frequent, for many split lines
+    final CmsLogGenerator generator = new CmsLogGenerator(42).setFullGcRate(0.05);
+    final List<GcEvent> expected = new ArrayList<>();
+    final Path path = folder.newFile("generated.log").toPath();
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      generator.write(writer, 100_000, expected::add);
+    }
+    final List<GcEvent> result = parser.parse(path, 0);
+    assertEquals(expected.size(), result.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals("event " + i, expected.get(i), result.get(i));
+    }
+    assertEquals(Files.size(path), parser.checkpoint().getOffset());
+    assertEquals(0, parser.checkpoint().getIncompleteLines().size());
+  }
+
+  @Test
+  public void testParseLogFilesConcurrentlyOnOneEngine() throws Exception {
+    final Path path = Paths.get(Resources.getResource("hotspot_short.log").toURI());
+    final List<GcEvent> expected = parser.parse(path, 0);
+    final CmsLogParserEngine engine = CmsLogParserEngine.getInstance();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<List<GcEvent>>> results = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        results.add(executor.submit(() -> engine.newParser().parse(path, 0)));
+      }
+      for (Future<List<GcEvent>> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseLogFileRecordsFlightEvent() throws Exception {
+    assumeTrue(FlightRecorder.isEnabled());
+    final Path path = Paths.get(Resources.getResource("hotspot_short.log").toURI());
+    final Path dump = folder.getRoot().toPath().resolve("parse.jfr");
+    final List<GcEvent> result;
+    try (Recording recording = new Recording()) {
+      recording.enable("edu.kaist.algo.Parse");
+      recording.start();
+      result = parser.parse(path, 0);
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    final List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+    assertEquals(1, events.size());
+    final RecordedEvent event = events.get(0);
+    assertEquals(path.toString(), event.getString("file"));
+    assertEquals(Files.size(path), event.getLong("bytes"));
+    assertEquals(parser.getLineCount(), event.getLong("lines"));
+    assertEquals(parser.getUnmatchedLineCount(), event.getLong("unmatchedLines"));
+    assertEquals(result.size(), event.getLong("events"));
+  }
+
   private static void assertGcEvent(GcEvent event, GcEvent.LogType logType, int thread, long timestamp,
                                     double pauseTime, double user, double sys, double real) {
     assertEquals(thread, event.getThread());